@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.benchmarks;
+
+import android.graphics.Color;
+import com.facebook.litho.Column;
+import com.facebook.litho.Component;
+import com.facebook.litho.ComponentContext;
+import com.facebook.litho.Row;
+import com.facebook.litho.widget.SolidColor;
+
+/** Builds the synthetic component trees that the benchmarks lay out and mount. */
+final class BenchmarkComponents {
+
+  static final int LEAF_SIZE_PX = 10;
+
+  private BenchmarkComponents() {}
+
+  /**
+   * Creates a tree where every container has {@code width} children and leaves are {@code depth}
+   * levels below the root. Containers alternate between {@link Column} and {@link Row} so that
+   * both flex directions are exercised.
+   */
+  static Component createTree(ComponentContext c, int depth, int width) {
+    return createSubtree(c, depth, width, true);
+  }
+
+  /** Creates a vertical list of {@code count} fixed-height rows, one mountable leaf per row. */
+  static Component createList(ComponentContext c, int count, int rowHeightPx) {
+    final Column.Builder builder = Column.create(c);
+    for (int i = 0; i < count; i++) {
+      builder.child(createLeaf(c, i, rowHeightPx));
+    }
+    return builder.build();
+  }
+
+  static Component createLeaf(ComponentContext c, int index, int heightPx) {
+    return SolidColor.create(c)
+        .color(index % 2 == 0 ? Color.BLACK : Color.WHITE)
+        .heightPx(heightPx)
+        .build();
+  }
+
+  private static Component createSubtree(
+      ComponentContext c, int depth, int width, boolean isColumn) {
+    if (depth == 0) {
+      return SolidColor.create(c)
+          .color(Color.BLACK)
+          .widthPx(LEAF_SIZE_PX)
+          .heightPx(LEAF_SIZE_PX)
+          .build();
+    }
+
+    final Component.ContainerBuilder<?> builder = isColumn ? Column.create(c) : Row.create(c);
+    for (int i = 0; i < width; i++) {
+      builder.child(createSubtree(c, depth - 1, width, !isColumn));
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.benchmarks;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the JMH benchmarks in this package.
+ *
+ * <p>Litho needs an Android environment, so the benchmarks cannot run in a forked JVM the way JMH
+ * usually runs them. Instead this test starts up the Robolectric sandbox and runs JMH in-process
+ * with zero forks. Arguments are read from the {@code com.facebook.litho.benchmarks.args} system
+ * property using the regular JMH command line syntax, e.g. {@code "LayoutState -prof gc -p
+ * depth=5"}.
+ */
+@RunWith(ComponentsTestRunner.class)
+public class BenchmarksRunner {
+
+  static final String ARGS_PROPERTY = "com.facebook.litho.benchmarks.args";
+
+  @Test
+  public void runBenchmarks() throws Exception {
+    final String args = System.getProperty(ARGS_PROPERTY, "").trim();
+    final CommandLineOptions commandLineOptions =
+        new CommandLineOptions(args.isEmpty() ? new String[0] : args.split("\\s+"));
+
+    final OptionsBuilder builder = new OptionsBuilder();
+    if (commandLineOptions.getIncludes().isEmpty()) {
+      builder.include(BenchmarksRunner.class.getPackage().getName() + ".*Benchmark");
+    }
+
+    final Options options =
+        builder.parent(commandLineOptions).forks(0).shouldFailOnError(true).build();
+
+    new Runner(options).run();
+  }
+}
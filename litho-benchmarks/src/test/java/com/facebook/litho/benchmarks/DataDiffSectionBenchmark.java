@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.benchmarks;
+
+import com.facebook.litho.ThreadUtils;
+import com.facebook.litho.sections.SectionContext;
+import com.facebook.litho.sections.SectionTree;
+import com.facebook.litho.testing.sections.TestGroupSection;
+import com.facebook.litho.testing.sections.TestTarget;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Measures the change set calculation of a {@code DataDiffSection} when its data is replaced. Each
+ * invocation flips between two lists that differ in every {@code changeInterval}-th item, so every
+ * invocation does the same amount of diffing work.
+ */
+@State(Scope.Thread)
+public class DataDiffSectionBenchmark {
+
+  @Param({"100", "1000", "5000"})
+  public int listSize;
+
+  @Param({"10", "2"})
+  public int changeInterval;
+
+  private SectionContext mSectionContext;
+  private SectionTree mSectionTree;
+  private TestTarget mTestTarget;
+  private List<String> mData;
+  private List<String> mChangedData;
+  private boolean mUseChangedData;
+
+  @Setup
+  public void setup() {
+    ThreadUtils.setMainThreadOverride(ThreadUtils.OVERRIDE_MAIN_THREAD_TRUE);
+    mSectionContext = new SectionContext(RuntimeEnvironment.application);
+    mTestTarget = new TestTarget();
+    mSectionTree = SectionTree.create(mSectionContext, mTestTarget).build();
+
+    mData = new ArrayList<>(listSize);
+    mChangedData = new ArrayList<>(listSize);
+    for (int i = 0; i < listSize; i++) {
+      final String item = Integer.toString(i);
+      mData.add(item);
+      mChangedData.add(i % changeInterval == 0 ? item + "'" : item);
+    }
+
+    mSectionTree.setRoot(TestGroupSection.create(mSectionContext).data(mData).build());
+  }
+
+  @Benchmark
+  public void diff() {
+    mUseChangedData = !mUseChangedData;
+    mSectionTree.setRoot(
+        TestGroupSection.create(mSectionContext)
+            .data(mUseChangedData ? mChangedData : mData)
+            .build());
+    mTestTarget.clear();
+  }
+
+  @TearDown
+  public void tearDown() {
+    mSectionTree.release();
+    ThreadUtils.setMainThreadOverride(ThreadUtils.OVERRIDE_DISABLED);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.benchmarks;
+
+import android.graphics.Rect;
+import com.facebook.litho.BenchmarkTestHelper;
+import com.facebook.litho.ComponentContext;
+import com.facebook.litho.LithoView;
+import com.facebook.litho.SizeSpec;
+import com.facebook.litho.ThreadUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Measures one incremental mount pass per scroll frame: the visible rect advances by {@code
+ * scrollStepPx} on each invocation and wraps around once it reaches the end of the list.
+ */
+@State(Scope.Thread)
+public class IncrementalMountBenchmark {
+
+  private static final int VIEWPORT_WIDTH_PX = 1080;
+  private static final int VIEWPORT_HEIGHT_PX = 1920;
+  private static final int ROW_HEIGHT_PX = 100;
+
+  @Param({"100", "1000"})
+  public int listSize;
+
+  @Param({"16", "400"})
+  public int scrollStepPx;
+
+  private LithoView mLithoView;
+  private final Rect mVisibleRect = new Rect();
+  private int mMaxScrollY;
+
+  @Setup
+  public void setup() {
+    ThreadUtils.setMainThreadOverride(ThreadUtils.OVERRIDE_MAIN_THREAD_TRUE);
+    final ComponentContext c = new ComponentContext(RuntimeEnvironment.application);
+    mLithoView =
+        BenchmarkTestHelper.createAndMeasureLithoView(
+            c,
+            BenchmarkComponents.createList(c, listSize, ROW_HEIGHT_PX),
+            SizeSpec.makeSizeSpec(VIEWPORT_WIDTH_PX, SizeSpec.EXACTLY),
+            SizeSpec.makeSizeSpec(0, SizeSpec.UNSPECIFIED));
+    mMaxScrollY = Math.max(0, listSize * ROW_HEIGHT_PX - VIEWPORT_HEIGHT_PX);
+    mVisibleRect.set(0, 0, VIEWPORT_WIDTH_PX, VIEWPORT_HEIGHT_PX);
+    mLithoView.performIncrementalMount(mVisibleRect, true);
+  }
+
+  @Benchmark
+  public void scroll() {
+    int top = mVisibleRect.top + scrollStepPx;
+    if (top > mMaxScrollY) {
+      top = 0;
+    }
+    mVisibleRect.offsetTo(0, top);
+    mLithoView.performIncrementalMount(mVisibleRect, true);
+  }
+
+  @TearDown
+  public void tearDown() {
+    BenchmarkTestHelper.unmountLithoView(mLithoView);
+    ThreadUtils.setMainThreadOverride(ThreadUtils.OVERRIDE_DISABLED);
+  }
+}
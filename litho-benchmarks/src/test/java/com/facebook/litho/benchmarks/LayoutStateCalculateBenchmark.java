@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.benchmarks;
+
+import com.facebook.litho.BenchmarkTestHelper;
+import com.facebook.litho.Component;
+import com.facebook.litho.ComponentContext;
+import com.facebook.litho.SizeSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.robolectric.RuntimeEnvironment;
+
+/** Measures a full {@code LayoutState.calculate} for trees of varying depth and width. */
+@State(Scope.Thread)
+public class LayoutStateCalculateBenchmark {
+
+  @Param({"3", "5"})
+  public int depth;
+
+  @Param({"2", "4"})
+  public int width;
+
+  private ComponentContext mContext;
+  private Component mComponent;
+  private int mWidthSpec;
+  private int mHeightSpec;
+
+  @Setup
+  public void setup() {
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    mComponent = BenchmarkComponents.createTree(mContext, depth, width);
+    mWidthSpec = SizeSpec.makeSizeSpec(1080, SizeSpec.EXACTLY);
+    mHeightSpec = SizeSpec.makeSizeSpec(0, SizeSpec.UNSPECIFIED);
+  }
+
+  @Benchmark
+  public void calculateLayoutState() {
+    BenchmarkTestHelper.calculateLayoutState(mContext, mComponent, mWidthSpec, mHeightSpec);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.benchmarks;
+
+import com.facebook.litho.BenchmarkTestHelper;
+import com.facebook.litho.Component;
+import com.facebook.litho.ComponentContext;
+import com.facebook.litho.LithoView;
+import com.facebook.litho.SizeSpec;
+import com.facebook.litho.ThreadUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Measures {@code MountState.mount} of an already calculated layout into an empty {@link
+ * LithoView}. Layout happens in the per-invocation setup so only the mount pass is timed.
+ */
+@State(Scope.Thread)
+public class MountStateMountBenchmark {
+
+  @Param({"3", "5"})
+  public int depth;
+
+  @Param({"2", "4"})
+  public int width;
+
+  private ComponentContext mContext;
+  private Component mComponent;
+  private LithoView mLithoView;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    ThreadUtils.setMainThreadOverride(ThreadUtils.OVERRIDE_MAIN_THREAD_TRUE);
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    mComponent = BenchmarkComponents.createTree(mContext, depth, width);
+  }
+
+  @Setup(Level.Invocation)
+  public void setupInvocation() {
+    mLithoView =
+        BenchmarkTestHelper.createAndMeasureLithoView(
+            mContext,
+            mComponent,
+            SizeSpec.makeSizeSpec(1080, SizeSpec.EXACTLY),
+            SizeSpec.makeSizeSpec(0, SizeSpec.UNSPECIFIED));
+  }
+
+  @Benchmark
+  public void mount() {
+    BenchmarkTestHelper.mountLithoView(mLithoView);
+  }
+
+  @TearDown(Level.Invocation)
+  public void tearDownInvocation() {
+    BenchmarkTestHelper.unmountLithoView(mLithoView);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() {
+    ThreadUtils.setMainThreadOverride(ThreadUtils.OVERRIDE_DISABLED);
+  }
+}
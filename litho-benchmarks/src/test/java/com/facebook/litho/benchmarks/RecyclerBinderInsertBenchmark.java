@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.benchmarks;
+
+import com.facebook.litho.ComponentContext;
+import com.facebook.litho.Size;
+import com.facebook.litho.SizeSpec;
+import com.facebook.litho.ThreadUtils;
+import com.facebook.litho.widget.ChangeSetCompleteCallback;
+import com.facebook.litho.widget.ComponentRenderInfo;
+import com.facebook.litho.widget.RecyclerBinder;
+import com.facebook.litho.widget.RenderInfo;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Measures {@link RecyclerBinder#insertRangeAt} into an empty, measured binder, including the
+ * layouts it computes for the items that fall into the initial range.
+ */
+@State(Scope.Thread)
+public class RecyclerBinderInsertBenchmark {
+
+  private static final int ROW_HEIGHT_PX = 100;
+
+  private static final ChangeSetCompleteCallback NO_OP_CHANGE_SET_COMPLETE_CALLBACK =
+      new ChangeSetCompleteCallback() {
+        @Override
+        public void onDataBound() {}
+
+        @Override
+        public void onDataRendered(boolean isMounted, long uptimeMillis) {}
+      };
+
+  @Param({"20", "100", "1000"})
+  public int listSize;
+
+  private ComponentContext mContext;
+  private List<RenderInfo> mRenderInfos;
+  private RecyclerBinder mRecyclerBinder;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    ThreadUtils.setMainThreadOverride(ThreadUtils.OVERRIDE_MAIN_THREAD_TRUE);
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    mRenderInfos = new ArrayList<>(listSize);
+    for (int i = 0; i < listSize; i++) {
+      mRenderInfos.add(
+          ComponentRenderInfo.create()
+              .component(BenchmarkComponents.createLeaf(mContext, i, ROW_HEIGHT_PX))
+              .build());
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void setupInvocation() {
+    mRecyclerBinder = new RecyclerBinder.Builder().build(mContext);
+    mRecyclerBinder.measure(
+        new Size(),
+        SizeSpec.makeSizeSpec(1080, SizeSpec.EXACTLY),
+        SizeSpec.makeSizeSpec(1920, SizeSpec.EXACTLY),
+        null);
+  }
+
+  @Benchmark
+  public void insertRangeAt() {
+    mRecyclerBinder.insertRangeAt(0, mRenderInfos);
+    mRecyclerBinder.notifyChangeSetComplete(true, NO_OP_CHANGE_SET_COMPLETE_CALLBACK);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() {
+    ThreadUtils.setMainThreadOverride(ThreadUtils.OVERRIDE_DISABLED);
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.FrameworkLogEvents.PARAM_ALLOCATIONS;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_ALLOCATIONS_BY_COMPONENT;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_MISSES;
+
+import android.support.annotation.Nullable;
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.stats.AllocationStats;
+import com.facebook.litho.stats.LithoStats;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the allocations of layout calculations and mounts when {@link
+ * ComponentsConfiguration#enableAllocationAccounting} is set. A pass is started on the thread that
+ * runs the calculation or the mount, and every allocation made on that thread until the pass ends
+ * is attributed to the component whose layout is being created or that is being mounted, or to the
+ * root component of the pass otherwise.
+ *
+ * <p>When accounting is disabled, recording an allocation costs a read of the configuration.
+ */
+final class AllocationAccounting {
+
+  private static final String UNKNOWN_ROOT_COMPONENT = "unknown";
+
+  private static final ThreadLocal<Pass> sCurrentPass = new ThreadLocal<>();
+
+  private AllocationAccounting() {}
+
+  /**
+   * Starts accounting the allocations of the current thread. Passes can be nested, e.g. for a
+   * layout calculated while mounting, allocations are then only attributed to the innermost one.
+   *
+   * @return the new pass, or null if accounting is disabled.
+   */
+  static @Nullable Pass beginPass(@Nullable String rootComponent) {
+    if (!ComponentsConfiguration.enableAllocationAccounting) {
+      return null;
+    }
+
+    final Pass pass =
+        new Pass(
+            sCurrentPass.get(), rootComponent != null ? rootComponent : UNKNOWN_ROOT_COMPONENT);
+    sCurrentPass.set(pass);
+    return pass;
+  }
+
+  /** Ends a pass of the current thread and adds its counts to {@link LithoStats}. */
+  static void endPass(Pass pass) {
+    if (sCurrentPass.get() == pass) {
+      sCurrentPass.set(pass.mParent);
+    }
+
+    final AllocationStats stats = LithoStats.getAllocationStats();
+    for (Map.Entry<String, int[]> entry : pass.mCountsByComponent.entrySet()) {
+      stats.recordAllocations(entry.getKey(), entry.getValue());
+    }
+    for (Map.Entry<String, int[]> entry : pass.mPoolMisses.entrySet()) {
+      stats.recordPoolMisses(entry.getKey(), entry.getValue()[0]);
+    }
+  }
+
+  /** @return the pass of the current thread, or null if there is none or accounting is disabled. */
+  static @Nullable Pass getCurrentPass() {
+    return ComponentsConfiguration.enableAllocationAccounting ? sCurrentPass.get() : null;
+  }
+
+  /** Records an allocation of the given {@link AllocationStats} category. */
+  static void record(int category) {
+    final Pass pass = getCurrentPass();
+    if (pass != null) {
+      pass.record(category);
+    }
+  }
+
+  /** Records an acquire from the given pool that found it empty. */
+  static void recordPoolMiss(String poolName) {
+    final Pass pass = getCurrentPass();
+    if (pass != null) {
+      pass.recordPoolMiss(poolName);
+    }
+  }
+
+  /** The allocations of one layout calculation or mount. */
+  static final class Pass {
+    private final @Nullable Pass mParent;
+    private final Map<String, int[]> mCountsByComponent = new HashMap<>();
+    private final Map<String, int[]> mPoolMisses = new HashMap<>();
+    private String mCurrentComponent;
+    private int mTotal;
+
+    private Pass(@Nullable Pass parent, String rootComponent) {
+      mParent = parent;
+      mCurrentComponent = rootComponent;
+    }
+
+    /**
+     * Attributes the next allocations to the given component type.
+     *
+     * @return the component type the allocations were attributed to, to restore it with {@link
+     *     #exitComponent(String)}.
+     */
+    String enterComponent(String componentType) {
+      final String previousComponent = mCurrentComponent;
+      mCurrentComponent = componentType;
+      return previousComponent;
+    }
+
+    void exitComponent(String previousComponent) {
+      mCurrentComponent = previousComponent;
+    }
+
+    /** @return the number of objects allocated during the pass, excluding pool misses. */
+    int getTotal() {
+      return mTotal;
+    }
+
+    /** @return the allocations of a component type during the pass, by category. */
+    @Nullable
+    int[] getCounts(String componentType) {
+      return mCountsByComponent.get(componentType);
+    }
+
+    /** @return the misses of a pool during the pass. */
+    int getPoolMisses(String poolName) {
+      final int[] misses = mPoolMisses.get(poolName);
+      return misses == null ? 0 : misses[0];
+    }
+
+    /** Adds the counts of the pass to a perf event of the ComponentsLogger. */
+    void annotate(PerfEvent event) {
+      final String[] countsByComponent = new String[mCountsByComponent.size()];
+      int i = 0;
+      for (Map.Entry<String, int[]> entry : mCountsByComponent.entrySet()) {
+        countsByComponent[i++] = entry.getKey() + ":" + sum(entry.getValue());
+      }
+
+      final String[] poolMisses = new String[mPoolMisses.size()];
+      i = 0;
+      for (Map.Entry<String, int[]> entry : mPoolMisses.entrySet()) {
+        poolMisses[i++] = entry.getKey() + ":" + entry.getValue()[0];
+      }
+
+      event.markerAnnotate(PARAM_ALLOCATIONS, mTotal);
+      event.markerAnnotate(PARAM_ALLOCATIONS_BY_COMPONENT, countsByComponent);
+      event.markerAnnotate(PARAM_POOL_MISSES, poolMisses);
+    }
+
+    private void record(int category) {
+      int[] counts = mCountsByComponent.get(mCurrentComponent);
+      if (counts == null) {
+        counts = new int[AllocationStats.CATEGORY_COUNT];
+        mCountsByComponent.put(mCurrentComponent, counts);
+      }
+      counts[category]++;
+      mTotal++;
+    }
+
+    private void recordPoolMiss(String poolName) {
+      int[] misses = mPoolMisses.get(poolName);
+      if (misses == null) {
+        misses = new int[1];
+        mPoolMisses.put(poolName, misses);
+      }
+      misses[0]++;
+    }
+
+    private static int sum(int[] counts) {
+      int sum = 0;
+      for (int count : counts) {
+        sum += count;
+      }
+      return sum;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.graphics.Rect;
+import java.util.Arrays;
+
+/**
+ * A static R-tree over the bounds of the outputs of a {@link LayoutState}, to find the ones that
+ * intersect a rect without going through all of them.
+ *
+ * <p>The tree is bulk loaded once with the sort-tile-recursive method: the items are sorted in
+ * vertical slices by their horizontal center, and each slice by the vertical center, so that
+ * consecutive items are close on both axes. Groups of {@link #NODE_SIZE} consecutive entries then
+ * make up the nodes of the next level, up to the root. All boxes live in flat arrays.
+ *
+ * <p>Building the index is thread safe, but queries reuse internal buffers and should only be made
+ * from one thread (the main thread, when mounting).
+ */
+class BoundsIndex {
+
+  static final int NODE_SIZE = 16;
+
+  private final int mItemCount;
+  /** left, top, right and bottom of every entry: the items first, then the nodes level by level. */
+  private final int[] mBoxes;
+  /** For items, the index they were added with. For nodes, the entry of their first child. */
+  private final int[] mIndices;
+  /** End (exclusive) of the entries of every level, the items being level 0. */
+  private final int[] mLevelEnds;
+
+  private int[] mStack;
+  private int[] mResults = new int[16];
+  private int mResultCount;
+
+  /**
+   * @param boxes left, top, right and bottom of the bounds of every item, which are referred to by
+   *     their position in this array.
+   */
+  BoundsIndex(int[] boxes, int itemCount) {
+    mItemCount = itemCount;
+
+    int levelCount = 1;
+    int entryCount = itemCount;
+    for (int count = itemCount; count > 1 || (count == 1 && levelCount == 1); ) {
+      count = (count + NODE_SIZE - 1) / NODE_SIZE;
+      entryCount += count;
+      levelCount++;
+    }
+
+    mBoxes = new int[entryCount * 4];
+    mIndices = new int[entryCount];
+    mLevelEnds = new int[levelCount];
+    mStack = new int[levelCount * NODE_SIZE * 2];
+
+    if (itemCount == 0) {
+      return;
+    }
+
+    final long[] order = sortTileRecursive(boxes, itemCount);
+    for (int i = 0; i < itemCount; i++) {
+      final int item = (int) order[i];
+      System.arraycopy(boxes, item * 4, mBoxes, i * 4, 4);
+      mIndices[i] = item;
+    }
+    mLevelEnds[0] = itemCount;
+
+    int levelStart = 0;
+    int levelEnd = itemCount;
+    int entry = itemCount;
+    for (int level = 1; level < levelCount; level++) {
+      for (int child = levelStart; child < levelEnd; child += NODE_SIZE) {
+        final int childrenEnd = Math.min(child + NODE_SIZE, levelEnd);
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        for (int i = child; i < childrenEnd; i++) {
+          left = Math.min(left, mBoxes[i * 4]);
+          top = Math.min(top, mBoxes[i * 4 + 1]);
+          right = Math.max(right, mBoxes[i * 4 + 2]);
+          bottom = Math.max(bottom, mBoxes[i * 4 + 3]);
+        }
+
+        mBoxes[entry * 4] = left;
+        mBoxes[entry * 4 + 1] = top;
+        mBoxes[entry * 4 + 2] = right;
+        mBoxes[entry * 4 + 3] = bottom;
+        mIndices[entry] = child;
+        entry++;
+      }
+
+      levelStart = levelEnd;
+      levelEnd = entry;
+      mLevelEnds[level] = levelEnd;
+    }
+  }
+
+  int getItemCount() {
+    return mItemCount;
+  }
+
+  int query(Rect rect) {
+    return query(rect.left, rect.top, rect.right, rect.bottom);
+  }
+
+  /**
+   * Finds the items that intersect the given rect, with the same semantics as {@link
+   * Rect#intersects(int, int, int, int)}: items that only touch its edges don't.
+   *
+   * @return the number of items found, which can be read with {@link #getResultAt(int)} until the
+   *     next query. They are sorted by the index they were added with.
+   */
+  int query(int left, int top, int right, int bottom) {
+    mResultCount = 0;
+    if (mItemCount == 0) {
+      return 0;
+    }
+
+    final int rootLevel = mLevelEnds.length - 1;
+    int stackSize = 0;
+    mStack[stackSize++] = mLevelEnds[rootLevel] - 1;
+    mStack[stackSize++] = rootLevel;
+
+    while (stackSize > 0) {
+      final int level = mStack[--stackSize];
+      final int node = mStack[--stackSize];
+      final int childLevel = level - 1;
+      final int childrenEnd = Math.min(mIndices[node] + NODE_SIZE, mLevelEnds[childLevel]);
+
+      for (int child = mIndices[node]; child < childrenEnd; child++) {
+        final int offset = child * 4;
+        if (mBoxes[offset] >= right
+            || mBoxes[offset + 2] <= left
+            || mBoxes[offset + 1] >= bottom
+            || mBoxes[offset + 3] <= top) {
+          continue;
+        }
+
+        if (childLevel == 0) {
+          addResult(mIndices[child]);
+        } else {
+          mStack[stackSize++] = child;
+          mStack[stackSize++] = childLevel;
+        }
+      }
+    }
+
+    Arrays.sort(mResults, 0, mResultCount);
+    return mResultCount;
+  }
+
+  int getResultAt(int position) {
+    return mResults[position];
+  }
+
+  private void addResult(int item) {
+    if (mResultCount == mResults.length) {
+      mResults = Arrays.copyOf(mResults, mResultCount * 2);
+    }
+    mResults[mResultCount++] = item;
+  }
+
+  /** @return the items in the order of the leaves, as the item index in the low 32 bits. */
+  private static long[] sortTileRecursive(int[] boxes, int itemCount) {
+    final long[] order = new long[itemCount];
+    for (int i = 0; i < itemCount; i++) {
+      order[i] = sortKey(boxes[i * 4] / 2 + boxes[i * 4 + 2] / 2, i);
+    }
+    Arrays.sort(order);
+
+    final int leafCount = (itemCount + NODE_SIZE - 1) / NODE_SIZE;
+    final int sliceSize = (int) Math.ceil(Math.sqrt(leafCount)) * NODE_SIZE;
+    for (int sliceStart = 0; sliceStart < itemCount; sliceStart += sliceSize) {
+      final int sliceEnd = Math.min(sliceStart + sliceSize, itemCount);
+      for (int i = sliceStart; i < sliceEnd; i++) {
+        final int item = (int) order[i];
+        order[i] = sortKey(boxes[item * 4 + 1] / 2 + boxes[item * 4 + 3] / 2, item);
+      }
+      Arrays.sort(order, sliceStart, sliceEnd);
+    }
+
+    return order;
+  }
+
+  private static long sortKey(int center, int item) {
+    return ((long) center << 32) | item;
+  }
+}
@@ -46,6 +46,7 @@ import com.facebook.litho.drawable.ComparableResDrawable;
 import com.facebook.litho.drawable.DefaultComparableDrawable;
 import com.facebook.litho.reference.DrawableReference;
 import com.facebook.litho.reference.Reference;
+import com.facebook.litho.stats.AllocationStats;
 import com.facebook.yoga.YogaAlign;
 import com.facebook.yoga.YogaDirection;
 import com.facebook.yoga.YogaEdge;
@@ -74,6 +75,23 @@ public abstract class Component extends ComponentLifecycle
   private int mId = sIdGenerator.getAndIncrement();
   @Nullable private String mOwnerGlobalKey;
   private String mGlobalKey;
+  /**
+   * Set instead of, or in debug mode together with, the string global key when {@link
+   * ComponentsConfiguration#useHashedGlobalKeys} is on.
+   */
+  private long mGlobalKeyHash;
+  /** A second hash of the global key, to tell hash collisions apart from duplicate keys. */
+  private long mGlobalKeyCheck;
+
+  private boolean mHasGlobalKeyHash;
+  /**
+   * Whether another component of the tree has the same global key hash, in which case this one is
+   * identified by its string global key instead.
+   */
+  private boolean mIsGlobalKeyHashColliding;
+  /** Whether mGlobalKey only holds the string form of mGlobalKeyHash. */
+  private boolean mIsGlobalKeyCompact;
+
   @Nullable private String mKey;
   private boolean mHasManualKey;
 
@@ -220,10 +238,47 @@ public abstract class Component extends ComponentLifecycle
    * Get a key that is unique to this component within its tree.
    * @return
    */
+  // thread-safe because racing threads would create equal strings
+  @ThreadSafe(enableChecks = false)
   String getGlobalKey() {
+    if (mGlobalKey == null && mHasGlobalKeyHash) {
+      mGlobalKey = ComponentKeyUtils.getHashedGlobalKey(mGlobalKeyHash);
+      mIsGlobalKeyCompact = true;
+    }
     return mGlobalKey;
   }
 
+  /** @return whether this component's global key is tracked by {@link #getGlobalKeyHash()}. */
+  boolean hasGlobalKeyHash() {
+    return mHasGlobalKeyHash && !mIsGlobalKeyHashColliding;
+  }
+
+  /** @return the hash of the global key, only valid if {@link #hasGlobalKeyHash()}. */
+  long getGlobalKeyHash() {
+    return mGlobalKeyHash;
+  }
+
+  /** @return the check of the global key, see {@link ComponentKeyUtils#getKeyCheck(String)}. */
+  long getGlobalKeyCheck() {
+    return mGlobalKeyCheck;
+  }
+
+  /**
+   * Called by the {@link KeyHandler} when another component of the tree has the same global key
+   * hash but a different global key: from then on this component is identified by its string
+   * global key, see {@link ComponentKeyUtils#getCollidingGlobalKey(long, long)}.
+   */
+  void onGlobalKeyHashCollision() {
+    mIsGlobalKeyHashColliding = true;
+    mGlobalKey = ComponentKeyUtils.getCollidingGlobalKey(mGlobalKeyHash, mGlobalKeyCheck);
+    mIsGlobalKeyCompact = true;
+  }
+
+  /** @return whether {@link #getGlobalKey()} is the full string key rather than a hash. */
+  boolean hasFullGlobalKey() {
+    return mGlobalKey != null && !mIsGlobalKeyCompact;
+  }
+
   /**
    * Set a key for this component that is unique within its tree.
    * @param key
@@ -235,6 +290,18 @@ public abstract class Component extends ComponentLifecycle
     mGlobalKey = key;
   }
 
+  // thread-safe because the one write is before all the reads
+  @ThreadSafe(enableChecks = false)
+  @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+  void setGlobalKeyHash(long keyHash, long keyCheck, @Nullable String fullKey) {
+    mGlobalKeyHash = keyHash;
+    mGlobalKeyCheck = keyCheck;
+    mHasGlobalKeyHash = true;
+    mIsGlobalKeyHashColliding = false;
+    mGlobalKey = fullKey;
+    mIsGlobalKeyCompact = false;
+  }
+
   /** @return if has a manually set key */
   boolean hasManualKey() {
     return mHasManualKey;
@@ -284,7 +351,48 @@ public abstract class Component extends ComponentLifecycle
       return childKey;
     }
 
-    /** The component has a manual key set on it but that key is a duplicate * */
+    maybeLogDuplicateManualKey(component, key);
+
+    /**
+     * If the key is a duplicate, we append an index based on the child component's type that would
+     * uniquely identify it.
+     */
+    final int childIndex = getAndIncrementChildIndex(component);
+
+    return ComponentKeyUtils.getKeyForChildPosition(childKey, childIndex);
+  }
+
+  /**
+   * Same as {@link #generateUniqueGlobalKeyForChild(Component, String)}, for hashed global keys.
+   * The keys of the children are derived from the hash and check of this component even if its hash
+   * collides with the one of another component.
+   */
+  private void setUniqueGlobalKeyHashForChild(Component component, String key) {
+    long childKeyHash = ComponentKeyUtils.getKeyHashWithSeparator(mGlobalKeyHash, key);
+    long childKeyCheck = ComponentKeyUtils.getKeyCheckWithSeparator(mGlobalKeyCheck, key);
+    String childKey =
+        ComponentsConfiguration.isDebugModeEnabled && hasFullGlobalKey()
+            ? ComponentKeyUtils.getKeyWithSeparator(mGlobalKey, key)
+            : null;
+    final KeyHandler keyHandler = mScopedContext.getKeyHandler();
+
+    /** Null check is for testing only, the keyHandler should never be null here otherwise. */
+    if (keyHandler != null && keyHandler.hasKeyHash(childKeyHash, childKeyCheck)) {
+      maybeLogDuplicateManualKey(component, key);
+
+      final int childIndex = getAndIncrementChildIndex(component);
+      childKeyHash = ComponentKeyUtils.getKeyHashForChildPosition(childKeyHash, childIndex);
+      childKeyCheck = ComponentKeyUtils.getKeyCheckForChildPosition(childKeyCheck, childIndex);
+      if (childKey != null) {
+        childKey = ComponentKeyUtils.getKeyForChildPosition(childKey, childIndex);
+      }
+    }
+
+    component.setGlobalKeyHash(childKeyHash, childKeyCheck, childKey);
+  }
+
+  /** The component has a manual key set on it but that key is a duplicate * */
+  private void maybeLogDuplicateManualKey(Component component, String key) {
     if (component.mHasManualKey) {
       final ComponentsLogger logger = mScopedContext.getLogger();
       if (logger != null) {
@@ -298,24 +406,20 @@ public abstract class Component extends ComponentLifecycle
                 + "This will result in unexpected behavior if you don't change it.");
       }
     }
+  }
 
+  private int getAndIncrementChildIndex(Component component) {
     final String childType = component.getSimpleName();
 
     if (mChildCounters == null) {
       mChildCounters = new HashMap<>();
     }
 
-    /**
-     * If the key is a duplicate, we append an index based on the child component's type that would
-     * uniquely identify it.
-     */
-    int childIndex = mChildCounters.containsKey(childType) ? mChildCounters.get(childType) : 0;
-
-    String uniqueKey = ComponentKeyUtils.getKeyForChildPosition(childKey, childIndex);
-
+    final int childIndex =
+        mChildCounters.containsKey(childType) ? mChildCounters.get(childType) : 0;
     mChildCounters.put(childType, childIndex + 1);
 
-    return uniqueKey;
+    return childIndex;
   }
 
   public Component makeShallowCopy() {
@@ -342,6 +446,37 @@ public abstract class Component extends ComponentLifecycle
     return component;
   }
 
+  /**
+   * Makes a copy of this component to create its layout again in the given layout pass, with the
+   * same global key, tree props and scope as this instance had in the previous one. Used by {@link
+   * IncrementalLayout}, which creates the layouts of the components with state updates without
+   * creating the layouts of their parents.
+   */
+  Component makeCopyForIncrementalLayout(ComponentContext layoutContext) {
+    final Component component = makeShallowCopy();
+    component.setScopedContext(
+        ComponentContext.withComponentScope(
+            new ComponentContext(
+                mScopedContext,
+                layoutContext.getStateHandler(),
+                layoutContext.getKeyHandler(),
+                null),
+            component));
+
+    // The copy keeps the global key of this instance, which has to be unique in the new layout too.
+    final KeyHandler keyHandler = layoutContext.getKeyHandler();
+    if (keyHandler != null && !ComponentsConfiguration.isEndToEndTestRun) {
+      keyHandler.registerKey(component);
+    }
+
+    if (component.hasState()) {
+      layoutContext.getStateHandler().applyStateUpdatesForComponent(component);
+    }
+    component.mLayoutVersionGenerator.set(true);
+
+    return component;
+  }
+
   boolean hasCachedLayout() {
     return (mLastMeasuredLayout != null);
   }
@@ -533,22 +668,13 @@ public abstract class Component extends ComponentLifecycle
       final Component parentScope = parentContext.getComponentScope();
       final String key = getKey();
 
-      if (parentScope == null) {
+      if (ComponentsConfiguration.useHashedGlobalKeys) {
+        generateKeyHash(parentContext, parentScope, key);
+      } else if (parentScope == null) {
         setGlobalKey(key);
       } else {
         if (parentScope.getGlobalKey() == null) {
-          final ComponentsLogger logger = parentContext.getLogger();
-          if (logger != null) {
-            logger.emitMessage(
-                ComponentsLogger.LogLevel.ERROR,
-                "Trying to generate parent-based key for component "
-                    + getSimpleName()
-                    + " , but parent "
-                    + parentScope.getSimpleName()
-                    + " has a null global key \"."
-                    + " This is most likely a configuration mistake, check the value of ComponentsConfiguration.useGlobalKeys.");
-          }
-
+          logNullParentGlobalKey(parentContext, parentScope);
           setGlobalKey("null" + key);
         } else {
           setGlobalKey(
@@ -558,6 +684,42 @@ public abstract class Component extends ComponentLifecycle
     }
   }
 
+  private void generateKeyHash(
+      ComponentContext parentContext, @Nullable Component parentScope, String key) {
+    // The full keys are only worth building for debugging tools.
+    final boolean keepFullKey = ComponentsConfiguration.isDebugModeEnabled;
+
+    if (parentScope == null) {
+      setGlobalKeyHash(
+          ComponentKeyUtils.getKeyHash(key),
+          ComponentKeyUtils.getKeyCheck(key),
+          keepFullKey ? key : null);
+    } else if (!parentScope.mHasGlobalKeyHash) {
+      logNullParentGlobalKey(parentContext, parentScope);
+      final String nullParentKey = "null" + key;
+      setGlobalKeyHash(
+          ComponentKeyUtils.getKeyHash(nullParentKey),
+          ComponentKeyUtils.getKeyCheck(nullParentKey),
+          keepFullKey ? nullParentKey : null);
+    } else {
+      parentScope.setUniqueGlobalKeyHashForChild(this, key);
+    }
+  }
+
+  private void logNullParentGlobalKey(ComponentContext parentContext, Component parentScope) {
+    final ComponentsLogger logger = parentContext.getLogger();
+    if (logger != null) {
+      logger.emitMessage(
+          ComponentsLogger.LogLevel.ERROR,
+          "Trying to generate parent-based key for component "
+              + getSimpleName()
+              + " , but parent "
+              + parentScope.getSimpleName()
+              + " has a null global key \"."
+              + " This is most likely a configuration mistake, check the value of ComponentsConfiguration.useGlobalKeys.");
+    }
+  }
+
   private void generateErrorEventHandler(ComponentContext parentContext) {
     if (ComponentsConfiguration.enableOnErrorHandling && mErrorEventHandler == null) {
       HasEventDispatcher parentEventDispatcherProvider = parentContext.getComponentScope();
@@ -688,6 +850,7 @@ public abstract class Component extends ComponentLifecycle
         @AttrRes int defStyleAttr,
         @StyleRes int defStyleRes,
         Component component) {
+      AllocationAccounting.record(AllocationStats.COMPONENT_BUILDER);
       mResourceResolver = new ResourceResolver(c);
       mComponent = component;
       mContext = c;
@@ -15,13 +15,27 @@
  */
 package com.facebook.litho;
 
+import com.facebook.litho.stats.AllocationStats;
+
 public class ComponentKeyUtils {
 
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final long CHECK_OFFSET_BASIS = 0x84222325cbf29ce4L;
+  private static final long CHECK_PRIME = 0x9e3779b97f4a7c15L;
+
+  private static final char HASHED_KEY_PREFIX = '#';
+  private static final int HASH_HEX_LENGTH = 16;
+  private static final int HASHED_KEY_LENGTH = 1 + HASH_HEX_LENGTH;
+  private static final int COLLIDING_KEY_LENGTH = 1 + 2 * HASH_HEX_LENGTH;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
   /**
    * @param keyParts a list of objects that will be concatenated to form another component's key
    * @return a key formed by concatenating the key parts delimited by a separator.
    */
   public static String getKeyWithSeparator(Object... keyParts) {
+    AllocationAccounting.record(AllocationStats.GLOBAL_KEY);
     final StringBuilder sb = new StringBuilder();
     sb.append(keyParts[0]);
     for (int i = 1; i < keyParts.length; i++) {
@@ -32,6 +46,7 @@ public class ComponentKeyUtils {
   }
 
   public static String getKeyWithSeparator(String parentGlobalKey, String key) {
+    AllocationAccounting.record(AllocationStats.GLOBAL_KEY);
     int parentLength = parentGlobalKey.length();
     int keyLength = key.length();
     final StringBuilder sb = new StringBuilder(parentLength + keyLength + 1);
@@ -41,10 +56,162 @@ public class ComponentKeyUtils {
   }
 
   public static String getKeyForChildPosition(String currentKey, int index) {
+    AllocationAccounting.record(AllocationStats.GLOBAL_KEY);
     // Index will almost always be under 3 digits
     final StringBuilder sb = new StringBuilder(currentKey.length() + 4);
     sb.append(currentKey).append('!').append(index);
 
     return sb.toString();
   }
+
+  /**
+   * Hashed global keys are 64-bit FNV-1a hashes of the chars of the string key, computed
+   * incrementally: the hash of a child key is derived from the hash of its parent in O(1) instead of
+   * copying the parent key, and it's equal to {@link #getKeyHash(String)} of the equivalent string
+   * key.
+   *
+   * @return the hash of the given string key.
+   */
+  public static long getKeyHash(String key) {
+    return hash(FNV_OFFSET_BASIS, key, FNV_PRIME);
+  }
+
+  /** @return the hash of {@link #getKeyWithSeparator(String, String)} given the parent's hash. */
+  public static long getKeyHashWithSeparator(long parentGlobalKeyHash, String key) {
+    return hash(hash(parentGlobalKeyHash, ',', FNV_PRIME), key, FNV_PRIME);
+  }
+
+  /** @return the hash of {@link #getKeyForChildPosition(String, int)} given the key's hash. */
+  public static long getKeyHashForChildPosition(long currentKeyHash, int index) {
+    return hashChildPosition(currentKeyHash, index, FNV_PRIME);
+  }
+
+  /**
+   * Key checks are a second 64-bit hash of the string key, computed incrementally the same way as
+   * {@link #getKeyHash(String)} with other constants. Two different keys that have the same hash
+   * almost certainly have different checks, which is how such collisions are told apart from
+   * duplicate keys.
+   *
+   * @return the check of the given string key.
+   */
+  public static long getKeyCheck(String key) {
+    return hash(CHECK_OFFSET_BASIS, key, CHECK_PRIME);
+  }
+
+  /** @return the check of {@link #getKeyWithSeparator(String, String)} given the parent's check. */
+  public static long getKeyCheckWithSeparator(long parentGlobalKeyCheck, String key) {
+    return hash(hash(parentGlobalKeyCheck, ',', CHECK_PRIME), key, CHECK_PRIME);
+  }
+
+  /** @return the check of {@link #getKeyForChildPosition(String, int)} given the key's check. */
+  public static long getKeyCheckForChildPosition(long currentKeyCheck, int index) {
+    return hashChildPosition(currentKeyCheck, index, CHECK_PRIME);
+  }
+
+  private static long hashChildPosition(long currentHash, int index, long prime) {
+    long hash = hash(currentHash, '!', prime);
+    long value = index;
+    if (value < 0) {
+      hash = hash(hash, '-', prime);
+      value = -value;
+    }
+
+    long divisor = 1;
+    while (divisor <= value / 10) {
+      divisor *= 10;
+    }
+    for (; divisor > 0; divisor /= 10) {
+      hash = hash(hash, (char) ('0' + (value / divisor) % 10), prime);
+    }
+
+    return hash;
+  }
+
+  /**
+   * @return the fixed length string form of a hashed global key, for the APIs that identify
+   *     components by string.
+   */
+  public static String getHashedGlobalKey(long globalKeyHash) {
+    AllocationAccounting.record(AllocationStats.GLOBAL_KEY);
+    final char[] chars = new char[HASHED_KEY_LENGTH];
+    chars[0] = HASHED_KEY_PREFIX;
+    writeHex(chars, 1, globalKeyHash);
+
+    return new String(chars);
+  }
+
+  /**
+   * @return the string form of the global key of a component whose hash collides with the one of
+   *     another component in the tree. Such components are identified by this string instead of by
+   *     their hash, see {@link KeyHandler}.
+   */
+  public static String getCollidingGlobalKey(long globalKeyHash, long globalKeyCheck) {
+    AllocationAccounting.record(AllocationStats.GLOBAL_KEY);
+    final char[] chars = new char[COLLIDING_KEY_LENGTH];
+    chars[0] = HASHED_KEY_PREFIX;
+    writeHex(chars, 1, globalKeyHash);
+    writeHex(chars, 1 + HASH_HEX_LENGTH, globalKeyCheck);
+
+    return new String(chars);
+  }
+
+  /** @return whether the global key was handed out by {@link #getCollidingGlobalKey(long, long)}. */
+  public static boolean isCollidingGlobalKey(String globalKey) {
+    return globalKey.length() == COLLIDING_KEY_LENGTH && isHexAfterPrefix(globalKey);
+  }
+
+  /**
+   * @return the hash of a global key handed out by a component with a hashed global key: either
+   *     the string form of the hash, or the full string key when that was kept (in debug mode).
+   */
+  public static long getGlobalKeyHash(String globalKey) {
+    if (!isHashedGlobalKey(globalKey)) {
+      return getKeyHash(globalKey);
+    }
+
+    long hash = 0;
+    for (int i = 1; i < HASHED_KEY_LENGTH; i++) {
+      hash = (hash << 4) | Character.digit(globalKey.charAt(i), 16);
+    }
+
+    return hash;
+  }
+
+  private static boolean isHashedGlobalKey(String globalKey) {
+    return globalKey.length() == HASHED_KEY_LENGTH && isHexAfterPrefix(globalKey);
+  }
+
+  private static boolean isHexAfterPrefix(String globalKey) {
+    if (globalKey.charAt(0) != HASHED_KEY_PREFIX) {
+      return false;
+    }
+
+    for (int i = 1, length = globalKey.length(); i < length; i++) {
+      final char c = globalKey.charAt(i);
+      if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static void writeHex(char[] chars, int start, long value) {
+    for (int i = start + HASH_HEX_LENGTH - 1; i >= start; i--) {
+      chars[i] = HEX_DIGITS[(int) (value & 0xF)];
+      value >>>= 4;
+    }
+  }
+
+  private static long hash(long hash, String key, long prime) {
+    for (int i = 0, length = key.length(); i < length; i++) {
+      hash = hash(hash, key.charAt(i), prime);
+    }
+
+    return hash;
+  }
+
+  private static long hash(long hash, char c, long prime) {
+    return (hash ^ c) * prime;
+  }
 }
@@ -162,11 +162,25 @@ public abstract class ComponentLifecycle implements EventDispatcher, EventTrigge
             final Size size = acquireSize(Integer.MIN_VALUE /* initialValue */);
 
             try {
-              component.onMeasure(component.getScopedContext(), node, widthSpec, heightSpec, size);
-
-              if (size.width < 0 || size.height < 0) {
-                throw new IllegalStateException(
-                    "MeasureOutput not set, ComponentLifecycle is: " + component);
+              final boolean useSharedMeasureCache =
+                  ComponentsConfiguration.useSharedMeasureCache
+                      && SharedMeasureCache.isCacheable(component);
+
+              if (!useSharedMeasureCache
+                  || !SharedMeasureCache.getInstance()
+                      .get(component, widthSpec, heightSpec, size)) {
+                component.onMeasure(
+                    component.getScopedContext(), node, widthSpec, heightSpec, size);
+
+                if (size.width < 0 || size.height < 0) {
+                  throw new IllegalStateException(
+                      "MeasureOutput not set, ComponentLifecycle is: " + component);
+                }
+
+                if (useSharedMeasureCache) {
+                  SharedMeasureCache.getInstance()
+                      .put(component, widthSpec, heightSpec, size.width, size.height);
+                }
               }
 
               outputWidth = size.width;
@@ -316,6 +330,13 @@ public abstract class ComponentLifecycle implements EventDispatcher, EventTrigge
       ComponentsSystrace.beginSection("createLayout:" + ((Component) this).getSimpleName());
     }
 
+    // Allocations are attributed to the spec that creates the layout, e.g. the ones of a Column
+    // to the spec that returned it.
+    final AllocationAccounting.Pass allocations =
+        component.canResolve() ? null : AllocationAccounting.getCurrentPass();
+    final String previousComponent =
+        allocations != null ? allocations.enterComponent(component.getSimpleName()) : null;
+
     InternalNode node;
     try {
       if (deferNestedTreeResolution) {
@@ -335,6 +356,10 @@ public abstract class ComponentLifecycle implements EventDispatcher, EventTrigge
       }
     } catch (Throwable t) {
       throw new CreateLayoutException((Component) this, t);
+    } finally {
+      if (allocations != null) {
+        allocations.exitComponent(previousComponent);
+      }
     }
 
     if (isTracing) {
@@ -59,7 +59,6 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
@@ -93,6 +92,9 @@ public class ComponentTree {
   private static final int SCHEDULE_NONE = 0;
   private static final int SCHEDULE_LAYOUT_ASYNC = 1;
   private static final int SCHEDULE_LAYOUT_SYNC = 2;
+
+  /** Cancellations after which a layout a caller waits the size of isn't cancellable anymore. */
+  @VisibleForTesting static final int MAX_CANCELLED_LAYOUTS_FOR_SIZE = 2;
   private final @Nullable String mSplitLayoutTag;
   private final @Nullable LithoAffinityBoosterFactory mAffinityBoosterFactory;
   private final boolean mBoostAfinityLayoutStateFuture;
@@ -149,6 +151,8 @@ public class ComponentTree {
   private final ComponentContext mContext;
   private final boolean mShouldClipChildren;
   private final boolean mPersistInternalNodeTree;
+  private final @Nullable LayoutSnapshotStore mLayoutSnapshotStore;
+  private final long mLayoutSnapshotKey;
 
   @Nullable private LayoutHandler mPreAllocateMountContentHandler;
 
@@ -183,6 +187,16 @@ public class ComponentTree {
   @GuardedBy("mLayoutStateFutureLock")
   private final List<LayoutStateFuture> mLayoutStateFutures = new ArrayList<>();
 
+  /**
+   * Bumped whenever the root or the size specs change, a state update is enqueued for a new layout,
+   * or the tree is released, which cancels the layouts that were started before if {@link
+   * ComponentsConfiguration#cancelSupersededLayouts}.
+   */
+  private final AtomicInteger mLayoutGeneration = new AtomicInteger();
+
+  /** Batches async state updates per frame, if enabled. */
+  private final @Nullable StateUpdateCoalescer mStateUpdateCoalescer;
+
   private volatile boolean mHasMounted;
 
   /** Transition that animates width of root component (LithoView). */
@@ -224,6 +238,12 @@ public class ComponentTree {
   @Nullable
   private LayoutState mBackgroundLayoutState;
 
+  // The latest layout whose state was committed to mStateHandler. Only compared against
+  // mMainThreadLayoutState and mBackgroundLayoutState, which hold the references to it.
+  @GuardedBy("this")
+  @Nullable
+  private LayoutState mCommittedLayoutState;
+
   @GuardedBy("this")
   private StateHandler mStateHandler;
 
@@ -280,6 +300,8 @@ public class ComponentTree {
     mMeasureListener = builder.mMeasureListener;
     mSplitLayoutTag = builder.splitLayoutTag;
     mPersistInternalNodeTree = builder.persistInternalNodeTree;
+    mLayoutSnapshotStore = builder.layoutSnapshotStore;
+    mLayoutSnapshotKey = builder.layoutSnapshotKey;
     mUseSharedLayoutStateFuture = builder.useSharedLayoutStateFuture;
     mAffinityBoosterFactory = builder.affinityBoosterFactory;
     mBoostAfinityLayoutStateFuture = builder.boostAffinityLayoutStateFuture;
@@ -289,9 +311,22 @@ public class ComponentTree {
 
     if (mPreAllocateMountContentHandler == null && builder.canPreallocateOnDefaultHandler) {
       mPreAllocateMountContentHandler =
-          new DefaultPreallocateMountContentHandler(
-              getDefaultPreallocateMountContentThreadLooper());
-    }
+          ComponentsConfiguration.useLayoutScheduler
+              ? LayoutScheduler.getDefault().createLayoutHandler(LayoutScheduler.WARMUP)
+              : new DefaultPreallocateMountContentHandler(
+                  getDefaultPreallocateMountContentThreadLooper());
+    }
+
+    mStateUpdateCoalescer =
+        ComponentsConfiguration.coalesceAsyncStateUpdates
+            ? new StateUpdateCoalescer(
+                new StateUpdateCoalescer.Flusher() {
+                  @Override
+                  public void flush(@Nullable String attribution) {
+                    updateStateInternal(true, attribution);
+                  }
+                })
+            : null;
 
     final StateHandler builderStateHandler = builder.stateHandler;
     mStateHandler = builderStateHandler == null
@@ -317,11 +352,16 @@ public class ComponentTree {
 
   private void ensureLayoutThreadHandler() {
     if (mLayoutThreadHandler == null) {
-      mLayoutThreadHandler =
-          ComponentsConfiguration.threadPoolForBackgroundThreadsConfig == null
-              ? new DefaultLayoutHandler(getDefaultLayoutThreadLooper())
-              : new ThreadPoolLayoutHandler(
-                  ComponentsConfiguration.threadPoolForBackgroundThreadsConfig);
+      if (ComponentsConfiguration.useLayoutScheduler) {
+        mLayoutThreadHandler =
+            LayoutScheduler.getDefault().createLayoutHandler(LayoutScheduler.NEXT_FRAME);
+      } else {
+        mLayoutThreadHandler =
+            ComponentsConfiguration.threadPoolForBackgroundThreadsConfig == null
+                ? new DefaultLayoutHandler(getDefaultLayoutThreadLooper())
+                : new ThreadPoolLayoutHandler(
+                    ComponentsConfiguration.threadPoolForBackgroundThreadsConfig);
+      }
     }
   }
 
@@ -738,6 +778,21 @@ public class ComponentTree {
         || isCompatibleSpec(mBackgroundLayoutState, widthSpec, heightSpec);
   }
 
+  /**
+   * @return a rough estimate, in bytes, of the memory retained by the layouts of this
+   *     ComponentTree, which is freed when it's released.
+   */
+  public synchronized int estimateRetainedSizeBytes() {
+    int size = 0;
+    if (mMainThreadLayoutState != null) {
+      size += mMainThreadLayoutState.estimateRetainedSizeBytes();
+    }
+    if (mBackgroundLayoutState != null && mBackgroundLayoutState != mMainThreadLayoutState) {
+      size += mBackgroundLayoutState.estimateRetainedSizeBytes();
+    }
+    return size;
+  }
+
   void mountComponent(Rect currentVisibleArea, boolean processVisibilityOutputs) {
     assertMainThread();
 
@@ -920,6 +975,7 @@ public class ComponentTree {
               null,
               treeProps,
               CalculateLayoutSource.MEASURE,
+              null,
               null);
 
       final List<Component> components;
@@ -932,6 +988,7 @@ public class ComponentTree {
 
         localLayoutState.clearComponents();
         mMainThreadLayoutState = localLayoutState;
+        mCommittedLayoutState = localLayoutState;
         localLayoutState = null;
       }
 
@@ -1080,6 +1137,8 @@ public class ComponentTree {
       }
 
       mStateHandler.queueStateUpdate(componentKey, stateUpdate);
+      // Layouts in flight don't apply this update, and will be superseded by the one that does.
+      mLayoutGeneration.incrementAndGet();
     }
 
     LithoStats.incStateUpdateSync(1);
@@ -1133,6 +1192,13 @@ public class ComponentTree {
       }
 
       mStateHandler.queueStateUpdate(componentKey, stateUpdate);
+      // Layouts in flight don't apply this update, and will be superseded by the one that does.
+      mLayoutGeneration.incrementAndGet();
+    }
+
+    if (mStateUpdateCoalescer != null) {
+      mStateUpdateCoalescer.onStateUpdate(attribution);
+      return;
     }
 
     updateStateInternal(true, attribution);
@@ -1176,7 +1242,11 @@ public class ComponentTree {
   }
 
   void recordEventHandler(Component component, EventHandler eventHandler) {
-    mEventHandlersController.recordEventHandler(component.getGlobalKey(), eventHandler);
+    if (component.hasGlobalKeyHash()) {
+      mEventHandlersController.recordEventHandler(component.getGlobalKeyHash(), eventHandler);
+    } else {
+      mEventHandlersController.recordEventHandler(component.getGlobalKey(), eventHandler);
+    }
   }
 
   private void bindTriggerHandler(Component component) {
@@ -1418,18 +1488,15 @@ public class ComponentTree {
       int yOffset) {
     assertMainThread();
 
-    final Map<String, Rect> componentKeysToBounds;
+    final Rect anchorBounds;
     synchronized (this) {
-      componentKeysToBounds =
-          mMainThreadLayoutState.getComponentKeyToBounds();
+      anchorBounds = mMainThreadLayoutState.getComponentBounds(anchorGlobalKey);
     }
 
-    if (!componentKeysToBounds.containsKey(anchorGlobalKey)) {
+    if (anchorBounds == null) {
       throw new IllegalArgumentException(
           "Cannot find a component with key " + anchorGlobalKey + " to use as anchor.");
     }
-
-    final Rect anchorBounds = componentKeysToBounds.get(anchorGlobalKey);
     LithoTooltipController.showOnAnchor(
         tooltip,
         anchorBounds,
@@ -1442,17 +1509,15 @@ public class ComponentTree {
   void showTooltip(LithoTooltip lithoTooltip, String anchorGlobalKey, int xOffset, int yOffset) {
     assertMainThread();
 
-    final Map<String, Rect> componentKeysToBounds;
+    final Rect anchorBounds;
     synchronized (this) {
-      componentKeysToBounds = mMainThreadLayoutState.getComponentKeyToBounds();
+      anchorBounds = mMainThreadLayoutState.getComponentBounds(anchorGlobalKey);
     }
 
-    if (!componentKeysToBounds.containsKey(anchorGlobalKey)) {
+    if (anchorBounds == null) {
       throw new IllegalArgumentException(
           "Cannot find a component with key " + anchorGlobalKey + " to use as anchor.");
     }
-
-    final Rect anchorBounds = componentKeysToBounds.get(anchorGlobalKey);
     lithoTooltip.showLithoTooltip(mLithoView, anchorBounds, xOffset, yOffset);
   }
 
@@ -1512,9 +1577,7 @@ public class ComponentTree {
         return;
       }
 
-      final Map<String, List<StateUpdate>> pendingStateUpdates =
-          mStateHandler == null ? null : mStateHandler.getPendingStateUpdates();
-      if (pendingStateUpdates != null && pendingStateUpdates.size() > 0 && root != null) {
+      if (mStateHandler != null && mStateHandler.hasPendingUpdates() && root != null) {
         root = root.makeShallowCopyWithNewId();
       }
 
@@ -1560,6 +1623,9 @@ public class ComponentTree {
           output.width = mostRecentLayoutState.getWidth();
           return;
         }
+      } else {
+        // Layouts in flight are for an older root or size specs, and won't be committed.
+        mLayoutGeneration.incrementAndGet();
       }
 
       if (widthSpecInitialized) {
@@ -1598,6 +1664,12 @@ public class ComponentTree {
   /**
    * Calculates the layout.
    *
+   * <p>A caller waiting for the size of a layout that gets cancelled gets the size of the layout
+   * that superseded it instead: the retry returns the committed size if that layout is done, and
+   * otherwise joins it when layouts share their {@link LayoutStateFuture}. After {@link
+   * #MAX_CANCELLED_LAYOUTS_FOR_SIZE} cancellations, the layout isn't cancellable anymore, so that
+   * continuous state updates can't keep the caller waiting.
+   *
    * @param output a destination where the size information should be saved
    * @param treeProps Saved TreeProps to be used as parent input
    */
@@ -1606,9 +1678,31 @@ public class ComponentTree {
       @CalculateLayoutSource int source,
       @Nullable String extraAttribution,
       @Nullable TreeProps treeProps) {
+    int cancelledCount = 0;
+    while (!calculateLayout(
+        output,
+        source,
+        extraAttribution,
+        treeProps,
+        cancelledCount < MAX_CANCELLED_LAYOUTS_FOR_SIZE)) {
+      if (output == null) {
+        return;
+      }
+      cancelledCount++;
+    }
+  }
+
+  /** @return false if the layout was cancelled, true otherwise. */
+  private boolean calculateLayout(
+      @Nullable Size output,
+      @CalculateLayoutSource int source,
+      @Nullable String extraAttribution,
+      @Nullable TreeProps treeProps,
+      boolean isCancellable) {
     final int widthSpec;
     final int heightSpec;
     final Component root;
+    final int layoutGeneration;
     LayoutState previousLayoutState = null;
 
     // Cancel any scheduled layout requests we might have in the background queue
@@ -1623,7 +1717,7 @@ public class ComponentTree {
     synchronized (this) {
       // Can't compute a layout if specs or root are missing
       if (!hasSizeSpec() || mRoot == null) {
-        return;
+        return true;
       }
 
       // Check if we already have a compatible layout.
@@ -1634,12 +1728,13 @@ public class ComponentTree {
           output.width = mostRecentLayoutState.getWidth();
           output.height = mostRecentLayoutState.getHeight();
         }
-        return;
+        return true;
       }
 
       widthSpec = mWidthSpec;
       heightSpec = mHeightSpec;
       root = mRoot.makeShallowCopy();
+      layoutGeneration = mLayoutGeneration.get();
 
       if (mMainThreadLayoutState != null) {
         previousLayoutState = mMainThreadLayoutState.acquireRef();
@@ -1671,6 +1766,11 @@ public class ComponentTree {
       }
     }
 
+    final LayoutCancellationToken cancellationToken =
+        ComponentsConfiguration.cancelSupersededLayouts && isCancellable
+            ? new LayoutCancellationToken(mLayoutGeneration, layoutGeneration)
+            : null;
+
     LayoutState localLayoutState =
         calculateLayoutState(
             mContext,
@@ -1681,12 +1781,24 @@ public class ComponentTree {
             previousLayoutState,
             treeProps,
             source,
-            extraAttribution);
+            extraAttribution,
+            cancellationToken);
 
     if (booster != null) {
       booster.release();
     }
 
+    if (localLayoutState == null) {
+      // The layout was superseded by a newer one, or the tree was released.
+      if (previousLayoutState != null) {
+        previousLayoutState.releaseRef();
+      }
+      if (layoutEvent != null) {
+        logger.cancelPerfEvent(layoutEvent);
+      }
+      return false;
+    }
+
     if (output != null) {
       output.width = localLayoutState.getWidth();
       output.height = localLayoutState.getHeight();
@@ -1732,6 +1844,7 @@ public class ComponentTree {
         // can release it.
         final LayoutState tmp = mBackgroundLayoutState;
         mBackgroundLayoutState = localLayoutState;
+        mCommittedLayoutState = localLayoutState;
         localLayoutState = tmp;
         layoutStateUpdated = true;
       }
@@ -1762,14 +1875,21 @@ public class ComponentTree {
     if (layoutEvent != null) {
       logger.logPerfEvent(layoutEvent);
     }
+
+    return true;
   }
 
   private void bindEventAndTriggerHandlers(List<Component> components) {
     clearUnusedTriggerHandlers();
 
     for (final Component component : components) {
-      mEventHandlersController.bindEventHandlers(
-          component.getScopedContext(), component, component.getGlobalKey());
+      if (component.hasGlobalKeyHash()) {
+        mEventHandlersController.bindEventHandlers(
+            component.getScopedContext(), component, component.getGlobalKeyHash());
+      } else {
+        mEventHandlersController.bindEventHandlers(
+            component.getScopedContext(), component, component.getGlobalKey());
+      }
       bindTriggerHandler(component);
     }
 
@@ -1841,8 +1961,13 @@ public class ComponentTree {
         mPreAllocateMountContentHandler.removeCallbacks(mPreAllocateMountContentRunnable);
       }
 
+      if (mStateUpdateCoalescer != null) {
+        mStateUpdateCoalescer.release();
+      }
+
       mReleased = true;
       mReleasedComponent = mRoot.getSimpleName();
+      mLayoutGeneration.incrementAndGet();
       if (mLithoView != null) {
         mLithoView.setComponentTree(null);
       }
@@ -1857,6 +1982,7 @@ public class ComponentTree {
 
       backgroundLayoutState = mBackgroundLayoutState;
       mBackgroundLayoutState = null;
+      mCommittedLayoutState = null;
 
       // TODO t15532529
       mStateHandler = null;
@@ -1987,6 +2113,10 @@ public class ComponentTree {
     }
   }
 
+  /**
+   * @param cancellationToken if not null, the calculation stops early and returns null once the
+   *     token is cancelled.
+   */
   protected @Nullable LayoutState calculateLayoutState(
       ComponentContext context,
       Component root,
@@ -1996,7 +2126,8 @@ public class ComponentTree {
       @Nullable LayoutState previousLayoutState,
       @Nullable TreeProps treeProps,
       @CalculateLayoutSource int source,
-      @Nullable String extraAttribution) {
+      @Nullable String extraAttribution,
+      @Nullable LayoutCancellationToken cancellationToken) {
 
     if (mUseSharedLayoutStateFuture) {
       LayoutStateFuture localLayoutStateFuture =
@@ -2009,7 +2140,8 @@ public class ComponentTree {
               previousLayoutState,
               treeProps,
               source,
-              extraAttribution);
+              extraAttribution,
+              cancellationToken);
 
       synchronized (mLayoutStateFutureLock) {
         boolean canReuse = false;
@@ -2054,11 +2186,12 @@ public class ComponentTree {
           previousLayoutState,
           treeProps,
           source,
-          extraAttribution);
+          extraAttribution,
+          cancellationToken);
     }
   }
 
-  private LayoutState calculateLayoutStateInternal(
+  private @Nullable LayoutState calculateLayoutStateInternal(
       ComponentContext context,
       Component root,
       int widthSpec,
@@ -2067,8 +2200,10 @@ public class ComponentTree {
       @Nullable LayoutState previousLayoutState,
       @Nullable TreeProps treeProps,
       @CalculateLayoutSource int source,
-      @Nullable String extraAttribution) {
+      @Nullable String extraAttribution,
+      @Nullable LayoutCancellationToken cancellationToken) {
     final ComponentContext contextWithStateHandler;
+    final LayoutState incrementalBaseLayoutState;
 
     synchronized (this) {
       final KeyHandler keyHandler =
@@ -2079,6 +2214,18 @@ public class ComponentTree {
       contextWithStateHandler =
           new ComponentContext(
               context, StateHandler.acquireNewInstance(mStateHandler), keyHandler, treeProps);
+
+      // The state handler was copied under the same lock, so it holds the committed state of this
+      // layout plus the pending updates.
+      incrementalBaseLayoutState =
+          source == CalculateLayoutSource.UPDATE_STATE
+                  && ComponentsConfiguration.incrementalStateUpdateLayouts
+                  && mPersistInternalNodeTree
+                  && mCommittedLayoutState != null
+                  && (mCommittedLayoutState == mMainThreadLayoutState
+                      || mCommittedLayoutState == mBackgroundLayoutState)
+              ? mCommittedLayoutState.acquireRef()
+              : null;
     }
 
     // If enabled, show a debug foreground layer covering the whole LithoView showing which
@@ -2097,18 +2244,28 @@ public class ComponentTree {
       }
     }
 
-    return LayoutState.calculate(
-        contextWithStateHandler,
-        root,
-        mId,
-        widthSpec,
-        heightSpec,
-        diffingEnabled,
-        previousLayoutState,
-        mShouldClipChildren,
-        mPersistInternalNodeTree,
-        source,
-        extraAttribution);
+    try {
+      return LayoutState.calculate(
+          contextWithStateHandler,
+          root,
+          mId,
+          widthSpec,
+          heightSpec,
+          diffingEnabled,
+          previousLayoutState,
+          mShouldClipChildren,
+          mPersistInternalNodeTree,
+          source,
+          extraAttribution,
+          cancellationToken,
+          incrementalBaseLayoutState,
+          mLayoutSnapshotStore,
+          mLayoutSnapshotKey);
+    } finally {
+      if (incrementalBaseLayoutState != null) {
+        incrementalBaseLayoutState.releaseRef();
+      }
+    }
   }
 
   @VisibleForTesting
@@ -2128,6 +2285,7 @@ public class ComponentTree {
     private final boolean diffingEnabled;
     @Nullable private final LayoutState previousLayoutState;
     @Nullable private final TreeProps treeProps;
+    @Nullable private final LayoutCancellationToken cancellationToken;
     private final FutureTask<LayoutState> futureTask;
     private volatile int refCount;
 
@@ -2147,7 +2305,8 @@ public class ComponentTree {
         @Nullable final LayoutState previousLayoutState,
         @Nullable final TreeProps treeProps,
         @CalculateLayoutSource final int source,
-        @Nullable final String extraAttribution) {
+        @Nullable final String extraAttribution,
+        @Nullable final LayoutCancellationToken cancellationToken) {
       this.context = context;
       this.root = root;
       this.widthSpec = widthSpec;
@@ -2155,6 +2314,7 @@ public class ComponentTree {
       this.diffingEnabled = diffingEnabled;
       this.previousLayoutState = previousLayoutState;
       this.treeProps = treeProps;
+      this.cancellationToken = cancellationToken;
       this.futureTask =
           new FutureTask<>(
               new Callable<LayoutState>() {
@@ -2175,8 +2335,12 @@ public class ComponentTree {
                           previousLayoutState,
                           treeProps,
                           source,
-                          extraAttribution);
+                          extraAttribution,
+                          cancellationToken);
                   synchronized (LayoutStateFuture.this) {
+                    if (result == null) {
+                      return null;
+                    }
                     if (released) {
                       result.releaseRef();
                       return null;
@@ -2313,6 +2477,11 @@ public class ComponentTree {
         // it's passed to us and will never be the same object.
         return false;
       }
+      if (!LayoutCancellationToken.isSameGeneration(cancellationToken, that.cancellationToken)) {
+        // A layout that can be cancelled can't serve a caller that needs a result, nor a newer
+        // generation.
+        return false;
+      }
 
       return true;
     }
@@ -2414,6 +2583,8 @@ public class ComponentTree {
     private String splitLayoutTag;
     private boolean persistInternalNodeTree = false;
     private boolean useSharedLayoutStateFuture = false;
+    private @Nullable LayoutSnapshotStore layoutSnapshotStore;
+    private long layoutSnapshotKey;
     private @Nullable LithoAffinityBoosterFactory affinityBoosterFactory;
     private boolean boostAffinityLayoutStateFuture;
     private boolean boostAffinityLithoLayouts;
@@ -2456,6 +2627,8 @@ public class ComponentTree {
       splitLayoutTag = null;
       persistInternalNodeTree = false;
       useSharedLayoutStateFuture = false;
+      layoutSnapshotStore = null;
+      layoutSnapshotKey = 0;
       affinityBoosterFactory = null;
       boostAffinityLayoutStateFuture = false;
     }
@@ -2625,6 +2798,17 @@ public class ComponentTree {
       return this;
     }
 
+    /**
+     * Seeds the first layout of the tree with the measurements stored in the given store under the
+     * given key, or stores them there if there are none yet. The key has to change whenever the
+     * data rendered by the tree does, see {@link LayoutSnapshotStore}. Requires layout diffing.
+     */
+    public Builder layoutSnapshotStore(LayoutSnapshotStore layoutSnapshotStore, long snapshotKey) {
+      this.layoutSnapshotStore = layoutSnapshotStore;
+      this.layoutSnapshotKey = snapshotKey;
+      return this;
+    }
+
     /** Builds a {@link ComponentTree} using the parameters specified in this builder. */
     public ComponentTree build() {
       final ComponentTree componentTree = new ComponentTree(this);
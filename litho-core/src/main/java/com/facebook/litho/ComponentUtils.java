@@ -17,6 +17,7 @@
 package com.facebook.litho;
 
 import com.facebook.litho.annotations.Comparable;
+import com.facebook.litho.config.ComponentsConfiguration;
 import com.facebook.litho.reference.Reference;
 import java.lang.reflect.Field;
 import java.util.Arrays;
@@ -146,6 +147,36 @@ public class ComponentUtils {
     return true;
   }
 
+  /**
+   * Checks the result of a generated isEquivalentTo against {@link #hasEquivalentFields(Object,
+   * Object)}, see {@link ComponentsConfiguration#verifyIsEquivalentTo}.
+   *
+   * @param isEquivalent the result of the generated isEquivalentTo.
+   * @return isEquivalent
+   */
+  public static boolean verifyIsEquivalentTo(
+      Object obj1, @Nullable Object obj2, boolean isEquivalent) {
+    // The same shortcuts as the generated code, after which fields may differ.
+    if (obj1 == obj2 || obj2 == null || obj1.getClass() != obj2.getClass()) {
+      return isEquivalent;
+    }
+    if (obj1 instanceof Component && ((Component) obj1).getId() == ((Component) obj2).getId()) {
+      return isEquivalent;
+    }
+
+    if (hasEquivalentFields(obj1, obj2) != isEquivalent) {
+      throw new IllegalStateException(
+          "Generated isEquivalentTo of "
+              + obj1.getClass().getName()
+              + " returned "
+              + isEquivalent
+              + ", but the comparison of its fields returned "
+              + !isEquivalent);
+    }
+
+    return isEquivalent;
+  }
+
   private static boolean areArraysEquals(Class<?> classType, Object val1, Object val2) {
     final Class<?> innerClassType = classType.getComponentType();
     if (Byte.TYPE.isAssignableFrom(innerClassType)) {
@@ -35,6 +35,8 @@ import android.util.SparseArray;
 import com.facebook.infer.annotation.ThreadSafe;
 import com.facebook.litho.config.ComponentsConfiguration;
 import com.facebook.litho.internal.ArraySet;
+import com.facebook.litho.stats.AllocationStats;
+import com.facebook.litho.stats.LithoStats;
 import com.facebook.yoga.YogaConfig;
 import com.facebook.yoga.YogaDirection;
 import com.facebook.yoga.YogaNode;
@@ -65,73 +67,73 @@ public class ComponentsPools {
   private static final Object sYogaConfigLock = new Object();
 
   static final RecyclePool<LayoutState> sLayoutStatePool =
-      new RecyclePool<>("LayoutState", PoolsConfig.sLayoutStateSize, true);
+      createSyncPool("LayoutState", PoolsConfig.sLayoutStateSize);
 
   static final RecyclePool<InternalNode> sInternalNodePool =
-      new RecyclePool<>("InternalNode", PoolsConfig.sInternalNodeSize, true);
+      createSyncPool("InternalNode", PoolsConfig.sInternalNodeSize);
 
   static final RecyclePool<NodeInfo> sNodeInfoPool =
-      new RecyclePool<>("NodeInfo", PoolsConfig.sNodeInfoSize, true);
+      createSyncPool("NodeInfo", PoolsConfig.sNodeInfoSize);
 
   static final RecyclePool<ViewNodeInfo> sViewNodeInfoPool =
-      new RecyclePool<>("ViewNodeInfo", 64, true);
+      createSyncPool("ViewNodeInfo", 64);
 
   static final RecyclePool<YogaNode> sYogaNodePool =
-      new RecyclePool<>("YogaNode", PoolsConfig.sYogaNodeSize, true);
+      createSyncPool("YogaNode", PoolsConfig.sYogaNodeSize);
 
-  static final RecyclePool<MountItem> sMountItemPool = new RecyclePool<>("MountItem", 256, true);
+  static final RecyclePool<MountItem> sMountItemPool = createSyncPool("MountItem", 256);
 
   static final RecyclePool<LayoutOutput> sLayoutOutputPool =
-      new RecyclePool<>("LayoutOutput", PoolsConfig.sLayoutOutputSize, true);
+      createSyncPool("LayoutOutput", PoolsConfig.sLayoutOutputSize);
 
   @GuardedBy("sMountContentLock")
   private static final Map<Context, SparseArray<MountContentPool>> sMountContentPoolsByContext =
       new HashMap<>(4);
 
   static final RecyclePool<VisibilityOutput> sVisibilityOutputPool =
-      new RecyclePool<>("VisibilityOutput", 64, true);
+      createSyncPool("VisibilityOutput", 64);
 
   // These are lazily initialized as they are only needed when we're in a test environment.
   static RecyclePool<TestOutput> sTestOutputPool = null;
   static RecyclePool<TestItem> sTestItemPool = null;
 
   static final RecyclePool<VisibilityItem> sVisibilityItemPool =
-      new RecyclePool<>("VisibilityItem", 64, true);
+      createSyncPool("VisibilityItem", 64);
 
-  static final RecyclePool<Output<?>> sOutputPool = new RecyclePool<>("Output", 20, true);
+  static final RecyclePool<Output<?>> sOutputPool = createSyncPool("Output", 20);
 
   static final RecyclePool<DiffNode> sDiffNodePool =
-      new RecyclePool<>("DiffNode", PoolsConfig.sDiffNodeSize, true);
+      createSyncPool("DiffNode", PoolsConfig.sDiffNodeSize);
 
-  static final RecyclePool<Diff<?>> sDiffPool = new RecyclePool<>("Diff", 20, true);
+  static final RecyclePool<Diff<?>> sDiffPool = createSyncPool("Diff", 20);
 
   static final RecyclePool<ComponentTree.Builder> sComponentTreeBuilderPool =
-      new RecyclePool<>("ComponentTree.Builder", 2, true);
+      createSyncPool("ComponentTree.Builder", 2);
 
   static final RecyclePool<StateHandler> sStateHandlerPool =
-      new RecyclePool<>("StateHandler", 10, true);
+      createSyncPool("StateHandler", 10);
 
   static final RecyclePool<SparseArrayCompat<MountItem>> sMountItemScrapArrayPool =
-      new RecyclePool<>("MountItemScrapArray", 8, false);
+      createPool("MountItemScrapArray", 8);
 
-  static final RecyclePool<RectF> sRectFPool = new RecyclePool<>("RectF", 4, true);
+  static final RecyclePool<RectF> sRectFPool = createSyncPool("RectF", 4);
 
-  static final RecyclePool<Rect> sRectPool = new RecyclePool<>("Rect", 30, true);
+  static final RecyclePool<Rect> sRectPool = createSyncPool("Rect", 30);
 
-  static final RecyclePool<Edges> sEdgesPool = new RecyclePool<>("Edges", 30, true);
+  static final RecyclePool<Edges> sEdgesPool = createSyncPool("Edges", 30);
 
   static final RecyclePool<DisplayListDrawable> sDisplayListDrawablePool =
-      new RecyclePool<>("DisplayListDrawable", 10, false);
+      createPool("DisplayListDrawable", 10);
 
-  static final RecyclePool<ArraySet> sArraySetPool = new RecyclePool<>("ArraySet", 10, true);
+  static final RecyclePool<ArraySet> sArraySetPool = createSyncPool("ArraySet", 10);
 
-  static final RecyclePool<ArrayDeque> sArrayDequePool = new RecyclePool<>("ArrayDeque", 10, true);
+  static final RecyclePool<ArrayDeque> sArrayDequePool = createSyncPool("ArrayDeque", 10);
 
   static final RecyclePool<RenderState> sRenderStatePool =
-      new RecyclePool<>("RenderState", 4, true);
+      createSyncPool("RenderState", 4);
 
   static final RecyclePool<ArrayList<LithoView>> sLithoViewArrayListPool =
-      new RecyclePool<>("LithoViewArrayList", 4, false);
+      createPool("LithoViewArrayList", 4);
 
   // Lazily initialized when acquired first time, as this is not a common use case.
   static RecyclePool<BorderColorDrawable> sBorderColorDrawablePool = null;
@@ -150,6 +152,23 @@ public class ComponentsPools {
    */
   static boolean sIsManualCallbacks;
 
+  private static <T> RecyclePool<T> createSyncPool(String name, int maxSize) {
+    return registerStats(
+        PoolsConfig.sConcurrentPools.contains(name)
+            ? new ConcurrentRecyclePool<T>(name, maxSize)
+            : new RecyclePool<T>(name, maxSize, true));
+  }
+
+  /** Creates a pool that is only used from a single thread. */
+  private static <T> RecyclePool<T> createPool(String name, int maxSize) {
+    return registerStats(new RecyclePool<T>(name, maxSize, false));
+  }
+
+  private static <T> RecyclePool<T> registerStats(RecyclePool<T> pool) {
+    LithoStats.registerPoolStats(pool.getStats());
+    return pool;
+  }
+
   static LayoutState acquireLayoutState(ComponentContext context) {
     LayoutState state = ComponentsConfiguration.disablePools ? null : sLayoutStatePool.acquire();
     if (state == null) {
@@ -180,6 +199,7 @@ public class ComponentsPools {
           PoolsConfig.sInternalNodeFactory != null
               ? PoolsConfig.sInternalNodeFactory.create()
               : new InternalNode();
+      AllocationAccounting.record(AllocationStats.INTERNAL_NODE);
     }
 
     node.init(acquireYogaNode(), componentContext);
@@ -242,6 +262,7 @@ public class ComponentsPools {
     LayoutOutput output = ComponentsConfiguration.disablePools ? null : sLayoutOutputPool.acquire();
     if (output == null) {
       output = new LayoutOutput();
+      AllocationAccounting.record(AllocationStats.LAYOUT_OUTPUT);
     }
     output.acquire();
 
@@ -279,7 +300,7 @@ public class ComponentsPools {
 
   static TestOutput acquireTestOutput() {
     if (sTestOutputPool == null) {
-      sTestOutputPool = new RecyclePool<>("TestOutput", 64, true);
+      sTestOutputPool = createSyncPool("TestOutput", 64);
     }
     TestOutput output = ComponentsConfiguration.disablePools ? null : sTestOutputPool.acquire();
     if (output == null) {
@@ -291,7 +312,7 @@ public class ComponentsPools {
 
   static TestItem acquireTestItem() {
     if (sTestItemPool == null) {
-      sTestItemPool = new RecyclePool<>("TestItem", 64, true);
+      sTestItemPool = createSyncPool("TestItem", 64);
     }
     TestItem item = ComponentsConfiguration.disablePools ? null : sTestItemPool.acquire();
     if (item == null) {
@@ -315,6 +336,7 @@ public class ComponentsPools {
     DiffNode node = ComponentsConfiguration.disablePools ? null : sDiffNodePool.acquire();
     if (node == null) {
       node = new DiffNode();
+      AllocationAccounting.record(AllocationStats.DIFF_NODE);
     }
 
     return node;
@@ -588,6 +610,7 @@ public class ComponentsPools {
     Rect rect = ComponentsConfiguration.disablePools ? null : sRectPool.acquire();
     if (rect == null) {
       rect = new Rect();
+      AllocationAccounting.record(AllocationStats.RECT);
     }
 
     return rect;
@@ -686,6 +709,8 @@ public class ComponentsPools {
 
       sDestroyedRootContexts.put(ContextUtils.getRootContext(context), true);
     }
+
+    SharedMeasureCache.onContextDestroyed(context);
   }
 
   /** Call from tests to clear external references. */
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import com.facebook.infer.annotation.ThreadSafe;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link RecyclePool} that never takes a lock. Every thread gets a small magazine of recycled
+ * objects that only it touches, so most acquire/release calls are plain array accesses. Magazines
+ * are refilled from and flushed to a shared depot of slots that are claimed with compare-and-set,
+ * in batches of half a magazine so that threads rarely meet there.
+ *
+ * <p>Use it for pools that are hit from several layout threads at once. Objects parked in the
+ * magazine of a thread that goes away are reclaimed by the GC together with the thread.
+ *
+ * <p>Only the depot is bounded by {@code maxSize}: the pool can retain up to {@code maxSize} plus
+ * one magazine (at most {@value #MAX_MAGAZINE_CAPACITY} objects) per thread that has used it.
+ */
+@ThreadSafe(enableChecks = false)
+public class ConcurrentRecyclePool<T> extends RecyclePool<T> {
+
+  private static final int MAX_MAGAZINE_CAPACITY = 8;
+
+  private final AtomicReferenceArray<T> mDepot;
+  private final AtomicInteger mDepotSize = new AtomicInteger(0);
+  /** Bumped by {@link #clear()}; magazines filled in an older epoch drop their content. */
+  private final AtomicInteger mEpoch = new AtomicInteger(0);
+
+  private final int mMagazineCapacity;
+  private final CopyOnWriteArrayList<WeakReference<Magazine>> mMagazines =
+      new CopyOnWriteArrayList<>();
+  private final ThreadLocal<Magazine> mThreadMagazine =
+      new ThreadLocal<Magazine>() {
+        @Override
+        protected Magazine initialValue() {
+          final Magazine magazine = new Magazine(mMagazineCapacity, mEpoch.get());
+          registerMagazine(magazine);
+          return magazine;
+        }
+      };
+
+  public ConcurrentRecyclePool(String name, int maxSize) {
+    super(name, maxSize);
+    mDepot = new AtomicReferenceArray<>(maxSize);
+    mMagazineCapacity = Math.max(1, Math.min(MAX_MAGAZINE_CAPACITY, maxSize / 4));
+  }
+
+  @Override
+  public T acquire() {
+    final Magazine magazine = getMagazine();
+    if (magazine.mSize == 0) {
+      refill(magazine);
+      if (magazine.mSize == 0) {
+        recordAcquire(false);
+        return null;
+      }
+    }
+
+    recordAcquire(true);
+    final int index = magazine.mSize - 1;
+    @SuppressWarnings("unchecked")
+    final T item = (T) magazine.mItems[index];
+    magazine.mItems[index] = null;
+    magazine.mSize = index;
+    return item;
+  }
+
+  @Override
+  public void release(T item) {
+    final Magazine magazine = getMagazine();
+    if (magazine.mSize == mMagazineCapacity) {
+      flush(magazine);
+      if (magazine.mSize == mMagazineCapacity) {
+        // Both the magazine and the depot are full: drop the item.
+        getStats().recordRelease(true, mDepotSize.get() + magazine.mSize);
+        return;
+      }
+    }
+
+    magazine.mItems[magazine.mSize] = item;
+    magazine.mSize = magazine.mSize + 1;
+    // Summing all magazines is too expensive here, so the peak only accounts for this thread's.
+    getStats().recordRelease(false, mDepotSize.get() + magazine.mSize);
+  }
+
+  @Override
+  public int getCurrentSize() {
+    final int epoch = mEpoch.get();
+    int size = mDepotSize.get();
+    for (WeakReference<Magazine> reference : mMagazines) {
+      final Magazine magazine = reference.get();
+      if (magazine != null && magazine.mEpoch == epoch) {
+        size += magazine.mSize;
+      }
+    }
+    return size;
+  }
+
+  /** Only accounts for the shared depot, see the class doc for the bound this puts on the pool. */
+  @Override
+  public boolean isFull() {
+    return mDepotSize.get() >= getMaxSize();
+  }
+
+  /**
+   * Empties the shared depot and invalidates the magazines of all threads. Magazines are emptied
+   * lazily by their owning thread the next time it uses the pool.
+   */
+  @Override
+  public void clear() {
+    mEpoch.incrementAndGet();
+    for (int i = 0, length = mDepot.length(); i < length; i++) {
+      if (mDepot.getAndSet(i, null) != null) {
+        mDepotSize.decrementAndGet();
+      }
+    }
+  }
+
+  private Magazine getMagazine() {
+    final Magazine magazine = mThreadMagazine.get();
+    final int epoch = mEpoch.get();
+    if (magazine.mEpoch != epoch) {
+      for (int i = 0; i < magazine.mSize; i++) {
+        magazine.mItems[i] = null;
+      }
+      magazine.mSize = 0;
+      magazine.mEpoch = epoch;
+    }
+    return magazine;
+  }
+
+  /** Moves up to half a magazine of items from the depot into the given (empty) magazine. */
+  private void refill(Magazine magazine) {
+    if (mDepotSize.get() <= 0) {
+      return;
+    }
+
+    final int target = Math.max(1, mMagazineCapacity / 2);
+    final int length = mDepot.length();
+    int index = magazine.mDepotHint;
+    for (int scanned = 0; scanned < length && magazine.mSize < target; scanned++) {
+      final T item = mDepot.get(index);
+      if (item != null && mDepot.compareAndSet(index, item, null)) {
+        mDepotSize.decrementAndGet();
+        magazine.mItems[magazine.mSize] = item;
+        magazine.mSize = magazine.mSize + 1;
+      }
+      index = index + 1 == length ? 0 : index + 1;
+    }
+    magazine.mDepotHint = index;
+  }
+
+  /** Moves up to half of the given (full) magazine into free depot slots. */
+  private void flush(Magazine magazine) {
+    if (mDepotSize.get() >= mDepot.length()) {
+      return;
+    }
+
+    final int target = mMagazineCapacity - Math.max(1, mMagazineCapacity / 2);
+    final int length = mDepot.length();
+    int index = magazine.mDepotHint;
+    for (int scanned = 0; scanned < length && magazine.mSize > target; scanned++) {
+      final int last = magazine.mSize - 1;
+      @SuppressWarnings("unchecked")
+      final T item = (T) magazine.mItems[last];
+      if (mDepot.get(index) == null && mDepot.compareAndSet(index, null, item)) {
+        mDepotSize.incrementAndGet();
+        magazine.mItems[last] = null;
+        magazine.mSize = last;
+      }
+      index = index + 1 == length ? 0 : index + 1;
+    }
+    magazine.mDepotHint = index;
+  }
+
+  private void registerMagazine(Magazine magazine) {
+    // Drop references to magazines of threads that have been collected.
+    final Iterator<WeakReference<Magazine>> iterator = mMagazines.iterator();
+    while (iterator.hasNext()) {
+      final WeakReference<Magazine> reference = iterator.next();
+      if (reference.get() == null) {
+        mMagazines.remove(reference);
+      }
+    }
+    mMagazines.add(new WeakReference<>(magazine));
+  }
+
+  /**
+   * Per-thread stack of recycled objects. Only written by its owning thread, other threads only
+   * read mSize and mEpoch for {@link #getCurrentSize()}, which is debug info and may be stale.
+   */
+  private static final class Magazine {
+    private final Object[] mItems;
+    private int mSize;
+    private int mEpoch;
+    private int mDepotHint;
+
+    Magazine(int capacity, int epoch) {
+      mItems = new Object[capacity];
+      mEpoch = epoch;
+    }
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.facebook.litho;
 
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.support.v4.util.SparseArrayCompat;
 import com.facebook.infer.annotation.ThreadSafe;
@@ -27,6 +28,8 @@ import java.util.Map;
 public class EventHandlersController {
 
   private final Map<String, EventHandlersWrapper> mEventHandlers = new HashMap<>();
+  /** Event handlers of components with hashed global keys. */
+  private final LongHashMap<EventHandlersWrapper> mHashedEventHandlers = new LongHashMap<>();
 
   /**
    * Update all the known event handlers for a dispatcher with the given key with the new dispacher
@@ -38,8 +41,19 @@ public class EventHandlersController {
       return;
     }
 
-    final EventHandlersWrapper eventHandlers = mEventHandlers.get(globalKey);
+    bindEventHandlers(c, dispatcher, mEventHandlers.get(globalKey));
+  }
 
+  /** Same as {@link #bindEventHandlers(ComponentContext, HasEventDispatcher, String)}. */
+  public synchronized void bindEventHandlers(
+      ComponentContext c, HasEventDispatcher dispatcher, long globalKeyHash) {
+    bindEventHandlers(c, dispatcher, mHashedEventHandlers.get(globalKeyHash));
+  }
+
+  private static void bindEventHandlers(
+      ComponentContext c,
+      HasEventDispatcher dispatcher,
+      @Nullable EventHandlersWrapper eventHandlers) {
     if (eventHandlers == null) {
       return;
     }
@@ -61,6 +75,17 @@ public class EventHandlersController {
         eventHandlersWrapper.mUsedInCurrentTree = false;
       }
     }
+
+    // Iterating backwards, as removing an entry moves the last one in its place.
+    for (int i = mHashedEventHandlers.size() - 1; i >= 0; i--) {
+      final EventHandlersWrapper eventHandlersWrapper = mHashedEventHandlers.valueAt(i);
+
+      if (!eventHandlersWrapper.mUsedInCurrentTree) {
+        mHashedEventHandlers.remove(mHashedEventHandlers.keyAt(i));
+      } else {
+        eventHandlersWrapper.mUsedInCurrentTree = false;
+      }
+    }
   }
 
   /** Map the given event handler to a dispatcher with the given global key. */
@@ -79,6 +104,18 @@ public class EventHandlersController {
     eventHandlers.addEventHandler(eventHandler);
   }
 
+  /** Same as {@link #recordEventHandler(String, EventHandler)}, for a hashed global key. */
+  public synchronized void recordEventHandler(long globalKeyHash, EventHandler eventHandler) {
+    EventHandlersWrapper eventHandlers = mHashedEventHandlers.get(globalKeyHash);
+
+    if (eventHandlers == null) {
+      eventHandlers = new EventHandlersWrapper();
+      mHashedEventHandlers.put(globalKeyHash, eventHandlers);
+    }
+
+    eventHandlers.addEventHandler(eventHandler);
+  }
+
   @VisibleForTesting
   public synchronized Map<String, EventHandlersWrapper> getEventHandlers() {
     return mEventHandlers;
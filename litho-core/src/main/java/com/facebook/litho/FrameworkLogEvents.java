@@ -43,6 +43,8 @@ public interface FrameworkLogEvents {
   int EVENT_SECTIONS_SET_ROOT = 15;
   int EVENT_CALCULATE_LAYOUT_STATE = 16;
   int EVENT_DRAW = 17;
+  int EVENT_BULK_LAYOUT = 18;
+  int EVENT_SECTIONS_GENERATE_CHILD_CHANGESET = 19;
 
   @IntDef({
     FrameworkLogEvents.EVENT_CREATE_LAYOUT,
@@ -59,6 +61,8 @@ public interface FrameworkLogEvents {
     FrameworkLogEvents.EVENT_SECTIONS_SET_ROOT,
     FrameworkLogEvents.EVENT_CALCULATE_LAYOUT_STATE,
     FrameworkLogEvents.EVENT_DRAW,
+    FrameworkLogEvents.EVENT_BULK_LAYOUT,
+    FrameworkLogEvents.EVENT_SECTIONS_GENERATE_CHILD_CHANGESET,
   })
   @Retention(RetentionPolicy.SOURCE)
   @interface LogEventId {}
@@ -96,6 +100,12 @@ public interface FrameworkLogEvents {
   String PARAM_SET_ROOT_ON_BG_THREAD = "sections_set_root_bg_thread";
   String PARAM_LAYOUT_STATE_SOURCE = "calculate_layout_state_source";
   String PARAM_ROOT_COMPONENT = "root_component";
+  String PARAM_ALLOCATIONS = "allocations";
+  String PARAM_ALLOCATIONS_BY_COMPONENT = "allocations_by_component";
+  String PARAM_POOL_MISSES = "pool_misses";
+  String PARAM_BULK_LAYOUT_ITEM_COUNT = "bulk_layout_item_count";
+  String PARAM_BULK_LAYOUT_THREAD_COUNT = "bulk_layout_thread_count";
+  String PARAM_BULK_LAYOUT_ITEMS_TIME = "bulk_layout_items_time_ms";
 
   String PARAM_CHANGESET_EFFECTIVE_COUNT = "changeset_effective_count";
   String PARAM_CHANGESET_INSERT_SINGLE_COUNT = "changeset_insert_single_count";
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.ComponentContext.NULL_LAYOUT;
+
+import android.support.annotation.Nullable;
+import com.facebook.litho.config.ComponentsConfiguration;
+import java.util.List;
+
+/**
+ * Updates a copy of the node tree of a previous layout for the pending state updates of a new
+ * layout pass, instead of creating the whole tree again.
+ *
+ * <p>A state update only changes what the component that owns the state returns from its
+ * onCreateLayout, so only the nodes created by components with pending state updates are created
+ * again, from the outermost component that created them. All the other nodes, and their Yoga
+ * nodes, are carried over as they are, so that measuring the tree only lays out the paths that
+ * changed again.
+ *
+ * <p>Only used for layouts that update the state of their tree, see {@link
+ * ComponentsConfiguration#incrementalStateUpdateLayouts}.
+ */
+final class IncrementalLayout {
+
+  private IncrementalLayout() {}
+
+  /**
+   * Creates the nodes of the tree whose components have pending state updates in the context's
+   * state handler again, and registers the global keys of the components that are carried over in
+   * the context's key handler.
+   *
+   * @return false if the tree can't be updated, in which case the caller has to create
+   *     the layout from scratch and release the tree.
+   */
+  static boolean updateTree(ComponentContext c, InternalNode root) {
+    final StateHandler stateHandler = c.getStateHandler();
+
+    // Without global keys the state of the carried over components can't be found again, and if
+    // the root has to be created again nothing can be carried over.
+    if (stateHandler == null
+        || !ComponentsConfiguration.useGlobalKeys
+        || root.isNestedTreeHolder()
+        || needsRecreation(root, stateHandler)) {
+      return false;
+    }
+
+    // The components that are carried over don't go through a layout pass, so their state has to
+    // be kept explicitly.
+    stateHandler.keepAllStateContainers();
+    registerKeys(root, c.getKeyHandler());
+    updateChildren(c, root, stateHandler);
+
+    return true;
+  }
+
+  private static void updateChildren(
+      ComponentContext c, InternalNode node, StateHandler stateHandler) {
+    if (node.isNestedTreeHolder()) {
+      // Holders with a dirty nested tree are created again by their parent.
+      return;
+    }
+
+    for (int i = 0; i < node.getChildCount(); i++) {
+      final InternalNode child = node.getChildAt(i);
+
+      if (!needsRecreation(child, stateHandler)) {
+        registerKeys(child, c.getKeyHandler());
+        updateChildren(c, child, stateHandler);
+        continue;
+      }
+
+      final List<Component> components = child.getComponents();
+      final Component outermostComponent = components.get(components.size() - 1);
+
+      node.removeChildAt(i);
+      releaseStateContainers(child, stateHandler);
+      LayoutState.releaseNodeTree(child, false /* isNestedTree */);
+
+      final Component component = outermostComponent.makeCopyForIncrementalLayout(c);
+      final InternalNode recreated = component.createLayout(component.getScopedContext(), false);
+
+      if (recreated == NULL_LAYOUT) {
+        i--;
+      } else {
+        node.addChildAt(recreated, i);
+      }
+    }
+  }
+
+  /**
+   * Registers the global keys of the components of a node that is carried over. The trees nested in
+   * the node aren't registered: they're created again whenever the size specs of their holder
+   * change, with keys that can only collide with the ones of the same tree.
+   */
+  private static void registerKeys(InternalNode node, @Nullable KeyHandler keyHandler) {
+    // This is for testing, the keyHandler should never be null here otherwise.
+    if (keyHandler == null || ComponentsConfiguration.isEndToEndTestRun) {
+      return;
+    }
+
+    final List<Component> components = node.getComponents();
+    for (int i = 0, size = components.size(); i < size; i++) {
+      keyHandler.registerKey(components.get(i));
+    }
+  }
+
+  private static boolean needsRecreation(InternalNode node, StateHandler stateHandler) {
+    final List<Component> components = node.getComponents();
+    for (int i = 0, size = components.size(); i < size; i++) {
+      if (stateHandler.hasPendingUpdates(components.get(i))) {
+        return true;
+      }
+    }
+
+    return node.isNestedTreeHolder()
+        && node.hasNestedTree()
+        && node.getNestedTree() != NULL_LAYOUT
+        && hasPendingUpdates(node.getNestedTree(), stateHandler);
+  }
+
+  private static boolean hasPendingUpdates(InternalNode node, StateHandler stateHandler) {
+    if (needsRecreation(node, stateHandler)) {
+      return true;
+    }
+
+    for (int i = 0, count = node.getChildCount(); i < count; i++) {
+      if (hasPendingUpdates(node.getChildAt(i), stateHandler)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Stops keeping the state of the components of a subtree that is created again. The components
+   * that are still part of the new subtree keep their state again when they are created.
+   */
+  private static void releaseStateContainers(InternalNode node, StateHandler stateHandler) {
+    final List<Component> components = node.getComponents();
+    for (int i = 0, size = components.size(); i < size; i++) {
+      stateHandler.releaseStateContainer(components.get(i));
+    }
+
+    for (int i = 0, count = node.getChildCount(); i < count; i++) {
+      releaseStateContainers(node.getChildAt(i), stateHandler);
+    }
+
+    if (node.hasNestedTree() && node.getNestedTree() != NULL_LAYOUT) {
+      releaseStateContainers(node.getNestedTree(), stateHandler);
+    }
+  }
+}
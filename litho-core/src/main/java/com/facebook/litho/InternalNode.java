@@ -77,7 +77,7 @@ import javax.annotation.Nullable;
 
 /** Internal class representing a {@link ComponentLayout}. */
 @ThreadConfined(ThreadConfined.ANY)
-class InternalNode implements ComponentLayout {
+class InternalNode implements ComponentLayout, Cloneable {
 
   // Used to check whether or not the framework can use style IDs for
   // paddingStart/paddingEnd due to a bug in some Android devices.
@@ -120,7 +120,7 @@ class InternalNode implements ComponentLayout {
   YogaNode mYogaNode;
   private ComponentContext mComponentContext;
   @ThreadConfined(ThreadConfined.ANY)
-  private final List<Component> mComponents = new ArrayList<>(1);
+  private List<Component> mComponents = new ArrayList<>(1);
   private int mImportantForAccessibility = ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO;
   private boolean mDuplicateParentState;
   private boolean mIsNestedTreeHolder;
@@ -130,8 +130,8 @@ class InternalNode implements ComponentLayout {
 
   private @Nullable Reference<? extends Drawable> mBackground;
   private @Nullable ComparableDrawable mForeground;
-  private final int[] mBorderColors = new int[Border.EDGE_COUNT];
-  private final float[] mBorderRadius = new float[Border.RADIUS_COUNT];
+  private int[] mBorderColors = new int[Border.EDGE_COUNT];
+  private float[] mBorderRadius = new float[Border.RADIUS_COUNT];
   private @Nullable PathEffect mBorderPathEffect;
   private @Nullable StateListAnimator mStateListAnimator;
   private @DrawableRes int mStateListAnimatorRes;
@@ -1776,6 +1776,79 @@ class InternalNode implements ComponentLayout {
     }
   }
 
+  /**
+   * Makes a copy of this node tree, including the trees nested in it, that can be laid out and
+   * released without affecting this one, which other threads may still be reading. The YogaNodes
+   * are cloned with their layout results, so the leaves of the copy that don't change keep their
+   * cached measurements.
+   */
+  InternalNode deepClone() {
+    final InternalNode copy;
+    try {
+      copy = (InternalNode) super.clone();
+    } catch (CloneNotSupportedException e) {
+      // This class implements Cloneable, so this is impossible
+      throw new RuntimeException(e);
+    }
+
+    copy.mYogaNode = mYogaNode.cloneWithNewChildren();
+    copy.mYogaNode.setData(copy);
+
+    // Everything that release() clears or gives back to a pool is copied.
+    copy.mComponents = new ArrayList<>(mComponents);
+    copy.mBorderColors = mBorderColors.clone();
+    copy.mBorderRadius = mBorderRadius.clone();
+    copy.mIsPaddingPercent = mIsPaddingPercent != null ? mIsPaddingPercent.clone() : null;
+    copy.mTouchExpansion = copyEdges(mTouchExpansion);
+    copy.mNestedTreePadding = copyEdges(mNestedTreePadding);
+    copy.mNestedTreeBorderWidth = copyEdges(mNestedTreeBorderWidth);
+    copy.mNodeInfo = null;
+    if (mNodeInfo != null) {
+      mNodeInfo.copyInto(copy);
+    }
+    copy.mTransitions = mTransitions != null ? new ArrayList<>(mTransitions) : null;
+    copy.mComponentsNeedingPreviousRenderData =
+        mComponentsNeedingPreviousRenderData != null
+            ? new ArrayList<>(mComponentsNeedingPreviousRenderData)
+            : null;
+    copy.mWorkingRangeRegistrations =
+        mWorkingRangeRegistrations != null ? new ArrayList<>(mWorkingRangeRegistrations) : null;
+    copy.mDebugComponents = new HashSet<>();
+
+    // The layout results are read from the copied YogaNode again once the copy is laid out.
+    copy.mResolvedTouchExpansionLeft = YogaConstants.UNDEFINED;
+    copy.mResolvedTouchExpansionRight = YogaConstants.UNDEFINED;
+    copy.mResolvedX = YogaConstants.UNDEFINED;
+    copy.mResolvedY = YogaConstants.UNDEFINED;
+    copy.mResolvedWidth = YogaConstants.UNDEFINED;
+    copy.mResolvedHeight = YogaConstants.UNDEFINED;
+    copy.mDiffNode = null;
+    copy.mCachedMeasuresValid = false;
+
+    for (int i = 0, count = getChildCount(); i < count; i++) {
+      copy.addChildAt(getChildAt(i).deepClone(), i);
+    }
+
+    if (mNestedTree != null && mNestedTree != NULL_LAYOUT) {
+      copy.mNestedTree = mNestedTree.deepClone();
+      copy.mNestedTree.mNestedTreeHolder = copy;
+    }
+
+    return copy;
+  }
+
+  private static @Nullable Edges copyEdges(@Nullable Edges edges) {
+    if (edges == null) {
+      return null;
+    }
+
+    final Edges copy = ComponentsPools.acquireEdges();
+    for (YogaEdge edge : YogaEdge.values()) {
+      copy.set(edge, edges.getRaw(edge));
+    }
+    return copy;
+  }
+
   /**
    * Reset all attributes to default values and release the YogaNode if present. Intended to
    * facilitate recycling.
@@ -25,6 +25,10 @@ import java.util.Set;
 /**
  * This class manages the {@link Component}s global keys for a {@link ComponentTree}. It provides
  * methods for detecting duplicate keys and logging duplicate key occurences.
+ *
+ * <p>Components with hashed global keys are told apart by the check of their key as well: a
+ * component whose hash is already used by a component with another key is switched to a string
+ * global key, so that it doesn't share its state or event handlers with the other one.
  */
 public class KeyHandler {
 
@@ -36,6 +40,8 @@ public class KeyHandler {
 
   private final @Nullable ComponentsLogger mLogger;
   private final Set<String> mKnownGlobalKeys;
+  /** Hashed global keys, mapped to the first component that registered them. */
+  private @Nullable LongHashMap<Component> mKnownGlobalKeyHashes;
 
   public KeyHandler(@Nullable ComponentsLogger logger) {
     mKnownGlobalKeys = new HashSet<>();
@@ -47,6 +53,44 @@ public class KeyHandler {
      * We still need to check whether the component's global key is unique, in case a duplicate key
      * has been manually set on sibling components.
      */
+    if (component.hasGlobalKeyHash()) {
+      registerKeyHash(component);
+      return;
+    }
+
+    checkIsDuplicateKey(component);
+    mKnownGlobalKeys.add(component.getGlobalKey());
+  }
+
+  private void registerKeyHash(Component component) {
+    if (mKnownGlobalKeyHashes == null) {
+      mKnownGlobalKeyHashes = new LongHashMap<>();
+    }
+
+    final long keyHash = component.getGlobalKeyHash();
+    final Component knownComponent = mKnownGlobalKeyHashes.get(keyHash);
+
+    if (knownComponent == null) {
+      mKnownGlobalKeyHashes.put(keyHash, component);
+      return;
+    }
+
+    if (knownComponent.getGlobalKeyCheck() == component.getGlobalKeyCheck()) {
+      onDuplicateKey(component);
+      return;
+    }
+
+    // Different keys with the same hash: not a mistake in the specs, so fall back to the string key.
+    if (mLogger != null) {
+      mLogger.emitMessage(
+          ComponentsLogger.LogLevel.WARNING,
+          "Global keys of "
+              + knownComponent.getSimpleName()
+              + " and "
+              + component.getSimpleName()
+              + " have the same hash.");
+    }
+    component.onGlobalKeyHashCollision();
     checkIsDuplicateKey(component);
     mKnownGlobalKeys.add(component.getGlobalKey());
   }
@@ -56,22 +100,44 @@ public class KeyHandler {
     return mKnownGlobalKeys.contains(key);
   }
 
+  /**
+   * Returns true if this KeyHandler has already recorded a component with the given key hash and
+   * check, see {@link ComponentKeyUtils#getKeyCheck(String)}.
+   */
+  public boolean hasKeyHash(long keyHash, long keyCheck) {
+    if (mKnownGlobalKeyHashes == null) {
+      return false;
+    }
+
+    final Component knownComponent = mKnownGlobalKeyHashes.get(keyHash);
+    if (knownComponent == null) {
+      return false;
+    }
+
+    return knownComponent.getGlobalKeyCheck() == keyCheck
+        || mKnownGlobalKeys.contains(ComponentKeyUtils.getCollidingGlobalKey(keyHash, keyCheck));
+  }
+
   private void checkIsDuplicateKey(Component component) {
     if (mKnownGlobalKeys.contains(component.getGlobalKey())) {
-      final String message =
-          "Found another "
-              + component.getSimpleName()
-              + " Component with the same key: "
-              + component.getKey();
-      final String errorMessage = mLogger == null ? message : getDuplicateKeyMessage();
+      onDuplicateKey(component);
+    }
+  }
 
-      if (component.hasState()) {
-        throw new RuntimeException(message + "\n" + errorMessage);
-      }
+  private void onDuplicateKey(Component component) {
+    final String message =
+        "Found another "
+            + component.getSimpleName()
+            + " Component with the same key: "
+            + component.getKey();
+    final String errorMessage = mLogger == null ? message : getDuplicateKeyMessage();
 
-      if (mLogger != null) {
-        mLogger.emitMessage(ComponentsLogger.LogLevel.ERROR, message + "\n" + errorMessage);
-      }
+    if (component.hasState()) {
+      throw new RuntimeException(message + "\n" + errorMessage);
+    }
+
+    if (mLogger != null) {
+      mLogger.emitMessage(ComponentsLogger.LogLevel.ERROR, message + "\n" + errorMessage);
     }
   }
 
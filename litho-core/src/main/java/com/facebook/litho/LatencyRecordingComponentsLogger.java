@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.support.annotation.Nullable;
+import android.support.v4.util.Pools;
+import com.facebook.litho.stats.LatencyMetrics;
+
+/**
+ * A {@link ComponentsLogger} that records the duration of every performance event into the latency
+ * histograms of a {@link LatencyMetrics}, keyed by the event id, the log tag and the root
+ * component of the event. Events are pooled, so logging doesn't allocate once the histograms
+ * exist. Messages are forwarded to {@link ComponentsReporter}.
+ *
+ * <p>Like for any ComponentsLogger, events are only logged for trees whose {@link
+ * ComponentContext} has a log tag.
+ */
+public class LatencyRecordingComponentsLogger extends BaseComponentsLogger {
+
+  private static final int EVENT_POOL_SIZE = 16;
+
+  private final LatencyMetrics mMetrics;
+  private final Pools.SynchronizedPool<RecordingPerfEvent> mEventPool =
+      new Pools.SynchronizedPool<>(EVENT_POOL_SIZE);
+
+  /** Records into {@link LatencyMetrics#getDefault()}. */
+  public LatencyRecordingComponentsLogger() {
+    this(LatencyMetrics.getDefault());
+  }
+
+  public LatencyRecordingComponentsLogger(LatencyMetrics metrics) {
+    mMetrics = metrics;
+  }
+
+  @Override
+  public PerfEvent newPerformanceEvent(@FrameworkLogEvents.LogEventId int eventId) {
+    RecordingPerfEvent event = mEventPool.acquire();
+    if (event == null) {
+      event = new RecordingPerfEvent();
+    }
+    event.start(eventId);
+    return event;
+  }
+
+  @Override
+  public void logPerfEvent(PerfEvent event) {
+    if (!(event instanceof RecordingPerfEvent)) {
+      return;
+    }
+
+    final RecordingPerfEvent recordingEvent = (RecordingPerfEvent) event;
+    final long durationUs = (System.nanoTime() - recordingEvent.mStartTimeNs) / 1000;
+    mMetrics.record(
+        recordingEvent.mMarkerId,
+        recordingEvent.mLogTag,
+        recordingEvent.mRootComponent != null
+            ? recordingEvent.mRootComponent
+            : recordingEvent.mComponent,
+        durationUs);
+    release(recordingEvent);
+  }
+
+  @Override
+  public void cancelPerfEvent(PerfEvent event) {
+    if (event instanceof RecordingPerfEvent) {
+      release((RecordingPerfEvent) event);
+    }
+  }
+
+  @Override
+  public void emitMessage(LogLevel level, String message) {
+    ComponentsReporter.emitMessage(toReporterLevel(level), message);
+  }
+
+  @Override
+  public void emitMessage(LogLevel level, String message, int samplingFrequency) {
+    ComponentsReporter.emitMessage(toReporterLevel(level), message, samplingFrequency);
+  }
+
+  /** Only durations are recorded, so the detailed annotations aren't worth collecting. */
+  @Override
+  public boolean isTracing(PerfEvent logEvent) {
+    return false;
+  }
+
+  private void release(RecordingPerfEvent event) {
+    event.mLogTag = null;
+    event.mRootComponent = null;
+    event.mComponent = null;
+    mEventPool.release(event);
+  }
+
+  private static ComponentsReporter.LogLevel toReporterLevel(LogLevel level) {
+    switch (level) {
+      case WARNING:
+        return ComponentsReporter.LogLevel.WARNING;
+      case ERROR:
+        return ComponentsReporter.LogLevel.ERROR;
+      case FATAL:
+      default:
+        return ComponentsReporter.LogLevel.FATAL;
+    }
+  }
+
+  /** Only keeps what's needed to record the event, all other annotations are dropped. */
+  private static final class RecordingPerfEvent implements PerfEvent {
+    private int mMarkerId;
+    private long mStartTimeNs;
+    private @Nullable String mLogTag;
+    private @Nullable String mRootComponent;
+    private @Nullable String mComponent;
+
+    void start(int markerId) {
+      mMarkerId = markerId;
+      mStartTimeNs = System.nanoTime();
+    }
+
+    @Override
+    public int getInstanceKey() {
+      return System.identityHashCode(this);
+    }
+
+    @Override
+    public int getMarkerId() {
+      return mMarkerId;
+    }
+
+    @Override
+    public void markerAnnotate(String annotationKey, String annotationValue) {
+      if (FrameworkLogEvents.PARAM_LOG_TAG.equals(annotationKey)) {
+        mLogTag = annotationValue;
+      } else if (FrameworkLogEvents.PARAM_ROOT_COMPONENT.equals(annotationKey)) {
+        mRootComponent = annotationValue;
+      } else if (FrameworkLogEvents.PARAM_COMPONENT.equals(annotationKey)) {
+        mComponent = annotationValue;
+      }
+    }
+
+    @Override
+    public void markerAnnotate(String annotationKey, double annotationValue) {}
+
+    @Override
+    public void markerAnnotate(String annotationKey, int annotationValue) {}
+
+    @Override
+    public void markerAnnotate(String annotationKey, boolean annotationValue) {}
+
+    @Override
+    public void markerAnnotate(String annotationKey, String[] annotationValue) {}
+
+    @Override
+    public void markerAnnotate(String annotationKey, Double[] annotationValue) {}
+
+    @Override
+    public void markerAnnotate(String annotationKey, int[] annotationValue) {}
+
+    @Override
+    public void markerPoint(String eventName) {}
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.support.annotation.Nullable;
+import com.facebook.infer.annotation.ThreadSafe;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tells a layout calculation whether its result is still wanted. A ComponentTree bumps its layout
+ * generation whenever it gets a new root, size specs or state update, or is released: the layouts
+ * that were started for an older generation can't be committed anymore, and stop at the next
+ * check.
+ */
+@ThreadSafe
+class LayoutCancellationToken {
+
+  private final AtomicInteger mLatestGeneration;
+  private final int mGeneration;
+
+  LayoutCancellationToken(AtomicInteger latestGeneration, int generation) {
+    mLatestGeneration = latestGeneration;
+    mGeneration = generation;
+  }
+
+  boolean isCancelled() {
+    return mLatestGeneration.get() != mGeneration;
+  }
+
+  static boolean isCancelled(@Nullable LayoutCancellationToken token) {
+    return token != null && token.isCancelled();
+  }
+
+  /** @return whether both tokens are null, or are for the same generation of the same tree. */
+  static boolean isSameGeneration(
+      @Nullable LayoutCancellationToken first, @Nullable LayoutCancellationToken second) {
+    if (first == null || second == null) {
+      return first == second;
+    }
+
+    return first.mLatestGeneration == second.mLatestGeneration
+        && first.mGeneration == second.mGeneration;
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import com.facebook.infer.annotation.ThreadSafe;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps an exponentially weighted moving average of the time it takes to create the layout of
+ * components, per component type. Used to decide which children are worth laying out in parallel.
+ *
+ * <p>Lookups and updates never lock or allocate: types live in a fixed size open addressing table,
+ * and types that don't fit anymore are simply not tracked.
+ */
+@ThreadSafe
+class LayoutCostModel {
+
+  private static final int CAPACITY = 1024;
+  private static final int MAX_PROBES = 16;
+  /** Weight of a new sample, as a right shift: 1/8. */
+  private static final int SMOOTHING_SHIFT = 3;
+
+  /** Type ids, 0 being an empty slot since type ids start at 1. */
+  private final AtomicIntegerArray mTypeIds = new AtomicIntegerArray(CAPACITY);
+  /** Average cost in nanoseconds, 0 until the first sample is recorded. */
+  private final AtomicLongArray mCosts = new AtomicLongArray(CAPACITY);
+
+  /** @return the average layout cost of the given type in nanoseconds, or 0 if it's unknown. */
+  long getCost(int typeId) {
+    final int slot = findSlot(typeId, false);
+    return slot < 0 ? 0 : mCosts.get(slot);
+  }
+
+  long getCost(Component component) {
+    return getCost(component.getTypeId());
+  }
+
+  void record(Component component, long costNs) {
+    record(component.getTypeId(), costNs);
+  }
+
+  void record(int typeId, long costNs) {
+    final int slot = findSlot(typeId, true);
+    if (slot < 0) {
+      return;
+    }
+
+    final long sample = Math.max(1, costNs);
+    while (true) {
+      final long average = mCosts.get(slot);
+      final long updated =
+          average == 0 ? sample : average + ((sample - average) >> SMOOTHING_SHIFT);
+      if (mCosts.compareAndSet(slot, average, Math.max(1, updated))) {
+        return;
+      }
+    }
+  }
+
+  private int findSlot(int typeId, boolean insert) {
+    int slot = (typeId * 0x9E3779B9) >>> 22;
+    for (int i = 0; i < MAX_PROBES; i++) {
+      final int current = mTypeIds.get(slot);
+      if (current == typeId) {
+        return slot;
+      }
+      if (current == 0) {
+        if (!insert) {
+          return -1;
+        }
+        if (mTypeIds.compareAndSet(slot, 0, typeId)) {
+          return slot;
+        }
+        // Another thread took the slot, which may have been for the same type.
+        if (mTypeIds.get(slot) == typeId) {
+          return slot;
+        }
+      }
+      slot = (slot + 1) & (CAPACITY - 1);
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.config.ComponentsConfiguration.DEFAULT_BACKGROUND_THREAD_PRIORITY;
+
+import android.os.SystemClock;
+import android.support.annotation.IntDef;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import com.facebook.infer.annotation.ThreadSafe;
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.config.LayoutThreadPoolConfiguration;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Runs background work (layouts, change sets, mount content preallocation...) on a single set of
+ * threads, most urgent first, so that work that can wait never delays the layout the UI thread is
+ * about to need.
+ *
+ * <p>Every task has a {@link Priority} and a deadline. Queued tasks run by priority, and by
+ * deadline within a priority: a task posted with a higher priority runs before all the queued
+ * tasks of lower priorities, whenever they were posted. Also, when there is more than one thread,
+ * one of them is kept for {@link #VISIBLE_NOW} and {@link #NEXT_FRAME} tasks, so that these never
+ * wait for a long prefetch to finish.
+ *
+ * <p>Existing hooks can be routed into a scheduler through the {@link LayoutHandler}s returned by
+ * {@link #createLayoutHandler(int)}, e.g. with {@link ComponentTree.Builder#layoutThreadHandler}.
+ */
+@ThreadSafe
+public class LayoutScheduler {
+
+  @IntDef({VISIBLE_NOW, NEXT_FRAME, IN_RANGE_PREFETCH, SPECULATIVE, WARMUP})
+  @Retention(RetentionPolicy.SOURCE)
+  public @interface Priority {}
+
+  /** Work the UI thread is waiting on, or will wait on as soon as it draws. */
+  public static final int VISIBLE_NOW = 0;
+  /** Work whose result should be ready for the next frame. */
+  public static final int NEXT_FRAME = 1;
+  /** Work for content in the prefetch range, which will likely be needed soon. */
+  public static final int IN_RANGE_PREFETCH = 2;
+  /** Work for content that may never be needed. */
+  public static final int SPECULATIVE = 3;
+  /** Warming up caches and pools, only worth it when there's nothing else to do. */
+  public static final int WARMUP = 4;
+
+  /** How long a task of each priority can wait by default, which sets its deadline. */
+  private static final long[] DEFAULT_DELAYS_MS = {0, 16, 100, 500, 2000};
+
+  @GuardedBy("LayoutScheduler.class")
+  private static @Nullable LayoutScheduler sDefaultInstance;
+
+  private final int mThreadCount;
+  private final int mMaxLowPriorityTasks;
+  private final ThreadFactory mThreadFactory;
+  private final Runnable mWorker =
+      new Runnable() {
+        @Override
+        public void run() {
+          runTasks();
+        }
+      };
+
+  @GuardedBy("this")
+  private final PriorityQueue<Task> mQueue = new PriorityQueue<>();
+
+  @GuardedBy("this")
+  private int mStartedThreads;
+
+  @GuardedBy("this")
+  private int mIdleThreads;
+
+  @GuardedBy("this")
+  private int mRunningLowPriorityTasks;
+
+  @GuardedBy("this")
+  private long mSequence;
+
+  /**
+   * @return the scheduler used by the framework's default handlers when {@link
+   *     ComponentsConfiguration#useLayoutScheduler} is enabled. Its threads are configured by
+   *     {@link ComponentsConfiguration#threadPoolConfiguration} if set.
+   */
+  public static synchronized LayoutScheduler getDefault() {
+    if (sDefaultInstance == null) {
+      final LayoutThreadPoolConfiguration configuration =
+          ComponentsConfiguration.threadPoolConfiguration;
+      sDefaultInstance =
+          configuration != null
+              ? new LayoutScheduler(configuration)
+              : new LayoutScheduler(
+                  Math.max(2, Runtime.getRuntime().availableProcessors() - 1),
+                  DEFAULT_BACKGROUND_THREAD_PRIORITY);
+    }
+
+    return sDefaultInstance;
+  }
+
+  public LayoutScheduler(LayoutThreadPoolConfiguration configuration) {
+    this(configuration.getMaxPoolSize(), configuration.getThreadPriority());
+  }
+
+  /**
+   * @param threadCount maximum number of threads running tasks, which are started as needed
+   * @param threadPriority priority of the threads, see {@link android.os.Process}
+   */
+  public LayoutScheduler(int threadCount, int threadPriority) {
+    this(threadCount, new LayoutThreadFactory(threadPriority));
+  }
+
+  @VisibleForTesting
+  LayoutScheduler(int threadCount, ThreadFactory threadFactory) {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("A LayoutScheduler needs at least one thread");
+    }
+
+    mThreadCount = threadCount;
+    mMaxLowPriorityTasks = Math.max(1, threadCount - 1);
+    mThreadFactory = threadFactory;
+  }
+
+  /** Schedules the runnable with the default deadline of its priority. */
+  public void post(Runnable runnable, @Priority int priority) {
+    postAtDeadline(
+        runnable, priority, SystemClock.uptimeMillis() + DEFAULT_DELAYS_MS[priority], null);
+  }
+
+  /**
+   * Schedules the runnable, before the queued tasks of the same priority that have a later
+   * deadline.
+   *
+   * @param deadlineMs time the result is needed at, in the {@link SystemClock#uptimeMillis()} base
+   */
+  public void postAtDeadline(Runnable runnable, @Priority int priority, long deadlineMs) {
+    postAtDeadline(runnable, priority, deadlineMs, null);
+  }
+
+  /** Removes the pending runs of the runnable, if it's still queued. */
+  public void remove(Runnable runnable) {
+    remove(runnable, null);
+  }
+
+  /**
+   * @return a LayoutHandler that posts into this scheduler with the given priority. Removing
+   *     callbacks through it only affects the runnables it posted.
+   */
+  public LayoutHandler createLayoutHandler(@Priority int priority) {
+    return new SchedulerLayoutHandler(this, priority);
+  }
+
+  @VisibleForTesting
+  synchronized int getQueuedTaskCount() {
+    return mQueue.size();
+  }
+
+  private void postAtDeadline(
+      Runnable runnable, @Priority int priority, long deadlineMs, @Nullable Object owner) {
+    final boolean startThread;
+    synchronized (this) {
+      mQueue.add(new Task(runnable, priority, deadlineMs, mSequence++, owner));
+      startThread = mIdleThreads == 0 && mStartedThreads < mThreadCount;
+      if (startThread) {
+        mStartedThreads++;
+      }
+      notifyAll();
+    }
+
+    if (startThread) {
+      mThreadFactory.newThread(mWorker).start();
+    }
+  }
+
+  /** Removes the queued tasks with the given runnable, or all of them if it's null. */
+  private synchronized void remove(@Nullable Runnable runnable, @Nullable Object owner) {
+    final Iterator<Task> iterator = mQueue.iterator();
+    while (iterator.hasNext()) {
+      final Task task = iterator.next();
+      if ((runnable == null || task.mRunnable == runnable) && task.mOwner == owner) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private void runTasks() {
+    try {
+      while (true) {
+        final Task task = takeTask();
+        try {
+          task.mRunnable.run();
+        } finally {
+          onTaskFinished(task);
+        }
+      }
+    } finally {
+      // Only reached if a task threw, which takes the thread down like any executor would.
+      synchronized (this) {
+        mStartedThreads--;
+      }
+    }
+  }
+
+  private synchronized Task takeTask() {
+    while (true) {
+      final Task next = mQueue.peek();
+      if (next != null
+          && (!isLowPriority(next.mPriority)
+              || mRunningLowPriorityTasks < mMaxLowPriorityTasks)) {
+        mQueue.poll();
+        if (isLowPriority(next.mPriority)) {
+          mRunningLowPriorityTasks++;
+        }
+        return next;
+      }
+
+      mIdleThreads++;
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        // The threads of the scheduler are never stopped, keep waiting for tasks.
+      } finally {
+        mIdleThreads--;
+      }
+    }
+  }
+
+  private synchronized void onTaskFinished(Task task) {
+    if (isLowPriority(task.mPriority)) {
+      mRunningLowPriorityTasks--;
+      // A low priority task may have been waiting for this thread.
+      notifyAll();
+    }
+  }
+
+  private static boolean isLowPriority(@Priority int priority) {
+    return priority >= IN_RANGE_PREFETCH;
+  }
+
+  private static final class Task implements Comparable<Task> {
+    private final Runnable mRunnable;
+    private final @Priority int mPriority;
+    private final long mDeadlineMs;
+    private final long mSequence;
+    private final @Nullable Object mOwner;
+
+    Task(
+        Runnable runnable,
+        @Priority int priority,
+        long deadlineMs,
+        long sequence,
+        @Nullable Object owner) {
+      mRunnable = runnable;
+      mPriority = priority;
+      mDeadlineMs = deadlineMs;
+      mSequence = sequence;
+      mOwner = owner;
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      if (mPriority != other.mPriority) {
+        return mPriority < other.mPriority ? -1 : 1;
+      }
+      if (mDeadlineMs != other.mDeadlineMs) {
+        return mDeadlineMs < other.mDeadlineMs ? -1 : 1;
+      }
+      return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+    }
+  }
+
+  private static final class SchedulerLayoutHandler implements LayoutHandler {
+    private final LayoutScheduler mScheduler;
+    private final @Priority int mPriority;
+
+    SchedulerLayoutHandler(LayoutScheduler scheduler, @Priority int priority) {
+      mScheduler = scheduler;
+      mPriority = priority;
+    }
+
+    @Override
+    public boolean post(Runnable runnable) {
+      mScheduler.postAtDeadline(
+          runnable, mPriority, SystemClock.uptimeMillis() + DEFAULT_DELAYS_MS[mPriority], this);
+      return true;
+    }
+
+    @Override
+    public void removeCallbacks(Runnable runnable) {
+      mScheduler.remove(runnable, this);
+    }
+
+    @Override
+    public void removeCallbacksAndMessages(@Nullable Object token) {
+      // Like a Handler: null removes everything, and posted runnables never have a token.
+      if (token == null) {
+        mScheduler.remove(null, this);
+      }
+    }
+  }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.support.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The measurements of the {@link DiffNode} tree of a {@link LayoutState}, in a form that outlives
+ * the process: component types are stored by class name, and the nodes in pre-order with their
+ * child counts.
+ *
+ * <p>A snapshot can seed the measurements of the first layout of a later session, see {@link
+ * #applyTo(InternalNode, LayoutSnapshotStore)}. Since it doesn't know the props of the components
+ * that were measured, it's only valid for the layout of the same data, which the key it's stored
+ * under has to identify.
+ */
+final class LayoutSnapshot {
+
+  private static final String NO_COMPONENT = "";
+
+  /** Bounds what's read from a file, layouts are far smaller than this. */
+  private static final int MAX_NODE_COUNT = 1 << 16;
+
+  private final String mRootComponentType;
+  private final long mKey;
+  private final int mWidthSpec;
+  private final int mHeightSpec;
+
+  private final String[] mComponentTypes;
+  private final int[] mChildCounts;
+  private final int[] mLastWidthSpecs;
+  private final int[] mLastHeightSpecs;
+  private final float[] mLastMeasuredWidths;
+  private final float[] mLastMeasuredHeights;
+
+  /** Index of the first node after the subtree of each node. */
+  private final int[] mSubtreeEnds;
+
+  private LayoutSnapshot(
+      String rootComponentType,
+      long key,
+      int widthSpec,
+      int heightSpec,
+      String[] componentTypes,
+      int[] childCounts,
+      int[] lastWidthSpecs,
+      int[] lastHeightSpecs,
+      float[] lastMeasuredWidths,
+      float[] lastMeasuredHeights) {
+    mRootComponentType = rootComponentType;
+    mKey = key;
+    mWidthSpec = widthSpec;
+    mHeightSpec = heightSpec;
+    mComponentTypes = componentTypes;
+    mChildCounts = childCounts;
+    mLastWidthSpecs = lastWidthSpecs;
+    mLastHeightSpecs = lastHeightSpecs;
+    mLastMeasuredWidths = lastMeasuredWidths;
+    mLastMeasuredHeights = lastMeasuredHeights;
+    mSubtreeEnds = new int[childCounts.length];
+
+    if (!computeSubtreeEnds()) {
+      throw new IllegalArgumentException("The child counts don't describe a single tree");
+    }
+  }
+
+  /**
+   * @return the snapshot of the diff tree of the given LayoutState, or null if it didn't generate
+   *     one or it's too large.
+   */
+  static @Nullable LayoutSnapshot capture(
+      Component root, long key, int widthSpec, int heightSpec, LayoutState layoutState) {
+    final DiffNode diffTreeRoot = layoutState.getDiffTree();
+    if (diffTreeRoot == null) {
+      return null;
+    }
+
+    final List<DiffNode> nodes = new ArrayList<>();
+    addInPreOrder(diffTreeRoot, nodes);
+
+    final int nodeCount = nodes.size();
+    if (nodeCount > MAX_NODE_COUNT) {
+      return null;
+    }
+    final String[] componentTypes = new String[nodeCount];
+    final int[] childCounts = new int[nodeCount];
+    final int[] lastWidthSpecs = new int[nodeCount];
+    final int[] lastHeightSpecs = new int[nodeCount];
+    final float[] lastMeasuredWidths = new float[nodeCount];
+    final float[] lastMeasuredHeights = new float[nodeCount];
+
+    for (int i = 0; i < nodeCount; i++) {
+      final DiffNode node = nodes.get(i);
+      componentTypes[i] = getComponentType(node.getComponent());
+      childCounts[i] = node.getChildCount();
+      lastWidthSpecs[i] = node.getLastWidthSpec();
+      lastHeightSpecs[i] = node.getLastHeightSpec();
+      lastMeasuredWidths[i] = node.getLastMeasuredWidth();
+      lastMeasuredHeights[i] = node.getLastMeasuredHeight();
+    }
+
+    return new LayoutSnapshot(
+        getComponentType(root),
+        key,
+        widthSpec,
+        heightSpec,
+        componentTypes,
+        childCounts,
+        lastWidthSpecs,
+        lastHeightSpecs,
+        lastMeasuredWidths,
+        lastMeasuredHeights);
+  }
+
+  static String getComponentType(@Nullable Component component) {
+    return component == null ? NO_COMPONENT : component.getClass().getName();
+  }
+
+  String getRootComponentType() {
+    return mRootComponentType;
+  }
+
+  long getKey() {
+    return mKey;
+  }
+
+  int getWidthSpec() {
+    return mWidthSpec;
+  }
+
+  int getHeightSpec() {
+    return mHeightSpec;
+  }
+
+  int getNodeCount() {
+    return mComponentTypes.length;
+  }
+
+  /**
+   * Walks the given tree, which must not have been measured yet, along with the snapshot, and
+   * gives the measurements of the snapshot to the leaves whose path from the root has the same
+   * component types and child counts. Like for a {@link DiffNode}, a measurement is only used if
+   * the size specs the leaf is measured with are the ones it was measured with in the snapshot.
+   *
+   * <p>Since the snapshot has no inter stage outputs to copy, only the components the store allows
+   * are seeded, see {@link LayoutSnapshotStore#allowMeasurementReuse(Class)}.
+   *
+   * @return the number of seeded leaves.
+   */
+  int applyTo(InternalNode root, LayoutSnapshotStore store) {
+    final int[] seededCount = new int[1];
+    applyTo(root, 0, true, store, seededCount);
+    return seededCount[0];
+  }
+
+  private int applyTo(
+      InternalNode node,
+      int index,
+      boolean isTreeRoot,
+      LayoutSnapshotStore store,
+      int[] seededCount) {
+    final int subtreeEnd = mSubtreeEnds[index];
+    final Component component = node.getRootComponent();
+    final int childCount = node.getChildCount();
+
+    // Nested trees are resolved while measuring, after the snapshot was applied.
+    if (!getComponentType(component).equals(mComponentTypes[index])
+        || childCount != mChildCounts[index]
+        || (!isTreeRoot && Component.isLayoutSpecWithSizeSpec(component))) {
+      return subtreeEnd;
+    }
+
+    if (childCount == 0) {
+      if (component != null
+          && Component.isMountSpec(component)
+          && component.canMeasure()
+          && !component.shouldAlwaysRemeasure()
+          && node.getDiffNode() == null
+          && store.isMeasurementReusable(component)) {
+        final DiffNode seed = new DiffNode();
+        seed.setLastWidthSpec(mLastWidthSpecs[index]);
+        seed.setLastHeightSpec(mLastHeightSpecs[index]);
+        seed.setLastMeasuredWidth(mLastMeasuredWidths[index]);
+        seed.setLastMeasuredHeight(mLastMeasuredHeights[index]);
+        node.setDiffNode(seed);
+        node.setCachedMeasuresValid(true);
+        seededCount[0]++;
+      }
+      return subtreeEnd;
+    }
+
+    int childIndex = index + 1;
+    for (int i = 0; i < childCount; i++) {
+      childIndex = applyTo(node.getChildAt(i), childIndex, false, store, seededCount);
+    }
+
+    return subtreeEnd;
+  }
+
+  /** Writes the snapshot, with the component types of its nodes deduplicated. */
+  void writeTo(DataOutput out) throws IOException {
+    final Map<String, Integer> typeIndexes = new HashMap<>();
+    final List<String> types = new ArrayList<>();
+    final int nodeCount = mComponentTypes.length;
+    final int[] nodeTypeIndexes = new int[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      Integer typeIndex = typeIndexes.get(mComponentTypes[i]);
+      if (typeIndex == null) {
+        typeIndex = types.size();
+        typeIndexes.put(mComponentTypes[i], typeIndex);
+        types.add(mComponentTypes[i]);
+      }
+      nodeTypeIndexes[i] = typeIndex;
+    }
+
+    out.writeUTF(mRootComponentType);
+    out.writeLong(mKey);
+    out.writeInt(mWidthSpec);
+    out.writeInt(mHeightSpec);
+
+    out.writeInt(types.size());
+    for (int i = 0, size = types.size(); i < size; i++) {
+      out.writeUTF(types.get(i));
+    }
+
+    out.writeInt(nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      out.writeInt(nodeTypeIndexes[i]);
+      out.writeInt(mChildCounts[i]);
+      out.writeInt(mLastWidthSpecs[i]);
+      out.writeInt(mLastHeightSpecs[i]);
+      out.writeFloat(mLastMeasuredWidths[i]);
+      out.writeFloat(mLastMeasuredHeights[i]);
+    }
+  }
+
+  /** Reads a snapshot written by {@link #writeTo(DataOutput)}. */
+  static LayoutSnapshot readFrom(DataInput in) throws IOException {
+    final String rootComponentType = in.readUTF();
+    final long key = in.readLong();
+    final int widthSpec = in.readInt();
+    final int heightSpec = in.readInt();
+
+    final int typeCount = in.readInt();
+    if (typeCount < 0 || typeCount > MAX_NODE_COUNT) {
+      throw new IOException("Invalid type count: " + typeCount);
+    }
+    final String[] types = new String[typeCount];
+    for (int i = 0; i < typeCount; i++) {
+      types[i] = in.readUTF();
+    }
+
+    final int nodeCount = in.readInt();
+    if (nodeCount <= 0 || nodeCount > MAX_NODE_COUNT) {
+      throw new IOException("Invalid node count: " + nodeCount);
+    }
+    final String[] componentTypes = new String[nodeCount];
+    final int[] childCounts = new int[nodeCount];
+    final int[] lastWidthSpecs = new int[nodeCount];
+    final int[] lastHeightSpecs = new int[nodeCount];
+    final float[] lastMeasuredWidths = new float[nodeCount];
+    final float[] lastMeasuredHeights = new float[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      final int typeIndex = in.readInt();
+      if (typeIndex < 0 || typeIndex >= typeCount) {
+        throw new IOException("Invalid type index: " + typeIndex);
+      }
+      componentTypes[i] = types[typeIndex];
+      childCounts[i] = in.readInt();
+      lastWidthSpecs[i] = in.readInt();
+      lastHeightSpecs[i] = in.readInt();
+      lastMeasuredWidths[i] = in.readFloat();
+      lastMeasuredHeights[i] = in.readFloat();
+    }
+
+    try {
+      return new LayoutSnapshot(
+          rootComponentType,
+          key,
+          widthSpec,
+          heightSpec,
+          componentTypes,
+          childCounts,
+          lastWidthSpecs,
+          lastHeightSpecs,
+          lastMeasuredWidths,
+          lastMeasuredHeights);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Iterative, since the child counts come from a file.
+   *
+   * @return false if the child counts don't describe a single tree.
+   */
+  private boolean computeSubtreeEnds() {
+    final int nodeCount = mChildCounts.length;
+    final int[] openNodes = new int[nodeCount];
+    final int[] remainingChildren = new int[nodeCount];
+    int depth = 0;
+
+    for (int i = 0; i < nodeCount; i++) {
+      if ((i > 0 && depth == 0) || mChildCounts[i] < 0) {
+        return false;
+      }
+
+      openNodes[depth] = i;
+      remainingChildren[depth] = mChildCounts[i];
+      depth++;
+
+      while (depth > 0 && remainingChildren[depth - 1] == 0) {
+        depth--;
+        mSubtreeEnds[openNodes[depth]] = i + 1;
+        if (depth > 0) {
+          remainingChildren[depth - 1]--;
+        }
+      }
+    }
+
+    return nodeCount > 0 && depth == 0;
+  }
+
+  private static void addInPreOrder(DiffNode node, List<DiffNode> nodes) {
+    nodes.add(node);
+    for (int i = 0, count = node.getChildCount(); i < count; i++) {
+      addInPreOrder(node.getChildAt(i), nodes);
+    }
+  }
+}
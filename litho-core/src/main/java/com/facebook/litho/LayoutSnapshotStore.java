@@ -0,0 +1,227 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import com.facebook.infer.annotation.ThreadSafe;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the measurements of layouts across sessions, so that the first layout of a {@link
+ * ComponentTree} after a cold start doesn't have to measure its components again, see {@link
+ * ComponentTree.Builder#layoutSnapshotStore(LayoutSnapshotStore, long)}.
+ *
+ * <p>Snapshots are keyed by root component type, size specs and a key given by the app, which has
+ * to identify the data the tree renders as well as anything else that changes its measurements
+ * (app version, font scale, locale...): a snapshot is used as long as the tree it's applied to has
+ * the same structure, whatever the props of its components.
+ *
+ * <p>Snapshots are kept in memory, the store is only read from or written to its file by {@link
+ * #load()} and {@link #save()}, which should be called from a background thread, e.g. at startup
+ * and when the app goes to the background. The least recently used snapshots are dropped once there
+ * are more than the maximum given to the constructor.
+ */
+@ThreadSafe
+public final class LayoutSnapshotStore {
+
+  private static final int FILE_MAGIC = 0x4c534e50;
+  private static final int FILE_VERSION = 1;
+
+  private final File mFile;
+  private final int mMaxSnapshots;
+  private final LinkedHashMap<SnapshotKey, LayoutSnapshot> mSnapshots;
+  private final Set<String> mReusableComponentTypes = new HashSet<>();
+
+  public LayoutSnapshotStore(File file, int maxSnapshots) {
+    mFile = file;
+    mMaxSnapshots = maxSnapshots;
+    mSnapshots = new LinkedHashMap<>(16, 0.75f, true /* accessOrder */);
+  }
+
+  /**
+   * Allows the measurements of the given mount spec to be reused from snapshots. Components that
+   * reuse a measurement don't run their {@code OnMeasure} and don't get the inter stage outputs
+   * it sets, so only mount specs that don't need them, or set them again in {@code
+   * OnBoundsDefined} when missing, should be allowed.
+   */
+  public synchronized void allowMeasurementReuse(Class<? extends Component> componentClass) {
+    mReusableComponentTypes.add(componentClass.getName());
+  }
+
+  /**
+   * Reads the snapshots of the file of the store, if it exists. Snapshots already in memory are
+   * kept over the ones of the file.
+   *
+   * @throws IOException if the file can't be read or isn't a valid snapshot file, in which case the
+   *     snapshots in memory are unchanged.
+   */
+  public void load() throws IOException {
+    if (!mFile.exists()) {
+      return;
+    }
+
+    final List<LayoutSnapshot> snapshots = new ArrayList<>();
+    final DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+    try {
+      if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+        throw new IOException("Unknown snapshot file format");
+      }
+
+      final int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        snapshots.add(LayoutSnapshot.readFrom(in));
+      }
+    } finally {
+      in.close();
+    }
+
+    synchronized (this) {
+      // The file is written from the least to the most recently used snapshot.
+      for (int i = 0, size = snapshots.size(); i < size; i++) {
+        final LayoutSnapshot snapshot = snapshots.get(i);
+        final SnapshotKey key = new SnapshotKey(snapshot);
+        if (!mSnapshots.containsKey(key)) {
+          mSnapshots.put(key, snapshot);
+        }
+      }
+      trimToMaxSnapshots();
+    }
+  }
+
+  /** Writes the snapshots in memory to the file of the store, replacing its content. */
+  public void save() throws IOException {
+    final List<LayoutSnapshot> snapshots;
+    synchronized (this) {
+      snapshots = new ArrayList<>(mSnapshots.values());
+    }
+
+    // Written to a temporary file first, so that a failure doesn't corrupt the previous snapshots.
+    final File tmpFile = new File(mFile.getPath() + ".tmp");
+    final DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+    try {
+      out.writeInt(FILE_MAGIC);
+      out.writeInt(FILE_VERSION);
+      out.writeInt(snapshots.size());
+      for (int i = 0, size = snapshots.size(); i < size; i++) {
+        snapshots.get(i).writeTo(out);
+      }
+    } finally {
+      out.close();
+    }
+
+    if (!tmpFile.renameTo(mFile)) {
+      tmpFile.delete();
+      throw new IOException("Could not replace " + mFile);
+    }
+  }
+
+  /** Drops the snapshots in memory, the file is left as is until the next {@link #save()}. */
+  public synchronized void clear() {
+    mSnapshots.clear();
+  }
+
+  @VisibleForTesting
+  synchronized int size() {
+    return mSnapshots.size();
+  }
+
+  synchronized boolean isMeasurementReusable(Component component) {
+    return mReusableComponentTypes.contains(component.getClass().getName());
+  }
+
+  synchronized @Nullable LayoutSnapshot get(
+      Component root, long key, int widthSpec, int heightSpec) {
+    return mSnapshots.get(
+        new SnapshotKey(LayoutSnapshot.getComponentType(root), key, widthSpec, heightSpec));
+  }
+
+  synchronized void put(LayoutSnapshot snapshot) {
+    mSnapshots.put(new SnapshotKey(snapshot), snapshot);
+    trimToMaxSnapshots();
+  }
+
+  private void trimToMaxSnapshots() {
+    final Iterator<SnapshotKey> iterator = mSnapshots.keySet().iterator();
+    while (mSnapshots.size() > mMaxSnapshots && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  private static final class SnapshotKey {
+    private final String mRootComponentType;
+    private final long mKey;
+    private final int mWidthSpec;
+    private final int mHeightSpec;
+
+    SnapshotKey(LayoutSnapshot snapshot) {
+      this(
+          snapshot.getRootComponentType(),
+          snapshot.getKey(),
+          snapshot.getWidthSpec(),
+          snapshot.getHeightSpec());
+    }
+
+    SnapshotKey(String rootComponentType, long key, int widthSpec, int heightSpec) {
+      mRootComponentType = rootComponentType;
+      mKey = key;
+      mWidthSpec = widthSpec;
+      mHeightSpec = heightSpec;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof SnapshotKey)) {
+        return false;
+      }
+
+      final SnapshotKey other = (SnapshotKey) o;
+      return mKey == other.mKey
+          && mWidthSpec == other.mWidthSpec
+          && mHeightSpec == other.mHeightSpec
+          && mRootComponentType.equals(other.mRootComponentType);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = mRootComponentType.hashCode();
+      result = 31 * result + (int) (mKey ^ (mKey >>> 32));
+      result = 31 * result + mWidthSpec;
+      result = 31 * result + mHeightSpec;
+      return result;
+    }
+  }
+}
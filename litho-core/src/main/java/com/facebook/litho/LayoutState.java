@@ -62,6 +62,7 @@ import android.view.accessibility.AccessibilityManager;
 import com.facebook.infer.annotation.ThreadSafe;
 import com.facebook.litho.annotations.ImportantForAccessibility;
 import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.stats.LithoStats;
 import com.facebook.litho.drawable.ComparableDrawable;
 import com.facebook.litho.reference.DrawableReference;
 import com.facebook.litho.reference.Reference;
@@ -133,6 +134,15 @@ class LayoutState {
   private static final AtomicInteger sIdGenerator = new AtomicInteger(1);
   private static final int NO_PREVIOUS_LAYOUT_STATE_ID = -1;
 
+  // Rough sizes, in bytes, of the objects counted by estimateRetainedSizeBytes(), including the
+  // smaller objects they own (bounds, view attributes, Yoga nodes, index entries).
+  private static final int LAYOUT_OUTPUT_SIZE_BYTES = 256;
+  private static final int VISIBILITY_OUTPUT_SIZE_BYTES = 128;
+  private static final int DIFF_NODE_SIZE_BYTES = 96;
+  private static final int INTERNAL_NODE_SIZE_BYTES = 512;
+
+  // Bounds of the components with a hashed global key, so that their string key isn't built.
+  private final LongSparseArray<Rect> mComponentKeyHashToBounds = new LongSparseArray<>();
   private final Map<String, Rect> mComponentKeyToBounds = new HashMap<>();
   private final List<Component> mComponents = new ArrayList<>();
 
@@ -148,6 +158,12 @@ class LayoutState {
   private final LongSparseArray<Integer> mOutputsIdToPositionMap = new LongSparseArray<>(8);
   private final ArrayList<LayoutOutput> mMountableOutputTops = new ArrayList<>();
   private final ArrayList<LayoutOutput> mMountableOutputBottoms = new ArrayList<>();
+  // Only built if ComponentsConfiguration.useBoundsIndexForIncrementalMount is enabled.
+  @Nullable private BoundsIndex mMountableOutputsIndex;
+  @Nullable private BoundsIndex mVisibilityOutputsIndex;
+  @Nullable private LongSparseArray<Integer> mVisibilityOutputsIdToPositionMap;
+  // Only computed if ComponentsConfiguration.prepareMountPlanInBackground is enabled.
+  @Nullable private MountPlan mMountPlan;
 
   @Nullable private LayoutStateOutputIdCalculator mLayoutStateOutputIdCalculator;
 
@@ -181,6 +197,7 @@ class LayoutState {
   private int mId;
   // Id of the layout state (if any) that was used in comparisons with this layout state.
   private int mPreviousLayoutStateId = NO_PREVIOUS_LAYOUT_STATE_ID;
+  private int mEstimatedRetainedSizeBytes = -1;
 
   private AccessibilityManager mAccessibilityManager;
   private boolean mAccessibilityEnabled = false;
@@ -197,6 +214,9 @@ class LayoutState {
 
   @Nullable WorkingRangeContainer mWorkingRangeContainer;
 
+  /** If set, the calculation of this LayoutState stops early once the token is cancelled. */
+  private @Nullable LayoutCancellationToken mCancellationToken;
+
   LayoutState() {
     if (!ComponentsConfiguration.lazilyInitializeLayoutStateOutputIdCalculator) {
       mLayoutStateOutputIdCalculator = new LayoutStateOutputIdCalculator();
@@ -588,6 +608,11 @@ class LayoutState {
       InternalNode node,
       LayoutState layoutState,
       DiffNode parentDiffNode) {
+    if (layoutState.isCancelled()) {
+      // The results won't be used, LayoutState#calculate releases what was collected so far.
+      return;
+    }
+
     if (node.hasNewLayout()) {
       node.markLayoutSeen();
     }
@@ -649,8 +674,9 @@ class LayoutState {
 
     final boolean shouldGenerateDiffTree = layoutState.mShouldGenerateDiffTree;
     final DiffNode currentDiffNode = node.getDiffNode();
+    // DiffNodes seeded from a LayoutSnapshot only have measurements, no outputs.
     final boolean shouldUseCachedOutputs =
-        isMountSpec(component) && currentDiffNode != null;
+        isMountSpec(component) && currentDiffNode != null && currentDiffNode.getContent() != null;
     final boolean isCachedOutputUpdated = shouldUseCachedOutputs && node.areCachedMeasuresValid();
 
     final DiffNode diffNode;
@@ -967,8 +993,12 @@ class LayoutState {
             && delegate.getScopedContext().getComponentTree() != null) {
           layoutState.mComponents.add(delegate);
         }
-        if (delegate.getGlobalKey() != null) {
+        if (delegate.hasGlobalKeyHash()) {
+          layoutState.mComponentKeyHashToBounds.put(delegate.getGlobalKeyHash(), copyRect);
+        } else if (delegate.getGlobalKey() != null) {
           layoutState.mComponentKeyToBounds.put(delegate.getGlobalKey(), copyRect);
+        } else {
+          ComponentsPools.release(copyRect);
         }
       }
       if (isTracing) {
@@ -995,8 +1025,18 @@ class LayoutState {
     }
   }
 
-  Map<String, Rect> getComponentKeyToBounds() {
-    return mComponentKeyToBounds;
+  /**
+   * @return the bounds of the component with the given global key, or null if there is no such
+   *     component in this layout.
+   */
+  @Nullable
+  Rect getComponentBounds(String globalKey) {
+    final Rect bounds = mComponentKeyToBounds.get(globalKey);
+    if (bounds != null || mComponentKeyHashToBounds.size() == 0) {
+      return bounds;
+    }
+
+    return mComponentKeyHashToBounds.get(ComponentKeyUtils.getGlobalKeyHash(globalKey));
   }
 
   List<Component> getComponents() {
@@ -1290,6 +1330,114 @@ class LayoutState {
       boolean persistInternalNodeTree,
       @CalculateLayoutSource int source,
       @Nullable String extraAttribution) {
+    return calculate(
+        c,
+        component,
+        componentTreeId,
+        widthSpec,
+        heightSpec,
+        shouldGenerateDiffTree,
+        previousLayoutState,
+        clipChildren,
+        persistInternalNodeTree,
+        source,
+        extraAttribution,
+        null);
+  }
+
+  /**
+   * @param cancellationToken if not null, the calculation is checked against it between its
+   *     phases, and abandoned if it was cancelled.
+   * @return the LayoutState, or null if the calculation was cancelled.
+   */
+  static @Nullable LayoutState calculate(
+      ComponentContext c,
+      Component component,
+      int componentTreeId,
+      int widthSpec,
+      int heightSpec,
+      boolean shouldGenerateDiffTree,
+      @Nullable LayoutState previousLayoutState,
+      boolean clipChildren,
+      boolean persistInternalNodeTree,
+      @CalculateLayoutSource int source,
+      @Nullable String extraAttribution,
+      @Nullable LayoutCancellationToken cancellationToken) {
+    return calculate(
+        c,
+        component,
+        componentTreeId,
+        widthSpec,
+        heightSpec,
+        shouldGenerateDiffTree,
+        previousLayoutState,
+        clipChildren,
+        persistInternalNodeTree,
+        source,
+        extraAttribution,
+        cancellationToken,
+        null);
+  }
+
+  /**
+   * @param incrementalBaseLayoutState if not null, a layout whose persisted node tree reflects the
+   *     committed state of the StateHandler of the given context. The new layout takes that tree
+   *     over and only creates the layouts of the components with pending state updates again, see
+   *     {@link IncrementalLayout}.
+   */
+  static @Nullable LayoutState calculate(
+      ComponentContext c,
+      Component component,
+      int componentTreeId,
+      int widthSpec,
+      int heightSpec,
+      boolean shouldGenerateDiffTree,
+      @Nullable LayoutState previousLayoutState,
+      boolean clipChildren,
+      boolean persistInternalNodeTree,
+      @CalculateLayoutSource int source,
+      @Nullable String extraAttribution,
+      @Nullable LayoutCancellationToken cancellationToken,
+      @Nullable LayoutState incrementalBaseLayoutState) {
+    return calculate(
+        c,
+        component,
+        componentTreeId,
+        widthSpec,
+        heightSpec,
+        shouldGenerateDiffTree,
+        previousLayoutState,
+        clipChildren,
+        persistInternalNodeTree,
+        source,
+        extraAttribution,
+        cancellationToken,
+        incrementalBaseLayoutState,
+        null,
+        0);
+  }
+
+  /**
+   * @param snapshotStore if not null, a layout without a previous diff tree is seeded with the
+   *     measurements of the snapshot stored under the given key, or, if there is none, its
+   *     measurements are stored for later sessions. See {@link LayoutSnapshotStore}.
+   */
+  static @Nullable LayoutState calculate(
+      ComponentContext c,
+      Component component,
+      int componentTreeId,
+      int widthSpec,
+      int heightSpec,
+      boolean shouldGenerateDiffTree,
+      @Nullable LayoutState previousLayoutState,
+      boolean clipChildren,
+      boolean persistInternalNodeTree,
+      @CalculateLayoutSource int source,
+      @Nullable String extraAttribution,
+      @Nullable LayoutCancellationToken cancellationToken,
+      @Nullable LayoutState incrementalBaseLayoutState,
+      @Nullable LayoutSnapshotStore snapshotStore,
+      long snapshotKey) {
 
     final ComponentsLogger logger = c.getLogger();
 
@@ -1311,6 +1459,8 @@ class LayoutState {
     }
 
     final LayoutState layoutState;
+    final AllocationAccounting.Pass allocations =
+        AllocationAccounting.beginPass(component.getSimpleName());
     try {
       final PerfEvent logLayoutState =
           logger != null
@@ -1339,19 +1489,55 @@ class LayoutState {
       layoutState.mHeightSpec = heightSpec;
       layoutState.mClipChildren = clipChildren;
       layoutState.mRootComponentName = component.getSimpleName();
+      layoutState.mCancellationToken = cancellationToken;
 
       final InternalNode layoutCreatedInWillRender = component.consumeLayoutCreatedInWillRender();
-      final InternalNode root =
+      final DiffNode previousDiffTreeRoot =
+          previousLayoutState != null ? previousLayoutState.mDiffTreeRoot : null;
+      final boolean useSnapshotStore =
+          snapshotStore != null && previousDiffTreeRoot == null && shouldGenerateDiffTree;
+      final LayoutSnapshot snapshot =
+          useSnapshotStore
+              ? snapshotStore.get(component, snapshotKey, widthSpec, heightSpec)
+              : null;
+      final InternalNode updatedRoot =
           layoutCreatedInWillRender == null
-              ? createAndMeasureTreeForComponent(
+              ? updateAndMeasurePreviousTree(
                   c,
                   component,
-                  null, // nestedTreeHolder is null because this is measuring the root component
-                  // tree.
                   widthSpec,
                   heightSpec,
-                  previousLayoutState != null ? previousLayoutState.mDiffTreeRoot : null)
-              : layoutCreatedInWillRender;
+                  incrementalBaseLayoutState,
+                  previousDiffTreeRoot,
+                  cancellationToken)
+              : null;
+
+      final InternalNode root;
+      if (layoutCreatedInWillRender != null) {
+        root = layoutCreatedInWillRender;
+      } else if (updatedRoot != null) {
+        root = updatedRoot;
+      } else {
+        root =
+            createAndMeasureTreeForComponent(
+                c,
+                component,
+                null, // nestedTreeHolder is null because this is measuring the root component
+                // tree.
+                widthSpec,
+                heightSpec,
+                previousDiffTreeRoot,
+                cancellationToken,
+                snapshotStore,
+                snapshot);
+      }
+
+      if (layoutState.isCancelled()) {
+        if (logLayoutState != null) {
+          logger.cancelPerfEvent(logLayoutState);
+        }
+        return releaseCancelled(layoutState, root);
+      }
 
       switch (SizeSpec.getMode(widthSpec)) {
         case SizeSpec.EXACTLY:
@@ -1397,6 +1583,16 @@ class LayoutState {
 
       collectResults(root, layoutState, null);
 
+      if (layoutState.isCancelled()) {
+        if (collectResultsEvent != null) {
+          logger.cancelPerfEvent(collectResultsEvent);
+        }
+        if (logLayoutState != null) {
+          logger.cancelPerfEvent(logLayoutState);
+        }
+        return releaseCancelled(layoutState, root);
+      }
+
       if (isTracing) {
         ComponentsSystrace.beginSection("sortMountableOutputs");
       }
@@ -1406,12 +1602,40 @@ class LayoutState {
         ComponentsSystrace.endSection();
       }
 
+      if (ComponentsConfiguration.useBoundsIndexForIncrementalMount) {
+        if (isTracing) {
+          ComponentsSystrace.beginSection("buildBoundsIndexes");
+        }
+        layoutState.buildBoundsIndexes();
+        if (isTracing) {
+          ComponentsSystrace.endSection();
+        }
+      }
+
+      if (ComponentsConfiguration.prepareMountPlanInBackground && previousLayoutState != null) {
+        if (isTracing) {
+          ComponentsSystrace.beginSection("prepareMountPlan");
+        }
+        layoutState.mMountPlan = MountPlan.create(previousLayoutState, layoutState);
+        if (isTracing) {
+          ComponentsSystrace.endSection();
+        }
+      }
+
       if (collectResultsEvent != null) {
         collectResultsEvent.markerAnnotate(
             FrameworkLogEvents.PARAM_ROOT_COMPONENT, root.getRootComponent().getSimpleName());
         logger.logPerfEvent(collectResultsEvent);
       }
 
+      if (useSnapshotStore && snapshot == null) {
+        final LayoutSnapshot newSnapshot =
+            LayoutSnapshot.capture(component, snapshotKey, widthSpec, heightSpec, layoutState);
+        if (newSnapshot != null) {
+          snapshotStore.put(newSnapshot);
+        }
+      }
+
       if (!persistInternalNodeTree
           && !ComponentsConfiguration.isDebugModeEnabled
           && !ComponentsConfiguration.isEndToEndTestRun
@@ -1421,9 +1645,15 @@ class LayoutState {
       }
 
       if (logLayoutState != null) {
+        if (allocations != null) {
+          allocations.annotate(logLayoutState);
+        }
         logger.logPerfEvent(logLayoutState);
       }
     } finally {
+      if (allocations != null) {
+        AllocationAccounting.endPass(allocations);
+      }
       if (isTracing) {
         ComponentsSystrace.endSection();
         if (extraAttribution != null) {
@@ -1436,6 +1666,79 @@ class LayoutState {
     return layoutState;
   }
 
+  /**
+   * Copies the node tree of the given layout, updates the copy for the pending state updates of the
+   * context and measures it.
+   *
+   * @return the updated tree, or null if the layout has to be created from scratch instead.
+   */
+  private static @Nullable InternalNode updateAndMeasurePreviousTree(
+      ComponentContext c,
+      Component component,
+      int widthSpec,
+      int heightSpec,
+      @Nullable LayoutState incrementalBaseLayoutState,
+      @Nullable DiffNode previousDiffTreeRoot,
+      @Nullable LayoutCancellationToken cancellationToken) {
+    // The tree can only be carried over if the root props and the size specs didn't change.
+    if (incrementalBaseLayoutState == null
+        || ComponentsConfiguration.isDebugModeEnabled
+        || incrementalBaseLayoutState.mComponent.getId() != component.getId()
+        || incrementalBaseLayoutState.mWidthSpec != widthSpec
+        || incrementalBaseLayoutState.mHeightSpec != heightSpec) {
+      return null;
+    }
+
+    // The caller holds a reference to the layout, so its tree can't be released meanwhile.
+    final InternalNode previousRoot = incrementalBaseLayoutState.mLayoutRoot;
+    if (previousRoot == null || previousRoot.isNestedTreeHolder()) {
+      return null;
+    }
+
+    final boolean isTracing = ComponentsSystrace.isTracing();
+    if (isTracing) {
+      ComponentsSystrace.beginSection("updatePreviousTree:" + component.getSimpleName());
+    }
+
+    // The committed tree may still be read by other threads, so it's copied rather than modified.
+    final InternalNode root;
+    final boolean isUpdated;
+    try {
+      root = previousRoot.deepClone();
+      isUpdated = IncrementalLayout.updateTree(c, root);
+    } finally {
+      if (isTracing) {
+        ComponentsSystrace.endSection();
+      }
+    }
+
+    if (!isUpdated) {
+      releaseNodeTree(root, false /* isNestedTree */);
+      return null;
+    }
+
+    if (!LayoutCancellationToken.isCancelled(cancellationToken)) {
+      measureTree(root, widthSpec, heightSpec, previousDiffTreeRoot);
+    }
+
+    return root;
+  }
+
+  /** Gives back everything a cancelled calculation acquired so far, including the node tree. */
+  private static @Nullable LayoutState releaseCancelled(
+      LayoutState layoutState, InternalNode root) {
+    if (root != NULL_LAYOUT) {
+      layoutState.mLayoutRoot = root;
+    }
+    layoutState.releaseRef();
+    LithoStats.incCancelledLayouts(1);
+    return null;
+  }
+
+  boolean isCancelled() {
+    return LayoutCancellationToken.isCancelled(mCancellationToken);
+  }
+
   private static String sourceToString(@CalculateLayoutSource int source) {
     switch (source) {
       case CalculateLayoutSource.SET_ROOT:
@@ -1552,6 +1855,16 @@ class LayoutState {
       int widthSpec,
       int heightSpec,
       DiffNode previousDiffTreeRoot) {
+    measureTree(root, widthSpec, heightSpec, previousDiffTreeRoot, null, null);
+  }
+
+  private static void measureTree(
+      InternalNode root,
+      int widthSpec,
+      int heightSpec,
+      @Nullable DiffNode previousDiffTreeRoot,
+      @Nullable LayoutSnapshotStore snapshotStore,
+      @Nullable LayoutSnapshot snapshot) {
     final ComponentContext context = root.getContext();
     final Component component = root.getRootComponent();
     final boolean isTracing = ComponentsSystrace.isTracing();
@@ -1571,6 +1884,10 @@ class LayoutState {
       ComponentsSystrace.beginSection("applyDiffNode");
       applyDiffNodeToUnchangedNodes(root, previousDiffTreeRoot);
       ComponentsSystrace.endSection(/* applyDiffNode */);
+    } else if (snapshot != null && snapshotStore != null) {
+      ComponentsSystrace.beginSection("applyLayoutSnapshot");
+      snapshot.applyTo(root, snapshotStore);
+      ComponentsSystrace.endSection(/* applyLayoutSnapshot */);
     }
 
     final ComponentsLogger logger = context.getLogger();
@@ -1662,7 +1979,10 @@ class LayoutState {
             nestedTreeHolder,
             widthSpec,
             heightSpec,
-            nestedTreeHolder.getDiffNode()); // Previously set while traversing the holder's tree.
+            nestedTreeHolder.getDiffNode(), // Previously set while traversing the holder's tree.
+            null,
+            null,
+            null);
         nestedTree.setLastWidthSpec(widthSpec);
         nestedTree.setLastHeightSpec(heightSpec);
         nestedTree.setLastMeasuredHeight(nestedTree.getHeight());
@@ -1686,7 +2006,8 @@ class LayoutState {
       Component component,
       int widthSpec,
       int heightSpec) {
-    return createAndMeasureTreeForComponent(c, component, null, widthSpec, heightSpec, null);
+    return createAndMeasureTreeForComponent(
+        c, component, null, widthSpec, heightSpec, null, null, null, null);
   }
 
   private static InternalNode createAndMeasureTreeForComponent(
@@ -1695,7 +2016,10 @@ class LayoutState {
       InternalNode nestedTreeHolder, // This will be set only if we are resolving a nested tree.
       int widthSpec,
       int heightSpec,
-      DiffNode diffTreeRoot) {
+      DiffNode diffTreeRoot,
+      @Nullable LayoutCancellationToken cancellationToken,
+      @Nullable LayoutSnapshotStore snapshotStore,
+      @Nullable LayoutSnapshot snapshot) {
 
     component.updateInternalChildState(c);
 
@@ -1732,7 +2056,7 @@ class LayoutState {
     c.setWidthSpec(previousWidthSpec);
     c.setHeightSpec(previousHeightSpec);
 
-    if (root == NULL_LAYOUT) {
+    if (root == NULL_LAYOUT || LayoutCancellationToken.isCancelled(cancellationToken)) {
       return root;
     }
 
@@ -1747,11 +2071,7 @@ class LayoutState {
       root.layoutDirection(YogaDirection.RTL);
     }
 
-    measureTree(
-        root,
-        widthSpec,
-        heightSpec,
-        diffTreeRoot);
+    measureTree(root, widthSpec, heightSpec, diffTreeRoot, snapshotStore, snapshot);
 
     return root;
   }
@@ -1927,6 +2247,47 @@ class LayoutState {
     return mComponent.getId() == componentId;
   }
 
+  /**
+   * @return a rough estimate of the memory retained by this LayoutState, in bytes, from the number
+   *     of its outputs and of the nodes in its diff tree and in its persisted InternalNode tree.
+   */
+  int estimateRetainedSizeBytes() {
+    if (mEstimatedRetainedSizeBytes < 0) {
+      mEstimatedRetainedSizeBytes =
+          mMountableOutputs.size() * LAYOUT_OUTPUT_SIZE_BYTES
+              + mVisibilityOutputs.size() * VISIBILITY_OUTPUT_SIZE_BYTES
+              + countDiffNodes(mDiffTreeRoot) * DIFF_NODE_SIZE_BYTES
+              + countInternalNodes(mLayoutRoot) * INTERNAL_NODE_SIZE_BYTES;
+    }
+
+    return mEstimatedRetainedSizeBytes;
+  }
+
+  private static int countDiffNodes(@Nullable DiffNode node) {
+    if (node == null) {
+      return 0;
+    }
+
+    int count = 1;
+    final List<DiffNode> children = node.getChildren();
+    for (int i = 0, size = children.size(); i < size; i++) {
+      count += countDiffNodes(children.get(i));
+    }
+    return count;
+  }
+
+  private static int countInternalNodes(@Nullable InternalNode node) {
+    if (node == null || node == NULL_LAYOUT) {
+      return 0;
+    }
+
+    int count = 1;
+    for (int i = 0, size = node.getChildCount(); i < size; i++) {
+      count += countInternalNodes(node.getChildAt(i));
+    }
+    return count;
+  }
+
   int getMountableOutputCount() {
     return mMountableOutputs.size();
   }
@@ -1943,6 +2304,40 @@ class LayoutState {
     return mMountableOutputBottoms;
   }
 
+  /**
+   * @return an index of the bounds of the mountable outputs, which refers to them by position, or
+   *     null if it wasn't built for this LayoutState.
+   */
+  @Nullable
+  BoundsIndex getMountableOutputsIndex() {
+    return mMountableOutputsIndex;
+  }
+
+  /**
+   * @return the plan to mount this LayoutState over the one it was compared to, or null if it
+   *     wasn't computed for this LayoutState.
+   */
+  @Nullable
+  MountPlan getMountPlan() {
+    return mMountPlan;
+  }
+
+  /**
+   * @return an index of the bounds of the visibility outputs, which refers to them by position, or
+   *     null if it wasn't built for this LayoutState.
+   */
+  @Nullable
+  BoundsIndex getVisibilityOutputsIndex() {
+    return mVisibilityOutputsIndex;
+  }
+
+  /** @return the position of the visibility output with the given id, or -1 if there's none. */
+  int getVisibilityOutputPositionForId(long visibilityOutputId) {
+    return mVisibilityOutputsIdToPositionMap == null
+        ? -1
+        : mVisibilityOutputsIdToPositionMap.get(visibilityOutputId, -1);
+  }
+
   int getVisibilityOutputCount() {
     return mVisibilityOutputs.size();
   }
@@ -2020,6 +2415,7 @@ class LayoutState {
       mComponentTreeId = -1;
       mId = -1;
       mPreviousLayoutStateId = NO_PREVIOUS_LAYOUT_STATE_ID;
+      mEstimatedRetainedSizeBytes = -1;
 
       mShouldDuplicateParentState = true;
       mClipChildren = true;
@@ -2031,7 +2427,15 @@ class LayoutState {
       mMountableOutputTops.clear();
       mMountableOutputBottoms.clear();
       mOutputsIdToPositionMap.clear();
+      mMountableOutputsIndex = null;
+      mMountPlan = null;
+      mVisibilityOutputsIndex = null;
+      mVisibilityOutputsIdToPositionMap = null;
 
+      for (int i = 0, size = mComponentKeyHashToBounds.size(); i < size; i++) {
+        ComponentsPools.release(mComponentKeyHashToBounds.valueAt(i));
+      }
+      mComponentKeyHashToBounds.clear();
       for (Rect rect : mComponentKeyToBounds.values()) {
         ComponentsPools.release(rect);
       }
@@ -2085,6 +2489,7 @@ class LayoutState {
       mDuplicatedTransitionKeys.clear();
 
       mWorkingRangeContainer = null;
+      mCancellationToken = null;
 
       ComponentsPools.release(this);
     }
@@ -2185,6 +2590,37 @@ class LayoutState {
     return !TextUtils.isEmpty(node.getTransitionKey()) && !isMountViewSpec(node.getRootComponent());
   }
 
+  /**
+   * Indexes the bounds of the mountable and visibility outputs, so that the outputs intersecting
+   * a rect can be found without scanning them all, and maps the ids of the visibility outputs to
+   * their positions.
+   */
+  private void buildBoundsIndexes() {
+    final int mountableOutputCount = mMountableOutputs.size();
+    final int[] mountableOutputBoxes = new int[mountableOutputCount * 4];
+    for (int i = 0; i < mountableOutputCount; i++) {
+      copyBounds(mMountableOutputs.get(i).getBounds(), mountableOutputBoxes, i);
+    }
+    mMountableOutputsIndex = new BoundsIndex(mountableOutputBoxes, mountableOutputCount);
+
+    final int visibilityOutputCount = mVisibilityOutputs.size();
+    final int[] visibilityOutputBoxes = new int[visibilityOutputCount * 4];
+    mVisibilityOutputsIdToPositionMap = new LongSparseArray<>(visibilityOutputCount);
+    for (int i = 0; i < visibilityOutputCount; i++) {
+      final VisibilityOutput visibilityOutput = mVisibilityOutputs.get(i);
+      copyBounds(visibilityOutput.getBounds(), visibilityOutputBoxes, i);
+      mVisibilityOutputsIdToPositionMap.put(visibilityOutput.getId(), i);
+    }
+    mVisibilityOutputsIndex = new BoundsIndex(visibilityOutputBoxes, visibilityOutputCount);
+  }
+
+  private static void copyBounds(Rect bounds, int[] boxes, int position) {
+    boxes[position * 4] = bounds.left;
+    boxes[position * 4 + 1] = bounds.top;
+    boxes[position * 4 + 2] = bounds.right;
+    boxes[position * 4 + 3] = bounds.bottom;
+  }
+
   /**
    * @return the position of the {@link LayoutOutput} with id layoutOutputId in the
    * {@link LayoutState} list of outputs or -1 if no {@link LayoutOutput} with that id exists in
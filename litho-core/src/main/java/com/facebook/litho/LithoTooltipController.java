@@ -16,8 +16,10 @@
 package com.facebook.litho;
 
 import android.graphics.Rect;
+import android.support.annotation.Nullable;
 import android.view.View;
 import android.widget.PopupWindow;
+import com.facebook.litho.config.ComponentsConfiguration;
 
 public class LithoTooltipController {
 
@@ -75,10 +77,7 @@ public class LithoTooltipController {
       return;
     }
 
-    final String anchorGlobalKey =
-        rootComponent == null
-            ? anchorKey
-            : ComponentKeyUtils.getKeyWithSeparator(rootComponent.getGlobalKey(), anchorKey);
+    final String anchorGlobalKey = getAnchorGlobalKey(rootComponent, anchorKey);
 
     componentTree.showTooltip(lithoTooltip, anchorGlobalKey, xOffset, yOffset);
   }
@@ -161,10 +160,7 @@ public class LithoTooltipController {
       return;
     }
 
-    final String anchorGlobalKey =
-        rootComponent == null
-            ? anchorKey
-            : ComponentKeyUtils.getKeyWithSeparator(rootComponent.getGlobalKey(), anchorKey);
+    final String anchorGlobalKey = getAnchorGlobalKey(rootComponent, anchorKey);
 
     componentTree.showTooltip(tooltip, anchorGlobalKey, tooltipPosition, xOffset, yOffset);
   }
@@ -226,4 +222,21 @@ public class LithoTooltipController {
 
     tooltip.showBottomLeft(hostView, xoff + xOffset, yoff + yOffset);
   }
+
+  private static String getAnchorGlobalKey(@Nullable Component rootComponent, String anchorKey) {
+    if (rootComponent == null) {
+      return ComponentsConfiguration.useHashedGlobalKeys
+              && !ComponentsConfiguration.isDebugModeEnabled
+          ? ComponentKeyUtils.getHashedGlobalKey(ComponentKeyUtils.getKeyHash(anchorKey))
+          : anchorKey;
+    }
+
+    if (rootComponent.hasGlobalKeyHash() && !rootComponent.hasFullGlobalKey()) {
+      // Components only know the hash of their key, so that's what the bounds are mapped to.
+      return ComponentKeyUtils.getHashedGlobalKey(
+          ComponentKeyUtils.getKeyHashWithSeparator(rootComponent.getGlobalKeyHash(), anchorKey));
+    }
+
+    return ComponentKeyUtils.getKeyWithSeparator(rootComponent.getGlobalKey(), anchorKey);
+  }
 }
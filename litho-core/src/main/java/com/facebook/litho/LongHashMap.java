@@ -0,0 +1,196 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.support.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * A map from primitive longs to objects. Unlike {@link android.support.v4.util.LongSparseArray}
+ * lookups and insertions are O(1), which matters for maps holding an entry per component of a big
+ * tree. Entries are stored densely so that they can be iterated with {@link #keyAt(int)} and
+ * {@link #valueAt(int)}; removing an entry moves the last one in its place. Not thread safe.
+ */
+class LongHashMap<V> {
+
+  private static final int MIN_CAPACITY = 4;
+
+  private long[] mKeys;
+  private Object[] mValues;
+  private int mSize;
+
+  /** Open-addressing index into the dense arrays: 0 is an empty slot, otherwise position + 1. */
+  private int[] mIndex;
+
+  LongHashMap() {
+    this(MIN_CAPACITY);
+  }
+
+  LongHashMap(int initialCapacity) {
+    final int capacity = Math.max(MIN_CAPACITY, initialCapacity);
+    mKeys = new long[capacity];
+    mValues = new Object[capacity];
+    mIndex = new int[indexSizeFor(capacity)];
+  }
+
+  int size() {
+    return mSize;
+  }
+
+  boolean isEmpty() {
+    return mSize == 0;
+  }
+
+  long keyAt(int position) {
+    return mKeys[position];
+  }
+
+  V valueAt(int position) {
+    return (V) mValues[position];
+  }
+
+  boolean containsKey(long key) {
+    return findSlot(key) >= 0;
+  }
+
+  @Nullable
+  V get(long key) {
+    final int slot = findSlot(key);
+    return slot < 0 ? null : (V) mValues[mIndex[slot] - 1];
+  }
+
+  /** @return the value previously mapped to the key, if any. */
+  @Nullable
+  V put(long key, V value) {
+    final int slot = findSlot(key);
+    if (slot >= 0) {
+      final int position = mIndex[slot] - 1;
+      final V previous = (V) mValues[position];
+      mValues[position] = value;
+      return previous;
+    }
+
+    if (mSize == mKeys.length) {
+      mKeys = Arrays.copyOf(mKeys, mSize * 2);
+      mValues = Arrays.copyOf(mValues, mSize * 2);
+    }
+    if ((mSize + 1) * 4 > mIndex.length * 3) {
+      rehash(mIndex.length * 2);
+    }
+
+    mKeys[mSize] = key;
+    mValues[mSize] = value;
+    mSize++;
+    mIndex[freeSlot(key)] = mSize;
+    return null;
+  }
+
+  void putAll(LongHashMap<? extends V> other) {
+    for (int i = 0, size = other.size(); i < size; i++) {
+      put(other.keyAt(i), other.valueAt(i));
+    }
+  }
+
+  /** @return the value that was mapped to the key, if any. */
+  @Nullable
+  V remove(long key) {
+    final int slot = findSlot(key);
+    if (slot < 0) {
+      return null;
+    }
+
+    final int position = mIndex[slot] - 1;
+    final V removed = (V) mValues[position];
+    deleteSlot(slot);
+
+    final int last = mSize - 1;
+    if (position != last) {
+      mIndex[findSlot(mKeys[last])] = position + 1;
+      mKeys[position] = mKeys[last];
+      mValues[position] = mValues[last];
+    }
+    mValues[last] = null;
+    mSize = last;
+    return removed;
+  }
+
+  void clear() {
+    Arrays.fill(mIndex, 0);
+    Arrays.fill(mValues, 0, mSize, null);
+    mSize = 0;
+  }
+
+  private int findSlot(long key) {
+    final int mask = mIndex.length - 1;
+    int slot = hash(key) & mask;
+    while (true) {
+      final int entry = mIndex[slot];
+      if (entry == 0) {
+        return -1;
+      } else if (mKeys[entry - 1] == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private int freeSlot(long key) {
+    final int mask = mIndex.length - 1;
+    int slot = hash(key) & mask;
+    while (mIndex[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /** Empties the slot, shifting back entries of the same probe run so lookups don't stop early. */
+  private void deleteSlot(int slot) {
+    final int mask = mIndex.length - 1;
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (mIndex[next] != 0) {
+      final int ideal = hash(mKeys[mIndex[next] - 1]) & mask;
+      if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+        mIndex[hole] = mIndex[next];
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    mIndex[hole] = 0;
+  }
+
+  private void rehash(int indexSize) {
+    mIndex = new int[indexSize];
+    for (int i = 0; i < mSize; i++) {
+      mIndex[freeSlot(mKeys[i])] = i + 1;
+    }
+  }
+
+  private static int indexSizeFor(int capacity) {
+    int size = MIN_CAPACITY * 2;
+    while (size * 3 < capacity * 4) {
+      size <<= 1;
+    }
+    return size;
+  }
+
+  private static int hash(long key) {
+    int hash = (int) (key ^ (key >>> 32));
+    hash *= 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.support.annotation.Nullable;
+
+/**
+ * The part of preparing the mount of a {@link LayoutState} that only compares it to the previous
+ * one, computed on the layout thread so that {@link MountState} doesn't have to.
+ *
+ * <p>For every output of the previous LayoutState, the plan holds the position of the same output
+ * in the new one and the host it has to be mounted in, or -1 if it has to be unmounted. {@link
+ * MountState} still decides whether to move, unmount or keep every mounted item by checking the
+ * host it's currently mounted in, so the plan only describes the mount of the new LayoutState on
+ * top of the previous one. It can't be used if something else was mounted in the meantime, see
+ * {@link #canApplyTo(LayoutState, long[])}.
+ */
+final class MountPlan {
+
+  private final int mPreviousLayoutStateId;
+  private final long[] mLayoutOutputIds;
+  private final boolean[] mSkipMounting;
+  private final int[] mNewPositions;
+  private final long[] mNewHostMarkers;
+
+  private MountPlan(
+      int previousLayoutStateId,
+      long[] layoutOutputIds,
+      boolean[] skipMounting,
+      int[] newPositions,
+      long[] newHostMarkers) {
+    mPreviousLayoutStateId = previousLayoutStateId;
+    mLayoutOutputIds = layoutOutputIds;
+    mSkipMounting = skipMounting;
+    mNewPositions = newPositions;
+    mNewHostMarkers = newHostMarkers;
+  }
+
+  /**
+   * Computes the plan to mount the given LayoutState over the previous one. Both LayoutStates must
+   * be fully calculated, and the previous one must not be released while this runs.
+   */
+  static MountPlan create(LayoutState previousLayoutState, LayoutState layoutState) {
+    final int outputCount = layoutState.getMountableOutputCount();
+    final long[] layoutOutputIds = new long[outputCount];
+    for (int i = 0; i < outputCount; i++) {
+      layoutOutputIds[i] = layoutState.getMountableOutputAt(i).getId();
+    }
+
+    final boolean[] skipMounting = MountState.calculateSkipMounting(layoutState);
+
+    final int previousOutputCount = previousLayoutState.getMountableOutputCount();
+    final int[] newPositions = new int[previousOutputCount];
+    final long[] newHostMarkers = new long[previousOutputCount];
+    for (int i = 0; i < previousOutputCount; i++) {
+      final LayoutOutput newLayoutOutput =
+          layoutState.getLayoutOutput(previousLayoutState.getMountableOutputAt(i).getId());
+
+      if (newLayoutOutput == null || skipMounting[newLayoutOutput.getIndex()]) {
+        newPositions[i] = -1;
+        newHostMarkers[i] = -1;
+      } else {
+        newPositions[i] = newLayoutOutput.getIndex();
+        newHostMarkers[i] =
+            MountState.getActualHostMarker(newLayoutOutput, layoutState, skipMounting);
+      }
+    }
+
+    return new MountPlan(
+        previousLayoutState.getId(), layoutOutputIds, skipMounting, newPositions, newHostMarkers);
+  }
+
+  /**
+   * @return whether the plan describes the mount over the given mounted state, i.e. whether the
+   *     mounted outputs are the ones of the LayoutState the plan was computed against.
+   */
+  boolean canApplyTo(
+      @Nullable LayoutState lastMountedLayoutState, @Nullable long[] mountedLayoutOutputIds) {
+    return lastMountedLayoutState != null
+        && lastMountedLayoutState.getId() == mPreviousLayoutStateId
+        && mountedLayoutOutputIds != null
+        && mountedLayoutOutputIds.length == mNewPositions.length;
+  }
+
+  /** @return the ids of the outputs of the new LayoutState, by position. */
+  long[] getLayoutOutputIds() {
+    return mLayoutOutputIds;
+  }
+
+  /** @return whether the output at each position of the new LayoutState is skipped. */
+  boolean[] getSkipMounting() {
+    return mSkipMounting;
+  }
+
+  /**
+   * @return the position of the output at the given position of the previous LayoutState in the
+   *     new one, or -1 if it has to be unmounted.
+   */
+  int getNewPosition(int previousPosition) {
+    return mNewPositions[previousPosition];
+  }
+
+  /**
+   * @return the host marker of the output at the given position of the previous LayoutState in the
+   *     new one, only valid if it has a new position.
+   */
+  long getNewHostMarker(int previousPosition) {
+    return mNewHostMarkers[previousPosition];
+  }
+}
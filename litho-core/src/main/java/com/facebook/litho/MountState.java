@@ -29,6 +29,7 @@ import static com.facebook.litho.FrameworkLogEvents.PARAM_MOUNTED_EXTRAS;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_MOUNTED_TIME;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_MOVED_COUNT;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_NO_OP_COUNT;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_ROOT_COMPONENT;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_UNCHANGED_COUNT;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_UNMOUNTED_CONTENT;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_UNMOUNTED_COUNT;
@@ -62,6 +63,7 @@ import com.facebook.litho.animation.AnimatedProperties;
 import com.facebook.litho.config.ComponentsConfiguration;
 import com.facebook.litho.reference.Reference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
@@ -125,6 +127,8 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
   private final ComponentContext mContext;
   private final LithoView mLithoView;
   private final Rect mPreviousLocalVisibleRect = new Rect();
+  private final Rect[] mDifferenceRects = {new Rect(), new Rect(), new Rect(), new Rect()};
+  private int[] mVisibilityOutputPositions = new int[16];
   private final PrepareMountStats mPrepareMountStats = new PrepareMountStats();
   private final MountStats mMountStats = new MountStats();
   private int mPreviousTopsIndex;
@@ -253,6 +257,48 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
             : LogTreePopulator.populatePerfEventFromLogger(
                 componentTree.getContext(), logger, logger.newPerformanceEvent(EVENT_MOUNT));
 
+    if (mountPerfEvent != null && layoutState.mRootComponentName != null) {
+      mountPerfEvent.markerAnnotate(PARAM_ROOT_COMPONENT, layoutState.mRootComponentName);
+    }
+
+    final AllocationAccounting.Pass allocations =
+        AllocationAccounting.beginPass(layoutState.mRootComponentName);
+    try {
+      mountInternal(
+          layoutState,
+          localVisibleRect,
+          processVisibilityOutputs,
+          componentTree,
+          logger,
+          mountPerfEvent,
+          allocations);
+    } finally {
+      if (allocations != null) {
+        AllocationAccounting.endPass(allocations);
+      }
+    }
+
+    if (logger != null) {
+      logMountPerfEvent(logger, mountPerfEvent);
+    }
+
+    if (isTracing) {
+      ComponentsSystrace.endSection();
+    }
+  }
+
+  private void mountInternal(
+      LayoutState layoutState,
+      Rect localVisibleRect,
+      boolean processVisibilityOutputs,
+      ComponentTree componentTree,
+      @Nullable ComponentsLogger logger,
+      @Nullable PerfEvent mountPerfEvent,
+      @Nullable AllocationAccounting.Pass allocations) {
+    final boolean isIncrementalMountEnabled = localVisibleRect != null;
+    final boolean isTracing = ComponentsSystrace.isTracing();
+    final int componentTreeId = layoutState.getComponentTreeId();
+
     if (mIsDirty) {
       updateTransitions(layoutState, componentTree);
 
@@ -284,76 +330,22 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
         if (isTracing) {
           ComponentsSystrace.beginSection(component.getSimpleName());
         }
-
-        final MountItem currentMountItem = getItemAt(i);
-        final boolean isMounted = currentMountItem != null;
-        final boolean isMountable =
-            !isIncrementalMountEnabled ||
-                isMountedHostWithChildContent(currentMountItem) ||
-                Rect.intersects(localVisibleRect, layoutOutput.getBounds()) ||
-                isAnimationLocked(i) ||
-                (currentMountItem != null && currentMountItem == rootMountItem);
-
-        if (isMountable && !isMounted) {
-          mountLayoutOutput(i, layoutOutput, layoutState);
-
-          if (isAnimationLocked(i)
-              && isIncrementalMountEnabled
-              && canMountIncrementally(component)) {
-            // If the component is locked for animation then we need to make sure that all the
-            // children are also mounted.
-            final View view = (View) getItemAt(i).getBaseContent();
-            // We're mounting everything, don't process visibility outputs as they will not be
-            // accurate.
-            mountViewIncrementally(view, false);
-          }
-        } else if (!isMountable && isMounted) {
-          unmountItem(i, mHostsByMarker);
-        } else if (isMounted) {
-          if (mIsDirty) {
-            final boolean useUpdateValueFromLayoutOutput =
-                mLastMountedLayoutState != null
-                    && mLastMountedLayoutState.getId() == layoutState.getPreviousLayoutStateId();
-
-            final long startTime = System.nanoTime();
-            final String transitionKey = currentMountItem.getTransitionKey();
-            final boolean itemUpdated =
-                updateMountItemIfNeeded(
-                    layoutOutput,
-                    layoutState,
-                    currentMountItem,
-                    useUpdateValueFromLayoutOutput,
-                    logger,
-                    componentTreeId,
-                    i);
-
-            if (itemUpdated) {
-              // This mount content might be animating and we may be remounting it as a different
-              // component in the same tree, or as a component in a totally different tree so we
-              // will reset animating content for its key
-              maybeRemoveAnimatingMountContent(transitionKey);
-            }
-
-            if (mMountStats.isLoggingEnabled) {
-              if (itemUpdated) {
-                mMountStats.updatedNames.add(component.getSimpleName());
-                mMountStats.updatedTimes.add((System.nanoTime() - startTime) / NS_IN_MS);
-                mMountStats.updatedCount++;
-              } else {
-                mMountStats.noOpCount++;
-              }
-            }
-          }
-
-          if (isIncrementalMountEnabled && canMountIncrementally(component)) {
-            mountItemIncrementally(
-                currentMountItem,
-                layoutOutput.getBounds(),
-                localVisibleRect,
-                processVisibilityOutputs);
+        final String previousComponent =
+            allocations != null ? allocations.enterComponent(component.getSimpleName()) : null;
+        try {
+          mountOrUpdateLayoutOutput(
+              i,
+              layoutOutput,
+              layoutState,
+              localVisibleRect,
+              processVisibilityOutputs,
+              rootMountItem,
+              logger);
+        } finally {
+          if (allocations != null) {
+            allocations.exitComponent(previousComponent);
           }
         }
-
         if (isTracing) {
           ComponentsSystrace.endSection();
         }
@@ -392,12 +384,94 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
 
     suppressInvalidationsOnHosts(false);
 
-    if (logger != null) {
-      logMountPerfEvent(logger, mountPerfEvent);
+    if (allocations != null && mountPerfEvent != null) {
+      allocations.annotate(mountPerfEvent);
     }
+  }
 
-    if (isTracing) {
-      ComponentsSystrace.endSection();
+  /**
+   * Mounts, unmounts or updates the mountable output at the given position depending on whether
+   * it's already mounted and whether it's in the visible rect.
+   */
+  private void mountOrUpdateLayoutOutput(
+      int i,
+      LayoutOutput layoutOutput,
+      LayoutState layoutState,
+      Rect localVisibleRect,
+      boolean processVisibilityOutputs,
+      @Nullable MountItem rootMountItem,
+      @Nullable ComponentsLogger logger) {
+    final Component component = layoutOutput.getComponent();
+    final boolean isIncrementalMountEnabled = localVisibleRect != null;
+    final int componentTreeId = layoutState.getComponentTreeId();
+
+    final MountItem currentMountItem = getItemAt(i);
+    final boolean isMounted = currentMountItem != null;
+    final boolean isMountable =
+        !isIncrementalMountEnabled ||
+            isMountedHostWithChildContent(currentMountItem) ||
+            Rect.intersects(localVisibleRect, layoutOutput.getBounds()) ||
+            isAnimationLocked(i) ||
+            (currentMountItem != null && currentMountItem == rootMountItem);
+
+    if (isMountable && !isMounted) {
+      mountLayoutOutput(i, layoutOutput, layoutState);
+
+      if (isAnimationLocked(i)
+          && isIncrementalMountEnabled
+          && canMountIncrementally(component)) {
+        // If the component is locked for animation then we need to make sure that all the
+        // children are also mounted.
+        final View view = (View) getItemAt(i).getBaseContent();
+        // We're mounting everything, don't process visibility outputs as they will not be
+        // accurate.
+        mountViewIncrementally(view, false);
+      }
+    } else if (!isMountable && isMounted) {
+      unmountItem(i, mHostsByMarker);
+    } else if (isMounted) {
+      if (mIsDirty) {
+        final boolean useUpdateValueFromLayoutOutput =
+            mLastMountedLayoutState != null
+                && mLastMountedLayoutState.getId() == layoutState.getPreviousLayoutStateId();
+
+        final long startTime = System.nanoTime();
+        final String transitionKey = currentMountItem.getTransitionKey();
+        final boolean itemUpdated =
+            updateMountItemIfNeeded(
+                layoutOutput,
+                layoutState,
+                currentMountItem,
+                useUpdateValueFromLayoutOutput,
+                logger,
+                componentTreeId,
+                i);
+
+        if (itemUpdated) {
+          // This mount content might be animating and we may be remounting it as a different
+          // component in the same tree, or as a component in a totally different tree so we
+          // will reset animating content for its key
+          maybeRemoveAnimatingMountContent(transitionKey);
+        }
+
+        if (mMountStats.isLoggingEnabled) {
+          if (itemUpdated) {
+            mMountStats.updatedNames.add(component.getSimpleName());
+            mMountStats.updatedTimes.add((System.nanoTime() - startTime) / NS_IN_MS);
+            mMountStats.updatedCount++;
+          } else {
+            mMountStats.noOpCount++;
+          }
+        }
+      }
+
+      if (isIncrementalMountEnabled && canMountIncrementally(component)) {
+        mountItemIncrementally(
+            currentMountItem,
+            layoutOutput.getBounds(),
+            localVisibleRect,
+            processVisibilityOutputs);
+      }
     }
   }
 
@@ -518,8 +592,21 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
     final boolean isDoingPerfLog = mMountStats.isLoggingEnabled;
     final boolean isTracing = ComponentsSystrace.isTracing();
     final long totalStartTime = isDoingPerfLog ? System.nanoTime() : 0L;
-    for (int j = 0, size = layoutState.getVisibilityOutputCount(); j < size; j++) {
-      final VisibilityOutput visibilityOutput = layoutState.getVisibilityOutputAt(j);
+
+    // Unless the layout changed, only the outputs that are visible now or were visible before can
+    // have events to dispatch.
+    final BoundsIndex visibilityOutputsIndex =
+        mIsDirty ? null : layoutState.getVisibilityOutputsIndex();
+    final int size =
+        visibilityOutputsIndex != null
+            ? collectVisibilityOutputsToProcess(
+                layoutState, visibilityOutputsIndex, localVisibleRect)
+            : layoutState.getVisibilityOutputCount();
+
+    for (int j = 0; j < size; j++) {
+      final VisibilityOutput visibilityOutput =
+          layoutState.getVisibilityOutputAt(
+              visibilityOutputsIndex != null ? mVisibilityOutputPositions[j] : j);
       if (isTracing) {
         final String componentName =
             visibilityOutput.getComponent() != null
@@ -675,6 +762,60 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
     }
   }
 
+  /**
+   * Collects in mVisibilityOutputPositions the sorted positions of the visibility outputs that
+   * intersect the visible rect or have a visibility item.
+   *
+   * @return the number of positions collected.
+   */
+  private int collectVisibilityOutputsToProcess(
+      LayoutState layoutState, BoundsIndex visibilityOutputsIndex, Rect localVisibleRect) {
+    final int visibleCount = visibilityOutputsIndex.query(localVisibleRect);
+    final int itemCount = mVisibilityIdToItemMap.size();
+    final int maxCount = visibleCount * 2 + itemCount;
+    if (mVisibilityOutputPositions.length < maxCount) {
+      mVisibilityOutputPositions =
+          new int[Math.max(maxCount, mVisibilityOutputPositions.length * 2)];
+    }
+
+    // The sorted positions of the visibility items go after room for the visible ones, which are
+    // copied after them. Merging both into the start of the array then never overwrites a position
+    // that wasn't read yet.
+    final int[] positions = mVisibilityOutputPositions;
+    int itemPositionsEnd = visibleCount;
+    for (int i = 0; i < itemCount; i++) {
+      final int position =
+          layoutState.getVisibilityOutputPositionForId(mVisibilityIdToItemMap.keyAt(i));
+      if (position >= 0) {
+        positions[itemPositionsEnd++] = position;
+      }
+    }
+    Arrays.sort(positions, visibleCount, itemPositionsEnd);
+
+    final int mergeEnd = itemPositionsEnd + visibleCount;
+    for (int i = 0; i < visibleCount; i++) {
+      positions[itemPositionsEnd + i] = visibilityOutputsIndex.getResultAt(i);
+    }
+
+    int count = 0;
+    int visible = itemPositionsEnd;
+    int item = visibleCount;
+    while (visible < mergeEnd || item < itemPositionsEnd) {
+      final int position;
+      if (item == itemPositionsEnd
+          || (visible < mergeEnd && positions[visible] <= positions[item])) {
+        position = positions[visible++];
+      } else {
+        position = positions[item++];
+      }
+      if (count == 0 || positions[count - 1] != position) {
+        positions[count++] = position;
+      }
+    }
+
+    return count;
+  }
+
   /**
    * Clears and re-populates the test item map if we are in e2e test mode.
    */
@@ -1060,10 +1201,23 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
   /** Prepare the {@link MountState} to mount a new {@link LayoutState}. */
   @SuppressWarnings("unchecked")
   private void prepareMount(LayoutState layoutState, @Nullable PerfEvent perfEvent) {
+    // The plan computed on the layout thread is only valid if what's mounted is what it was
+    // computed against.
+    final MountPlan layoutMountPlan = layoutState.getMountPlan();
+    final MountPlan mountPlan =
+        layoutMountPlan != null
+                && layoutMountPlan.canApplyTo(mLastMountedLayoutState, mLayoutOutputsIds)
+            ? layoutMountPlan
+            : null;
+
     final List<Integer> disappearingItems = extractDisappearingItems(layoutState);
-    final boolean[] skipMounting = calculateSkipMounting(layoutState);
+    // Disappearing items may change the skip flags later on, the plan's ones must stay as they are.
+    final boolean[] skipMounting =
+        mountPlan != null
+            ? mountPlan.getSkipMounting().clone()
+            : calculateSkipMounting(layoutState);
     final PrepareMountStats stats =
-        unmountOrMoveOldItems(layoutState, skipMounting, disappearingItems);
+        unmountOrMoveOldItems(layoutState, skipMounting, disappearingItems, mountPlan);
 
     if (perfEvent != null) {
       perfEvent.markerAnnotate(PARAM_UNMOUNTED_COUNT, stats.unmountedCount);
@@ -1084,8 +1238,12 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
       mLayoutOutputsIds = new long[outputCount];
     }
 
-    for (int i = 0; i < outputCount; i++) {
-      mLayoutOutputsIds[i] = layoutState.getMountableOutputAt(i).getId();
+    if (mountPlan != null) {
+      System.arraycopy(mountPlan.getLayoutOutputIds(), 0, mLayoutOutputsIds, 0, outputCount);
+    } else {
+      for (int i = 0; i < outputCount; i++) {
+        mLayoutOutputsIds[i] = layoutState.getMountableOutputAt(i).getId();
+      }
     }
 
     mSkipMounting = skipMounting;
@@ -1270,7 +1428,7 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
     host.startUnmountDisappearingItem(index, item);
   }
 
-  private boolean[] calculateSkipMounting(LayoutState layoutState) {
+  static boolean[] calculateSkipMounting(LayoutState layoutState) {
     final boolean[] skipMounting = new boolean[layoutState.getMountableOutputCount()];
     for (int index = skipMounting.length - 1; index >= 0; index--) {
       final LayoutOutput layoutOutput = layoutState.getMountableOutputAt(index);
@@ -1288,7 +1446,10 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
    * LayoutOutputs
    */
   private PrepareMountStats unmountOrMoveOldItems(
-      LayoutState newLayoutState, boolean[] newSkipMounting, List<Integer> disappearingItems) {
+      LayoutState newLayoutState,
+      boolean[] newSkipMounting,
+      List<Integer> disappearingItems,
+      @Nullable MountPlan mountPlan) {
     mPrepareMountStats.reset();
 
     if (mLayoutOutputsIds == null) {
@@ -1301,11 +1462,18 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
     // but only from mIndexToItemMap. If an host changes we're going to unmount it and recursively
     // all its mounted children.
     for (int i = 0; i < mLayoutOutputsIds.length; i++) {
-      final LayoutOutput newLayoutOutput = newLayoutState.getLayoutOutput(mLayoutOutputsIds[i]);
-      final int newPosition =
-          newLayoutOutput == null || newSkipMounting[newLayoutOutput.getIndex()]
-              ? -1
-              : newLayoutOutput.getIndex();
+      final LayoutOutput newLayoutOutput;
+      final int newPosition;
+      if (mountPlan != null) {
+        newLayoutOutput = null;
+        newPosition = mountPlan.getNewPosition(i);
+      } else {
+        newLayoutOutput = newLayoutState.getLayoutOutput(mLayoutOutputsIds[i]);
+        newPosition =
+            newLayoutOutput == null || newSkipMounting[newLayoutOutput.getIndex()]
+                ? -1
+                : newLayoutOutput.getIndex();
+      }
 
       final MountItem oldItem = getItemAt(i);
 
@@ -1324,7 +1492,9 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
         mPrepareMountStats.unmountedCount++;
       } else {
         final long newHostMarker =
-            getActualHostMarker(newLayoutOutput, newLayoutState, newSkipMounting);
+            mountPlan != null
+                ? mountPlan.getNewHostMarker(i)
+                : getActualHostMarker(newLayoutOutput, newLayoutState, newSkipMounting);
 
         if (oldItem == null) {
           // This was previously unmounted.
@@ -1522,7 +1692,7 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
    * @return an id if a host that should be used for a given LayoutOutput, taking into account that
    *     some of nodes on LayoutOutput tree may not be mounted (e.g. "phantom" LayoutOutputs)
    */
-  private static long getActualHostMarker(
+  static long getActualHostMarker(
       LayoutOutput layoutOutput, LayoutState layoutState, boolean[] skipMounting) {
     if (skipMounting[layoutOutput.getIndex()]) {
       return -1;
@@ -2935,6 +3105,13 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
       return false;
     }
 
+    final BoundsIndex mountableOutputsIndex = layoutState.getMountableOutputsIndex();
+    if (mountableOutputsIndex != null) {
+      performIndexedIncrementalMount(layoutState, mountableOutputsIndex, localVisibleRect);
+      mountItemsIncrementally(layoutState, localVisibleRect, processVisibilityOutputs);
+      return true;
+    }
+
     if (localVisibleRect.left != mPreviousLocalVisibleRect.left ||
         localVisibleRect.right != mPreviousLocalVisibleRect.right) {
       return false;
@@ -3006,6 +3183,91 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
       }
     }
 
+    mountItemsIncrementally(layoutState, localVisibleRect, processVisibilityOutputs);
+
+    return true;
+  }
+
+  /**
+   * Mounts the outputs that moved into the visible rect and unmounts the ones that moved out of it,
+   * in any direction. Only the outputs that intersect the parts of the new rect that weren't
+   * visible before, or the parts of the previous rect that aren't visible anymore, are looked at.
+   */
+  private void performIndexedIncrementalMount(
+      LayoutState layoutState, BoundsIndex mountableOutputsIndex, Rect localVisibleRect) {
+    final Rect previousLocalVisibleRect = mPreviousLocalVisibleRect;
+
+    final int enteringRectCount =
+        subtract(localVisibleRect, previousLocalVisibleRect, mDifferenceRects);
+    for (int i = 0; i < enteringRectCount; i++) {
+      final int count = mountableOutputsIndex.query(mDifferenceRects[i]);
+      for (int j = 0; j < count; j++) {
+        final int position = mountableOutputsIndex.getResultAt(j);
+        if (getItemAt(position) == null) {
+          final LayoutOutput layoutOutput = layoutState.getMountableOutputAt(position);
+          mountLayoutOutput(position, layoutOutput, layoutState);
+          mComponentIdsMountedInThisFrame.add(layoutOutput.getId());
+        }
+      }
+    }
+
+    // The root host stays mounted whatever the visible rect, even an empty one.
+    final MountItem rootMountItem = mIndexToItemMap.get(ROOT_HOST_ID);
+    final int leavingRectCount =
+        subtract(previousLocalVisibleRect, localVisibleRect, mDifferenceRects);
+    for (int i = 0; i < leavingRectCount; i++) {
+      final int count = mountableOutputsIndex.query(mDifferenceRects[i]);
+      for (int j = 0; j < count; j++) {
+        final int position = mountableOutputsIndex.getResultAt(j);
+        if (position == 0 || getItemAt(position) == rootMountItem) {
+          continue;
+        }
+        final Rect bounds = layoutState.getMountableOutputAt(position).getBounds();
+        if (!Rect.intersects(localVisibleRect, bounds) && !isAnimationLocked(position)) {
+          unmountItem(position, mHostsByMarker);
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits the part of the first rect that is outside of the second one in up to 4 rects.
+   *
+   * @return the number of rects written in out.
+   */
+  @VisibleForTesting
+  static int subtract(Rect rect, Rect other, Rect[] out) {
+    if (rect.isEmpty()) {
+      return 0;
+    }
+
+    if (!Rect.intersects(rect, other)) {
+      out[0].set(rect);
+      return 1;
+    }
+
+    int count = 0;
+    if (other.top > rect.top) {
+      out[count++].set(rect.left, rect.top, rect.right, other.top);
+    }
+    if (other.bottom < rect.bottom) {
+      out[count++].set(rect.left, other.bottom, rect.right, rect.bottom);
+    }
+
+    final int top = Math.max(rect.top, other.top);
+    final int bottom = Math.min(rect.bottom, other.bottom);
+    if (other.left > rect.left) {
+      out[count++].set(rect.left, top, other.left, bottom);
+    }
+    if (other.right < rect.right) {
+      out[count++].set(other.right, top, rect.right, bottom);
+    }
+
+    return count;
+  }
+
+  private void mountItemsIncrementally(
+      LayoutState layoutState, Rect localVisibleRect, boolean processVisibilityOutputs) {
     for (int i = 0, size = mCanMountIncrementallyMountItems.size(); i < size; i++) {
       final MountItem mountItem = mCanMountIncrementallyMountItems.valueAt(i);
       final long layoutOutputId = mCanMountIncrementallyMountItems.keyAt(i);
@@ -3022,8 +3284,6 @@ class MountState implements TransitionManager.OnAnimationCompleteListener {
     }
 
     mComponentIdsMountedInThisFrame.clear();
-
-    return true;
   }
 
   LithoView getLithoView() {
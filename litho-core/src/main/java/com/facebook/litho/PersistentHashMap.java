@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.support.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable hash map. {@link #plus(Object, Object)} and {@link #minus(Object)} return a new map
+ * that shares all but the O(log32 n) nodes on the path to the changed entry with this one, so maps
+ * can be handed over between threads and copied in O(1).
+ *
+ * <p>It's a {@link PersistentLongHashMap} of the entries by key hash: keys with the same hash share
+ * a bucket that is searched linearly. Null keys aren't supported.
+ *
+ * <p>The {@link java.util.Map} mutators throw {@link UnsupportedOperationException}.
+ */
+final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+  private static final int NOT_FOUND = -1;
+
+  private static final PersistentHashMap EMPTY =
+      new PersistentHashMap(PersistentLongHashMap.empty(), 0);
+
+  /** The entries by key hash: a single {@link Entry}, or an array of those sharing the hash. */
+  private final PersistentLongHashMap<Object> mBuckets;
+  private final int mSize;
+
+  private @Nullable Set<Entry<K, V>> mEntrySet;
+
+  private PersistentHashMap(PersistentLongHashMap<Object> buckets, int size) {
+    mBuckets = buckets;
+    mSize = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <K, V> PersistentHashMap<K, V> empty() {
+    return (PersistentHashMap<K, V>) EMPTY;
+  }
+
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return mSize == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(mBuckets.get(key.hashCode()), key) != NOT_FOUND;
+  }
+
+  @Override
+  @Nullable
+  public V get(Object key) {
+    final Object bucket = mBuckets.get(key.hashCode());
+    final int index = indexOf(bucket, key);
+    if (index == NOT_FOUND) {
+      return null;
+    }
+
+    return PersistentHashMap.<K, V>entryAt(bucket, index).getValue();
+  }
+
+  /** @return a map with the given entry, or this map if it already has it. */
+  PersistentHashMap<K, V> plus(K key, V value) {
+    final int hash = key.hashCode();
+    final Object bucket = mBuckets.get(hash);
+    final int index = indexOf(bucket, key);
+    final Entry<K, V> entry = new SimpleImmutableEntry<>(key, value);
+
+    if (index == NOT_FOUND) {
+      final Object newBucket;
+      if (bucket == null) {
+        newBucket = entry;
+      } else if (bucket instanceof Entry) {
+        newBucket = new Entry[] {(Entry) bucket, entry};
+      } else {
+        final Entry[] entries = (Entry[]) bucket;
+        final Entry[] newEntries = new Entry[entries.length + 1];
+        System.arraycopy(entries, 0, newEntries, 0, entries.length);
+        newEntries[entries.length] = entry;
+        newBucket = newEntries;
+      }
+      return new PersistentHashMap<>(mBuckets.plus(hash, newBucket), mSize + 1);
+    }
+
+    if (entryAt(bucket, index).getValue() == value) {
+      return this;
+    }
+
+    final Object newBucket;
+    if (bucket instanceof Entry) {
+      newBucket = entry;
+    } else {
+      final Entry[] newEntries = ((Entry[]) bucket).clone();
+      newEntries[index] = entry;
+      newBucket = newEntries;
+    }
+    return new PersistentHashMap<>(mBuckets.plus(hash, newBucket), mSize);
+  }
+
+  /** @return a map without the entry of the given key, or this map if it doesn't have one. */
+  PersistentHashMap<K, V> minus(Object key) {
+    final int hash = key.hashCode();
+    final Object bucket = mBuckets.get(hash);
+    final int index = indexOf(bucket, key);
+    if (index == NOT_FOUND) {
+      return this;
+    }
+
+    if (mSize == 1) {
+      return empty();
+    }
+
+    if (bucket instanceof Entry) {
+      return new PersistentHashMap<>(mBuckets.minus(hash), mSize - 1);
+    }
+
+    final Entry[] entries = (Entry[]) bucket;
+    final Object newBucket;
+    if (entries.length == 2) {
+      newBucket = entries[1 - index];
+    } else {
+      final Entry[] newEntries = new Entry[entries.length - 1];
+      System.arraycopy(entries, 0, newEntries, 0, index);
+      System.arraycopy(entries, index + 1, newEntries, index, newEntries.length - index);
+      newBucket = newEntries;
+    }
+    return new PersistentHashMap<>(mBuckets.plus(hash, newBucket), mSize - 1);
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    if (mEntrySet == null) {
+      mEntrySet =
+          new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+              return new EntryIterator<>(mBuckets.cursor());
+            }
+
+            @Override
+            public int size() {
+              return mSize;
+            }
+          };
+    }
+
+    return mEntrySet;
+  }
+
+  /** @return the position of the key in the given bucket, or {@link #NOT_FOUND}. */
+  private static int indexOf(@Nullable Object bucket, Object key) {
+    if (bucket == null) {
+      return NOT_FOUND;
+    }
+
+    if (bucket instanceof Entry) {
+      return key.equals(((Entry) bucket).getKey()) ? 0 : NOT_FOUND;
+    }
+
+    final Entry[] entries = (Entry[]) bucket;
+    for (int i = 0; i < entries.length; i++) {
+      if (key.equals(entries[i].getKey())) {
+        return i;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K, V> Entry<K, V> entryAt(Object bucket, int index) {
+    return bucket instanceof Entry ? (Entry<K, V>) bucket : ((Entry<K, V>[]) bucket)[index];
+  }
+
+  /** Iterates over the buckets, and over the entries of those that have several. */
+  private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+    private final PersistentLongHashMap.Cursor<Object> mCursor;
+    private @Nullable Object mBucket;
+    private int mIndex;
+
+    EntryIterator(PersistentLongHashMap.Cursor<Object> cursor) {
+      mCursor = cursor;
+      advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return mBucket != null;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      final Object bucket = mBucket;
+      if (bucket == null) {
+        throw new NoSuchElementException();
+      }
+
+      final Entry<K, V> next = PersistentHashMap.<K, V>entryAt(bucket, mIndex);
+      mIndex++;
+      if (bucket instanceof Entry || mIndex == ((Entry[]) bucket).length) {
+        advance();
+      }
+      return next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    private void advance() {
+      mBucket = mCursor.moveToNext() ? mCursor.value() : null;
+      mIndex = 0;
+    }
+  }
+}
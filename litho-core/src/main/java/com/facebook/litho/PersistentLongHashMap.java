@@ -0,0 +1,348 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.support.annotation.Nullable;
+
+/**
+ * An immutable hash map of primitive long keys, such as global key hashes. {@link
+ * #plus(long, Object)} and {@link #minus(long)} return a new map that shares all but the O(log32 n)
+ * nodes on the path to the changed entry with this one, so maps can be handed over between threads
+ * and copied in O(1). The keys are stored unboxed and indexed by their own bits, so no key object
+ * is allocated by lookups or updates. It also backs {@link PersistentHashMap}, keyed by hash code.
+ *
+ * <p>Every node of the trie holds up to 32 entries and children, indexed by 5 bits of the key, in
+ * separate arrays. As keys are unique in their 64 bits, two of them always end up in different
+ * slots at some depth, so there are no collision nodes.
+ */
+final class PersistentLongHashMap<V> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  /** Deepest possible path: 13 levels consume the 64 bits of the key. */
+  private static final int MAX_DEPTH = 13;
+
+  private static final PersistentLongHashMap EMPTY = new PersistentLongHashMap(null, 0);
+
+  private final @Nullable Node mRoot;
+  private final int mSize;
+
+  private PersistentLongHashMap(@Nullable Node root, int size) {
+    mRoot = root;
+    mSize = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <V> PersistentLongHashMap<V> empty() {
+    return (PersistentLongHashMap<V>) EMPTY;
+  }
+
+  int size() {
+    return mSize;
+  }
+
+  boolean isEmpty() {
+    return mSize == 0;
+  }
+
+  boolean containsKey(long key) {
+    return mRoot != null && mRoot.find(0, key) != Node.NOT_FOUND;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nullable
+  V get(long key) {
+    if (mRoot == null) {
+      return null;
+    }
+
+    final Object value = mRoot.find(0, key);
+    return value == Node.NOT_FOUND ? null : (V) value;
+  }
+
+  /** @return a map with the given entry, or this map if it already has it. */
+  PersistentLongHashMap<V> plus(long key, V value) {
+    final boolean[] addedLeaf = new boolean[1];
+    final Node root = mRoot != null ? mRoot : Node.EMPTY;
+    final Node newRoot = root.assoc(0, key, value, addedLeaf);
+    if (newRoot == mRoot) {
+      return this;
+    }
+
+    return new PersistentLongHashMap<>(newRoot, addedLeaf[0] ? mSize + 1 : mSize);
+  }
+
+  /** @return a map without the entry of the given key, or this map if it doesn't have one. */
+  PersistentLongHashMap<V> minus(long key) {
+    if (mRoot == null) {
+      return this;
+    }
+
+    final Node newRoot = mRoot.without(0, key);
+    if (newRoot == mRoot) {
+      return this;
+    }
+
+    return newRoot == null
+        ? PersistentLongHashMap.<V>empty()
+        : new PersistentLongHashMap<V>(newRoot, mSize - 1);
+  }
+
+  /** @return a cursor over the entries of this map, in no particular order. */
+  Cursor<V> cursor() {
+    return new Cursor<>(mRoot);
+  }
+
+  /**
+   * Iterates over the entries of a map without allocating them: {@link #moveToNext()} must be
+   * called before reading the first entry.
+   */
+  static final class Cursor<V> {
+    private final Node[] mNodes = new Node[MAX_DEPTH];
+    private final int[] mPositions = new int[MAX_DEPTH];
+    private int mDepth = -1;
+    private long mKey;
+    private @Nullable Object mValue;
+
+    private Cursor(@Nullable Node root) {
+      if (root != null) {
+        mDepth = 0;
+        mNodes[0] = root;
+      }
+    }
+
+    /** @return whether there is another entry, which is then the current one. */
+    boolean moveToNext() {
+      while (mDepth >= 0) {
+        final Node node = mNodes[mDepth];
+        final int position = mPositions[mDepth];
+        final int entryCount = node.mKeys.length;
+
+        if (position < entryCount) {
+          mPositions[mDepth] = position + 1;
+          mKey = node.mKeys[position];
+          mValue = node.mValues[position];
+          return true;
+        }
+
+        if (position < entryCount + node.mChildren.length) {
+          mPositions[mDepth] = position + 1;
+          mDepth++;
+          mNodes[mDepth] = node.mChildren[position - entryCount];
+          mPositions[mDepth] = 0;
+          continue;
+        }
+
+        mNodes[mDepth] = null;
+        mDepth--;
+      }
+
+      mValue = null;
+      return false;
+    }
+
+    long key() {
+      return mKey;
+    }
+
+    @SuppressWarnings("unchecked")
+    V value() {
+      return (V) mValue;
+    }
+  }
+
+  /**
+   * The entries of a node are stored in mKeys and mValues, and its children in mChildren, in the
+   * order of the slots set in mEntryMap and mChildMap respectively.
+   */
+  private static final class Node {
+    static final Object NOT_FOUND = new Object();
+    static final Node EMPTY = new Node(0, 0, new long[0], new Object[0], new Node[0]);
+
+    private final int mEntryMap;
+    private final int mChildMap;
+    final long[] mKeys;
+    final Object[] mValues;
+    final Node[] mChildren;
+
+    Node(int entryMap, int childMap, long[] keys, Object[] values, Node[] children) {
+      mEntryMap = entryMap;
+      mChildMap = childMap;
+      mKeys = keys;
+      mValues = values;
+      mChildren = children;
+    }
+
+    Object find(int shift, long key) {
+      final int bit = bit(key, shift);
+      if ((mEntryMap & bit) != 0) {
+        final int index = index(mEntryMap, bit);
+        return mKeys[index] == key ? mValues[index] : NOT_FOUND;
+      }
+
+      if ((mChildMap & bit) != 0) {
+        return mChildren[index(mChildMap, bit)].find(shift + BITS, key);
+      }
+
+      return NOT_FOUND;
+    }
+
+    /** Sets addedLeaf[0] if the key wasn't in the subtree already. */
+    Node assoc(int shift, long key, Object value, boolean[] addedLeaf) {
+      final int bit = bit(key, shift);
+
+      if ((mEntryMap & bit) != 0) {
+        final int index = index(mEntryMap, bit);
+        if (mKeys[index] == key) {
+          if (mValues[index] == value) {
+            return this;
+          }
+          final Object[] newValues = mValues.clone();
+          newValues[index] = value;
+          return new Node(mEntryMap, mChildMap, mKeys, newValues, mChildren);
+        }
+
+        addedLeaf[0] = true;
+        final Node child = createNode(shift + BITS, mKeys[index], mValues[index], key, value);
+        return withoutEntry(bit, index).withChild(bit, child);
+      }
+
+      if ((mChildMap & bit) != 0) {
+        final int index = index(mChildMap, bit);
+        final Node child = mChildren[index];
+        final Node newChild = child.assoc(shift + BITS, key, value, addedLeaf);
+        if (newChild == child) {
+          return this;
+        }
+        final Node[] newChildren = mChildren.clone();
+        newChildren[index] = newChild;
+        return new Node(mEntryMap, mChildMap, mKeys, mValues, newChildren);
+      }
+
+      addedLeaf[0] = true;
+      return withEntry(bit, key, value);
+    }
+
+    /** @return the node without the key, or null if it would be empty. */
+    @Nullable
+    Node without(int shift, long key) {
+      final int bit = bit(key, shift);
+
+      if ((mEntryMap & bit) != 0) {
+        final int index = index(mEntryMap, bit);
+        if (mKeys[index] != key) {
+          return this;
+        }
+        if (mEntryMap == bit && mChildMap == 0) {
+          return null;
+        }
+        return withoutEntry(bit, index);
+      }
+
+      if ((mChildMap & bit) == 0) {
+        return this;
+      }
+
+      final int index = index(mChildMap, bit);
+      final Node child = mChildren[index];
+      final Node newChild = child.without(shift + BITS, key);
+      if (newChild == child) {
+        return this;
+      }
+
+      if (newChild == null) {
+        if (mChildMap == bit && mEntryMap == 0) {
+          return null;
+        }
+        return withoutChild(bit, index);
+      }
+
+      // A child left with a single entry is inlined, so that paths stay as short as possible.
+      if (newChild.mChildMap == 0 && newChild.mKeys.length == 1) {
+        return withoutChild(bit, index).withEntry(bit, newChild.mKeys[0], newChild.mValues[0]);
+      }
+
+      final Node[] newChildren = mChildren.clone();
+      newChildren[index] = newChild;
+      return new Node(mEntryMap, mChildMap, mKeys, mValues, newChildren);
+    }
+
+    private Node withEntry(int bit, long key, Object value) {
+      final int index = index(mEntryMap, bit);
+      final int count = mKeys.length;
+      final long[] newKeys = new long[count + 1];
+      final Object[] newValues = new Object[count + 1];
+      System.arraycopy(mKeys, 0, newKeys, 0, index);
+      System.arraycopy(mValues, 0, newValues, 0, index);
+      newKeys[index] = key;
+      newValues[index] = value;
+      System.arraycopy(mKeys, index, newKeys, index + 1, count - index);
+      System.arraycopy(mValues, index, newValues, index + 1, count - index);
+      return new Node(mEntryMap | bit, mChildMap, newKeys, newValues, mChildren);
+    }
+
+    private Node withoutEntry(int bit, int index) {
+      final int count = mKeys.length;
+      final long[] newKeys = new long[count - 1];
+      final Object[] newValues = new Object[count - 1];
+      System.arraycopy(mKeys, 0, newKeys, 0, index);
+      System.arraycopy(mValues, 0, newValues, 0, index);
+      System.arraycopy(mKeys, index + 1, newKeys, index, count - index - 1);
+      System.arraycopy(mValues, index + 1, newValues, index, count - index - 1);
+      return new Node(mEntryMap ^ bit, mChildMap, newKeys, newValues, mChildren);
+    }
+
+    private Node withChild(int bit, Node child) {
+      final int index = index(mChildMap, bit);
+      final int count = mChildren.length;
+      final Node[] newChildren = new Node[count + 1];
+      System.arraycopy(mChildren, 0, newChildren, 0, index);
+      newChildren[index] = child;
+      System.arraycopy(mChildren, index, newChildren, index + 1, count - index);
+      return new Node(mEntryMap, mChildMap | bit, mKeys, mValues, newChildren);
+    }
+
+    private Node withoutChild(int bit, int index) {
+      final int count = mChildren.length;
+      final Node[] newChildren = new Node[count - 1];
+      System.arraycopy(mChildren, 0, newChildren, 0, index);
+      System.arraycopy(mChildren, index + 1, newChildren, index, count - index - 1);
+      return new Node(mEntryMap, mChildMap ^ bit, mKeys, mValues, newChildren);
+    }
+
+    private static int index(int bitmap, int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static int bit(long key, int shift) {
+      return 1 << ((int) (key >>> shift) & MASK);
+    }
+
+    private static Node createNode(int shift, long key1, Object value1, long key2, Object value2) {
+      final int bit1 = bit(key1, shift);
+      final int bit2 = bit(key2, shift);
+
+      // The keys differ in at least one of their bits, so this recurses 12 times at most.
+      if (bit1 == bit2) {
+        return EMPTY.withChild(bit1, createNode(shift + BITS, key1, value1, key2, value2));
+      }
+
+      return EMPTY.withEntry(bit1, key1, value1).withEntry(bit2, key2, value2);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.litho;
+
+import com.facebook.litho.stats.PoolStats;
+
+/**
+ * An object pool that collects usage counters. Pools implementing {@link PoolWithDebugInfo} may
+ * also implement this, which callers check with {@code instanceof}.
+ */
+public interface PoolWithStats {
+
+  /** @return the usage counters of this pool. */
+  PoolStats getStats();
+}
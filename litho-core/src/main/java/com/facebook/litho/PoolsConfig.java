@@ -17,6 +17,8 @@ package com.facebook.litho;
 
 import com.facebook.yoga.YogaConfig;
 import com.facebook.yoga.YogaNode;
+import java.util.Collections;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /** A helper class that defines a configurable sizes for ComponentsPools. */
@@ -29,6 +31,13 @@ public class PoolsConfig {
   public static int sYogaNodeSize = 256;
   public static int sDisplayListContainerSize = 64;
 
+  /**
+   * Names of the synchronized {@link ComponentsPools} pools (e.g. "InternalNode", "YogaNode") that
+   * should be backed by a lock-free {@link ConcurrentRecyclePool} instead of a synchronized {@link
+   * RecyclePool}. Only read when ComponentsPools is initialized, so set it before the first layout.
+   */
+  public static Set<String> sConcurrentPools = Collections.emptySet();
+
   public interface YogaNodeFactory {
     YogaNode create();
 
@@ -18,17 +18,19 @@ package com.facebook.litho;
 
 import android.support.v4.util.Pools;
 import com.facebook.infer.annotation.ThreadSafe;
+import com.facebook.litho.stats.PoolStats;
 
 /**
  * Used to recycle objects in Litho. Can be configured to be either syncronized or not. A {@link
  * RecyclePool} will keep track of its own size so that it can be queried to debug pool sizes.
  */
 @ThreadSafe(enableChecks = false)
-public class RecyclePool<T> implements PoolWithDebugInfo {
+public class RecyclePool<T> implements PoolWithDebugInfo, PoolWithStats {
   private final String mName;
   private final int mMaxSize;
   private final boolean mIsSync;
   private final Pools.Pool<T> mPool;
+  private final PoolStats mStats;
   private int mCurrentSize = 0;
 
   public RecyclePool(String name, int maxSize, boolean sync) {
@@ -36,6 +38,16 @@ public class RecyclePool<T> implements PoolWithDebugInfo {
     mName = name;
     mMaxSize = maxSize;
     mPool = sync ? new Pools.SynchronizedPool<T>(maxSize) : new Pools.SimplePool<T>(maxSize);
+    mStats = new PoolStats(name);
+  }
+
+  /** Used by subclasses that manage their own storage and override all pool operations. */
+  RecyclePool(String name, int maxSize) {
+    mIsSync = true;
+    mName = name;
+    mMaxSize = maxSize;
+    mPool = null;
+    mStats = new PoolStats(name);
   }
 
   public T acquire() {
@@ -49,19 +61,33 @@ public class RecyclePool<T> implements PoolWithDebugInfo {
       item = mPool.acquire();
       mCurrentSize = Math.max(0, mCurrentSize - 1);
     }
+    recordAcquire(item != null);
     return item;
   }
 
+  /** Records an acquire in the stats of the pool, and a miss in the current allocation pass. */
+  void recordAcquire(boolean hit) {
+    mStats.recordAcquire(hit);
+    if (!hit) {
+      AllocationAccounting.recordPoolMiss(mName);
+    }
+  }
+
   public void release(T item) {
+    final boolean released;
+    final int currentSize;
     if (mIsSync) {
       synchronized (this) {
-        mPool.release(item);
+        released = mPool.release(item);
         mCurrentSize = Math.min(mMaxSize, mCurrentSize + 1);
+        currentSize = mCurrentSize;
       }
     } else {
-      mPool.release(item);
+      released = mPool.release(item);
       mCurrentSize = Math.min(mMaxSize, mCurrentSize + 1);
+      currentSize = mCurrentSize;
     }
+    mStats.recordRelease(!released, currentSize);
   }
 
   @Override
@@ -79,21 +105,30 @@ public class RecyclePool<T> implements PoolWithDebugInfo {
     return mCurrentSize;
   }
 
+  @Override
+  public PoolStats getStats() {
+    return mStats;
+  }
+
   public boolean isFull() {
     return mCurrentSize >= mMaxSize;
   }
 
+  /** Drops the pooled items. Unlike {@link #acquire()}, this isn't recorded in the stats. */
   public void clear() {
     if (mIsSync) {
       synchronized (this) {
-        while (acquire() != null) {
-          // no-op.
-        }
+        clearPool();
       }
     } else {
-      while (acquire() != null) {
-        // no-op.
-      }
+      clearPool();
+    }
+  }
+
+  private void clearPool() {
+    while (mPool.acquire() != null) {
+      // no-op.
     }
+    mCurrentSize = 0;
   }
 }
@@ -17,14 +17,35 @@
 package com.facebook.litho;
 
 import android.content.res.Configuration;
+import android.support.annotation.IntDef;
+import com.facebook.litho.config.ComponentsConfiguration;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import javax.annotation.Nullable;
 
 public abstract class ResourceCache {
+  /** Returned by {@link #getPrimitive(int, int)} if nothing is cached for the key. */
+  static final long MISSING = Long.MIN_VALUE;
+
+  static final int TYPE_INT = 1;
+  static final int TYPE_BOOL = 2;
+  static final int TYPE_COLOR = 3;
+  static final int TYPE_DIMEN_SIZE = 4;
+  static final int TYPE_DIMEN_OFFSET = 5;
+  static final int TYPE_FLOAT = 6;
+
+  @IntDef({TYPE_INT, TYPE_BOOL, TYPE_COLOR, TYPE_DIMEN_SIZE, TYPE_DIMEN_OFFSET, TYPE_FLOAT})
+  @Retention(RetentionPolicy.SOURCE)
+  @interface PrimitiveType {}
+
   private static ResourceCache latest;
 
   static synchronized ResourceCache getLatest(Configuration configuration) {
     if (latest == null || !latest.mConfiguration.equals(configuration)) {
-      latest = new LruResourceCache(new Configuration(configuration));
+      latest =
+          ComponentsConfiguration.useTypedResourceCache
+              ? new TypedResourceCache(new Configuration(configuration))
+              : new LruResourceCache(new Configuration(configuration));
     }
     return latest;
   }
@@ -39,4 +60,40 @@ public abstract class ResourceCache {
   abstract <T> T get(int key);
 
   abstract void put(int key, Object object);
+
+  /**
+   * @return the value cached for the given resource id and type as an int widened to a long (the
+   *     raw int bits for {@link #TYPE_FLOAT}, 0 or 1 for {@link #TYPE_BOOL}), or {@link #MISSING}.
+   *     The default implementation stores boxed values through {@link #get(int)}.
+   */
+  long getPrimitive(int key, @PrimitiveType int type) {
+    final Object cached = get(key);
+    if (cached == null) {
+      return MISSING;
+    }
+
+    switch (type) {
+      case TYPE_FLOAT:
+        return Float.floatToRawIntBits((Float) cached);
+      case TYPE_BOOL:
+        return ((Boolean) cached) ? 1 : 0;
+      default:
+        return (Integer) cached;
+    }
+  }
+
+  /** Caches a primitive value, see {@link #getPrimitive(int, int)} for the encoding. */
+  void putPrimitive(int key, @PrimitiveType int type, int value) {
+    switch (type) {
+      case TYPE_FLOAT:
+        put(key, Float.intBitsToFloat(value));
+        break;
+      case TYPE_BOOL:
+        put(key, value != 0);
+        break;
+      default:
+        put(key, value);
+        break;
+    }
+  }
 }
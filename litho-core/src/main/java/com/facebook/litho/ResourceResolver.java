@@ -98,13 +98,13 @@ public class ResourceResolver {
 
   public int resolveIntRes(@IntegerRes int resId) {
     if (resId != 0) {
-      Integer cached = mResourceCache.get(resId);
-      if (cached != null) {
-        return cached;
+      final long cached = mResourceCache.getPrimitive(resId, ResourceCache.TYPE_INT);
+      if (cached != ResourceCache.MISSING) {
+        return (int) cached;
       }
 
       int result = mResources.getInteger(resId);
-      mResourceCache.put(resId, result);
+      mResourceCache.putPrimitive(resId, ResourceCache.TYPE_INT, result);
 
       return result;
     }
@@ -142,13 +142,13 @@ public class ResourceResolver {
 
   public boolean resolveBoolRes(@BoolRes int resId) {
     if (resId != 0) {
-      Boolean cached = mResourceCache.get(resId);
-      if (cached != null) {
-        return cached;
+      final long cached = mResourceCache.getPrimitive(resId, ResourceCache.TYPE_BOOL);
+      if (cached != ResourceCache.MISSING) {
+        return cached != 0;
       }
 
       boolean result = mResources.getBoolean(resId);
-      mResourceCache.put(resId, result);
+      mResourceCache.putPrimitive(resId, ResourceCache.TYPE_BOOL, result ? 1 : 0);
 
       return result;
     }
@@ -158,13 +158,13 @@ public class ResourceResolver {
 
   public int resolveColorRes(@ColorRes int resId) {
     if (resId != 0) {
-      Integer cached = mResourceCache.get(resId);
-      if (cached != null) {
-        return cached;
+      final long cached = mResourceCache.getPrimitive(resId, ResourceCache.TYPE_COLOR);
+      if (cached != ResourceCache.MISSING) {
+        return (int) cached;
       }
 
       int result = mResources.getColor(resId);
-      mResourceCache.put(resId, result);
+      mResourceCache.putPrimitive(resId, ResourceCache.TYPE_COLOR, result);
 
       return result;
     }
@@ -174,13 +174,13 @@ public class ResourceResolver {
 
   public int resolveDimenSizeRes(@DimenRes int resId) {
     if (resId != 0) {
-      Integer cached = mResourceCache.get(resId);
-      if (cached != null) {
-        return cached;
+      final long cached = mResourceCache.getPrimitive(resId, ResourceCache.TYPE_DIMEN_SIZE);
+      if (cached != ResourceCache.MISSING) {
+        return (int) cached;
       }
 
       int result = mResources.getDimensionPixelSize(resId);
-      mResourceCache.put(resId, result);
+      mResourceCache.putPrimitive(resId, ResourceCache.TYPE_DIMEN_SIZE, result);
 
       return result;
     }
@@ -190,13 +190,13 @@ public class ResourceResolver {
 
   public int resolveDimenOffsetRes(@DimenRes int resId) {
     if (resId != 0) {
-      Integer cached = mResourceCache.get(resId);
-      if (cached != null) {
-        return cached;
+      final long cached = mResourceCache.getPrimitive(resId, ResourceCache.TYPE_DIMEN_OFFSET);
+      if (cached != ResourceCache.MISSING) {
+        return (int) cached;
       }
 
       int result = mResources.getDimensionPixelOffset(resId);
-      mResourceCache.put(resId, result);
+      mResourceCache.putPrimitive(resId, ResourceCache.TYPE_DIMEN_OFFSET, result);
 
       return result;
     }
@@ -206,13 +206,14 @@ public class ResourceResolver {
 
   public float resolveFloatRes(@DimenRes int resId) {
     if (resId != 0) {
-      Float cached = mResourceCache.get(resId);
-      if (cached != null) {
-        return cached;
+      final long cached = mResourceCache.getPrimitive(resId, ResourceCache.TYPE_FLOAT);
+      if (cached != ResourceCache.MISSING) {
+        return Float.intBitsToFloat((int) cached);
       }
 
       float result = mResources.getDimension(resId);
-      mResourceCache.put(resId, result);
+      mResourceCache.putPrimitive(
+          resId, ResourceCache.TYPE_FLOAT, Float.floatToRawIntBits(result));
 
       return result;
     }
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import com.facebook.infer.annotation.ThreadSafe;
+import com.facebook.litho.annotations.Comparable;
+import com.facebook.litho.config.ComponentsConfiguration;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Measurements of components shared by all the ComponentTrees of the app. The same item is often
+ * rendered by many ComponentTrees (identical headers, badges or buttons of a feed), and each of
+ * them would otherwise measure it from scratch, since the {@link DiffNode}s that allow reusing
+ * measurements only live within one tree.
+ *
+ * <p>Entries are looked up by component type and size specs, and match a component if it's
+ * equivalent to the one that was measured ({@link Component#isEquivalentTo(Component)}) and uses
+ * the same Android context. A hit copies the inter stage outputs of the measured component, the
+ * same way a {@link DiffNode} does. The least recently used entries are evicted once there are
+ * more than {@link ComponentsConfiguration#sharedMeasureCacheSize}.
+ *
+ * <p>The cache outlives the trees, so entries keep a copy of the measured component detached from
+ * its tree, see {@link #makeDetachedCopy(Component)}.
+ */
+@ThreadSafe
+class SharedMeasureCache {
+
+  @GuardedBy("SharedMeasureCache.class")
+  private static @Nullable SharedMeasureCache sInstance;
+
+  private final int mMaxEntries;
+
+  /** Heads of the chains of entries with the same bucket key. */
+  @GuardedBy("this")
+  private final LongHashMap<Entry> mBuckets = new LongHashMap<>();
+
+  /** Most and least recently used entries. */
+  @GuardedBy("this")
+  private @Nullable Entry mHead;
+
+  @GuardedBy("this")
+  private @Nullable Entry mTail;
+
+  @GuardedBy("this")
+  private int mSize;
+
+  @GuardedBy("this")
+  private final Map<Class<?>, Field[]> mTreeReferenceFields = new HashMap<>();
+
+  @GuardedBy("this")
+  private long mHits;
+
+  @GuardedBy("this")
+  private long mMisses;
+
+  @VisibleForTesting
+  SharedMeasureCache(int maxEntries) {
+    mMaxEntries = maxEntries;
+  }
+
+  static synchronized SharedMeasureCache getInstance() {
+    if (sInstance == null) {
+      sInstance = new SharedMeasureCache(ComponentsConfiguration.sharedMeasureCacheSize);
+    }
+
+    return sInstance;
+  }
+
+  /** Drops the entries of the given context, if the cache was ever used. */
+  static void onContextDestroyed(Context context) {
+    final SharedMeasureCache instance;
+    synchronized (SharedMeasureCache.class) {
+      instance = sInstance;
+    }
+
+    if (instance != null) {
+      instance.removeEntries(ContextUtils.getRootContext(context));
+    }
+  }
+
+  /**
+   * @return whether the measurements of the given component can be shared. Generated components
+   *     compare their props, state and tree props in isEquivalentTo, so an equivalent component
+   *     measures the same unless it asks to always be remeasured.
+   */
+  static boolean isCacheable(Component component) {
+    return !component.shouldAlwaysRemeasure() && component.getScopedContext() != null;
+  }
+
+  /**
+   * Looks up the measurement of a component equivalent to the given one, and if found, copies its
+   * inter stage outputs into the component.
+   *
+   * @return true if outSize was set.
+   */
+  synchronized boolean get(Component component, int widthSpec, int heightSpec, Size outSize) {
+    final Context context = component.getScopedContext().getAndroidContext();
+    final int typeId = component.getTypeId();
+    Entry entry = mBuckets.get(bucketKey(typeId, widthSpec, heightSpec));
+
+    while (entry != null) {
+      if (entry.matches(typeId, widthSpec, heightSpec, context)
+          && component.isEquivalentTo(entry.mComponent)) {
+        moveToHead(entry);
+        mHits++;
+        component.copyInterStageImpl(entry.mComponent);
+        outSize.width = entry.mWidth;
+        outSize.height = entry.mHeight;
+        return true;
+      }
+      entry = entry.mNextInBucket;
+    }
+
+    mMisses++;
+    return false;
+  }
+
+  /** Records the measurement of the given component, which was just measured. */
+  synchronized void put(Component component, int widthSpec, int heightSpec, int width, int height) {
+    if (mMaxEntries <= 0) {
+      return;
+    }
+
+    final Context context = component.getScopedContext().getAndroidContext();
+    final int typeId = component.getTypeId();
+    final long bucketKey = bucketKey(typeId, widthSpec, heightSpec);
+    final Entry bucketHead = mBuckets.get(bucketKey);
+
+    for (Entry entry = bucketHead; entry != null; entry = entry.mNextInBucket) {
+      if (entry.matches(typeId, widthSpec, heightSpec, context)
+          && component.isEquivalentTo(entry.mComponent)) {
+        moveToHead(entry);
+        return;
+      }
+    }
+
+    final Component measuredComponent = makeDetachedCopy(component);
+    if (measuredComponent == null) {
+      return;
+    }
+
+    final Entry entry =
+        new Entry(
+            bucketKey,
+            typeId,
+            widthSpec,
+            heightSpec,
+            context,
+            ContextUtils.getRootContext(context),
+            measuredComponent,
+            width,
+            height);
+    entry.mNextInBucket = bucketHead;
+    mBuckets.put(bucketKey, entry);
+    linkAtHead(entry);
+    mSize++;
+
+    while (mSize > mMaxEntries) {
+      remove(mTail);
+    }
+  }
+
+  synchronized void clear() {
+    mBuckets.clear();
+    mHead = null;
+    mTail = null;
+    mSize = 0;
+  }
+
+  @VisibleForTesting
+  synchronized int size() {
+    return mSize;
+  }
+
+  @VisibleForTesting
+  synchronized long getHits() {
+    return mHits;
+  }
+
+  @VisibleForTesting
+  synchronized long getMisses() {
+    return mMisses;
+  }
+
+  /**
+   * Makes the copy of a measured component that an entry keeps, which must not keep the tree the
+   * component was measured in alive once it's released. A shallow copy drops the scoped context,
+   * but keeps the props: the EventHandlers among them reference the tree through their dispatcher
+   * and their first param, so they're replaced by handlers without those, which isEquivalentTo
+   * compares the same. Event triggers aren't compared, so they're dropped.
+   *
+   * <p>Generated components also reset their state and inter stage outputs in a shallow copy, so
+   * those are copied into the new state container of the copy.
+   *
+   * @return the copy, or null if the component references its tree in a way that can't be
+   *     detached, in which case it isn't cached.
+   */
+  @GuardedBy("this")
+  @Nullable
+  private Component makeDetachedCopy(Component component) {
+    final Component copy = component.makeShallowCopy();
+    final StateContainer stateContainer = component.getStateContainer();
+    if (copy == component
+        || (stateContainer != null && copy.getStateContainer() == stateContainer)) {
+      return null;
+    }
+
+    copy.copyInterStageImpl(component);
+    if (stateContainer != null) {
+      copy.transferState(stateContainer, copy.getStateContainer());
+    }
+
+    try {
+      for (Field field : getTreeReferenceFields(copy.getClass())) {
+        final Object value = field.get(copy);
+        if (value == null) {
+          continue;
+        }
+
+        final Class<?> type = field.getType();
+        if (EventHandler.class.isAssignableFrom(type)) {
+          if (value.getClass() != EventHandler.class) {
+            return null;
+          }
+          field.set(copy, detach((EventHandler) value));
+        } else if (EventTrigger.class.isAssignableFrom(type)) {
+          field.set(copy, null);
+        } else if (Component.class.isAssignableFrom(type)) {
+          final Component detachedValue = makeDetachedCopy((Component) value);
+          if (detachedValue == null) {
+            return null;
+          }
+          field.set(copy, detachedValue);
+        } else {
+          // Collections of handlers or components, which would have to be copied.
+          return null;
+        }
+      }
+    } catch (IllegalAccessException e) {
+      return null;
+    }
+
+    return copy;
+  }
+
+  /**
+   * @return the fields of a component class that can reference the tree its instances are laid
+   *     out in, and aren't replaced by a shallow copy.
+   */
+  @GuardedBy("this")
+  private Field[] getTreeReferenceFields(Class<?> componentClass) {
+    Field[] fields = mTreeReferenceFields.get(componentClass);
+    if (fields != null) {
+      return fields;
+    }
+
+    final List<Field> treeReferenceFields = new ArrayList<>();
+    for (Class<?> type = componentClass; type != Component.class; type = type.getSuperclass()) {
+      for (Field field : type.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers()) && isTreeReferenceField(field)) {
+          field.setAccessible(true);
+          treeReferenceFields.add(field);
+        }
+      }
+    }
+
+    fields = treeReferenceFields.toArray(new Field[treeReferenceFields.size()]);
+    mTreeReferenceFields.put(componentClass, fields);
+    return fields;
+  }
+
+  private static boolean isTreeReferenceField(Field field) {
+    final Class<?> type = field.getType();
+    if (EventHandler.class.isAssignableFrom(type)
+        || EventTrigger.class.isAssignableFrom(type)
+        || Component.class.isAssignableFrom(type)) {
+      return true;
+    }
+
+    final Comparable comparable = field.getAnnotation(Comparable.class);
+    if (comparable == null) {
+      return false;
+    }
+
+    switch (comparable.type()) {
+      case Comparable.COLLECTION_COMPLEVEL_1:
+      case Comparable.COLLECTION_COMPLEVEL_2:
+      case Comparable.COLLECTION_COMPLEVEL_3:
+      case Comparable.COLLECTION_COMPLEVEL_4:
+      case Comparable.EVENT_HANDLER_IN_PARAMETERIZED_TYPE:
+      case Comparable.SECTION:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static EventHandler detach(EventHandler eventHandler) {
+    final Object[] params = eventHandler.params == null ? null : eventHandler.params.clone();
+    if (params != null && params.length > 0) {
+      // The ComponentContext the handler was created with, which isEquivalentTo skips.
+      params[0] = null;
+    }
+
+    return new EventHandler(null, eventHandler.id, params);
+  }
+
+  private synchronized void removeEntries(Context rootContext) {
+    Entry entry = mHead;
+    while (entry != null) {
+      final Entry next = entry.mNext;
+      if (entry.mRootContext == rootContext) {
+        remove(entry);
+      }
+      entry = next;
+    }
+  }
+
+  @GuardedBy("this")
+  private void remove(Entry entry) {
+    unlink(entry);
+    mSize--;
+
+    final Entry bucketHead = mBuckets.get(entry.mBucketKey);
+    if (bucketHead == entry) {
+      if (entry.mNextInBucket == null) {
+        mBuckets.remove(entry.mBucketKey);
+      } else {
+        mBuckets.put(entry.mBucketKey, entry.mNextInBucket);
+      }
+      return;
+    }
+
+    for (Entry previous = bucketHead; previous != null; previous = previous.mNextInBucket) {
+      if (previous.mNextInBucket == entry) {
+        previous.mNextInBucket = entry.mNextInBucket;
+        return;
+      }
+    }
+  }
+
+  @GuardedBy("this")
+  private void moveToHead(Entry entry) {
+    if (entry != mHead) {
+      unlink(entry);
+      linkAtHead(entry);
+    }
+  }
+
+  @GuardedBy("this")
+  private void linkAtHead(Entry entry) {
+    entry.mPrevious = null;
+    entry.mNext = mHead;
+    if (mHead != null) {
+      mHead.mPrevious = entry;
+    }
+    mHead = entry;
+    if (mTail == null) {
+      mTail = entry;
+    }
+  }
+
+  @GuardedBy("this")
+  private void unlink(Entry entry) {
+    if (entry.mPrevious != null) {
+      entry.mPrevious.mNext = entry.mNext;
+    } else {
+      mHead = entry.mNext;
+    }
+    if (entry.mNext != null) {
+      entry.mNext.mPrevious = entry.mPrevious;
+    } else {
+      mTail = entry.mPrevious;
+    }
+    entry.mPrevious = null;
+    entry.mNext = null;
+  }
+
+  private static long bucketKey(int typeId, int widthSpec, int heightSpec) {
+    final long specs = ((long) widthSpec << 32) | (heightSpec & 0xFFFFFFFFL);
+    return specs ^ (typeId * 0x9E3779B97F4A7C15L);
+  }
+
+  private static final class Entry {
+    private final long mBucketKey;
+    private final int mTypeId;
+    private final int mWidthSpec;
+    private final int mHeightSpec;
+    private final Context mContext;
+    private final Context mRootContext;
+    private final Component mComponent;
+    private final int mWidth;
+    private final int mHeight;
+
+    private @Nullable Entry mNextInBucket;
+    private @Nullable Entry mPrevious;
+    private @Nullable Entry mNext;
+
+    Entry(
+        long bucketKey,
+        int typeId,
+        int widthSpec,
+        int heightSpec,
+        Context context,
+        Context rootContext,
+        Component component,
+        int width,
+        int height) {
+      mBucketKey = bucketKey;
+      mTypeId = typeId;
+      mWidthSpec = widthSpec;
+      mHeightSpec = heightSpec;
+      mContext = context;
+      mRootContext = rootContext;
+      mComponent = component;
+      mWidth = width;
+      mHeight = height;
+    }
+
+    boolean matches(int typeId, int widthSpec, int heightSpec, Context context) {
+      return mTypeId == typeId
+          && mWidthSpec == widthSpec
+          && mHeightSpec == heightSpec
+          && mContext == context;
+    }
+  }
+}
@@ -17,7 +17,6 @@ package com.facebook.litho;
 
 import static com.facebook.litho.ComponentContext.NULL_LAYOUT;
 
-import android.os.Looper;
 import android.support.annotation.GuardedBy;
 import android.support.annotation.VisibleForTesting;
 import com.facebook.infer.annotation.ThreadSafe;
@@ -27,22 +26,39 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 
 /**
- * Creates tasks for calculating the layout of a component's children on different threads and
- * commits the results to the parent's internal node when they are finished.
+ * Calculates the layout of a component's children on different threads and commits the results to
+ * the parent's internal node when they are finished.
+ *
+ * <p>Whether and how the children are split is decided from the measured layout cost of their
+ * component types ({@link LayoutCostModel}): children that are cheap to lay out, or whose cost is
+ * not known yet, are laid out on the caller thread, and expensive ones are grouped into chunks of
+ * similar cost. The caller lays out the first chunk itself and forks the others. When it's done, it
+ * joins by running the forked chunks that no thread has picked up yet, its own or the ones of other
+ * splits on the same pool, and only blocks on chunks that are already running elsewhere. Since
+ * children can split their own children in turn, this keeps every thread busy without deadlocking
+ * the pool on nested splits.
  */
 @ThreadSafe
 public class SplitLayoutResolver {
 
+  /** Minimum estimated cost of a chunk of children for it to be worth a task, in nanoseconds. */
+  @VisibleForTesting static final long MIN_CHUNK_COST_NS = 250_000;
+
   @GuardedBy("SplitLayoutResolver.class")
   private static final Map<String, SplitLayoutResolver> sSplitLayoutResolvers = new HashMap<>();
 
   private final Set<String> mEnabledComponents = new LinkedHashSet<>();
-  private @Nullable ExecutorCompletionService mainService;
-  private @Nullable ExecutorCompletionService bgService;
+  private final boolean mIsEnabledForAllComponents;
+  private final LayoutCostModel mCostModel = new LayoutCostModel();
+  private @Nullable TaskPool mMainPool;
+  private @Nullable TaskPool mBgPool;
 
   /**
    * Create a SplitLayoutResolver that will be used to split layout where possible in ComponentTrees
@@ -52,114 +68,205 @@ public class SplitLayoutResolver {
    * @param tag split tag
    * @param mainThreadPoolConfig configuration for splitting main thread layouts
    * @param bgThreadPoolConfig configuration for splitting background thread layouts
+   * @param enabledComponents simple names of the components whose children can be split, if they
+   *     are expensive enough. If null or empty, no layout is split.
    */
-  public static synchronized void createForTag(
+  public static void createForTag(
       String tag,
       @Nullable LayoutThreadPoolConfiguration mainThreadPoolConfig,
       @Nullable LayoutThreadPoolConfiguration bgThreadPoolConfig,
-      Set<String> enabledComponents) {
+      @Nullable Set<String> enabledComponents) {
+    createForTag(tag, mainThreadPoolConfig, bgThreadPoolConfig, enabledComponents, false);
+  }
+
+  /**
+   * Same as {@link #createForTag(String, LayoutThreadPoolConfiguration,
+   * LayoutThreadPoolConfiguration, Set)}, letting the children of any component be split if they
+   * are expensive enough.
+   */
+  public static void createForAllComponentsForTag(
+      String tag,
+      @Nullable LayoutThreadPoolConfiguration mainThreadPoolConfig,
+      @Nullable LayoutThreadPoolConfiguration bgThreadPoolConfig) {
+    createForTag(tag, mainThreadPoolConfig, bgThreadPoolConfig, null, true);
+  }
+
+  private static synchronized void createForTag(
+      String tag,
+      @Nullable LayoutThreadPoolConfiguration mainThreadPoolConfig,
+      @Nullable LayoutThreadPoolConfiguration bgThreadPoolConfig,
+      @Nullable Set<String> enabledComponents,
+      boolean isEnabledForAllComponents) {
     if (sSplitLayoutResolvers.containsKey(tag)) {
       return;
     }
 
     sSplitLayoutResolvers.put(
-        tag, new SplitLayoutResolver(mainThreadPoolConfig, bgThreadPoolConfig, enabledComponents));
+        tag,
+        new SplitLayoutResolver(
+            mainThreadPoolConfig,
+            bgThreadPoolConfig,
+            enabledComponents,
+            isEnabledForAllComponents));
   }
 
   private SplitLayoutResolver(
       @Nullable LayoutThreadPoolConfiguration mainThreadPoolConfig,
       @Nullable LayoutThreadPoolConfiguration bgThreadPoolConfig,
-      Set<String> enabledComponents) {
+      @Nullable Set<String> enabledComponents,
+      boolean isEnabledForAllComponents) {
     if (mainThreadPoolConfig != null) {
-      final LayoutThreadPoolExecutor mainExecutor =
-          new LayoutThreadPoolExecutor(
-              mainThreadPoolConfig.getCorePoolSize(),
-              mainThreadPoolConfig.getMaxPoolSize(),
-              mainThreadPoolConfig.getThreadPriority());
-      mainService = new ExecutorCompletionService(mainExecutor);
+      mMainPool = new TaskPool(mainThreadPoolConfig);
     }
 
     if (bgThreadPoolConfig != null) {
-      final LayoutThreadPoolExecutor bgExecutor =
-          new LayoutThreadPoolExecutor(
-              bgThreadPoolConfig.getCorePoolSize(),
-              bgThreadPoolConfig.getMaxPoolSize(),
-              bgThreadPoolConfig.getThreadPriority());
-      bgService = new ExecutorCompletionService(bgExecutor);
+      mBgPool = new TaskPool(bgThreadPoolConfig);
     }
 
     if (enabledComponents != null) {
       mEnabledComponents.addAll(enabledComponents);
     }
+    mIsEnabledForAllComponents = isEnabledForAllComponents;
   }
 
   static boolean isComponentEnabledForSplitting(ComponentContext c, Component component) {
     final SplitLayoutResolver resolver = getResolver(c);
     return resolver != null
-        && resolver.mEnabledComponents.contains(component.getClass().getSimpleName());
+        && (resolver.mIsEnabledForAllComponents
+            || resolver.mEnabledComponents.contains(component.getClass().getSimpleName()));
   }
 
   /**
-   * Execute each child layout on a thread from one of the pools, depending which thread layout was
-   * called from. Returns false if the configuration does not allow splitting layout on the caller
-   * thread.
+   * Lays out the children, in parallel if they are expensive enough, and adds them to the node.
+   * Returns false if the configuration does not allow splitting layout on the caller thread, in
+   * which case the children are left to the caller.
    */
   static boolean resolveLayouts(
       ComponentContext c, List<Component> children, final InternalNode node) {
     final SplitLayoutResolver resolver = getResolver(c);
-    if (resolver == null || !resolver.canSplitLayoutOnCurrentThread()) {
+    final TaskPool pool = resolver == null ? null : resolver.getPoolForCurrentThread();
+    if (pool == null) {
       return false;
     }
 
-    final ExecutorCompletionService service =
-        ThreadUtils.isMainThread() ? resolver.mainService : resolver.bgService;
-
-    final InternalNode[] results = new InternalNode[children.size()];
-    int size = children.size();
-
-    for (int i = 1; i < size; i++) {
+    final LayoutCostModel costModel = resolver.mCostModel;
+    final int size = children.size();
+    long totalCost = 0;
+    for (int i = 0; i < size; i++) {
       final Component child = children.get(i);
-      final int finalI = i;
-
-      final Runnable runnable =
-          new Runnable() {
-            @Override
-            public void run() {
-              if (Looper.myLooper() == null) {
-                Looper.prepare();
-              }
-              results[finalI] = getChildLayout(node.getContext(), child);
-            }
-          };
-      service.submit(runnable, i - 1);
-    }
-
-    // Schedule one layout on the caller thread too so we're not idle while waiting for other tasks.
-    // We can manually decide which one should go here when configuring.
-    results[0] = getChildLayout(node.getContext(), children.get(0));
-
-    for (int i = 0; i < size - 1; i++) {
-      try {
-        service.take();
-      } catch (InterruptedException e) {
-        throw new RuntimeException("Could not execute split layout task", e);
+      if (child != null) {
+        totalCost += costModel.getCost(child);
       }
     }
 
-    // After all tasks have been executed, add the children layouts to the InternalNode.
-    for (int i = 0; i < results.length; i++) {
+    final int chunkCount =
+        (int) Math.min(Math.min(pool.mParallelism, size), totalCost / MIN_CHUNK_COST_NS);
+    final InternalNode[] results = new InternalNode[size];
+    if (chunkCount < 2) {
+      // Not worth a split, but still measure the children so that we know next time.
+      resolveChunk(node.getContext(), children, 0, size, results, costModel);
+    } else {
+      resolveChunks(node.getContext(), children, totalCost, chunkCount, results, costModel, pool);
+    }
+
+    // After all children have been laid out, add their layouts to the InternalNode.
+    for (int i = 0; i < size; i++) {
       node.child(results[i]);
     }
 
     return true;
   }
 
+  private static void resolveChunks(
+      ComponentContext c,
+      List<Component> children,
+      long totalCost,
+      int chunkCount,
+      InternalNode[] results,
+      LayoutCostModel costModel,
+      TaskPool pool) {
+    final int size = children.size();
+    final CountDownLatch latch = new CountDownLatch(chunkCount - 1);
+    final ChunkTask[] tasks = new ChunkTask[chunkCount - 1];
+
+    // Cut the children into contiguous chunks of about the same estimated cost, the first one
+    // being kept for the caller thread.
+    final long targetCost = totalCost / chunkCount;
+    int firstChunkEnd = -1;
+    int chunkStart = 0;
+    long chunkCost = 0;
+    int taskCount = 0;
+    for (int i = 0; i < size; i++) {
+      final Component child = children.get(i);
+      chunkCost += child == null ? 0 : costModel.getCost(child);
+
+      final int remainingChunks = chunkCount - taskCount - (firstChunkEnd < 0 ? 0 : 1);
+      final boolean isLastChild = i == size - 1;
+      if (isLastChild || (chunkCost >= targetCost && remainingChunks > 1)) {
+        if (firstChunkEnd < 0) {
+          firstChunkEnd = i + 1;
+        } else {
+          tasks[taskCount++] =
+              new ChunkTask(c, children, chunkStart, i + 1, results, costModel, latch);
+        }
+        chunkStart = i + 1;
+        chunkCost = 0;
+      }
+    }
+
+    // Chunks that came out empty (costs changed since the estimate) are done already.
+    for (int i = taskCount; i < tasks.length; i++) {
+      latch.countDown();
+    }
+
+    for (int i = 0; i < taskCount; i++) {
+      pool.fork(tasks[i]);
+    }
+
+    resolveChunk(c, children, 0, firstChunkEnd, results, costModel);
+
+    // Run the chunks nobody picked up yet here rather than waiting for a pool thread.
+    for (int i = 0; i < taskCount; i++) {
+      tasks[i].tryRun();
+    }
+    pool.helpUntilDone(latch);
+
+    for (int i = 0; i < taskCount; i++) {
+      tasks[i].rethrowFailure();
+    }
+  }
+
+  private static void resolveChunk(
+      ComponentContext c,
+      List<Component> children,
+      int start,
+      int end,
+      InternalNode[] results,
+      LayoutCostModel costModel) {
+    for (int i = start; i < end; i++) {
+      final Component child = children.get(i);
+      if (child == null) {
+        results[i] = NULL_LAYOUT;
+        continue;
+      }
+
+      final long startTime = System.nanoTime();
+      results[i] = getChildLayout(c, child);
+      costModel.record(child, System.nanoTime() - startTime);
+    }
+  }
+
   private static InternalNode getChildLayout(ComponentContext c, Component child) {
     return child != null ? Layout.create(c, child) : NULL_LAYOUT;
   }
 
-  private boolean canSplitLayoutOnCurrentThread() {
-    return ThreadUtils.isMainThread() ? mainService != null : bgService != null;
+  private @Nullable TaskPool getPoolForCurrentThread() {
+    return ThreadUtils.isMainThread() ? mMainPool : mBgPool;
+  }
+
+  @VisibleForTesting
+  LayoutCostModel getCostModel() {
+    return mCostModel;
   }
 
   private static @Nullable SplitLayoutResolver getResolver(ComponentContext c) {
@@ -168,18 +275,134 @@ public class SplitLayoutResolver {
       return null;
     }
 
-    synchronized ("SplitLayoutResolver.class") {
+    synchronized (SplitLayoutResolver.class) {
       return sSplitLayoutResolvers.get(splitTag);
     }
   }
 
   @VisibleForTesting
-  static void clearTag(String tag) {
+  static synchronized void clearTag(String tag) {
     sSplitLayoutResolvers.remove(tag);
   }
 
   @VisibleForTesting
-  static SplitLayoutResolver getForTag(String tag) {
+  static synchronized SplitLayoutResolver getForTag(String tag) {
     return sSplitLayoutResolvers.get(tag);
   }
+
+  /**
+   * The threads of a pool and the chunks that were forked to it but that no thread picked up yet.
+   * Each fork wakes up one pool thread, which runs the oldest pending chunk if there's still one.
+   */
+  private static class TaskPool {
+    private final Executor mExecutor;
+    private final int mParallelism;
+    private final ConcurrentLinkedQueue<ChunkTask> mPendingTasks = new ConcurrentLinkedQueue<>();
+    private final Runnable mRunPendingTask =
+        new Runnable() {
+          @Override
+          public void run() {
+            runPendingTask();
+          }
+        };
+
+    TaskPool(LayoutThreadPoolConfiguration config) {
+      this(
+          new LayoutThreadPoolExecutor(
+              config.getCorePoolSize(), config.getMaxPoolSize(), config.getThreadPriority()),
+          // The caller thread works too.
+          config.getMaxPoolSize() + 1);
+    }
+
+    TaskPool(Executor executor, int parallelism) {
+      mExecutor = executor;
+      mParallelism = parallelism;
+    }
+
+    void fork(ChunkTask task) {
+      mPendingTasks.add(task);
+      mExecutor.execute(mRunPendingTask);
+    }
+
+    /** Runs pending chunks, of any split, until the latch opens or there is nothing left to run. */
+    void helpUntilDone(CountDownLatch latch) {
+      while (latch.getCount() > 0) {
+        if (!runPendingTask()) {
+          try {
+            latch.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException("Could not execute split layout task", e);
+          }
+        }
+      }
+    }
+
+    /** @return false if there was no pending chunk to run. */
+    private boolean runPendingTask() {
+      ChunkTask task;
+      while ((task = mPendingTasks.poll()) != null) {
+        if (task.tryRun()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /** Lays out a range of children, on whichever thread claims it first. */
+  private static class ChunkTask {
+    private final ComponentContext mContext;
+    private final List<Component> mChildren;
+    private final int mStart;
+    private final int mEnd;
+    private final InternalNode[] mResults;
+    private final LayoutCostModel mCostModel;
+    private final CountDownLatch mLatch;
+    private final AtomicBoolean mClaimed = new AtomicBoolean();
+    private volatile @Nullable Throwable mFailure;
+
+    ChunkTask(
+        ComponentContext c,
+        List<Component> children,
+        int start,
+        int end,
+        InternalNode[] results,
+        LayoutCostModel costModel,
+        CountDownLatch latch) {
+      mContext = c;
+      mChildren = children;
+      mStart = start;
+      mEnd = end;
+      mResults = results;
+      mCostModel = costModel;
+      mLatch = latch;
+    }
+
+    /** @return false if another thread already claimed this chunk. */
+    boolean tryRun() {
+      if (!mClaimed.compareAndSet(false, true)) {
+        return false;
+      }
+
+      try {
+        resolveChunk(mContext, mChildren, mStart, mEnd, mResults, mCostModel);
+      } catch (Throwable t) {
+        mFailure = t;
+      } finally {
+        mLatch.countDown();
+      }
+      return true;
+    }
+
+    void rethrowFailure() {
+      final Throwable failure = mFailure;
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      } else if (failure instanceof Error) {
+        throw (Error) failure;
+      } else if (failure != null) {
+        throw new RuntimeException("Could not execute split layout task", failure);
+      }
+    }
+  }
 }
@@ -19,12 +19,10 @@ package com.facebook.litho;
 import static com.facebook.litho.ComponentLifecycle.StateUpdate;
 
 import android.support.annotation.Nullable;
-import android.support.v4.util.Pools;
 import com.facebook.infer.annotation.ThreadSafe;
 import com.facebook.litho.config.ComponentsConfiguration;
 import com.facebook.litho.stats.LithoStats;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -32,67 +30,66 @@ import javax.annotation.concurrent.GuardedBy;
 
 /**
  * Holds information about the current State of the components in a Component Tree.
+ *
+ * <p>Its maps are {@link PersistentHashMap}s: the StateHandler of a layout shares the maps of the
+ * one of its ComponentTree instead of copying them, and committing the layout only applies the
+ * entries it changed. The maps are only replaced while holding the lock of the StateHandler, and
+ * are read without it, so that reading the state doesn't wait for a layout thread.
  */
 public class StateHandler {
 
   private static final int INITIAL_STATE_UPDATE_LIST_CAPACITY = 4;
-  private static final int INITIAL_MAP_CAPACITY = 4;
-  private static final int POOL_CAPACITY = 10;
-
-  @Nullable private static final Pools.SynchronizedPool<List<StateUpdate>> sStateUpdatesListPool;
-
-  @Nullable
-  private static final Pools.SynchronizedPool<Map<String, List<StateUpdate>>>
-      sPendingStateUpdatesMapPool;
-
-  @Nullable
-  private static final Pools.SynchronizedPool<Map<String, StateContainer>> sStateContainersMapPool;
-
-  static {
-    if (ComponentsConfiguration.useStateHandlers) {
-      sStateUpdatesListPool = new Pools.SynchronizedPool<>(POOL_CAPACITY);
-      sPendingStateUpdatesMapPool = new Pools.SynchronizedPool<>(POOL_CAPACITY);
-      sStateContainersMapPool = new Pools.SynchronizedPool<>(POOL_CAPACITY);
-    } else {
-      sStateUpdatesListPool = null;
-      sPendingStateUpdatesMapPool = null;
-      sStateContainersMapPool = null;
-    }
-  }
 
   /**
-   * List of state updates that will be applied during the next layout pass.
+   * List of state updates that will be applied during the next layout pass. A list is never
+   * modified once it's in the map, since the map can be shared with other StateHandlers.
    */
-  @GuardedBy("this")
-  private Map<String, List<StateUpdate>> mPendingStateUpdates;
+  private volatile PersistentHashMap<String, List<StateUpdate>> mPendingStateUpdates =
+      PersistentHashMap.empty();
 
   /** List of transitions from state update that will be applied on next mount. */
-  @GuardedBy("this")
-  @Nullable
-  private Map<String, List<Transition>> mPendingStateUpdateTransitions;
+  private volatile @Nullable PersistentHashMap<String, List<Transition>>
+      mPendingStateUpdateTransitions;
 
   /**
    * Maps a component key to a component object that retains the current state values for that key.
    */
-  @GuardedBy("this")
-  public Map<String, StateContainer> mStateContainers;
+  private volatile PersistentHashMap<String, StateContainer> mStateContainers =
+      PersistentHashMap.empty();
 
   /**
    * Contains all keys of components that were present in the current ComponentTree and therefore
-   * their StateContainer needs to be kept around.
+   * their StateContainer needs to be kept around. Only used by the StateHandler of a layout, which
+   * builds it while creating the layout.
+   */
+  @GuardedBy("this")
+  private @Nullable HashSet<String> mNeededStateContainers;
+
+  /**
+   * Same as {@link #mPendingStateUpdates}, {@link #mStateContainers} and {@link
+   * #mNeededStateContainers}, for components with hashed global keys.
    */
+  private volatile PersistentLongHashMap<List<StateUpdate>> mHashedPendingStateUpdates =
+      PersistentLongHashMap.empty();
+
+  private volatile PersistentLongHashMap<StateContainer> mHashedStateContainers =
+      PersistentLongHashMap.empty();
+
   @GuardedBy("this")
-  public HashSet<String> mNeededStateContainers;
+  private @Nullable LongHashMap<Boolean> mNeededHashedStateContainers;
 
+  /** Shares the state of the given StateHandler, in O(1). */
   void init(@Nullable StateHandler stateHandler) {
     if (stateHandler == null) {
       return;
     }
 
     synchronized (this) {
-      copyPendingStateUpdatesMap(stateHandler.getPendingStateUpdates());
-      copyCurrentStateContainers(stateHandler.getStateContainers());
-      copyPendingStateTransitions(stateHandler.getPendingStateUpdateTransitions());
+      mPendingStateUpdates = stateHandler.mPendingStateUpdates;
+      mStateContainers = stateHandler.mStateContainers;
+      mPendingStateUpdateTransitions = stateHandler.mPendingStateUpdateTransitions;
+      mHashedPendingStateUpdates = stateHandler.mHashedPendingStateUpdates;
+      mHashedStateContainers = stateHandler.mHashedStateContainers;
     }
   }
 
@@ -102,8 +99,61 @@ public class StateHandler {
         : null;
   }
 
-  public synchronized boolean isEmpty() {
-    return mStateContainers == null || mStateContainers.isEmpty();
+  public boolean isEmpty() {
+    return mStateContainers.isEmpty() && mHashedStateContainers.isEmpty();
+  }
+
+  /** @return whether there are state updates that weren't applied by a layout pass yet. */
+  boolean hasPendingUpdates() {
+    return !mPendingStateUpdates.isEmpty() || !mHashedPendingStateUpdates.isEmpty();
+  }
+
+  /** @return whether there are state updates queued for the given component. */
+  boolean hasPendingUpdates(Component component) {
+    if (component.hasGlobalKeyHash()) {
+      return mHashedPendingStateUpdates.containsKey(component.getGlobalKeyHash());
+    }
+
+    final String key = component.getGlobalKey();
+    return key != null && mPendingStateUpdates.containsKey(key);
+  }
+
+  /**
+   * Keeps the state of all the components of the current tree, for a layout pass that only creates
+   * some of them again. The state of the components that it removes from the tree must be released
+   * with {@link #releaseStateContainer(Component)}.
+   */
+  synchronized void keepAllStateContainers() {
+    maybeInitNeededStateContainers();
+    mNeededStateContainers.addAll(mStateContainers.keySet());
+
+    if (!mHashedStateContainers.isEmpty()) {
+      if (mNeededHashedStateContainers == null) {
+        mNeededHashedStateContainers = new LongHashMap<>();
+      }
+      final PersistentLongHashMap.Cursor<StateContainer> cursor = mHashedStateContainers.cursor();
+      while (cursor.moveToNext()) {
+        mNeededHashedStateContainers.put(cursor.key(), Boolean.TRUE);
+      }
+    }
+  }
+
+  /**
+   * Stops keeping the state of a component, see {@link #keepAllStateContainers()}. If the component
+   * is created again by the layout pass, its state is kept again.
+   */
+  synchronized void releaseStateContainer(Component component) {
+    if (!component.hasState()) {
+      return;
+    }
+
+    if (component.hasGlobalKeyHash()) {
+      if (mNeededHashedStateContainers != null) {
+        mNeededHashedStateContainers.remove(component.getGlobalKeyHash());
+      }
+    } else if (mNeededStateContainers != null) {
+      mNeededStateContainers.remove(component.getGlobalKey());
+    }
   }
 
   /**
@@ -113,16 +163,24 @@ public class StateHandler {
    * @param stateUpdate the state update to apply to the component
    */
   synchronized void queueStateUpdate(String key, StateUpdate stateUpdate) {
-    maybeInitPendingUpdates();
-
-    List<StateUpdate> pendingStateUpdatesForKey = mPendingStateUpdates.get(key);
-
-    if (pendingStateUpdatesForKey == null) {
-      pendingStateUpdatesForKey = StateHandler.acquireStateUpdatesList();
-      mPendingStateUpdates.put(key, pendingStateUpdatesForKey);
+    // Components whose hash collides with another one's are identified by their string key.
+    if (ComponentsConfiguration.useHashedGlobalKeys
+        && !ComponentKeyUtils.isCollidingGlobalKey(key)) {
+      queueStateUpdate(ComponentKeyUtils.getGlobalKeyHash(key), stateUpdate);
+      return;
     }
 
-    pendingStateUpdatesForKey.add(stateUpdate);
+    final PersistentHashMap<String, List<StateUpdate>> pendingStateUpdates = mPendingStateUpdates;
+    mPendingStateUpdates =
+        pendingStateUpdates.plus(key, withStateUpdate(pendingStateUpdates.get(key), stateUpdate));
+  }
+
+  private synchronized void queueStateUpdate(long keyHash, StateUpdate stateUpdate) {
+    final PersistentLongHashMap<List<StateUpdate>> pendingStateUpdates =
+        mHashedPendingStateUpdates;
+    mHashedPendingStateUpdates =
+        pendingStateUpdates.plus(
+            keyHash, withStateUpdate(pendingStateUpdates.get(keyHash), stateUpdate));
   }
 
   /**
@@ -133,13 +191,17 @@ public class StateHandler {
    */
   @ThreadSafe(enableChecks = false)
   void applyStateUpdatesForComponent(Component component) {
-    maybeInitStateContainers();
     maybeInitNeededStateContainers();
 
     if (!component.hasState()) {
       return;
     }
 
+    if (component.hasGlobalKeyHash()) {
+      applyStateUpdatesForHashedKey(component);
+      return;
+    }
+
     final String key = component.getGlobalKey();
     final StateContainer currentStateContainer;
 
@@ -154,14 +216,48 @@ public class StateHandler {
       component.createInitialState(component.getScopedContext());
     }
 
-    final List<StateUpdate> stateUpdatesForKey;
+    applyStateUpdates(component, mPendingStateUpdates.get(key));
+
+    synchronized (this) {
+      final StateContainer stateContainer = component.getStateContainer();
+      mStateContainers = mStateContainers.plus(key, stateContainer);
+      maybeQueuePendingStateUpdateTransitions(key, stateContainer);
+    }
+  }
+
+  /** Same as {@link #applyStateUpdatesForComponent(Component)}, keyed by the global key hash. */
+  private void applyStateUpdatesForHashedKey(Component component) {
+    final long keyHash = component.getGlobalKeyHash();
+    final StateContainer currentStateContainer;
+
+    synchronized (this) {
+      if (mNeededHashedStateContainers == null) {
+        mNeededHashedStateContainers = new LongHashMap<>();
+      }
+      currentStateContainer = mHashedStateContainers.get(keyHash);
+      mNeededHashedStateContainers.put(keyHash, Boolean.TRUE);
+    }
+
+    // A state container of another type means that the hash collided with the one of a component
+    // from a previous tree, in which case the state can't be carried over.
+    if (currentStateContainer != null
+        && currentStateContainer.getClass() == component.getStateContainer().getClass()) {
+      component.transferState(currentStateContainer, component.getStateContainer());
+    } else {
+      component.createInitialState(component.getScopedContext());
+    }
+
+    applyStateUpdates(component, mHashedPendingStateUpdates.get(keyHash));
 
     synchronized (this) {
-      stateUpdatesForKey = mPendingStateUpdates == null
-          ? null
-          : mPendingStateUpdates.get(key);
+      final StateContainer stateContainer = component.getStateContainer();
+      mHashedStateContainers = mHashedStateContainers.plus(keyHash, stateContainer);
+      maybeQueuePendingStateUpdateTransitions(component.getGlobalKey(), stateContainer);
     }
+  }
 
+  private static void applyStateUpdates(
+      Component component, @Nullable List<StateUpdate> stateUpdatesForKey) {
     // If there are no state updates pending for this component, simply store its current state.
     if (stateUpdatesForKey != null) {
       for (StateUpdate update : stateUpdatesForKey) {
@@ -172,114 +268,223 @@ public class StateHandler {
       }
       LithoStats.incStateUpdate(stateUpdatesForKey.size());
     }
+  }
 
-    synchronized (this) {
-      final StateContainer stateContainer = component.getStateContainer();
-      mStateContainers.put(key, stateContainer);
-      if (stateContainer instanceof ComponentLifecycle.TransitionContainer) {
-        final List<Transition> transitions =
-            ((ComponentLifecycle.TransitionContainer) stateContainer).consumeTransitions();
-        if (!transitions.isEmpty()) {
-          maybeInitPendingStateUpdateTransitions();
-          mPendingStateUpdateTransitions.put(key, transitions);
-        }
+  private synchronized void maybeQueuePendingStateUpdateTransitions(
+      String key, StateContainer stateContainer) {
+    if (stateContainer instanceof ComponentLifecycle.TransitionContainer) {
+      final List<Transition> transitions =
+          ((ComponentLifecycle.TransitionContainer) stateContainer).consumeTransitions();
+      if (!transitions.isEmpty()) {
+        final PersistentHashMap<String, List<Transition>> pendingTransitions =
+            mPendingStateUpdateTransitions;
+        mPendingStateUpdateTransitions =
+            (pendingTransitions != null
+                    ? pendingTransitions
+                    : PersistentHashMap.<String, List<Transition>>empty())
+                .plus(key, transitions);
       }
     }
   }
 
   /**
    * Removes a list of state updates that have been applied from the pending state updates list and
-   *  updates the map of current components with the given components.
+   * updates the map of current components with the given components. Only the entries that the
+   * layout pass changed are visited.
+   *
    * @param stateHandler state handler that was used to apply state updates in a layout pass
    */
   void commit(StateHandler stateHandler) {
-    clearStateUpdates(stateHandler.getPendingStateUpdates());
-    clearUnusedStateContainers(stateHandler);
-    copyCurrentStateContainers(stateHandler.getStateContainers());
-    copyPendingStateTransitions(stateHandler.getPendingStateUpdateTransitions());
-  }
+    final PersistentHashMap<String, List<StateUpdate>> appliedStateUpdates;
+    final PersistentLongHashMap<List<StateUpdate>> appliedHashedStateUpdates;
+    final PersistentHashMap<String, StateContainer> stateContainers;
+    final PersistentLongHashMap<StateContainer> hashedStateContainers;
+    final PersistentHashMap<String, List<Transition>> pendingStateUpdateTransitions;
+
+    synchronized (stateHandler) {
+      appliedStateUpdates = stateHandler.mPendingStateUpdates;
+      appliedHashedStateUpdates = stateHandler.mHashedPendingStateUpdates;
+      stateContainers =
+          withoutUnusedStateContainers(
+              stateHandler.mStateContainers, stateHandler.mNeededStateContainers);
+      hashedStateContainers =
+          withoutUnusedHashedStateContainers(
+              stateHandler.mHashedStateContainers, stateHandler.mNeededHashedStateContainers);
+      pendingStateUpdateTransitions = stateHandler.mPendingStateUpdateTransitions;
+    }
 
-  private void clearStateUpdates(Map<String, List<StateUpdate>> appliedStateUpdates) {
     synchronized (this) {
-      if (appliedStateUpdates == null ||
-          mPendingStateUpdates == null ||
-          mPendingStateUpdates.isEmpty()) {
-        return;
+      mPendingStateUpdates = withoutAppliedStateUpdates(mPendingStateUpdates, appliedStateUpdates);
+      mHashedPendingStateUpdates =
+          withoutAppliedHashedStateUpdates(mHashedPendingStateUpdates, appliedHashedStateUpdates);
+
+      if (!stateContainers.isEmpty()) {
+        mStateContainers = stateContainers;
+      }
+      if (!hashedStateContainers.isEmpty()) {
+        mHashedStateContainers = hashedStateContainers;
       }
-    }
 
-    for (String key : appliedStateUpdates.keySet()) {
-      final List<StateUpdate> pendingStateUpdatesForKey;
-      synchronized (this) {
-        pendingStateUpdatesForKey = mPendingStateUpdates.get(key);
+      if (pendingStateUpdateTransitions != null && !pendingStateUpdateTransitions.isEmpty()) {
+        mPendingStateUpdateTransitions =
+            withTransitions(mPendingStateUpdateTransitions, pendingStateUpdateTransitions);
       }
+    }
+  }
+
+  /**
+   * @return the given pending state updates without the ones that were applied. Updates queued
+   *     after the layout pass started are appended to the lists it applied, and are kept.
+   */
+  private static PersistentHashMap<String, List<StateUpdate>> withoutAppliedStateUpdates(
+      PersistentHashMap<String, List<StateUpdate>> pendingStateUpdates,
+      PersistentHashMap<String, List<StateUpdate>> appliedStateUpdates) {
+    if (pendingStateUpdates == appliedStateUpdates) {
+      // Nothing was queued since the layout pass started.
+      return PersistentHashMap.empty();
+    }
+
+    PersistentHashMap<String, List<StateUpdate>> remainingStateUpdates = pendingStateUpdates;
+    for (Map.Entry<String, List<StateUpdate>> entry : appliedStateUpdates.entrySet()) {
+      final String key = entry.getKey();
+      final List<StateUpdate> pendingStateUpdatesForKey = remainingStateUpdates.get(key);
 
       if (pendingStateUpdatesForKey == null) {
         continue;
       }
 
-      final List<StateUpdate> appliedStateUpdatesForKey = appliedStateUpdates.get(key);
+      final List<StateUpdate> appliedStateUpdatesForKey = entry.getValue();
       if (pendingStateUpdatesForKey.size() == appliedStateUpdatesForKey.size()) {
-        synchronized (this) {
-          mPendingStateUpdates.remove(key);
-        }
-        releaseStateUpdatesList(pendingStateUpdatesForKey);
+        remainingStateUpdates = remainingStateUpdates.minus(key);
       } else {
-        pendingStateUpdatesForKey.removeAll(appliedStateUpdatesForKey);
+        final List<StateUpdate> remainingStateUpdatesForKey =
+            new ArrayList<>(pendingStateUpdatesForKey);
+        remainingStateUpdatesForKey.removeAll(appliedStateUpdatesForKey);
+        remainingStateUpdates = remainingStateUpdates.plus(key, remainingStateUpdatesForKey);
       }
     }
+
+    return remainingStateUpdates;
   }
 
-  synchronized void release() {
-    if (mPendingStateUpdates != null) {
-      mPendingStateUpdates.clear();
-      sPendingStateUpdatesMapPool.release(mPendingStateUpdates);
-      mPendingStateUpdates = null;
+  /** Same as {@link #withoutAppliedStateUpdates}, for components with hashed global keys. */
+  private static PersistentLongHashMap<List<StateUpdate>> withoutAppliedHashedStateUpdates(
+      PersistentLongHashMap<List<StateUpdate>> pendingStateUpdates,
+      PersistentLongHashMap<List<StateUpdate>> appliedStateUpdates) {
+    if (pendingStateUpdates == appliedStateUpdates) {
+      return PersistentLongHashMap.empty();
     }
 
-    mPendingStateUpdateTransitions = null;
+    PersistentLongHashMap<List<StateUpdate>> remainingStateUpdates = pendingStateUpdates;
+    final PersistentLongHashMap.Cursor<List<StateUpdate>> cursor = appliedStateUpdates.cursor();
+    while (cursor.moveToNext()) {
+      final long keyHash = cursor.key();
+      final List<StateUpdate> pendingStateUpdatesForKey = remainingStateUpdates.get(keyHash);
+
+      if (pendingStateUpdatesForKey == null) {
+        continue;
+      }
 
-    if (mStateContainers != null) {
-      mStateContainers.clear();
-      sStateContainersMapPool.release(mStateContainers);
-      mStateContainers = null;
+      final List<StateUpdate> appliedStateUpdatesForKey = cursor.value();
+      if (pendingStateUpdatesForKey.size() == appliedStateUpdatesForKey.size()) {
+        remainingStateUpdates = remainingStateUpdates.minus(keyHash);
+      } else {
+        final List<StateUpdate> remainingStateUpdatesForKey =
+            new ArrayList<>(pendingStateUpdatesForKey);
+        remainingStateUpdatesForKey.removeAll(appliedStateUpdatesForKey);
+        remainingStateUpdates = remainingStateUpdates.plus(keyHash, remainingStateUpdatesForKey);
+      }
     }
 
-    mNeededStateContainers = null;
+    return remainingStateUpdates;
+  }
+
+  private static PersistentHashMap<String, StateContainer> withoutUnusedStateContainers(
+      PersistentHashMap<String, StateContainer> stateContainers,
+      @Nullable HashSet<String> neededStateContainers) {
+    // The needed keys are all in the map, so if there are as many, every state container is used.
+    if (neededStateContainers == null || neededStateContainers.size() == stateContainers.size()) {
+      return stateContainers;
+    }
+
+    PersistentHashMap<String, StateContainer> usedStateContainers = stateContainers;
+    for (String key : stateContainers.keySet()) {
+      if (!neededStateContainers.contains(key)) {
+        usedStateContainers = usedStateContainers.minus(key);
+      }
+    }
+
+    return usedStateContainers;
   }
 
-  private static List<StateUpdate> acquireStateUpdatesList() {
-    return acquireStateUpdatesList(null);
+  private static PersistentLongHashMap<StateContainer> withoutUnusedHashedStateContainers(
+      PersistentLongHashMap<StateContainer> stateContainers,
+      @Nullable LongHashMap<Boolean> neededStateContainers) {
+    if (neededStateContainers == null || neededStateContainers.size() == stateContainers.size()) {
+      return stateContainers;
+    }
+
+    PersistentLongHashMap<StateContainer> usedStateContainers = stateContainers;
+    final PersistentLongHashMap.Cursor<StateContainer> cursor = stateContainers.cursor();
+    while (cursor.moveToNext()) {
+      if (!neededStateContainers.containsKey(cursor.key())) {
+        usedStateContainers = usedStateContainers.minus(cursor.key());
+      }
+    }
+
+    return usedStateContainers;
   }
 
-  private static List<StateUpdate> acquireStateUpdatesList(List<StateUpdate> copyFrom) {
-    List<StateUpdate> list = sStateUpdatesListPool.acquire();
-    if (list == null) {
-      list = new ArrayList<>(
-          copyFrom == null ? INITIAL_STATE_UPDATE_LIST_CAPACITY : copyFrom.size());
+  private static PersistentHashMap<String, List<Transition>> withTransitions(
+      @Nullable PersistentHashMap<String, List<Transition>> pendingTransitions,
+      PersistentHashMap<String, List<Transition>> transitions) {
+    if (pendingTransitions == null || pendingTransitions.isEmpty()) {
+      return transitions;
     }
-    if (copyFrom != null) {
-      list.addAll(copyFrom);
+
+    PersistentHashMap<String, List<Transition>> allTransitions = pendingTransitions;
+    for (Map.Entry<String, List<Transition>> entry : transitions.entrySet()) {
+      allTransitions = allTransitions.plus(entry.getKey(), entry.getValue());
     }
 
-    return list;
+    return allTransitions;
   }
 
-  private static void releaseStateUpdatesList(List<StateUpdate> list) {
-    list.clear();
-    sStateUpdatesListPool.release(list);
+  /** @return a copy of the given list of state updates with the given one appended. */
+  private static List<StateUpdate> withStateUpdate(
+      @Nullable List<StateUpdate> stateUpdates, StateUpdate stateUpdate) {
+    final List<StateUpdate> newStateUpdates =
+        new ArrayList<>(
+            stateUpdates == null ? INITIAL_STATE_UPDATE_LIST_CAPACITY : stateUpdates.size() + 1);
+    if (stateUpdates != null) {
+      newStateUpdates.addAll(stateUpdates);
+    }
+    newStateUpdates.add(stateUpdate);
+
+    return newStateUpdates;
   }
 
-  synchronized Map<String, StateContainer> getStateContainers() {
+  synchronized void release() {
+    mPendingStateUpdates = PersistentHashMap.empty();
+    mPendingStateUpdateTransitions = null;
+    mStateContainers = PersistentHashMap.empty();
+    mNeededStateContainers = null;
+
+    mHashedPendingStateUpdates = PersistentLongHashMap.empty();
+    mHashedStateContainers = PersistentLongHashMap.empty();
+    mNeededHashedStateContainers = null;
+  }
+
+  Map<String, StateContainer> getStateContainers() {
     return mStateContainers;
   }
 
-  synchronized Map<String, List<StateUpdate>> getPendingStateUpdates() {
+  Map<String, List<StateUpdate>> getPendingStateUpdates() {
     return mPendingStateUpdates;
   }
 
   @Nullable
-  synchronized Map<String, List<Transition>> getPendingStateUpdateTransitions() {
+  Map<String, List<Transition>> getPendingStateUpdateTransitions() {
     return mPendingStateUpdateTransitions;
   }
 
@@ -298,96 +503,9 @@ public class StateHandler {
     mPendingStateUpdateTransitions = null;
   }
 
-  /**
-   * @return copy the information from the given map of state updates into the map of pending state
-   * updates.
-   */
-  private void copyPendingStateUpdatesMap(
-      Map<String, List<StateUpdate>> pendingStateUpdates) {
-    if (pendingStateUpdates == null || pendingStateUpdates.isEmpty()) {
-      return;
-    }
-
-    maybeInitPendingUpdates();
-    for (String key : pendingStateUpdates.keySet()) {
-      synchronized (this) {
-        mPendingStateUpdates.put(key, acquireStateUpdatesList(pendingStateUpdates.get(key)));
-      }
-    }
-  }
-
-  /**
-   * @return copy the list of given state containers into the map that holds the current
-   * state containers of components.
-   */
-  private void copyCurrentStateContainers(Map<String, StateContainer> stateContainers) {
-    if (stateContainers == null || stateContainers.isEmpty()) {
-      return;
-    }
-
-    synchronized (this) {
-      maybeInitStateContainers();
-      mStateContainers.clear();
-      mStateContainers.putAll(stateContainers);
-    }
-  }
-
-  private static void clearUnusedStateContainers(StateHandler currentStateHandler) {
-    final HashSet<String> neededStateContainers = currentStateHandler.mNeededStateContainers;
-    final List<String> stateContainerKeys = new ArrayList<>();
-    if (neededStateContainers == null || currentStateHandler.mStateContainers == null) {
-      return;
-    }
-
-    stateContainerKeys.addAll(currentStateHandler.mStateContainers.keySet());
-
-    for (String key : stateContainerKeys) {
-      if (!neededStateContainers.contains(key)) {
-        currentStateHandler.mStateContainers.remove(key);
-      }
-    }
-  }
-
-  private void copyPendingStateTransitions(
-      @Nullable Map<String, List<Transition>> pendingStateUpdateTransitions) {
-    if (pendingStateUpdateTransitions == null || pendingStateUpdateTransitions.isEmpty()) {
-      return;
-    }
-
-    synchronized (this) {
-      maybeInitPendingStateUpdateTransitions();
-      mPendingStateUpdateTransitions.putAll(pendingStateUpdateTransitions);
-    }
-  }
-
-  private synchronized void maybeInitStateContainers() {
-    if (mStateContainers == null) {
-      mStateContainers = sStateContainersMapPool.acquire();
-      if (mStateContainers == null) {
-        mStateContainers = new HashMap<>(INITIAL_MAP_CAPACITY);
-      }
-    }
-  }
-
   private synchronized void maybeInitNeededStateContainers() {
     if (mNeededStateContainers == null) {
       mNeededStateContainers = new HashSet<>();
     }
   }
-
-  private synchronized void maybeInitPendingStateUpdateTransitions() {
-    if (mPendingStateUpdateTransitions == null) {
-      mPendingStateUpdateTransitions = new HashMap<>();
-    }
-  }
-
-  private synchronized void maybeInitPendingUpdates() {
-    if (mPendingStateUpdates == null) {
-      mPendingStateUpdates = sPendingStateUpdatesMapPool.acquire();
-      if (mPendingStateUpdates == null) {
-        mPendingStateUpdates = new HashMap<>(INITIAL_MAP_CAPACITY);
-      }
-    }
-  }
-
 }
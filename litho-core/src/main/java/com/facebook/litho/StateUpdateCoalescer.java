@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import com.facebook.infer.annotation.ThreadSafe;
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.dataflow.ChoreographerCompat;
+import com.facebook.litho.dataflow.ChoreographerCompatImpl;
+import com.facebook.litho.stats.LithoStats;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Batches the asynchronous state updates of a tree so that all the updates that arrive within a
+ * frame are applied by a single layout (or change set) calculation, on the next frame callback.
+ *
+ * <p>The pass is not delayed forever if frame callbacks are late, e.g. while the main thread is
+ * busy or the display is off: it runs {@link
+ * ComponentsConfiguration#coalescedStateUpdatesMaxDelayMs} after the first update of its batch at
+ * the latest, either from a delayed fallback message or from the first update that arrives after
+ * that.
+ */
+@ThreadSafe
+public class StateUpdateCoalescer {
+
+  /** Runs the pass that applies all the state updates queued so far. */
+  public interface Flusher {
+    void flush(@Nullable String attribution);
+  }
+
+  private static final Handler sMainThreadHandler = new Handler(Looper.getMainLooper());
+
+  private final Flusher mFlusher;
+  private final ChoreographerCompat.FrameCallback mFrameCallback =
+      new ChoreographerCompat.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+          flushIfPending();
+        }
+      };
+  private final Runnable mPostFrameCallbackRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          ChoreographerCompatImpl.getInstance().postFrameCallback(mFrameCallback);
+        }
+      };
+  private final Runnable mFallbackFlushRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          flushIfPending();
+        }
+      };
+
+  @GuardedBy("this")
+  private boolean mIsFlushPending;
+
+  @GuardedBy("this")
+  private long mFirstPendingUpdateMs;
+
+  @GuardedBy("this")
+  private @Nullable String mAttribution;
+
+  @GuardedBy("this")
+  private boolean mIsReleased;
+
+  public StateUpdateCoalescer(Flusher flusher) {
+    mFlusher = flusher;
+  }
+
+  /** Called after a state update was queued, to schedule the pass that applies it. */
+  public void onStateUpdate(@Nullable String attribution) {
+    final boolean isFlushLate;
+    synchronized (this) {
+      if (mIsReleased) {
+        return;
+      }
+
+      mAttribution = attribution;
+      if (!mIsFlushPending) {
+        mIsFlushPending = true;
+        mFirstPendingUpdateMs = SystemClock.uptimeMillis();
+        isFlushLate = false;
+      } else {
+        // The pass that's already scheduled will pick this update up.
+        LithoStats.incCoalescedStateUpdates(1);
+        isFlushLate =
+            SystemClock.uptimeMillis() - mFirstPendingUpdateMs
+                >= ComponentsConfiguration.coalescedStateUpdatesMaxDelayMs;
+        if (!isFlushLate) {
+          return;
+        }
+      }
+    }
+
+    if (isFlushLate) {
+      // The frame callback is late, don't hold the updates back any longer.
+      flushIfPending();
+      return;
+    }
+
+    // Choreographer instances belong to the thread they are created on.
+    if (ThreadUtils.isMainThread()) {
+      mPostFrameCallbackRunnable.run();
+    } else {
+      sMainThreadHandler.post(mPostFrameCallbackRunnable);
+    }
+    sMainThreadHandler.postDelayed(
+        mFallbackFlushRunnable, ComponentsConfiguration.coalescedStateUpdatesMaxDelayMs);
+  }
+
+  /**
+   * Drops the pending updates and stops scheduling passes, to be called when the tree is released.
+   * The contract of the release of the tree is that it happens on the main thread, or that the
+   * tree is never accessed from the main thread again, in which case the frame callback that may
+   * still be posted has nothing left to do.
+   */
+  public void release() {
+    synchronized (this) {
+      mIsReleased = true;
+      mIsFlushPending = false;
+      mAttribution = null;
+    }
+
+    sMainThreadHandler.removeCallbacks(mPostFrameCallbackRunnable);
+    sMainThreadHandler.removeCallbacks(mFallbackFlushRunnable);
+    if (ThreadUtils.isMainThread()) {
+      ChoreographerCompatImpl.getInstance().removeFrameCallback(mFrameCallback);
+    }
+  }
+
+  private void flushIfPending() {
+    final String attribution;
+    synchronized (this) {
+      if (!mIsFlushPending) {
+        return;
+      }
+
+      mIsFlushPending = false;
+      attribution = mAttribution;
+      mAttribution = null;
+    }
+
+    sMainThreadHandler.removeCallbacks(mFallbackFlushRunnable);
+
+    LithoStats.incCoalescedStateUpdatePasses(1);
+    mFlusher.flush(attribution);
+  }
+}
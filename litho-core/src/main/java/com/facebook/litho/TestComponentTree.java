@@ -53,7 +53,8 @@ public class TestComponentTree extends ComponentTree {
       @Nullable LayoutState previousLayoutState,
       TreeProps treeProps,
       @LayoutState.CalculateLayoutSource int source,
-      String extraAttribution) {
+      String extraAttribution,
+      @Nullable LayoutCancellationToken cancellationToken) {
     return LayoutState.calculate(
         new TestComponentContext(
             ComponentContext.withComponentTree(new TestComponentContext(context), this),
@@ -67,7 +68,8 @@ public class TestComponentTree extends ComponentTree {
         true /* clipChildren */,
         false /* persistInternalNodeTree */,
         source,
-        extraAttribution);
+        extraAttribution,
+        cancellationToken);
   }
 
   @VisibleForTesting
@@ -20,26 +20,85 @@ import android.support.annotation.Nullable;
 import com.facebook.infer.annotation.ThreadConfined;
 import com.facebook.infer.annotation.ThreadSafe;
 import com.facebook.litho.annotations.TreeProp;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * A data structure to store tree props.
+ *
+ * <p>The props are kept in an immutable map which instances share: a copy is O(1), and {@link
+ * #put(Class, Object)} replaces the map of the instance by one that shares everything but the new
+ * entry with it. The few props of a tree are kept in an array of keys and values compared by
+ * identity, larger maps in a {@link PersistentHashMap}. Reads don't take a lock.
+ *
  * @see TreeProp
  */
 @ThreadConfined(ThreadConfined.ANY)
 public class TreeProps {
 
-  private final Map<Class, Object> mMap = Collections.synchronizedMap(new HashMap<Class, Object>());
+  /** Beyond this many props, a lookup in the array would be slower than one in a hash map. */
+  private static final int MAX_ARRAY_SIZE = 8;
+
+  private static final Object[] EMPTY = new Object[0];
+
+  /**
+   * Either an array of alternating keys and values or, beyond {@link #MAX_ARRAY_SIZE} props, a
+   * {@link PersistentHashMap}. Never modified, only replaced.
+   */
+  private volatile Object mProps = EMPTY;
+
+  public synchronized void put(Class key, Object value) {
+    final Object props = mProps;
+    if (props instanceof PersistentHashMap) {
+      @SuppressWarnings("unchecked")
+      final PersistentHashMap<Class, Object> map = (PersistentHashMap<Class, Object>) props;
+      mProps = map.plus(key, value);
+      return;
+    }
+
+    final Object[] array = (Object[]) props;
+    for (int i = 0; i < array.length; i += 2) {
+      if (array[i] == key) {
+        final Object[] newArray = array.clone();
+        newArray[i + 1] = value;
+        mProps = newArray;
+        return;
+      }
+    }
+
+    if (array.length / 2 < MAX_ARRAY_SIZE) {
+      final Object[] newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, array.length);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = value;
+      mProps = newArray;
+      return;
+    }
 
-  public void put(Class key, Object value) {
-    mMap.put(key, value);
+    PersistentHashMap<Class, Object> map = PersistentHashMap.empty();
+    for (int i = 0; i < array.length; i += 2) {
+      map = map.plus((Class) array[i], array[i + 1]);
+    }
+    mProps = map.plus(key, value);
   }
 
   @Nullable
   public <T> T get(Class<T> key) {
-    return (T) mMap.get(key);
+    final Object props = mProps;
+    if (props instanceof PersistentHashMap) {
+      @SuppressWarnings("unchecked")
+      final T value = (T) ((PersistentHashMap<Class, Object>) props).get(key);
+      return value;
+    }
+
+    final Object[] array = (Object[]) props;
+    for (int i = 0; i < array.length; i += 2) {
+      if (array[i] == key) {
+        @SuppressWarnings("unchecked")
+        final T value = (T) array[i + 1];
+        return value;
+      }
+    }
+
+    return null;
   }
 
   /** @return a copy of the provided TreeProps instance; returns null if source is null */
@@ -54,23 +113,22 @@ public class TreeProps {
 
   /**
    * Whenever a Spec sets tree props, the TreeProps map from the parent is copied. If parent
-   * TreeProps are null, a new TreeProps instance is created to copy the current tree props.
+   * TreeProps are null, a new TreeProps instance is created to copy the current tree props. The
+   * copy shares the props of the parent, so it doesn't depend on the number of props.
    *
-   * <p>Infer knows that newProps is owned but doesn't know that newProps.mMap is owned.
+   * <p>Infer knows that newProps is owned but doesn't know that the props it shares are immutable.
    */
   @ThreadSafe(enableChecks = false)
   public static TreeProps acquire(TreeProps source) {
     final TreeProps newProps = new TreeProps();
     if (source != null) {
-      synchronized (source.mMap) {
-        newProps.mMap.putAll(source.mMap);
-      }
+      newProps.mProps = source.mProps;
     }
 
     return newProps;
   }
 
   void reset() {
-    mMap.clear();
+    mProps = EMPTY;
   }
 }
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import android.content.res.Configuration;
+import android.support.annotation.VisibleForTesting;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link ResourceCache} that keys entries by the primitive resource id and stores dimensions,
+ * colors, integers, floats and booleans unboxed. Each kind of value has its own LRU budget:
+ *
+ * <ul>
+ *   <li>primitives are limited by entry count,
+ *   <li>strings, string arrays and int arrays by their total length,
+ *   <li>anything else (drawables, color state lists, ...) by entry count.
+ * </ul>
+ *
+ * so that a few long strings or big objects can't evict the dimensions and colors that every
+ * layout resolves.
+ */
+class TypedResourceCache extends ResourceCache {
+
+  static final int PRIMITIVES_MAX_ENTRIES = 512;
+  static final int STRINGS_BUDGET = 4096;
+  static final int STRINGS_MAX_ENTRIES = 256;
+  static final int OBJECTS_MAX_ENTRIES = 64;
+
+  private final Table mPrimitives = new Table(PRIMITIVES_MAX_ENTRIES, PRIMITIVES_MAX_ENTRIES);
+  private final Table mStrings = new Table(STRINGS_BUDGET, STRINGS_MAX_ENTRIES);
+  private final Table mObjects = new Table(OBJECTS_MAX_ENTRIES, OBJECTS_MAX_ENTRIES);
+
+  private long mPrimitiveHits;
+  private long mPrimitiveMisses;
+  private long mObjectHits;
+  private long mObjectMisses;
+
+  TypedResourceCache(Configuration configuration) {
+    super(configuration);
+  }
+
+  @Override
+  @Nullable
+  synchronized <T> T get(int key) {
+    final long tableKey = key & 0xFFFFFFFFL;
+    int slot = mStrings.find(tableKey);
+    if (slot >= 0) {
+      mObjectHits++;
+      return (T) mStrings.touch(slot).mObjects[slot];
+    }
+
+    slot = mObjects.find(tableKey);
+    if (slot >= 0) {
+      mObjectHits++;
+      return (T) mObjects.touch(slot).mObjects[slot];
+    }
+
+    mObjectMisses++;
+    return null;
+  }
+
+  @Override
+  synchronized void put(int key, Object object) {
+    final long tableKey = key & 0xFFFFFFFFL;
+    final int stringCost = stringCost(object);
+    if (stringCost >= 0) {
+      mObjects.remove(tableKey);
+      mStrings.put(tableKey, 0, object, Math.max(1, stringCost));
+    } else {
+      mStrings.remove(tableKey);
+      mObjects.put(tableKey, 0, object, 1);
+    }
+  }
+
+  @Override
+  synchronized long getPrimitive(int key, @PrimitiveType int type) {
+    final int slot = mPrimitives.find(primitiveKey(key, type));
+    if (slot < 0) {
+      mPrimitiveMisses++;
+      return MISSING;
+    }
+
+    mPrimitiveHits++;
+    return mPrimitives.touch(slot).mInts[slot];
+  }
+
+  @Override
+  synchronized void putPrimitive(int key, @PrimitiveType int type, int value) {
+    mPrimitives.put(primitiveKey(key, type), value, null, 1);
+  }
+
+  synchronized long getPrimitiveHits() {
+    return mPrimitiveHits;
+  }
+
+  synchronized long getPrimitiveMisses() {
+    return mPrimitiveMisses;
+  }
+
+  synchronized long getObjectHits() {
+    return mObjectHits;
+  }
+
+  synchronized long getObjectMisses() {
+    return mObjectMisses;
+  }
+
+  @VisibleForTesting
+  synchronized int getPrimitivesCount() {
+    return mPrimitives.mSize;
+  }
+
+  @VisibleForTesting
+  synchronized int getStringsCount() {
+    return mStrings.mSize;
+  }
+
+  @VisibleForTesting
+  synchronized int getObjectsCount() {
+    return mObjects.mSize;
+  }
+
+  /** The same resource id may be resolved as several types (e.g. a dimen as size and as float). */
+  private static long primitiveKey(int key, int type) {
+    return ((long) type << 32) | (key & 0xFFFFFFFFL);
+  }
+
+  /** @return the budget cost of string-like values, or -1 for any other object. */
+  private static int stringCost(Object object) {
+    if (object instanceof String) {
+      return ((String) object).length();
+    } else if (object instanceof String[]) {
+      int cost = 0;
+      for (String string : (String[]) object) {
+        cost += string == null ? 1 : string.length();
+      }
+      return cost;
+    } else if (object instanceof int[]) {
+      return ((int[]) object).length;
+    }
+    return -1;
+  }
+
+  /**
+   * Open-addressing hash table with linear probing and long keys, holding an int and an object
+   * value per entry. Entries are kept in an intrusive doubly-linked list in access order and are
+   * evicted from the least recently used end when the table runs over its cost budget or entry
+   * limit. Removed entries leave tombstones so that slot indices (and the list) stay stable; the
+   * table is rebuilt when tombstones pile up. Not thread safe.
+   */
+  @VisibleForTesting
+  static final class Table {
+    private static final byte EMPTY = 0;
+    private static final byte FULL = 1;
+    private static final byte TOMBSTONE = 2;
+    private static final int NONE = -1;
+
+    private final int mBudget;
+    private final int mMaxEntries;
+
+    private long[] mKeys;
+    private int[] mInts;
+    private Object[] mObjects;
+    private int[] mCosts;
+    private byte[] mStates;
+    private int[] mPrevious;
+    private int[] mNext;
+
+    private int mHead = NONE;
+    private int mTail = NONE;
+    private int mSize;
+    private int mTombstones;
+    private int mUsedBudget;
+
+    Table(int budget, int maxEntries) {
+      mBudget = budget;
+      mMaxEntries = maxEntries;
+      allocate(capacityFor(maxEntries));
+    }
+
+    /** @return the slot holding the given key, or a negative value if it isn't in the table. */
+    int find(long key) {
+      final int mask = mKeys.length - 1;
+      int slot = hash(key) & mask;
+      while (true) {
+        final byte state = mStates[slot];
+        if (state == EMPTY) {
+          return NONE;
+        } else if (state == FULL && mKeys[slot] == key) {
+          return slot;
+        }
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    /** Marks the entry in the given slot as most recently used. */
+    Table touch(int slot) {
+      if (slot != mHead) {
+        unlink(slot);
+        linkAtHead(slot);
+      }
+      return this;
+    }
+
+    void put(long key, int intValue, @Nullable Object objectValue, int cost) {
+      if (cost > mBudget) {
+        remove(key);
+        return;
+      }
+
+      int slot = find(key);
+      if (slot >= 0) {
+        mUsedBudget += cost - mCosts[slot];
+        mInts[slot] = intValue;
+        mObjects[slot] = objectValue;
+        mCosts[slot] = cost;
+        touch(slot);
+        while (mUsedBudget > mBudget && mTail != slot) {
+          removeSlot(mTail);
+        }
+        return;
+      }
+
+      while (mSize > 0 && (mUsedBudget + cost > mBudget || mSize >= mMaxEntries)) {
+        removeSlot(mTail);
+      }
+
+      if ((mSize + mTombstones + 1) * 4 > mKeys.length * 3) {
+        rebuild();
+      }
+
+      final int mask = mKeys.length - 1;
+      slot = hash(key) & mask;
+      while (mStates[slot] == FULL) {
+        slot = (slot + 1) & mask;
+      }
+
+      if (mStates[slot] == TOMBSTONE) {
+        mTombstones--;
+      }
+      mStates[slot] = FULL;
+      mKeys[slot] = key;
+      mInts[slot] = intValue;
+      mObjects[slot] = objectValue;
+      mCosts[slot] = cost;
+      mSize++;
+      mUsedBudget += cost;
+      linkAtHead(slot);
+    }
+
+    void remove(long key) {
+      final int slot = find(key);
+      if (slot >= 0) {
+        removeSlot(slot);
+      }
+    }
+
+    private void removeSlot(int slot) {
+      unlink(slot);
+      mStates[slot] = TOMBSTONE;
+      mObjects[slot] = null;
+      mUsedBudget -= mCosts[slot];
+      mSize--;
+      mTombstones++;
+    }
+
+    private void linkAtHead(int slot) {
+      mPrevious[slot] = NONE;
+      mNext[slot] = mHead;
+      if (mHead != NONE) {
+        mPrevious[mHead] = slot;
+      }
+      mHead = slot;
+      if (mTail == NONE) {
+        mTail = slot;
+      }
+    }
+
+    private void unlink(int slot) {
+      final int previous = mPrevious[slot];
+      final int next = mNext[slot];
+      if (previous != NONE) {
+        mNext[previous] = next;
+      } else {
+        mHead = next;
+      }
+      if (next != NONE) {
+        mPrevious[next] = previous;
+      } else {
+        mTail = previous;
+      }
+    }
+
+    /** Re-inserts all entries into fresh arrays, dropping tombstones and keeping LRU order. */
+    private void rebuild() {
+      final long[] keys = mKeys;
+      final int[] ints = mInts;
+      final Object[] objects = mObjects;
+      final int[] costs = mCosts;
+      final int[] previous = mPrevious;
+      int slot = mTail;
+
+      allocate(keys.length);
+      mHead = NONE;
+      mTail = NONE;
+      mSize = 0;
+      mTombstones = 0;
+      mUsedBudget = 0;
+
+      // Walk from the least to the most recently used entry so the latter ends up at the head.
+      while (slot != NONE) {
+        put(keys[slot], ints[slot], objects[slot], costs[slot]);
+        slot = previous[slot];
+      }
+    }
+
+    private void allocate(int capacity) {
+      mKeys = new long[capacity];
+      mInts = new int[capacity];
+      mObjects = new Object[capacity];
+      mCosts = new int[capacity];
+      mStates = new byte[capacity];
+      mPrevious = new int[capacity];
+      mNext = new int[capacity];
+    }
+
+    private static int capacityFor(int maxEntries) {
+      // Keep the load factor under 3/4 even with some tombstones around.
+      int capacity = 4;
+      while (capacity < maxEntries * 2) {
+        capacity <<= 1;
+      }
+      return capacity;
+    }
+
+    private static int hash(long key) {
+      int hash = (int) (key ^ (key >>> 32));
+      hash *= 0x9E3779B9;
+      return hash ^ (hash >>> 16);
+    }
+  }
+}
@@ -112,6 +112,37 @@ public class ComponentsConfiguration {
    */
   public static boolean useGlobalKeys = true;
 
+  /**
+   * If true, global keys are tracked as 64-bit hashes that are derived from the parent's hash in
+   * constant time, instead of strings that grow with the depth of the tree. State, event handlers
+   * and duplicate key checks are then keyed by the hash. The full string keys are still built in
+   * debug mode, where they are also used to tell hash collisions apart from duplicate keys.
+   */
+  public static boolean useHashedGlobalKeys = false;
+
+  /**
+   * If true, the measurements of mount specs are shared across ComponentTrees, so that equivalent
+   * components rendered by different trees (e.g. identical items of a list) are only measured once.
+   */
+  public static boolean useSharedMeasureCache = false;
+
+  /** Number of measurements kept by the shared measure cache, see useSharedMeasureCache. */
+  public static int sharedMeasureCacheSize = 256;
+
+  /**
+   * If true, LayoutStates index the bounds of their outputs in a 2D tree, so that incremental mount
+   * and visibility processing only go through the outputs around the visible rect, whichever the
+   * direction of the scroll.
+   */
+  public static boolean useBoundsIndexForIncrementalMount = false;
+
+  /**
+   * If true, the comparison of a new LayoutState to the previous one that prepares its mount is
+   * done on the thread that calculates the layout, instead of on the main thread when mounting. It
+   * is only used if the previous LayoutState is still the mounted one by then.
+   */
+  public static boolean prepareMountPlanInBackground = false;
+
   /** The default priority for threads that perform background layout calculations. */
   public static final int DEFAULT_BACKGROUND_THREAD_PRIORITY = 5;
 
@@ -141,6 +172,27 @@ public class ComponentsConfiguration {
   /** Configuration for asynchronous state update */
   public static boolean updateStateAsync = false;
 
+  /**
+   * If true, the asynchronous state updates of a ComponentTree or SectionTree that arrive within a
+   * frame are applied by a single layout or change set calculation, on the next frame.
+   */
+  public static boolean coalesceAsyncStateUpdates = false;
+
+  /**
+   * Maximum time the first of a batch of coalesced state updates waits for its calculation to
+   * start, in case frame callbacks are late.
+   */
+  public static long coalescedStateUpdatesMaxDelayMs = 50;
+
+  /**
+   * If true, the layout of a state update only creates the layouts of the components with pending
+   * state updates again, and carries the rest of the node tree over from a copy of the previous
+   * layout. Only applies to trees built with {@code
+   * ComponentTree.Builder#persistInternalNodeTree(true)}, which keep the node tree of their latest
+   * layout in memory.
+   */
+  public static boolean incrementalStateUpdateLayouts = false;
+
   /**
    * If false, we won't create state handlers. It's highly discouraged to to change this to false,
    * unless you handle all your updates outside of the litho framework
@@ -161,15 +213,12 @@ public class ComponentsConfiguration {
 
   public static boolean prewarmImageTexture = false;
 
-  public static boolean useNewIsEquivalentTo = false;
-
-  public static boolean useNewIsEquivalentToInLayoutSpec = false;
-
-  public static boolean useNewIsEquivalentToInMountSpec = false;
-
-  public static boolean useNewIsEquivalentToInSectionSpec = false;
-
-  public static boolean useNewIsEquivalentToInOtherSpec = false;
+  /**
+   * If true, the result of the generated isEquivalentTo of components and sections is checked
+   * against a reflection based comparison of their fields, which throws if they disagree. This is
+   * slow and only meant for debug builds and tests.
+   */
+  public static boolean verifyIsEquivalentTo = false;
 
   /** Whether we should use the PlaceholderComponent instead of Column as MountSpec holder. */
   public static boolean usePlaceholderComponent = false;
@@ -177,17 +226,39 @@ public class ComponentsConfiguration {
   /** If true, the async range calculation isn't blocked on the first item finishing layout */
   public static boolean asyncInitRange = false;
 
+  /**
+   * If true, RecyclerBinder keeps the ComponentTrees of items that leave the range in a process
+   * wide cache bounded by memory, instead of releasing them right away.
+   */
+  public static boolean retainComponentTreesOutOfRange = false;
+
   /**
    * If true, a layout for the same ComponentTree will be calculated on a single thread at the same
    * time.
    */
   public static boolean useSharedLayoutStateFuture = false;
 
+  /**
+   * If true, layouts stop early when the ComponentTree gets a newer root, size specs or state
+   * update in the meantime, or is released, instead of computing a result that will be thrown
+   * away. A caller waiting for the size of a cancelled layout gets the size of the newer one, and
+   * after a couple of cancellations computes a layout that can't be cancelled.
+   */
+  public static boolean cancelSupersededLayouts = false;
+
   /**
    * If non-null, a thread pool will be used for async layouts instead of a single layout thread.
    */
   public static LayoutThreadPoolConfiguration threadPoolConfiguration = null;
 
+  /**
+   * If true, the default background handlers of ComponentTrees (layout and mount content
+   * preallocation) and SectionTrees (change sets) post into the shared {@link
+   * com.facebook.litho.LayoutScheduler}, which runs the most urgent work first, instead of each
+   * using its own thread.
+   */
+  public static boolean useLayoutScheduler = false;
+
   /**
    * Whether we should diff the view info attributes when checking for mount updates. This fixes
    * issues where updates to MountSpecs are not applied when changes in common view properties do
@@ -238,6 +309,14 @@ public class ComponentsConfiguration {
 
   public static boolean disablePools = false;
 
+  /**
+   * If true, the allocations of every layout calculation and mount (pool misses, internal nodes,
+   * layout outputs, diff nodes, rects, builders and global keys) are counted by component type,
+   * added to the perf events of the ComponentsLogger and to LithoStats. Only meant for performance
+   * analyses, it allocates itself.
+   */
+  public static boolean enableAllocationAccounting = false;
+
   public static @Nullable LithoAffinityBoosterFactory affinityBoosterFactory = null;
 
   /**
@@ -273,4 +352,11 @@ public class ComponentsConfiguration {
   public static boolean assignTransitionKeysToAllOutputs = false;
 
   public static boolean createPhantomLayoutOutputsForTransitions = false;
+
+  /**
+   * If true, resources are cached in a TypedResourceCache, which stores primitive values unboxed
+   * and keeps separate budgets for primitives, strings and other objects, instead of a single
+   * LruCache.
+   */
+  public static boolean useTypedResourceCache = false;
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.stats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Allocation counters of the layout calculations and mounts, by component type and by category of
+ * allocated object, plus the misses of every object pool that caused an allocation. They are only
+ * recorded when allocation accounting is enabled in the ComponentsConfiguration, see {@link
+ * LithoStats#getAllocationStats()}.
+ */
+public final class AllocationStats {
+
+  public static final int INTERNAL_NODE = 0;
+  public static final int LAYOUT_OUTPUT = 1;
+  public static final int DIFF_NODE = 2;
+  public static final int RECT = 3;
+  public static final int COMPONENT_BUILDER = 4;
+  public static final int GLOBAL_KEY = 5;
+  public static final int CATEGORY_COUNT = 6;
+
+  private static final String[] CATEGORY_NAMES = {
+    "internal_node", "layout_output", "diff_node", "rect", "component_builder", "global_key",
+  };
+
+  private static final Comparator<Entry> sByTotalDescending =
+      new Comparator<Entry>() {
+        @Override
+        public int compare(Entry lhs, Entry rhs) {
+          return lhs.total == rhs.total ? 0 : (lhs.total > rhs.total ? -1 : 1);
+        }
+      };
+
+  private final ConcurrentHashMap<String, AtomicLongArray> mCountsByComponent =
+      new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, AtomicLong> mPoolMisses = new ConcurrentHashMap<>();
+
+  /** @return the name of a category of allocated objects, e.g. to log it. */
+  public static String getCategoryName(int category) {
+    return CATEGORY_NAMES[category];
+  }
+
+  /** Adds the allocations of a component type, indexed by category. */
+  public void recordAllocations(String componentType, int[] counts) {
+    AtomicLongArray componentCounts = mCountsByComponent.get(componentType);
+    if (componentCounts == null) {
+      final AtomicLongArray newCounts = new AtomicLongArray(CATEGORY_COUNT);
+      componentCounts = mCountsByComponent.putIfAbsent(componentType, newCounts);
+      if (componentCounts == null) {
+        componentCounts = newCounts;
+      }
+    }
+
+    for (int i = 0; i < CATEGORY_COUNT; i++) {
+      if (counts[i] != 0) {
+        componentCounts.addAndGet(i, counts[i]);
+      }
+    }
+  }
+
+  /** Adds the misses of a pool. */
+  public void recordPoolMisses(String poolName, long misses) {
+    AtomicLong poolMisses = mPoolMisses.get(poolName);
+    if (poolMisses == null) {
+      final AtomicLong newPoolMisses = new AtomicLong();
+      poolMisses = mPoolMisses.putIfAbsent(poolName, newPoolMisses);
+      if (poolMisses == null) {
+        poolMisses = newPoolMisses;
+      }
+    }
+    poolMisses.addAndGet(misses);
+  }
+
+  /**
+   * @return the allocations of every component type, the ones that allocated the most objects
+   *     first.
+   */
+  public List<Entry> getAllocationsByComponent() {
+    final List<Entry> entries = new ArrayList<>(mCountsByComponent.size());
+    for (Map.Entry<String, AtomicLongArray> entry : mCountsByComponent.entrySet()) {
+      final AtomicLongArray counts = entry.getValue();
+      final long[] countsCopy = new long[CATEGORY_COUNT];
+      for (int i = 0; i < CATEGORY_COUNT; i++) {
+        countsCopy[i] = counts.get(i);
+      }
+      entries.add(new Entry(entry.getKey(), countsCopy));
+    }
+
+    Collections.sort(entries, sByTotalDescending);
+    return entries;
+  }
+
+  /** @return the misses of every pool that missed during an accounted pass, by pool name. */
+  public Map<String, Long> getPoolMisses() {
+    final Map<String, Long> poolMisses = new HashMap<>(mPoolMisses.size());
+    for (Map.Entry<String, AtomicLong> entry : mPoolMisses.entrySet()) {
+      poolMisses.put(entry.getKey(), entry.getValue().get());
+    }
+    return poolMisses;
+  }
+
+  public void reset() {
+    mCountsByComponent.clear();
+    mPoolMisses.clear();
+  }
+
+  /** Allocations of one component type. */
+  public static final class Entry {
+    public final String componentType;
+    public final long total;
+    private final long[] mCounts;
+
+    Entry(String componentType, long[] counts) {
+      this.componentType = componentType;
+      mCounts = counts;
+
+      long total = 0;
+      for (long count : counts) {
+        total += count;
+      }
+      this.total = total;
+    }
+
+    /** @return the allocations of the given category, see {@link #INTERNAL_NODE} and others. */
+    public long getCount(int category) {
+      return mCounts[category];
+    }
+
+    @Override
+    public String toString() {
+      final StringBuilder sb = new StringBuilder(componentType).append("{total=").append(total);
+      for (int i = 0; i < CATEGORY_COUNT; i++) {
+        if (mCounts[i] != 0) {
+          sb.append(", ").append(CATEGORY_NAMES[i]).append('=').append(mCounts[i]);
+        }
+      }
+      return sb.append('}').toString();
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies that can be recorded from many threads without allocating.
+ *
+ * <p>Buckets are log-linear: every power of two is split in {@link #SUB_BUCKET_COUNT} buckets of
+ * the same width, so that the error on any value is below 1 / {@link #SUB_BUCKET_COUNT} of it
+ * (6.25%) whatever its order of magnitude. Values up to 2^32 - 1 are tracked, larger ones are
+ * counted in the last bucket. The histogram doesn't know about units, the values are usually
+ * microseconds.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_VALUE_BITS = 32;
+  static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+  static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong mSum = new AtomicLong();
+  private final AtomicLong mMax = new AtomicLong();
+
+  /** Records a value, negative ones are recorded as 0. */
+  public void record(long value) {
+    final long clampedValue = Math.max(0, Math.min(value, MAX_VALUE));
+    mCounts.incrementAndGet(getBucketIndex(clampedValue));
+    mSum.addAndGet(clampedValue);
+
+    long max = mMax.get();
+    while (clampedValue > max) {
+      if (mMax.compareAndSet(max, clampedValue)) {
+        return;
+      }
+      max = mMax.get();
+    }
+  }
+
+  /** @return an immutable copy of the current state of the histogram. */
+  public Snapshot snapshot() {
+    final long[] counts = new long[BUCKET_COUNT];
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = mCounts.get(i);
+      count += counts[i];
+    }
+
+    return new Snapshot(counts, count, mSum.get(), mMax.get());
+  }
+
+  /**
+   * Same as {@link #snapshot()} followed by {@link #reset()}, without losing the values recorded
+   * concurrently, which end up either in the snapshot or in the histogram.
+   */
+  public Snapshot snapshotAndReset() {
+    final long[] counts = new long[BUCKET_COUNT];
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = mCounts.getAndSet(i, 0);
+      count += counts[i];
+    }
+
+    return new Snapshot(counts, count, mSum.getAndSet(0), mMax.getAndSet(0));
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      mCounts.set(i, 0);
+    }
+    mSum.set(0);
+    mMax.set(0);
+  }
+
+  static int getBucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+
+    // Values in [2^n, 2^(n + 1)) are split in SUB_BUCKET_COUNT buckets of width 2^shift.
+    final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+  }
+
+  /** @return the largest value that is counted in the given bucket. */
+  static long getBucketMaxValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+
+    final int shift = index / SUB_BUCKET_COUNT - 1;
+    final long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  /** Point-in-time values of a {@link LatencyHistogram}. */
+  public static final class Snapshot {
+    private final long[] mCounts;
+    private final long mCount;
+    private final long mSum;
+    private final long mMax;
+
+    Snapshot(long[] counts, long count, long sum, long max) {
+      mCounts = counts;
+      mCount = count;
+      mSum = sum;
+      mMax = max;
+    }
+
+    public long getCount() {
+      return mCount;
+    }
+
+    public long getMax() {
+      return mMax;
+    }
+
+    public double getMean() {
+      return mCount == 0 ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. 99 for the p99
+     * @return the value that the given percentage of the recorded values don't exceed, rounded up
+     *     to the largest value of its bucket, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+      if (mCount == 0) {
+        return 0;
+      }
+
+      final double clampedPercentile = Math.max(0, Math.min(percentile, 100));
+      final long rank = Math.max(1, (long) Math.ceil(clampedPercentile / 100 * mCount));
+      long seen = 0;
+      for (int i = 0; i < mCounts.length; i++) {
+        seen += mCounts[i];
+        if (seen >= rank) {
+          return Math.min(getBucketMaxValue(i), mMax);
+        }
+      }
+
+      return mMax;
+    }
+
+    @Override
+    public String toString() {
+      return "{count="
+          + mCount
+          + ", p50="
+          + getValueAtPercentile(50)
+          + ", p90="
+          + getValueAtPercentile(90)
+          + ", p99="
+          + getValueAtPercentile(99)
+          + ", max="
+          + mMax
+          + "}";
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.stats;
+
+import android.support.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency histograms of the phases of the framework, keyed by the ids of the performance events
+ * that measure them (see {@code FrameworkLogEvents}). Every phase has a histogram of all its
+ * durations, plus one per log tag and one per root component.
+ *
+ * <p>Recording doesn't allocate once the histograms of a key exist, as long as event ids are
+ * between -128 and 127 like the ones of the framework. To bound the memory used, each phase keeps
+ * at most {@link #MAX_KEYS_PER_DIMENSION} log tags and root components, the durations of the others
+ * are recorded under {@link #OTHER_KEY}.
+ */
+public final class LatencyMetrics {
+
+  public static final int MAX_KEYS_PER_DIMENSION = 32;
+  public static final String OTHER_KEY = "other";
+
+  private static final LatencyMetrics sDefaultInstance = new LatencyMetrics();
+
+  private final ConcurrentHashMap<Integer, Phase> mPhases = new ConcurrentHashMap<>();
+
+  /** @return the instance recorded into by default, e.g. by the recording ComponentsLogger. */
+  public static LatencyMetrics getDefault() {
+    return sDefaultInstance;
+  }
+
+  /**
+   * Records the duration of a phase.
+   *
+   * @param durationUs duration in microseconds
+   */
+  public void record(
+      int eventId, @Nullable String logTag, @Nullable String rootComponent, long durationUs) {
+    Phase phase = mPhases.get(eventId);
+    if (phase == null) {
+      final Phase newPhase = new Phase();
+      phase = mPhases.putIfAbsent(eventId, newPhase);
+      if (phase == null) {
+        phase = newPhase;
+      }
+    }
+
+    phase.mAll.record(durationUs);
+    if (logTag != null) {
+      getOrCreate(phase.mByLogTag, logTag).record(durationUs);
+    }
+    if (rootComponent != null) {
+      getOrCreate(phase.mByRootComponent, rootComponent).record(durationUs);
+    }
+  }
+
+  /** @return the histogram of all the durations of a phase, or null if none was recorded. */
+  @Nullable
+  public LatencyHistogram getHistogram(int eventId) {
+    final Phase phase = mPhases.get(eventId);
+    return phase == null ? null : phase.mAll;
+  }
+
+  /** @return the histogram of a phase for a log tag, or null if none was recorded. */
+  @Nullable
+  public LatencyHistogram getHistogramForLogTag(int eventId, String logTag) {
+    final Phase phase = mPhases.get(eventId);
+    return phase == null ? null : phase.mByLogTag.get(logTag);
+  }
+
+  /** @return the histogram of a phase for a root component, or null if none was recorded. */
+  @Nullable
+  public LatencyHistogram getHistogramForRootComponent(int eventId, String rootComponent) {
+    final Phase phase = mPhases.get(eventId);
+    return phase == null ? null : phase.mByRootComponent.get(rootComponent);
+  }
+
+  /** @return a snapshot of every histogram. */
+  public List<Entry> snapshot() {
+    return snapshot(false);
+  }
+
+  /**
+   * @return a snapshot of every histogram, which are reset at the same time, e.g. to export the
+   *     latencies of a session.
+   */
+  public List<Entry> snapshotAndReset() {
+    return snapshot(true);
+  }
+
+  /** Resets every histogram, keeping the keys they were created for. */
+  public void reset() {
+    for (Phase phase : mPhases.values()) {
+      phase.mAll.reset();
+      for (LatencyHistogram histogram : phase.mByLogTag.values()) {
+        histogram.reset();
+      }
+      for (LatencyHistogram histogram : phase.mByRootComponent.values()) {
+        histogram.reset();
+      }
+    }
+  }
+
+  private List<Entry> snapshot(boolean reset) {
+    final List<Entry> entries = new ArrayList<>();
+    for (Map.Entry<Integer, Phase> phaseEntry : mPhases.entrySet()) {
+      final int eventId = phaseEntry.getKey();
+      final Phase phase = phaseEntry.getValue();
+
+      entries.add(new Entry(eventId, null, null, snapshot(phase.mAll, reset)));
+      for (Map.Entry<String, LatencyHistogram> entry : phase.mByLogTag.entrySet()) {
+        entries.add(new Entry(eventId, entry.getKey(), null, snapshot(entry.getValue(), reset)));
+      }
+      for (Map.Entry<String, LatencyHistogram> entry : phase.mByRootComponent.entrySet()) {
+        entries.add(new Entry(eventId, null, entry.getKey(), snapshot(entry.getValue(), reset)));
+      }
+    }
+
+    return entries;
+  }
+
+  private static LatencyHistogram.Snapshot snapshot(LatencyHistogram histogram, boolean reset) {
+    return reset ? histogram.snapshotAndReset() : histogram.snapshot();
+  }
+
+  private static LatencyHistogram getOrCreate(
+      ConcurrentHashMap<String, LatencyHistogram> histograms, String key) {
+    LatencyHistogram histogram = histograms.get(key);
+    if (histogram != null) {
+      return histogram;
+    }
+
+    final boolean hasTooManyKeys = histograms.size() >= MAX_KEYS_PER_DIMENSION;
+    if (hasTooManyKeys) {
+      histogram = histograms.get(OTHER_KEY);
+      if (histogram != null) {
+        return histogram;
+      }
+    }
+
+    final LatencyHistogram newHistogram = new LatencyHistogram();
+    histogram = histograms.putIfAbsent(hasTooManyKeys ? OTHER_KEY : key, newHistogram);
+    return histogram == null ? newHistogram : histogram;
+  }
+
+  private static final class Phase {
+    private final LatencyHistogram mAll = new LatencyHistogram();
+    private final ConcurrentHashMap<String, LatencyHistogram> mByLogTag =
+        new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> mByRootComponent =
+        new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Snapshot of one histogram: the one of all the durations of a phase if both the log tag and the
+   * root component are null, or the one for the log tag or the root component that is set.
+   */
+  public static final class Entry {
+    public final int eventId;
+    public final @Nullable String logTag;
+    public final @Nullable String rootComponent;
+    public final LatencyHistogram.Snapshot histogram;
+
+    Entry(
+        int eventId,
+        @Nullable String logTag,
+        @Nullable String rootComponent,
+        LatencyHistogram.Snapshot histogram) {
+      this.eventId = eventId;
+      this.logTag = logTag;
+      this.rootComponent = rootComponent;
+      this.histogram = histogram;
+    }
+
+    @Override
+    public String toString() {
+      return eventId
+          + (logTag != null ? "[log_tag=" + logTag + "]" : "")
+          + (rootComponent != null ? "[root=" + rootComponent + "]" : "")
+          + histogram;
+    }
+  }
+}
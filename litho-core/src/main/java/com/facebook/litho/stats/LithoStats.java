@@ -15,12 +15,20 @@
  */
 package com.facebook.litho.stats;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 
 /** Provides global counters about Litho internals. Useful for performance analyses. */
 public final class LithoStats {
   private static final AtomicLong sStateUpdates = new AtomicLong(0);
   private static final AtomicLong sStateUpdatesSync = new AtomicLong(0);
+  private static final AtomicLong sCancelledLayouts = new AtomicLong(0);
+  private static final AtomicLong sCoalescedStateUpdates = new AtomicLong(0);
+  private static final AtomicLong sCoalescedStateUpdatePasses = new AtomicLong(0);
+  private static final List<PoolStats> sPoolStats = new CopyOnWriteArrayList<>();
+  private static final AllocationStats sAllocationStats = new AllocationStats();
 
   /**
    * @return the global count of all state updates (async, lazy and sync) that have happened in the
@@ -52,4 +60,87 @@ public final class LithoStats {
   public static long incStateUpdateSync(final long num) {
     return sStateUpdatesSync.addAndGet(num);
   }
+
+  /**
+   * @return the global count of layout calculations that were abandoned before completion because
+   *     a newer layout superseded them.
+   */
+  public static long getCancelledLayouts() {
+    return sCancelledLayouts.get();
+  }
+
+  /**
+   * Increment the count of cancelled layout calculations by {@param num}.
+   *
+   * @return The new total number of cancelled layout calculations recorded.
+   */
+  public static long incCancelledLayouts(final long num) {
+    return sCancelledLayouts.addAndGet(num);
+  }
+
+  /**
+   * @return the global count of asynchronous state updates that were merged into a layout or
+   *     change set calculation that was already scheduled for another update.
+   */
+  public static long getCoalescedStateUpdates() {
+    return sCoalescedStateUpdates.get();
+  }
+
+  /**
+   * @return the global count of layout or change set calculations run for batches of coalesced
+   *     state updates.
+   */
+  public static long getCoalescedStateUpdatePasses() {
+    return sCoalescedStateUpdatePasses.get();
+  }
+
+  /**
+   * Increment the count of coalesced state updates by {@param num}.
+   *
+   * @return The new total number of coalesced state updates recorded.
+   */
+  public static long incCoalescedStateUpdates(final long num) {
+    return sCoalescedStateUpdates.addAndGet(num);
+  }
+
+  /**
+   * Increment the count of calculations run for coalesced state updates by {@param num}.
+   *
+   * @return The new total number of calculations run for coalesced state updates.
+   */
+  public static long incCoalescedStateUpdatePasses(final long num) {
+    return sCoalescedStateUpdatePasses.addAndGet(num);
+  }
+
+  /**
+   * Registers the counters of a process-wide object pool so that they are included in {@link
+   * #getPoolStats()}. Pools that can be garbage collected should not be registered.
+   */
+  public static void registerPoolStats(PoolStats poolStats) {
+    sPoolStats.add(poolStats);
+  }
+
+  /** @return a snapshot of the counters of every registered pool. */
+  public static List<PoolStats.Snapshot> getPoolStats() {
+    final List<PoolStats.Snapshot> snapshots = new ArrayList<>(sPoolStats.size());
+    for (PoolStats poolStats : sPoolStats) {
+      snapshots.add(poolStats.snapshot());
+    }
+    return snapshots;
+  }
+
+  /** Resets the counters of every registered pool, e.g. after dumping a sample. */
+  public static void resetPoolStats() {
+    for (PoolStats poolStats : sPoolStats) {
+      poolStats.reset();
+    }
+  }
+
+  /**
+   * @return the allocation counters of the layout calculations and mounts, only recorded when
+   *     allocation accounting is enabled in the ComponentsConfiguration.
+   */
+  public static AllocationStats getAllocationStats() {
+    return sAllocationStats;
+  }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.litho.stats;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Usage counters for a single object pool: how often an acquire was served from the pool (hit) or
+ * had to allocate (miss), how many released objects were dropped because the pool was full and
+ * the peak number of objects held. Use them to size pools from real data.
+ */
+public final class PoolStats {
+  private final String mName;
+  private final StripedCounter mAcquireHits = new StripedCounter();
+  private final StripedCounter mAcquireMisses = new StripedCounter();
+  private final StripedCounter mDroppedReleases = new StripedCounter();
+  private final AtomicInteger mPeakSize = new AtomicInteger(0);
+
+  public PoolStats(String name) {
+    mName = name;
+  }
+
+  public String getName() {
+    return mName;
+  }
+
+  /** Records an acquire that was served from the pool if {@param hit}, or a miss otherwise. */
+  public void recordAcquire(boolean hit) {
+    if (hit) {
+      mAcquireHits.increment();
+    } else {
+      mAcquireMisses.increment();
+    }
+  }
+
+  /**
+   * Records a release. {@param dropped} is true if the pool was full and did not keep the object,
+   * {@param currentSize} is the size of the pool after the release and feeds the peak size.
+   */
+  public void recordRelease(boolean dropped, int currentSize) {
+    if (dropped) {
+      mDroppedReleases.increment();
+    }
+
+    int peak = mPeakSize.get();
+    while (currentSize > peak) {
+      if (mPeakSize.compareAndSet(peak, currentSize)) {
+        return;
+      }
+      peak = mPeakSize.get();
+    }
+  }
+
+  public long getAcquireHits() {
+    return mAcquireHits.get();
+  }
+
+  public long getAcquireMisses() {
+    return mAcquireMisses.get();
+  }
+
+  public long getDroppedReleases() {
+    return mDroppedReleases.get();
+  }
+
+  public int getPeakSize() {
+    return mPeakSize.get();
+  }
+
+  /** @return an immutable copy of the current values of all counters. */
+  public Snapshot snapshot() {
+    return new Snapshot(
+        mName, getAcquireHits(), getAcquireMisses(), getDroppedReleases(), getPeakSize());
+  }
+
+  /** Resets all counters, including the peak size, to zero. */
+  public void reset() {
+    mAcquireHits.reset();
+    mAcquireMisses.reset();
+    mDroppedReleases.reset();
+    mPeakSize.set(0);
+  }
+
+  /** Point-in-time values of a {@link PoolStats}. */
+  public static final class Snapshot {
+    public final String name;
+    public final long acquireHits;
+    public final long acquireMisses;
+    public final long droppedReleases;
+    public final int peakSize;
+
+    Snapshot(
+        String name, long acquireHits, long acquireMisses, long droppedReleases, int peakSize) {
+      this.name = name;
+      this.acquireHits = acquireHits;
+      this.acquireMisses = acquireMisses;
+      this.droppedReleases = droppedReleases;
+      this.peakSize = peakSize;
+    }
+
+    @Override
+    public String toString() {
+      return name
+          + "{hits="
+          + acquireHits
+          + ", misses="
+          + acquireMisses
+          + ", dropped="
+          + droppedReleases
+          + ", peak="
+          + peakSize
+          + "}";
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.litho.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that can be incremented from many threads without them contending on the same memory
+ * location. Threads are spread over a few cells, each on its own cache line, and reads sum all
+ * cells. Reads are therefore more expensive than writes and may miss concurrent increments.
+ */
+public final class StripedCounter {
+  private static final int STRIPES = 8; // Must be a power of two.
+  private static final int CELL_PADDING = 8; // 8 longs fill a 64-byte cache line.
+
+  private final AtomicLongArray mCells = new AtomicLongArray(STRIPES * CELL_PADDING);
+
+  public void increment() {
+    add(1);
+  }
+
+  public void add(long delta) {
+    mCells.getAndAdd(cellIndex(), delta);
+  }
+
+  /** @return the sum of all increments since creation or the last {@link #reset()}. */
+  public long get() {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += mCells.get(i * CELL_PADDING);
+    }
+    return sum;
+  }
+
+  public void reset() {
+    for (int i = 0; i < STRIPES; i++) {
+      mCells.set(i * CELL_PADDING, 0);
+    }
+  }
+
+  private static int cellIndex() {
+    return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * CELL_PADDING;
+  }
+}
@@ -17,9 +17,10 @@ package com.facebook.litho;
 
 import static com.facebook.litho.SizeSpec.EXACTLY;
 import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.mock;
@@ -33,7 +34,7 @@ import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
 import com.facebook.litho.testing.util.InlineLayoutSpec;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -60,8 +61,8 @@ public class SplitLayoutResolverTest {
   private LayoutThreadPoolConfiguration mBgConfig;
   private Set<String> mEnabledComponent;
   private ComponentContext mContext;
-  private ExecutorCompletionService mainService;
-  private ExecutorCompletionService bgService;
+  private Executor mMainExecutor;
+  private Executor mBgExecutor;
   private ShadowLooper mLayoutThreadShadowLooper;
 
   class MyTestComponent extends InlineLayoutSpec {
@@ -77,8 +78,8 @@ public class SplitLayoutResolverTest {
 
   @Before
   public void setup() throws Exception {
-    mainService = mock(ExecutorCompletionService.class);
-    bgService = mock(ExecutorCompletionService.class);
+    mMainExecutor = mock(Executor.class);
+    mBgExecutor = mock(Executor.class);
     mockStatic(ThreadUtils.class);
     mContext = new ComponentContext(new ContextWrapper(RuntimeEnvironment.application));
 
@@ -113,6 +114,31 @@ public class SplitLayoutResolverTest {
     mEnabledComponent.add("MyTestComponent");
   }
 
+  /**
+   * Replaces the executors of the resolver's pools with mocks, which never run the forked chunks:
+   * the caller thread then runs them all when joining.
+   */
+  private static void setExecutors(
+      SplitLayoutResolver resolver, Executor mainExecutor, Executor bgExecutor) {
+    final Object mainPool = Whitebox.getInternalState(resolver, "mMainPool");
+    if (mainPool != null) {
+      Whitebox.setInternalState(mainPool, "mExecutor", mainExecutor);
+    }
+    final Object bgPool = Whitebox.getInternalState(resolver, "mBgPool");
+    if (bgPool != null) {
+      Whitebox.setInternalState(bgPool, "mExecutor", bgExecutor);
+    }
+  }
+
+  /** Makes the children of MyTestComponent expensive enough to be laid out in parallel. */
+  private void primeCosts(SplitLayoutResolver resolver) {
+    resolver
+        .getCostModel()
+        .record(
+            TestDrawableComponent.create(mContext).build(),
+            SplitLayoutResolver.MIN_CHUNK_COST_NS * 10);
+  }
+
   @After
   public void cleanup() {
     SplitLayoutResolver.clearTag(splitTag);
@@ -124,8 +150,8 @@ public class SplitLayoutResolverTest {
     SplitLayoutResolver resolver = SplitLayoutResolver.getForTag(splitTag);
     when(ThreadUtils.isMainThread()).thenReturn(true);
 
-    Whitebox.setInternalState(resolver, "mainService", mainService);
-    Whitebox.setInternalState(resolver, "bgService", bgService);
+    setExecutors(resolver, mMainExecutor, mBgExecutor);
+    primeCosts(resolver);
 
     ComponentTree tree =
         ComponentTree.create(mContext, mComponent).splitLayoutTag(splitTag).build();
@@ -133,10 +159,11 @@ public class SplitLayoutResolverTest {
     tree.setRootAndSizeSpec(
         mComponent, makeSizeSpec(100, EXACTLY), makeSizeSpec(100, EXACTLY), new Size());
 
-    verify(mainService).submit(any(Runnable.class), eq(0));
-    verify(mainService).submit(any(Runnable.class), eq(1));
-    verify(mainService, never()).submit(any(Runnable.class), eq(2));
-    verify(bgService, never()).submit(any(Runnable.class), any());
+    // One chunk per child, the first one being laid out by the caller.
+    verify(mMainExecutor, times(2)).execute(any(Runnable.class));
+    verify(mBgExecutor, never()).execute(any(Runnable.class));
+    // The root host and the three drawables.
+    assertThat(tree.getMainThreadLayoutState().getMountableOutputCount()).isEqualTo(4);
   }
 
   @Test
@@ -145,8 +172,8 @@ public class SplitLayoutResolverTest {
     SplitLayoutResolver resolver = SplitLayoutResolver.getForTag(splitTag);
 
     when(ThreadUtils.isMainThread()).thenReturn(false);
-    Whitebox.setInternalState(resolver, "mainService", mainService);
-    Whitebox.setInternalState(resolver, "bgService", bgService);
+    setExecutors(resolver, mMainExecutor, mBgExecutor);
+    primeCosts(resolver);
 
     final ComponentTree tree =
         ComponentTree.create(mContext, mComponent).splitLayoutTag(splitTag).build();
@@ -155,10 +182,8 @@ public class SplitLayoutResolverTest {
         mComponent, makeSizeSpec(100, EXACTLY), makeSizeSpec(100, EXACTLY));
     mLayoutThreadShadowLooper.runOneTask();
 
-    verify(bgService).submit(any(Runnable.class), eq(0));
-    verify(bgService).submit(any(Runnable.class), eq(1));
-    verify(bgService, never()).submit(any(Runnable.class), eq(2));
-    verify(mainService, never()).submit(any(Runnable.class), any());
+    verify(mBgExecutor, times(2)).execute(any(Runnable.class));
+    verify(mMainExecutor, never()).execute(any(Runnable.class));
   }
 
   @Test
@@ -167,7 +192,8 @@ public class SplitLayoutResolverTest {
     SplitLayoutResolver resolver = SplitLayoutResolver.getForTag(splitTag);
 
     when(ThreadUtils.isMainThread()).thenReturn(false);
-    Whitebox.setInternalState(resolver, "mainService", mainService);
+    setExecutors(resolver, mMainExecutor, mBgExecutor);
+    primeCosts(resolver);
 
     final ComponentTree tree =
         ComponentTree.create(mContext, mComponent).splitLayoutTag(splitTag).build();
@@ -177,6 +203,65 @@ public class SplitLayoutResolverTest {
 
     mLayoutThreadShadowLooper.runOneTask();
 
-    verify(bgService, never()).submit(any(Runnable.class), eq(0));
+    verify(mBgExecutor, never()).execute(any(Runnable.class));
+    verify(mMainExecutor, never()).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void testCheapChildrenNotSplit() {
+    SplitLayoutResolver.createForTag(splitTag, mMainConfig, mBgConfig, mEnabledComponent);
+    SplitLayoutResolver resolver = SplitLayoutResolver.getForTag(splitTag);
+    when(ThreadUtils.isMainThread()).thenReturn(true);
+
+    setExecutors(resolver, mMainExecutor, mBgExecutor);
+
+    ComponentTree tree =
+        ComponentTree.create(mContext, mComponent).splitLayoutTag(splitTag).build();
+
+    tree.setRootAndSizeSpec(
+        mComponent, makeSizeSpec(100, EXACTLY), makeSizeSpec(100, EXACTLY), new Size());
+
+    verify(mMainExecutor, never()).execute(any(Runnable.class));
+    // The children were measured on the caller thread for the next layouts.
+    assertThat(resolver.getCostModel().getCost(TestDrawableComponent.create(mContext).build()))
+        .isGreaterThan(0);
+  }
+
+  @Test
+  public void testEmptyEnabledComponentsDisableSplitting() {
+    SplitLayoutResolver.createForTag(splitTag, mMainConfig, mBgConfig, new HashSet<String>());
+    SplitLayoutResolver resolver = SplitLayoutResolver.getForTag(splitTag);
+    when(ThreadUtils.isMainThread()).thenReturn(true);
+
+    setExecutors(resolver, mMainExecutor, mBgExecutor);
+    primeCosts(resolver);
+
+    ComponentTree tree =
+        ComponentTree.create(mContext, mComponent).splitLayoutTag(splitTag).build();
+
+    tree.setRootAndSizeSpec(
+        mComponent, makeSizeSpec(100, EXACTLY), makeSizeSpec(100, EXACTLY), new Size());
+
+    verify(mMainExecutor, never()).execute(any(Runnable.class));
+    verify(mBgExecutor, never()).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void testSplitForAllComponents() {
+    SplitLayoutResolver.createForAllComponentsForTag(splitTag, mMainConfig, mBgConfig);
+    SplitLayoutResolver resolver = SplitLayoutResolver.getForTag(splitTag);
+    when(ThreadUtils.isMainThread()).thenReturn(true);
+
+    setExecutors(resolver, mMainExecutor, mBgExecutor);
+    primeCosts(resolver);
+
+    ComponentTree tree =
+        ComponentTree.create(mContext, mComponent).splitLayoutTag(splitTag).build();
+
+    tree.setRootAndSizeSpec(
+        mComponent, makeSizeSpec(100, EXACTLY), makeSizeSpec(100, EXACTLY), new Size());
+
+    verify(mMainExecutor, times(2)).execute(any(Runnable.class));
+    verify(mBgExecutor, never()).execute(any(Runnable.class));
   }
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.FrameworkLogEvents.EVENT_CALCULATE_LAYOUT_STATE;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_ALLOCATIONS;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_ALLOCATIONS_BY_COMPONENT;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_MISSES;
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.robolectric.RuntimeEnvironment.application;
+
+import android.content.Context;
+import android.graphics.drawable.ColorDrawable;
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.stats.AllocationStats;
+import com.facebook.litho.stats.LithoStats;
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.helper.ComponentTestHelper;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class AllocationAccountingTest {
+
+  @Before
+  public void setup() {
+    ComponentsConfiguration.enableAllocationAccounting = true;
+    LithoStats.getAllocationStats().reset();
+  }
+
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.enableAllocationAccounting = false;
+    LithoStats.getAllocationStats().reset();
+  }
+
+  @Test
+  public void testNothingIsRecordedWhenDisabled() {
+    ComponentsConfiguration.enableAllocationAccounting = false;
+
+    assertThat(AllocationAccounting.beginPass("Root")).isNull();
+    AllocationAccounting.record(AllocationStats.RECT);
+
+    assertThat(LithoStats.getAllocationStats().getAllocationsByComponent()).isEmpty();
+  }
+
+  @Test
+  public void testAllocationsAreAttributedToTheCurrentComponent() {
+    final AllocationAccounting.Pass pass = AllocationAccounting.beginPass("Root");
+    AllocationAccounting.record(AllocationStats.INTERNAL_NODE);
+
+    final String previousComponent = pass.enterComponent("Child");
+    AllocationAccounting.record(AllocationStats.COMPONENT_BUILDER);
+    AllocationAccounting.record(AllocationStats.GLOBAL_KEY);
+    pass.exitComponent(previousComponent);
+
+    AllocationAccounting.record(AllocationStats.RECT);
+    new RecyclePool<Object>("TestPool", 1, false).acquire();
+
+    assertThat(pass.getTotal()).isEqualTo(4);
+    assertThat(pass.getCounts("Root")[AllocationStats.INTERNAL_NODE]).isEqualTo(1);
+    assertThat(pass.getCounts("Root")[AllocationStats.RECT]).isEqualTo(1);
+    assertThat(pass.getCounts("Child")[AllocationStats.COMPONENT_BUILDER]).isEqualTo(1);
+    assertThat(pass.getPoolMisses("TestPool")).isEqualTo(1);
+
+    AllocationAccounting.endPass(pass);
+    AllocationAccounting.record(AllocationStats.RECT);
+
+    final List<AllocationStats.Entry> entries =
+        LithoStats.getAllocationStats().getAllocationsByComponent();
+    assertThat(entries).hasSize(2);
+    assertThat(entries.get(0).total).isEqualTo(2);
+    assertThat(entries.get(1).total).isEqualTo(2);
+    assertThat(LithoStats.getAllocationStats().getPoolMisses()).containsEntry("TestPool", 1L);
+  }
+
+  @Test
+  public void testNestedPassesOnlyCountTheirOwnAllocations() {
+    final AllocationAccounting.Pass outerPass = AllocationAccounting.beginPass("Outer");
+    final AllocationAccounting.Pass innerPass = AllocationAccounting.beginPass("Inner");
+    AllocationAccounting.record(AllocationStats.LAYOUT_OUTPUT);
+    AllocationAccounting.endPass(innerPass);
+    AllocationAccounting.record(AllocationStats.DIFF_NODE);
+    AllocationAccounting.endPass(outerPass);
+
+    assertThat(innerPass.getTotal()).isEqualTo(1);
+    assertThat(outerPass.getTotal()).isEqualTo(1);
+    assertThat(outerPass.getCounts("Outer")[AllocationStats.DIFF_NODE]).isEqualTo(1);
+    assertThat(AllocationAccounting.getCurrentPass()).isNull();
+  }
+
+  @Test
+  public void testPassIsReportedOnThePerfEvent() {
+    final AllocationAccounting.Pass pass = AllocationAccounting.beginPass("Root");
+    AllocationAccounting.record(AllocationStats.RECT);
+    AllocationAccounting.recordPoolMiss("Rect");
+    AllocationAccounting.endPass(pass);
+
+    final TestPerfEvent event = new TestPerfEvent(EVENT_CALCULATE_LAYOUT_STATE);
+    pass.annotate(event);
+
+    assertThat(event.getAnnotations())
+        .containsEntry(PARAM_ALLOCATIONS, 1)
+        .containsEntry(PARAM_ALLOCATIONS_BY_COMPONENT, new String[] {"Root:1"})
+        .containsEntry(PARAM_POOL_MISSES, new String[] {"Rect:1"});
+  }
+
+  @Test
+  public void testLayoutAllocationsAreAttributedToTheSpecCreatingThem() {
+    final ComponentContext c = new ComponentContext(application);
+    final Component component =
+        new InlineLayoutSpec() {
+          @Override
+          protected Component onCreateLayout(ComponentContext c) {
+            return Column.create(c).child(TestDrawableComponent.create(c)).build();
+          }
+        };
+
+    LayoutState.calculate(
+        c,
+        component,
+        -1,
+        makeSizeSpec(100, EXACTLY),
+        makeSizeSpec(100, EXACTLY),
+        LayoutState.CalculateLayoutSource.TEST);
+
+    final List<AllocationStats.Entry> entries =
+        LithoStats.getAllocationStats().getAllocationsByComponent();
+    AllocationStats.Entry inlineLayoutEntry = null;
+    for (AllocationStats.Entry entry : entries) {
+      if (entry.componentType.equals(component.getSimpleName())) {
+        inlineLayoutEntry = entry;
+      }
+    }
+
+    // The Column and the TestDrawableComponent are built in onCreateLayout.
+    assertThat(inlineLayoutEntry).isNotNull();
+    assertThat(inlineLayoutEntry.getCount(AllocationStats.COMPONENT_BUILDER)).isEqualTo(2);
+    assertThat(AllocationAccounting.getCurrentPass()).isNull();
+  }
+
+  @Test
+  public void testMountPassEndsWhenMountThrows() {
+    final ComponentContext c = new ComponentContext(application);
+
+    boolean hasThrown = false;
+    try {
+      ComponentTestHelper.mountComponent(c, new ThrowingMountComponent());
+    } catch (RuntimeException e) {
+      hasThrown = true;
+    }
+
+    assertThat(hasThrown).isTrue();
+    assertThat(AllocationAccounting.getCurrentPass()).isNull();
+  }
+
+  private static class ThrowingMountComponent extends Component {
+
+    ThrowingMountComponent() {
+      super("ThrowingMountComponent");
+    }
+
+    @Override
+    public boolean isEquivalentTo(Component other) {
+      return this == other;
+    }
+
+    @Override
+    protected boolean canMeasure() {
+      return true;
+    }
+
+    @Override
+    protected void onMeasure(
+        ComponentContext c, ComponentLayout layout, int widthSpec, int heightSpec, Size size) {
+      size.width = 10;
+      size.height = 10;
+    }
+
+    @Override
+    protected Object onCreateMountContent(Context context) {
+      return new ColorDrawable();
+    }
+
+    @Override
+    protected void onMount(ComponentContext c, Object convertContent) {
+      throw new IllegalStateException("Mount failed");
+    }
+
+    @Override
+    public MountType getMountType() {
+      return MountType.DRAWABLE;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import android.graphics.Rect;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class BoundsIndexTest {
+
+  @Test
+  public void testEmptyIndex() {
+    final BoundsIndex index = new BoundsIndex(new int[0], 0);
+
+    assertThat(index.getItemCount()).isEqualTo(0);
+    assertThat(index.query(0, 0, 100, 100)).isEqualTo(0);
+  }
+
+  @Test
+  public void testEdgesDoNotIntersect() {
+    final BoundsIndex index = new BoundsIndex(new int[] {0, 0, 10, 10, 10, 0, 20, 10}, 2);
+
+    assertThat(index.query(10, 0, 20, 10)).isEqualTo(1);
+    assertThat(index.getResultAt(0)).isEqualTo(1);
+
+    assertThat(index.query(5, 5, 15, 15)).isEqualTo(2);
+    assertThat(index.getResultAt(0)).isEqualTo(0);
+    assertThat(index.getResultAt(1)).isEqualTo(1);
+
+    assertThat(index.query(0, 10, 20, 20)).isEqualTo(0);
+  }
+
+  @Test
+  public void testMatchesBruteForce() {
+    final Random random = new Random(42);
+    final int itemCount = 2000;
+    final int[] boxes = new int[itemCount * 4];
+    for (int i = 0; i < itemCount; i++) {
+      // A grid of cells, some of them with nested or overlapping boxes.
+      final int left = (i % 40) * 50 + random.nextInt(20);
+      final int top = (i / 40) * 50 + random.nextInt(20);
+      boxes[i * 4] = left;
+      boxes[i * 4 + 1] = top;
+      boxes[i * 4 + 2] = left + random.nextInt(80);
+      boxes[i * 4 + 3] = top + random.nextInt(80);
+    }
+
+    final BoundsIndex index = new BoundsIndex(boxes, itemCount);
+    for (int i = 0; i < 500; i++) {
+      final int left = random.nextInt(2100) - 50;
+      final int top = random.nextInt(2600) - 50;
+      final Rect rect =
+          new Rect(left, top, left + random.nextInt(600), top + random.nextInt(600));
+
+      final List<Integer> expected = new ArrayList<>();
+      for (int item = 0; item < itemCount; item++) {
+        if (Rect.intersects(
+            rect,
+            new Rect(
+                boxes[item * 4], boxes[item * 4 + 1], boxes[item * 4 + 2], boxes[item * 4 + 3]))) {
+          expected.add(item);
+        }
+      }
+
+      final List<Integer> found = new ArrayList<>();
+      for (int j = 0, count = index.query(rect); j < count; j++) {
+        found.add(index.getResultAt(j));
+      }
+      assertThat(found).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testSubtractCoversDifference() {
+    final Rect[] out = {new Rect(), new Rect(), new Rect(), new Rect()};
+    final Rect rect = new Rect(0, 0, 10, 10);
+
+    assertThat(MountState.subtract(rect, new Rect(0, 0, 10, 10), out)).isEqualTo(0);
+
+    assertThat(MountState.subtract(rect, new Rect(20, 20, 30, 30), out)).isEqualTo(1);
+    assertThat(out[0]).isEqualTo(rect);
+
+    assertThat(MountState.subtract(rect, new Rect(0, 5, 10, 15), out)).isEqualTo(1);
+    assertThat(out[0]).isEqualTo(new Rect(0, 0, 10, 5));
+
+    assertThat(MountState.subtract(rect, new Rect(2, 2, 8, 8), out)).isEqualTo(4);
+    assertThat(out[0]).isEqualTo(new Rect(0, 0, 10, 2));
+    assertThat(out[1]).isEqualTo(new Rect(0, 8, 10, 10));
+    assertThat(out[2]).isEqualTo(new Rect(0, 2, 2, 8));
+    assertThat(out[3]).isEqualTo(new Rect(8, 2, 10, 8));
+  }
+}
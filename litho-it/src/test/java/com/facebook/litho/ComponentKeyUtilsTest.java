@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class ComponentKeyUtilsTest {
+
+  @Test
+  public void testKeyHashMatchesHashOfStringKey() {
+    final String parentKey = ComponentKeyUtils.getKeyWithSeparator("1", "23");
+    final String childKey = ComponentKeyUtils.getKeyWithSeparator(parentKey, "someKey");
+    final String uniqueChildKey = ComponentKeyUtils.getKeyForChildPosition(childKey, 12);
+
+    final long parentKeyHash =
+        ComponentKeyUtils.getKeyHashWithSeparator(ComponentKeyUtils.getKeyHash("1"), "23");
+    final long childKeyHash = ComponentKeyUtils.getKeyHashWithSeparator(parentKeyHash, "someKey");
+    final long uniqueChildKeyHash = ComponentKeyUtils.getKeyHashForChildPosition(childKeyHash, 12);
+
+    assertThat(parentKeyHash).isEqualTo(ComponentKeyUtils.getKeyHash(parentKey));
+    assertThat(childKeyHash).isEqualTo(ComponentKeyUtils.getKeyHash(childKey));
+    assertThat(uniqueChildKeyHash).isEqualTo(ComponentKeyUtils.getKeyHash(uniqueChildKey));
+    assertThat(ComponentKeyUtils.getKeyHashForChildPosition(childKeyHash, 0))
+        .isEqualTo(
+            ComponentKeyUtils.getKeyHash(ComponentKeyUtils.getKeyForChildPosition(childKey, 0)));
+  }
+
+  @Test
+  public void testKeyCheckMatchesCheckOfStringKey() {
+    final String childKey = ComponentKeyUtils.getKeyWithSeparator("1", "someKey");
+    final String uniqueChildKey = ComponentKeyUtils.getKeyForChildPosition(childKey, 3);
+
+    final long childKeyCheck =
+        ComponentKeyUtils.getKeyCheckWithSeparator(ComponentKeyUtils.getKeyCheck("1"), "someKey");
+
+    assertThat(childKeyCheck).isEqualTo(ComponentKeyUtils.getKeyCheck(childKey));
+    assertThat(ComponentKeyUtils.getKeyCheckForChildPosition(childKeyCheck, 3))
+        .isEqualTo(ComponentKeyUtils.getKeyCheck(uniqueChildKey));
+    assertThat(childKeyCheck).isNotEqualTo(ComponentKeyUtils.getKeyHash(childKey));
+  }
+
+  @Test
+  public void testSiblingKeyHashesAreDistinct() {
+    final long parentKeyHash = ComponentKeyUtils.getKeyHash("1");
+
+    assertThat(ComponentKeyUtils.getKeyHashWithSeparator(parentKeyHash, "2"))
+        .isNotEqualTo(ComponentKeyUtils.getKeyHashWithSeparator(parentKeyHash, "3"));
+    assertThat(ComponentKeyUtils.getKeyHashForChildPosition(parentKeyHash, 1))
+        .isNotEqualTo(ComponentKeyUtils.getKeyHashForChildPosition(parentKeyHash, 10));
+  }
+
+  @Test
+  public void testHashedGlobalKeyRoundTrip() {
+    final long keyHash = ComponentKeyUtils.getKeyHash("1,2,3!4");
+    final String hashedGlobalKey = ComponentKeyUtils.getHashedGlobalKey(keyHash);
+
+    assertThat(hashedGlobalKey).hasSize(17);
+    assertThat(ComponentKeyUtils.getGlobalKeyHash(hashedGlobalKey)).isEqualTo(keyHash);
+    assertThat(ComponentKeyUtils.getGlobalKeyHash(ComponentKeyUtils.getHashedGlobalKey(-1L)))
+        .isEqualTo(-1L);
+    // Full string keys, as kept in debug mode, map to the same hash.
+    assertThat(ComponentKeyUtils.getGlobalKeyHash("1,2,3!4")).isEqualTo(keyHash);
+  }
+
+  @Test
+  public void testCollidingGlobalKey() {
+    final String collidingGlobalKey = ComponentKeyUtils.getCollidingGlobalKey(-1L, 1L);
+
+    assertThat(collidingGlobalKey).isEqualTo("#ffffffffffffffff0000000000000001");
+    assertThat(ComponentKeyUtils.isCollidingGlobalKey(collidingGlobalKey)).isTrue();
+    assertThat(ComponentKeyUtils.isCollidingGlobalKey(ComponentKeyUtils.getHashedGlobalKey(-1L)))
+        .isFalse();
+    assertThat(ComponentKeyUtils.isCollidingGlobalKey("1,2,3!4")).isFalse();
+  }
+}
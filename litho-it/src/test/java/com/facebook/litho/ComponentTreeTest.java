@@ -715,6 +715,7 @@ public class ComponentTreeTest {
                     null,
                     null,
                     LayoutState.CalculateLayoutSource.TEST,
+                    null,
                     null);
 
                 // At this point, the current thread is unblocked after waiting for the first to
@@ -790,6 +791,7 @@ public class ComponentTreeTest {
                     null,
                     null,
                     LayoutState.CalculateLayoutSource.TEST,
+                    null,
                     null);
 
                 // At this point, the current thread is unblocked after waiting for the first to
@@ -17,6 +17,7 @@
 package com.facebook.litho;
 
 import static com.facebook.litho.ComponentUtils.hasEquivalentFields;
+import static com.facebook.litho.ComponentUtils.verifyIsEquivalentTo;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 
 import android.content.Context;
@@ -253,6 +254,29 @@ public class ComponentUtilsTest {
     assertThat(hasEquivalentFields(mC1, mC2)).isFalse();
   }
 
+  @Test
+  public void verifyIsEquivalentToMatchingResultTest() {
+    mC1.propFloat = 2f;
+    mC2.propFloat = 2f;
+    assertThat(verifyIsEquivalentTo(mC1, mC2, true)).isTrue();
+
+    mC2.propFloat = 3f;
+    assertThat(verifyIsEquivalentTo(mC1, mC2, false)).isFalse();
+
+    // Components with the same id are equivalent without looking at their fields.
+    final ComponentTest copy = (ComponentTest) mC1.makeShallowCopy();
+    copy.propFloat = 3f;
+    assertThat(verifyIsEquivalentTo(mC1, copy, true)).isTrue();
+    assertThat(verifyIsEquivalentTo(mC1, null, false)).isFalse();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void verifyIsEquivalentToMismatchingResultTest() {
+    mC1.propFloat = 2f;
+    mC2.propFloat = 3f;
+    verifyIsEquivalentTo(mC1, mC2, true);
+  }
+
   private static class ComponentTest extends Component {
     @Comparable(type = Comparable.ARRAY)
     int[] propArrayInt;
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class ConcurrentRecyclePoolTest {
+
+  @Test
+  public void testAcquireReturnsReleasedItems() {
+    final ConcurrentRecyclePool<Object> pool = new ConcurrentRecyclePool<>("test", 10);
+    final Object first = new Object();
+    final Object second = new Object();
+
+    pool.release(first);
+    pool.release(second);
+
+    assertThat(pool.getCurrentSize()).isEqualTo(2);
+    assertThat(pool.acquire()).isSameAs(second);
+    assertThat(pool.acquire()).isSameAs(first);
+    assertThat(pool.acquire()).isNull();
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testClear() {
+    final ConcurrentRecyclePool<Object> pool = new ConcurrentRecyclePool<>("test", 10);
+    final int ELEMENT_NUM = 7;
+
+    for (int i = 0; i < ELEMENT_NUM; i++) {
+      pool.release(new Object());
+    }
+
+    assertThat(pool.getCurrentSize()).isEqualTo(ELEMENT_NUM);
+
+    pool.clear();
+
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.acquire()).isNull();
+  }
+
+  @Test
+  public void testDropsItemsWhenFull() {
+    final ConcurrentRecyclePool<Object> pool = new ConcurrentRecyclePool<>("test", 4);
+
+    for (int i = 0; i < 20; i++) {
+      pool.release(new Object());
+    }
+
+    assertThat(pool.isFull()).isTrue();
+    // The depot holds maxSize items and the calling thread's magazine one more.
+    assertThat(pool.getCurrentSize()).isEqualTo(5);
+  }
+
+  @Test
+  public void testItemsAreNeverHandedOutTwice() throws InterruptedException {
+    final ConcurrentRecyclePool<Object> pool = new ConcurrentRecyclePool<>("test", 64);
+    final Set<Object> inUse = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    final AtomicBoolean duplicate = new AtomicBoolean(false);
+    final int threadCount = 4;
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threadCount);
+
+    for (int t = 0; t < threadCount; t++) {
+      new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  try {
+                    start.await();
+                  } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                  }
+
+                  for (int i = 0; i < 10000; i++) {
+                    Object item = pool.acquire();
+                    if (item == null) {
+                      item = new Object();
+                    }
+                    synchronized (inUse) {
+                      if (!inUse.add(item)) {
+                        duplicate.set(true);
+                      }
+                    }
+                    synchronized (inUse) {
+                      inUse.remove(item);
+                    }
+                    pool.release(item);
+                  }
+                  done.countDown();
+                }
+              })
+          .start();
+    }
+
+    start.countDown();
+    done.await();
+
+    assertThat(duplicate.get()).isFalse();
+  }
+}
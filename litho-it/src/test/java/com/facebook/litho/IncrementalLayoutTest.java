@@ -0,0 +1,265 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.ComponentLifecycle.StateUpdate;
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.UNSPECIFIED;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.reflect.Whitebox;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(ComponentsTestRunner.class)
+public class IncrementalLayoutTest {
+
+  private static final int INITIAL_HEIGHT = 10;
+  private static final int SIBLING_HEIGHT = 5;
+
+  private final List<Integer> mStatefulLayouts = new ArrayList<>();
+
+  private ComponentContext mContext;
+  private Component mStateful;
+  private Component mSibling;
+  private boolean mDefaultIncrementalStateUpdateLayouts;
+  private int mRootLayouts;
+  private int mSiblingLayouts;
+
+  @Before
+  public void setUp() {
+    mDefaultIncrementalStateUpdateLayouts = ComponentsConfiguration.incrementalStateUpdateLayouts;
+    ComponentsConfiguration.incrementalStateUpdateLayouts = true;
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+  }
+
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.incrementalStateUpdateLayouts = mDefaultIncrementalStateUpdateLayouts;
+  }
+
+  @Test
+  public void testStateUpdateOnlyCreatesTheLayoutOfTheUpdatedComponent() {
+    final ComponentTree componentTree = createComponentTree();
+
+    assertThat(mRootLayouts).isEqualTo(1);
+    assertThat(mSiblingLayouts).isEqualTo(1);
+    assertThat(mStatefulLayouts).containsExactly(INITIAL_HEIGHT);
+    assertThat(componentTree.getBackgroundLayoutState().getHeight())
+        .isEqualTo(SIBLING_HEIGHT + INITIAL_HEIGHT);
+
+    componentTree.updateStateSync(mStateful.getGlobalKey(), new IncrementHeight(), "test");
+
+    assertThat(mRootLayouts).isEqualTo(1);
+    assertThat(mSiblingLayouts).isEqualTo(1);
+    assertThat(mStatefulLayouts).containsExactly(INITIAL_HEIGHT, INITIAL_HEIGHT + 1);
+    assertThat(componentTree.getBackgroundLayoutState().getHeight())
+        .isEqualTo(SIBLING_HEIGHT + INITIAL_HEIGHT + 1);
+  }
+
+  @Test
+  public void testStateUpdateOfTheRootCreatesTheWholeLayout() {
+    final Component root = new StatefulComponent(mStatefulLayouts);
+
+    final ComponentTree componentTree =
+        ComponentTree.create(mContext, root).persistInternalNodeTree(true).build();
+    componentTree.setRootAndSizeSpec(
+        root, makeSizeSpec(100, EXACTLY), makeSizeSpec(0, UNSPECIFIED));
+    componentTree.updateStateSync(root.getGlobalKey(), new IncrementHeight(), "test");
+
+    assertThat(mStatefulLayouts).containsExactly(INITIAL_HEIGHT, INITIAL_HEIGHT + 1);
+    assertThat(componentTree.getBackgroundLayoutState().getHeight())
+        .isEqualTo(INITIAL_HEIGHT + 1);
+  }
+
+  @Test
+  public void testStateUpdateDoesNotModifyTheCommittedTree() {
+    final ComponentTree componentTree = createComponentTree();
+    final LayoutState committed = componentTree.getBackgroundLayoutState().acquireRef();
+    final InternalNode committedRoot = committed.mLayoutRoot;
+    final InternalNode committedSibling = committedRoot.getChildAt(0);
+    final InternalNode committedStateful = committedRoot.getChildAt(1);
+
+    componentTree.updateStateSync(mStateful.getGlobalKey(), new IncrementHeight(), "test");
+
+    assertThat(componentTree.getBackgroundLayoutState().mLayoutRoot).isNotSameAs(committedRoot);
+    assertThat(committed.mLayoutRoot).isSameAs(committedRoot);
+    assertThat(committedRoot.getChildCount()).isEqualTo(2);
+    assertThat(committedRoot.getChildAt(0)).isSameAs(committedSibling);
+    assertThat(committedRoot.getChildAt(1)).isSameAs(committedStateful);
+    assertThat(committedSibling.getRootComponent()).isNotNull();
+    assertThat(committedStateful.mYogaNode.getLayoutHeight()).isEqualTo((float) INITIAL_HEIGHT);
+    assertThat(committedRoot.mYogaNode.getLayoutHeight())
+        .isEqualTo((float) (SIBLING_HEIGHT + INITIAL_HEIGHT));
+
+    committed.releaseRef();
+  }
+
+  @Test
+  public void testCommittedTreeCanBeReadDuringStateUpdates() throws InterruptedException {
+    final ComponentTree componentTree = createComponentTree();
+    final LayoutState committed = componentTree.getBackgroundLayoutState().acquireRef();
+    final InternalNode committedRoot = committed.mLayoutRoot;
+    final AtomicBoolean done = new AtomicBoolean();
+    final List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+    final Thread reader =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                while (!done.get()) {
+                  try {
+                    assertThat(committedRoot.getChildCount()).isEqualTo(2);
+                    assertThat(committedRoot.getChildAt(1).mYogaNode.getLayoutHeight())
+                        .isEqualTo((float) INITIAL_HEIGHT);
+                    assertThat(committedRoot.mYogaNode.getLayoutHeight())
+                        .isEqualTo((float) (SIBLING_HEIGHT + INITIAL_HEIGHT));
+                  } catch (Throwable t) {
+                    failures.add(t);
+                    return;
+                  }
+                }
+              }
+            });
+    reader.start();
+
+    for (int i = 1; i <= 10; i++) {
+      componentTree.updateStateSync(mStateful.getGlobalKey(), new IncrementHeight(), "test");
+      assertThat(componentTree.getBackgroundLayoutState().getHeight())
+          .isEqualTo(SIBLING_HEIGHT + INITIAL_HEIGHT + i);
+    }
+
+    done.set(true);
+    reader.join();
+    committed.releaseRef();
+
+    assertThat(failures).isEmpty();
+    assertThat(mSiblingLayouts).isEqualTo(1);
+  }
+
+  @Test
+  public void testCarriedOverComponentsAreRegisteredInTheKeyHandler() {
+    final ComponentTree componentTree = createComponentTree();
+
+    componentTree.updateStateSync(mStateful.getGlobalKey(), new IncrementHeight(), "test");
+
+    final LayoutState layoutState = componentTree.getBackgroundLayoutState();
+    final ComponentContext context = Whitebox.getInternalState(layoutState, "mContext");
+    final InternalNode sibling = layoutState.mLayoutRoot.getChildAt(0);
+    final String rootKey = layoutState.mLayoutRoot.getRootComponent().getGlobalKey();
+    assertThat(mSiblingLayouts).isEqualTo(1);
+    assertThat(context.getKeyHandler().hasKey(sibling.getRootComponent().getGlobalKey()))
+        .isTrue();
+    assertThat(context.getKeyHandler().hasKey(rootKey)).isTrue();
+  }
+
+  private ComponentTree createComponentTree() {
+    mStateful = new StatefulComponent(mStatefulLayouts);
+    mSibling =
+        new InlineLayoutSpec() {
+          @Override
+          protected Component onCreateLayout(ComponentContext c) {
+            mSiblingLayouts++;
+            return TestDrawableComponent.create(c).heightPx(SIBLING_HEIGHT).build();
+          }
+        };
+    final Component root =
+        new InlineLayoutSpec() {
+          @Override
+          protected Component onCreateLayout(ComponentContext c) {
+            mRootLayouts++;
+            return Column.create(c).child(mSibling).child(mStateful).build();
+          }
+        };
+
+    final ComponentTree componentTree =
+        ComponentTree.create(mContext, root).persistInternalNodeTree(true).build();
+    componentTree.setRootAndSizeSpec(
+        root, makeSizeSpec(100, EXACTLY), makeSizeSpec(0, UNSPECIFIED));
+    return componentTree;
+  }
+
+  private static class IncrementHeight implements StateUpdate {
+
+    @Override
+    public void updateState(StateContainer stateContainer) {
+      ((HeightStateContainer) stateContainer).mHeight++;
+    }
+  }
+
+  private static class HeightStateContainer implements StateContainer {
+    private int mHeight;
+  }
+
+  private static class StatefulComponent extends InlineLayoutSpec {
+
+    private final List<Integer> mLayouts;
+    private HeightStateContainer mStateContainer = new HeightStateContainer();
+
+    StatefulComponent(List<Integer> layouts) {
+      mLayouts = layouts;
+    }
+
+    @Override
+    protected Component onCreateLayout(ComponentContext c) {
+      mLayouts.add(mStateContainer.mHeight);
+      return TestDrawableComponent.create(c).heightPx(mStateContainer.mHeight).build();
+    }
+
+    @Override
+    protected boolean hasState() {
+      return true;
+    }
+
+    @Override
+    protected void createInitialState(ComponentContext c) {
+      mStateContainer.mHeight = INITIAL_HEIGHT;
+    }
+
+    @Override
+    protected void transferState(
+        StateContainer prevStateContainer, StateContainer nextStateContainer) {
+      ((HeightStateContainer) nextStateContainer).mHeight =
+          ((HeightStateContainer) prevStateContainer).mHeight;
+    }
+
+    @Override
+    protected StateContainer getStateContainer() {
+      return mStateContainer;
+    }
+
+    @Override
+    public Component makeShallowCopy() {
+      final StatefulComponent component = (StatefulComponent) super.makeShallowCopy();
+      component.mStateContainer = new HeightStateContainer();
+      return component;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.ComponentLifecycle.StateUpdate;
+import com.facebook.litho.StateUpdatesTest.TestComponent;
+import com.facebook.litho.StateUpdatesTest.TestStateContainer;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests {@link KeyHandler} with hashed global keys. */
+@RunWith(ComponentsTestRunner.class)
+public class KeyHandlerTest {
+
+  private static final long KEY_HASH = 42;
+
+  @Test
+  public void testCollidingKeyHashFallsBackToStringKey() {
+    final KeyHandler keyHandler = new KeyHandler(null);
+    final TestComponent first = createComponent(KEY_HASH, 1);
+    final TestComponent second = createComponent(KEY_HASH, 2);
+
+    keyHandler.registerKey(first);
+    keyHandler.registerKey(second);
+
+    assertThat(first.hasGlobalKeyHash()).isTrue();
+    assertThat(second.hasGlobalKeyHash()).isFalse();
+    assertThat(second.getGlobalKey())
+        .isEqualTo(ComponentKeyUtils.getCollidingGlobalKey(KEY_HASH, 2));
+    assertThat(keyHandler.hasKey(second.getGlobalKey())).isTrue();
+    assertThat(keyHandler.hasKeyHash(KEY_HASH, 1)).isTrue();
+    assertThat(keyHandler.hasKeyHash(KEY_HASH, 2)).isTrue();
+    assertThat(keyHandler.hasKeyHash(KEY_HASH, 3)).isFalse();
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testDuplicateKeyHashIsDetected() {
+    final KeyHandler keyHandler = new KeyHandler(null);
+
+    keyHandler.registerKey(createComponent(KEY_HASH, 1));
+    keyHandler.registerKey(createComponent(KEY_HASH, 1));
+  }
+
+  @Test
+  public void testCollidingComponentsDoNotShareState() {
+    final KeyHandler keyHandler = new KeyHandler(null);
+    final StateHandler stateHandler = new StateHandler();
+    final TestComponent first = createComponent(KEY_HASH, 1);
+    final TestComponent second = createComponent(KEY_HASH, 2);
+
+    keyHandler.registerKey(first);
+    keyHandler.registerKey(second);
+    stateHandler.queueStateUpdate(second.getGlobalKey(), new IncrementCountStateUpdate());
+    stateHandler.applyStateUpdatesForComponent(first);
+    stateHandler.applyStateUpdatesForComponent(second);
+
+    assertThat(first.getCount()).isEqualTo(second.getCount() - 1);
+    assertThat(first.getStateContainer()).isNotSameAs(second.getStateContainer());
+    assertThat(stateHandler.getStateContainers())
+        .containsEntry(second.getGlobalKey(), second.getStateContainer());
+  }
+
+  private static TestComponent createComponent(long keyHash, long keyCheck) {
+    final TestComponent component = new TestComponent();
+    component.setGlobalKeyHash(keyHash, keyCheck, null);
+    return component;
+  }
+
+  private static class IncrementCountStateUpdate implements StateUpdate {
+
+    @Override
+    public void updateState(StateContainer stateContainer) {
+      ((TestStateContainer) stateContainer).mCount++;
+    }
+  }
+}
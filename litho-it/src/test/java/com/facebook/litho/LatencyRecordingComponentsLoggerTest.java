@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.FrameworkLogEvents.EVENT_CSS_LAYOUT;
+import static com.facebook.litho.FrameworkLogEvents.EVENT_MOUNT;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_COMPONENT;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_LOG_TAG;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_ROOT_COMPONENT;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.stats.LatencyMetrics;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class LatencyRecordingComponentsLoggerTest {
+
+  private final LatencyMetrics mMetrics = new LatencyMetrics();
+  private final LatencyRecordingComponentsLogger mLogger =
+      new LatencyRecordingComponentsLogger(mMetrics);
+
+  @Test
+  public void testRecordsLoggedEventsByPhaseLogTagAndRootComponent() {
+    final PerfEvent layoutEvent = mLogger.newPerformanceEvent(EVENT_CSS_LAYOUT);
+    layoutEvent.markerAnnotate(PARAM_LOG_TAG, "feed");
+    layoutEvent.markerAnnotate(PARAM_ROOT_COMPONENT, "Story");
+    mLogger.logPerfEvent(layoutEvent);
+
+    final PerfEvent otherLayoutEvent = mLogger.newPerformanceEvent(EVENT_CSS_LAYOUT);
+    otherLayoutEvent.markerAnnotate(PARAM_LOG_TAG, "profile");
+    otherLayoutEvent.markerAnnotate(PARAM_COMPONENT, "Header");
+    mLogger.logPerfEvent(otherLayoutEvent);
+
+    assertThat(mMetrics.getHistogram(EVENT_CSS_LAYOUT).snapshot().getCount()).isEqualTo(2);
+    assertThat(mMetrics.getHistogramForLogTag(EVENT_CSS_LAYOUT, "feed").snapshot().getCount())
+        .isEqualTo(1);
+    assertThat(
+            mMetrics
+                .getHistogramForRootComponent(EVENT_CSS_LAYOUT, "Story")
+                .snapshot()
+                .getCount())
+        .isEqualTo(1);
+    assertThat(
+            mMetrics
+                .getHistogramForRootComponent(EVENT_CSS_LAYOUT, "Header")
+                .snapshot()
+                .getCount())
+        .isEqualTo(1);
+    assertThat(mMetrics.getHistogram(EVENT_MOUNT)).isNull();
+  }
+
+  @Test
+  public void testCancelledEventsAreNotRecorded() {
+    final PerfEvent event = mLogger.newPerformanceEvent(EVENT_MOUNT);
+    event.markerAnnotate(PARAM_LOG_TAG, "feed");
+    mLogger.cancelPerfEvent(event);
+
+    // The pooled event doesn't keep the annotations of its previous use.
+    mLogger.logPerfEvent(mLogger.newPerformanceEvent(EVENT_MOUNT));
+
+    assertThat(mMetrics.getHistogram(EVENT_MOUNT).snapshot().getCount()).isEqualTo(1);
+    assertThat(mMetrics.getHistogramForLogTag(EVENT_MOUNT, "feed")).isNull();
+  }
+
+  @Test
+  public void testKeysPerPhaseAreBounded() {
+    for (int i = 0; i < LatencyMetrics.MAX_KEYS_PER_DIMENSION + 10; i++) {
+      mMetrics.record(EVENT_MOUNT, "tag" + i, null, i);
+    }
+
+    assertThat(mMetrics.getHistogramForLogTag(EVENT_MOUNT, "tag0")).isNotNull();
+    assertThat(
+            mMetrics
+                .getHistogramForLogTag(EVENT_MOUNT, LatencyMetrics.OTHER_KEY)
+                .snapshot()
+                .getCount())
+        .isEqualTo(10);
+    // One entry for all the durations, plus the log tags and the other key.
+    assertThat(mMetrics.snapshotAndReset()).hasSize(LatencyMetrics.MAX_KEYS_PER_DIMENSION + 2);
+    assertThat(mMetrics.getHistogram(EVENT_MOUNT).snapshot().getCount()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.robolectric.RuntimeEnvironment.application;
+
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.stats.LithoStats;
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.reflect.Whitebox;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(ComponentsTestRunner.class)
+public class LayoutCancellationTokenTest {
+
+  private ComponentContext mContext;
+  private boolean mDefaultCancelSupersededLayouts;
+
+  @Before
+  public void setup() {
+    mContext = new ComponentContext(application);
+    mDefaultCancelSupersededLayouts = ComponentsConfiguration.cancelSupersededLayouts;
+  }
+
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.cancelSupersededLayouts = mDefaultCancelSupersededLayouts;
+  }
+
+  @Test
+  public void testCancelledWhenGenerationChanges() {
+    final AtomicInteger generation = new AtomicInteger(3);
+    final LayoutCancellationToken token = new LayoutCancellationToken(generation, 3);
+
+    assertThat(token.isCancelled()).isFalse();
+    assertThat(LayoutCancellationToken.isCancelled(null)).isFalse();
+
+    generation.incrementAndGet();
+
+    assertThat(token.isCancelled()).isTrue();
+    assertThat(LayoutCancellationToken.isCancelled(token)).isTrue();
+  }
+
+  @Test
+  public void testIsSameGeneration() {
+    final AtomicInteger generation = new AtomicInteger();
+    final LayoutCancellationToken token = new LayoutCancellationToken(generation, 0);
+
+    assertThat(LayoutCancellationToken.isSameGeneration(null, null)).isTrue();
+    assertThat(LayoutCancellationToken.isSameGeneration(token, null)).isFalse();
+    assertThat(LayoutCancellationToken.isSameGeneration(null, token)).isFalse();
+    assertThat(
+            LayoutCancellationToken.isSameGeneration(
+                token, new LayoutCancellationToken(generation, 0)))
+        .isTrue();
+    assertThat(
+            LayoutCancellationToken.isSameGeneration(
+                token, new LayoutCancellationToken(generation, 1)))
+        .isFalse();
+    assertThat(
+            LayoutCancellationToken.isSameGeneration(
+                token, new LayoutCancellationToken(new AtomicInteger(), 0)))
+        .isFalse();
+  }
+
+  @Test
+  public void testCalculateStopsWhenCancelledDuringCreateLayout() {
+    final AtomicInteger generation = new AtomicInteger();
+    final Component component =
+        new InlineLayoutSpec() {
+          @Override
+          protected Component onCreateLayout(ComponentContext c) {
+            // A newer layout was requested while this one was running.
+            generation.incrementAndGet();
+            return Column.create(c).child(TestDrawableComponent.create(c)).build();
+          }
+        };
+    final long cancelledLayouts = LithoStats.getCancelledLayouts();
+
+    final LayoutState layoutState =
+        calculate(component, new LayoutCancellationToken(generation, 0));
+
+    assertThat(layoutState).isNull();
+    assertThat(LithoStats.getCancelledLayouts()).isEqualTo(cancelledLayouts + 1);
+  }
+
+  @Test
+  public void testCalculateCompletesWhenNotCancelled() {
+    final Component component =
+        new InlineLayoutSpec() {
+          @Override
+          protected Component onCreateLayout(ComponentContext c) {
+            return Column.create(c).child(TestDrawableComponent.create(c)).build();
+          }
+        };
+
+    final LayoutState layoutState =
+        calculate(component, new LayoutCancellationToken(new AtomicInteger(), 0));
+
+    assertThat(layoutState).isNotNull();
+    assertThat(layoutState.getMountableOutputCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testEnqueuedStateUpdateCancelsLayoutsInFlight() {
+    ComponentsConfiguration.cancelSupersededLayouts = true;
+    final Component root = TestDrawableComponent.create(mContext).build();
+    final ComponentTree componentTree = ComponentTree.create(mContext, root).build();
+    componentTree.setRootAndSizeSpec(root, makeSizeSpec(100, EXACTLY), makeSizeSpec(100, EXACTLY));
+
+    final AtomicInteger generation = Whitebox.getInternalState(componentTree, "mLayoutGeneration");
+    final LayoutCancellationToken inFlight =
+        new LayoutCancellationToken(generation, generation.get());
+
+    // Keeps the layout that applies the update from running.
+    ShadowLooper.pauseMainLooper();
+    try {
+      componentTree.updateStateSync(
+          "key",
+          new ComponentLifecycle.StateUpdate() {
+            @Override
+            public void updateState(StateContainer stateContainer) {}
+          },
+          "test");
+
+      assertThat(inFlight.isCancelled()).isTrue();
+    } finally {
+      ShadowLooper.unPauseMainLooper();
+    }
+  }
+
+  @Test
+  public void testCallerWaitingForSizeGetsTheSizeOfTheSupersedingLayout() {
+    ComponentsConfiguration.cancelSupersededLayouts = true;
+    final ComponentTree[] componentTree = new ComponentTree[1];
+    final AtomicInteger layouts = new AtomicInteger();
+    final Component root =
+        new InlineLayoutSpec() {
+          @Override
+          protected Component onCreateLayout(ComponentContext c) {
+            if (layouts.getAndIncrement() == 0) {
+              // The size specs change while the first layout is running.
+              componentTree[0].setSizeSpecAsync(
+                  makeSizeSpec(200, EXACTLY), makeSizeSpec(50, EXACTLY));
+            }
+            return TestDrawableComponent.create(c).build();
+          }
+        };
+    componentTree[0] = ComponentTree.create(mContext, root).build();
+    final long cancelledLayouts = LithoStats.getCancelledLayouts();
+
+    final Size size = new Size();
+    componentTree[0].setRootAndSizeSpec(
+        root, makeSizeSpec(100, EXACTLY), makeSizeSpec(100, EXACTLY), size);
+
+    assertThat(LithoStats.getCancelledLayouts()).isEqualTo(cancelledLayouts + 1);
+    assertThat(layouts.get()).isEqualTo(2);
+    assertThat(size.width).isEqualTo(200);
+    assertThat(size.height).isEqualTo(50);
+  }
+
+  @Test
+  public void testCallerWaitingForSizeIsNotCancelledIndefinitely() {
+    ComponentsConfiguration.cancelSupersededLayouts = true;
+    final ComponentTree[] componentTree = new ComponentTree[1];
+    final AtomicInteger layouts = new AtomicInteger();
+    final Component root =
+        new InlineLayoutSpec() {
+          @Override
+          protected Component onCreateLayout(ComponentContext c) {
+            layouts.incrementAndGet();
+            // Every layout is superseded while it's running, like under continuous updates.
+            final AtomicInteger generation =
+                Whitebox.getInternalState(componentTree[0], "mLayoutGeneration");
+            generation.incrementAndGet();
+            return TestDrawableComponent.create(c).build();
+          }
+        };
+    componentTree[0] = ComponentTree.create(mContext, root).build();
+    final long cancelledLayouts = LithoStats.getCancelledLayouts();
+
+    final Size size = new Size();
+    componentTree[0].setRootAndSizeSpec(
+        root, makeSizeSpec(100, EXACTLY), makeSizeSpec(100, EXACTLY), size);
+
+    assertThat(LithoStats.getCancelledLayouts())
+        .isEqualTo(cancelledLayouts + ComponentTree.MAX_CANCELLED_LAYOUTS_FOR_SIZE);
+    assertThat(layouts.get()).isEqualTo(ComponentTree.MAX_CANCELLED_LAYOUTS_FOR_SIZE + 1);
+    assertThat(size.width).isEqualTo(100);
+    assertThat(size.height).isEqualTo(100);
+  }
+
+  private LayoutState calculate(Component component, LayoutCancellationToken token) {
+    return LayoutState.calculate(
+        new ComponentContext(mContext),
+        component,
+        -1,
+        makeSizeSpec(100, EXACTLY),
+        makeSizeSpec(100, EXACTLY),
+        false,
+        null,
+        true,
+        false,
+        LayoutState.CalculateLayoutSource.TEST,
+        null,
+        token);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class LayoutCostModelTest {
+
+  @Test
+  public void testUnknownType() {
+    final LayoutCostModel costModel = new LayoutCostModel();
+
+    assertThat(costModel.getCost(1)).isEqualTo(0);
+  }
+
+  @Test
+  public void testFirstSampleSetsCost() {
+    final LayoutCostModel costModel = new LayoutCostModel();
+    costModel.record(1, 800);
+
+    assertThat(costModel.getCost(1)).isEqualTo(800);
+    assertThat(costModel.getCost(2)).isEqualTo(0);
+  }
+
+  @Test
+  public void testMovingAverage() {
+    final LayoutCostModel costModel = new LayoutCostModel();
+    costModel.record(1, 800);
+    costModel.record(1, 1600);
+
+    assertThat(costModel.getCost(1)).isEqualTo(900);
+
+    for (int i = 0; i < 200; i++) {
+      costModel.record(1, 1600);
+    }
+
+    assertThat(costModel.getCost(1)).isBetween(1590L, 1600L);
+  }
+
+  @Test
+  public void testManyTypes() {
+    final LayoutCostModel costModel = new LayoutCostModel();
+    for (int typeId = 1; typeId <= 500; typeId++) {
+      costModel.record(typeId, typeId * 10);
+    }
+
+    for (int typeId = 1; typeId <= 500; typeId++) {
+      assertThat(costModel.getCost(typeId)).isEqualTo(typeId * 10);
+    }
+  }
+
+  @Test
+  public void testConcurrentRecords() throws InterruptedException {
+    final LayoutCostModel costModel = new LayoutCostModel();
+    final Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] =
+          new Thread() {
+            @Override
+            public void run() {
+              for (int typeId = 1; typeId <= 100; typeId++) {
+                costModel.record(typeId, 1000);
+              }
+            }
+          };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    for (int typeId = 1; typeId <= 100; typeId++) {
+      assertThat(costModel.getCost(typeId)).isEqualTo(1000);
+    }
+  }
+}
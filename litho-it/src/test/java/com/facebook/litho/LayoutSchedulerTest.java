@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class LayoutSchedulerTest {
+
+  private static final ThreadFactory THREAD_FACTORY =
+      new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          final Thread thread = new Thread(runnable);
+          thread.setDaemon(true);
+          return thread;
+        }
+      };
+
+  private final List<String> mRuns = Collections.synchronizedList(new ArrayList<String>());
+
+  @Test
+  public void testRunsByPriorityThenDeadline() throws InterruptedException {
+    final LayoutScheduler scheduler = new LayoutScheduler(1, THREAD_FACTORY);
+    final CountDownLatch blocker = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(5);
+
+    scheduler.post(block(started, blocker), LayoutScheduler.VISIBLE_NOW);
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    scheduler.post(record("warmup", done), LayoutScheduler.WARMUP);
+    scheduler.postAtDeadline(
+        record("prefetch late", done), LayoutScheduler.IN_RANGE_PREFETCH, 200);
+    scheduler.postAtDeadline(
+        record("prefetch early", done), LayoutScheduler.IN_RANGE_PREFETCH, 100);
+    scheduler.post(record("next frame", done), LayoutScheduler.NEXT_FRAME);
+    scheduler.post(record("visible", done), LayoutScheduler.VISIBLE_NOW);
+
+    blocker.countDown();
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(mRuns)
+        .containsExactly("visible", "next frame", "prefetch early", "prefetch late", "warmup");
+  }
+
+  @Test
+  public void testLowPriorityTasksKeepAThreadFree() throws InterruptedException {
+    final LayoutScheduler scheduler = new LayoutScheduler(2, THREAD_FACTORY);
+    final CountDownLatch blocker = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch visibleDone = new CountDownLatch(1);
+    final CountDownLatch speculativeDone = new CountDownLatch(1);
+
+    scheduler.post(block(started, blocker), LayoutScheduler.IN_RANGE_PREFETCH);
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    // The second thread is kept for urgent work while the first one runs a prefetch.
+    scheduler.post(record("speculative", speculativeDone), LayoutScheduler.SPECULATIVE);
+    scheduler.post(record("visible", visibleDone), LayoutScheduler.VISIBLE_NOW);
+
+    assertThat(visibleDone.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(mRuns).containsExactly("visible");
+    assertThat(scheduler.getQueuedTaskCount()).isEqualTo(1);
+
+    blocker.countDown();
+    assertThat(speculativeDone.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(mRuns).containsExactly("visible", "speculative");
+  }
+
+  @Test
+  public void testLayoutHandlerRemovesOnlyItsCallbacks() throws InterruptedException {
+    final LayoutScheduler scheduler = new LayoutScheduler(1, THREAD_FACTORY);
+    final CountDownLatch blocker = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(2);
+
+    final LayoutHandler first = scheduler.createLayoutHandler(LayoutScheduler.NEXT_FRAME);
+    final LayoutHandler second = scheduler.createLayoutHandler(LayoutScheduler.NEXT_FRAME);
+    final Runnable shared = record("shared", done);
+
+    scheduler.post(block(started, blocker), LayoutScheduler.VISIBLE_NOW);
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    first.post(shared);
+    first.post(record("first", done));
+    second.post(shared);
+    second.post(record("second", done));
+    assertThat(scheduler.getQueuedTaskCount()).isEqualTo(4);
+
+    first.removeCallbacks(shared);
+    assertThat(scheduler.getQueuedTaskCount()).isEqualTo(3);
+
+    first.removeCallbacksAndMessages(null);
+    assertThat(scheduler.getQueuedTaskCount()).isEqualTo(2);
+
+    blocker.countDown();
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(mRuns).containsExactly("shared", "second");
+  }
+
+  private Runnable record(final String name, final CountDownLatch done) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        mRuns.add(name);
+        done.countDown();
+      }
+    };
+  }
+
+  private static Runnable block(final CountDownLatch started, final CountDownLatch blocker) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          blocker.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static com.facebook.yoga.YogaAlign.FLEX_START;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.fail;
+import static org.robolectric.RuntimeEnvironment.application;
+
+import com.facebook.litho.testing.TestComponent;
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class LayoutSnapshotTest {
+
+  private static final int WIDTH_SPEC = makeSizeSpec(100, EXACTLY);
+  private static final int HEIGHT_SPEC = makeSizeSpec(100, EXACTLY);
+
+  @Rule public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+  private ComponentContext mContext;
+  private File mFile;
+
+  @Before
+  public void setup() throws IOException {
+    mContext = new ComponentContext(application);
+    mFile = new File(mTemporaryFolder.getRoot(), "snapshots");
+  }
+
+  @Test
+  public void testSnapshotIsStoredAfterFirstLayout() {
+    final LayoutSnapshotStore store = new LayoutSnapshotStore(mFile, 10);
+
+    calculateLayoutState(store, 1, TestDrawableComponent.create(mContext).build());
+
+    assertThat(store.size()).isEqualTo(1);
+    final LayoutSnapshot snapshot =
+        store.get(new TestContainerLayout(null), 1, WIDTH_SPEC, HEIGHT_SPEC);
+    assertThat(snapshot).isNotNull();
+    assertThat(snapshot.getNodeCount()).isEqualTo(2);
+    assertThat(store.get(new TestContainerLayout(null), 2, WIDTH_SPEC, HEIGHT_SPEC)).isNull();
+  }
+
+  @Test
+  public void testStoredMeasurementsAreReusedAfterSaveAndLoad() throws IOException {
+    final LayoutSnapshotStore store = new LayoutSnapshotStore(mFile, 10);
+    final TestComponent component = TestDrawableComponent.create(mContext).build();
+    calculateLayoutState(store, 1, component);
+    assertThat(component.wasMeasureCalled()).isTrue();
+    store.save();
+
+    final LayoutSnapshotStore loadedStore = new LayoutSnapshotStore(mFile, 10);
+    loadedStore.allowMeasurementReuse(TestDrawableComponent.class);
+    loadedStore.load();
+    assertThat(loadedStore.size()).isEqualTo(1);
+
+    final TestComponent secondComponent = TestDrawableComponent.create(mContext).build();
+    final LayoutState layoutState = calculateLayoutState(loadedStore, 1, secondComponent);
+
+    assertThat(secondComponent.wasMeasureCalled()).isFalse();
+    assertThat(layoutState.getMountableOutputCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testMeasurementsAreNotReusedUnlessAllowed() {
+    final LayoutSnapshotStore store = new LayoutSnapshotStore(mFile, 10);
+    calculateLayoutState(store, 1, TestDrawableComponent.create(mContext).build());
+
+    final TestComponent secondComponent = TestDrawableComponent.create(mContext).build();
+    calculateLayoutState(store, 1, secondComponent);
+
+    assertThat(secondComponent.wasMeasureCalled()).isTrue();
+  }
+
+  @Test
+  public void testLeastRecentlyUsedSnapshotIsDropped() {
+    final LayoutSnapshotStore store = new LayoutSnapshotStore(mFile, 2);
+    calculateLayoutState(store, 1, TestDrawableComponent.create(mContext).build());
+    calculateLayoutState(store, 2, TestDrawableComponent.create(mContext).build());
+    store.get(new TestContainerLayout(null), 1, WIDTH_SPEC, HEIGHT_SPEC);
+    calculateLayoutState(store, 3, TestDrawableComponent.create(mContext).build());
+
+    assertThat(store.size()).isEqualTo(2);
+    assertThat(store.get(new TestContainerLayout(null), 1, WIDTH_SPEC, HEIGHT_SPEC)).isNotNull();
+    assertThat(store.get(new TestContainerLayout(null), 2, WIDTH_SPEC, HEIGHT_SPEC)).isNull();
+  }
+
+  @Test
+  public void testCorruptFileIsRejected() throws IOException {
+    final FileOutputStream out = new FileOutputStream(mFile);
+    try {
+      out.write(new byte[] {0x4c, 0x53, 0x4e, 0x50, 0, 0, 0, 1, 0, 0, 0, 1, 0, 1});
+    } finally {
+      out.close();
+    }
+
+    final LayoutSnapshotStore store = new LayoutSnapshotStore(mFile, 10);
+    try {
+      store.load();
+      fail("Expected the corrupt file to be rejected");
+    } catch (IOException expected) {
+      // Expected.
+    }
+
+    assertThat(store.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testMissingFileIsIgnored() throws IOException {
+    final LayoutSnapshotStore store = new LayoutSnapshotStore(mFile, 10);
+    store.load();
+
+    assertThat(store.size()).isEqualTo(0);
+  }
+
+  private LayoutState calculateLayoutState(
+      LayoutSnapshotStore store, long snapshotKey, Component child) {
+    return LayoutState.calculate(
+        mContext,
+        new TestContainerLayout(child),
+        -1,
+        WIDTH_SPEC,
+        HEIGHT_SPEC,
+        true /* shouldGenerateDiffTree */,
+        null,
+        true /* clipChildren */,
+        false /* persistInternalNodeTree */,
+        LayoutState.CalculateLayoutSource.TEST,
+        null,
+        null,
+        null,
+        store,
+        snapshotKey);
+  }
+
+  private static class TestContainerLayout extends InlineLayoutSpec {
+    private final Component mChild;
+
+    TestContainerLayout(Component child) {
+      super();
+      mChild = child;
+    }
+
+    @Override
+    protected Component onCreateLayout(ComponentContext c) {
+      return Column.create(c).alignItems(FLEX_START).child(mChild).build();
+    }
+  }
+}
@@ -2773,6 +2773,30 @@ public class LayoutStateCalculateTest {
     manager.setTouchExplorationEnabled(true);
   }
 
+  @Test
+  public void testComponentBoundsAreFoundByHashedGlobalKey() {
+    final boolean useGlobalKeys = ComponentsConfiguration.useGlobalKeys;
+    final boolean useHashedGlobalKeys = ComponentsConfiguration.useHashedGlobalKeys;
+    ComponentsConfiguration.useGlobalKeys = true;
+    ComponentsConfiguration.useHashedGlobalKeys = true;
+
+    try {
+      final Component component =
+          TestDrawableComponent.create(new ComponentContext(application)).build();
+      final LayoutState layoutState =
+          calculateLayoutState(
+              application, component, -1, makeSizeSpec(100, EXACTLY), makeSizeSpec(50, EXACTLY));
+
+      final String globalKey =
+          ComponentKeyUtils.getHashedGlobalKey(ComponentKeyUtils.getKeyHash(component.getKey()));
+      assertThat(layoutState.getComponentBounds(globalKey)).isEqualTo(new Rect(0, 0, 100, 50));
+      assertThat(layoutState.getComponentBounds("unknown")).isNull();
+    } finally {
+      ComponentsConfiguration.useGlobalKeys = useGlobalKeys;
+      ComponentsConfiguration.useHashedGlobalKeys = useHashedGlobalKeys;
+    }
+  }
+
   private LayoutState calculateLayoutState(
       final Context context,
       final Component component,
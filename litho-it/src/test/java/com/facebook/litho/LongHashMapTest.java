@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class LongHashMapTest {
+
+  @Test
+  public void testPutGetRemove() {
+    final LongHashMap<String> map = new LongHashMap<>();
+
+    assertThat(map.put(1L, "a")).isNull();
+    assertThat(map.put(Long.MIN_VALUE, "b")).isNull();
+    assertThat(map.put(1L, "c")).isEqualTo("a");
+
+    assertThat(map.size()).isEqualTo(2);
+    assertThat(map.get(1L)).isEqualTo("c");
+    assertThat(map.get(Long.MIN_VALUE)).isEqualTo("b");
+    assertThat(map.get(2L)).isNull();
+
+    assertThat(map.remove(1L)).isEqualTo("c");
+    assertThat(map.containsKey(1L)).isFalse();
+    assertThat(map.get(Long.MIN_VALUE)).isEqualTo("b");
+    assertThat(map.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void testMatchesHashMapUnderRandomOperations() {
+    final LongHashMap<Long> map = new LongHashMap<>();
+    final Map<Long, Long> expected = new HashMap<>();
+    final Random random = new Random(42);
+
+    for (int i = 0; i < 20000; i++) {
+      // A small key range makes probe runs collide and exercises removal.
+      final long key = random.nextInt(512) * 0x100000000L;
+      if (random.nextBoolean()) {
+        assertThat(map.put(key, (long) i)).isEqualTo(expected.put(key, (long) i));
+      } else {
+        assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+      }
+    }
+
+    assertThat(map.size()).isEqualTo(expected.size());
+    for (int i = 0; i < map.size(); i++) {
+      assertThat(map.valueAt(i)).isEqualTo(expected.get(map.keyAt(i)));
+    }
+  }
+
+  @Test
+  public void testClear() {
+    final LongHashMap<String> map = new LongHashMap<>();
+    for (long i = 0; i < 100; i++) {
+      map.put(i, "value");
+    }
+
+    map.clear();
+
+    assertThat(map.isEmpty()).isTrue();
+    assertThat(map.containsKey(5L)).isFalse();
+    map.put(5L, "value");
+    assertThat(map.get(5L)).isEqualTo("value");
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.robolectric.RuntimeEnvironment.application;
+
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.TestViewComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class MountPlanTest {
+
+  private ComponentContext mContext;
+
+  @Before
+  public void setup() {
+    mContext = new ComponentContext(application);
+    ComponentsConfiguration.prepareMountPlanInBackground = true;
+  }
+
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.prepareMountPlanInBackground = false;
+  }
+
+  @Test
+  public void testPlanMapsPreviousOutputsToNewPositions() {
+    final LayoutState previousLayoutState =
+        calculate(
+            new InlineLayoutSpec() {
+              @Override
+              protected Component onCreateLayout(ComponentContext c) {
+                return Column.create(c)
+                    .child(TestDrawableComponent.create(c))
+                    .child(TestViewComponent.create(c))
+                    .build();
+              }
+            },
+            null);
+    final LayoutState layoutState =
+        calculate(
+            new InlineLayoutSpec() {
+              @Override
+              protected Component onCreateLayout(ComponentContext c) {
+                return Column.create(c).child(TestViewComponent.create(c)).build();
+              }
+            },
+            previousLayoutState);
+
+    assertThat(previousLayoutState.getMountPlan()).isNull();
+
+    final MountPlan mountPlan = layoutState.getMountPlan();
+    assertThat(mountPlan).isNotNull();
+    assertThat(mountPlan.getLayoutOutputIds())
+        .containsExactly(
+            layoutState.getMountableOutputAt(0).getId(),
+            layoutState.getMountableOutputAt(1).getId());
+    assertThat(mountPlan.getSkipMounting()).containsExactly(false, false);
+
+    // The root host stays, the drawable is gone and the view moves up.
+    assertThat(mountPlan.getNewPosition(0)).isEqualTo(0);
+    assertThat(mountPlan.getNewPosition(1)).isEqualTo(-1);
+    assertThat(mountPlan.getNewPosition(2)).isEqualTo(1);
+    assertThat(mountPlan.getNewHostMarker(2))
+        .isEqualTo(layoutState.getMountableOutputAt(0).getId());
+  }
+
+  @Test
+  public void testPlanOnlyAppliesOverThePreviousLayoutState() {
+    final Component component =
+        new InlineLayoutSpec() {
+          @Override
+          protected Component onCreateLayout(ComponentContext c) {
+            return Column.create(c).child(TestDrawableComponent.create(c)).build();
+          }
+        };
+    final LayoutState previousLayoutState = calculate(component, null);
+    final LayoutState layoutState = calculate(component, previousLayoutState);
+    final MountPlan mountPlan = layoutState.getMountPlan();
+
+    assertThat(mountPlan.canApplyTo(previousLayoutState, new long[2])).isTrue();
+    assertThat(mountPlan.canApplyTo(previousLayoutState, new long[3])).isFalse();
+    assertThat(mountPlan.canApplyTo(previousLayoutState, null)).isFalse();
+    assertThat(mountPlan.canApplyTo(layoutState, new long[2])).isFalse();
+    assertThat(mountPlan.canApplyTo(null, new long[2])).isFalse();
+  }
+
+  private LayoutState calculate(Component component, LayoutState previousLayoutState) {
+    return LayoutState.calculate(
+        new ComponentContext(mContext),
+        component,
+        -1,
+        makeSizeSpec(100, EXACTLY),
+        makeSizeSpec(100, EXACTLY),
+        true,
+        previousLayoutState,
+        true,
+        false,
+        LayoutState.CalculateLayoutSource.TEST,
+        null,
+        null);
+  }
+}
@@ -80,8 +80,9 @@ public class MountStateBetterLoggingTest {
     final TestPerfEvent mountEvent = (TestPerfEvent) perfEvents.get(0);
     final Map<String, Object> annotations = mountEvent.getAnnotations();
     assertThat(annotations)
-        .hasSize(18)
+        .hasSize(19)
         .containsEntry("log_tag", "tag")
+        .containsEntry("root_component", "InlineLayout")
         .containsEntry("mounted_content", new String[] {"TestViewComponent", "TestViewComponent"})
         .containsEntry("mounted_count", 2)
         .containsEntry("moved_count", 0)
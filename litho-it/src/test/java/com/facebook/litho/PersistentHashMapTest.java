@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class PersistentHashMapTest {
+
+  @Test
+  public void testPlusMinusLeaveTheOriginalMapUnchanged() {
+    final PersistentHashMap<String, String> empty = PersistentHashMap.empty();
+    final PersistentHashMap<String, String> one = empty.plus("a", "1");
+    final PersistentHashMap<String, String> two = one.plus("b", "2");
+    final PersistentHashMap<String, String> replaced = two.plus("a", "3");
+    final PersistentHashMap<String, String> removed = replaced.minus("b");
+
+    assertThat(empty).isEmpty();
+    assertThat(one).hasSize(1).containsEntry("a", "1");
+    assertThat(two).hasSize(2).containsEntry("a", "1").containsEntry("b", "2");
+    assertThat(replaced).hasSize(2).containsEntry("a", "3").containsEntry("b", "2");
+    assertThat(removed).hasSize(1).containsEntry("a", "3");
+    assertThat(removed.containsKey("b")).isFalse();
+  }
+
+  @Test
+  public void testUnchangedMapIsReturnedForNoOps() {
+    final String value = "1";
+    final PersistentHashMap<String, String> map =
+        PersistentHashMap.<String, String>empty().plus("a", value);
+
+    assertThat(map.plus("a", value)).isSameAs(map);
+    assertThat(map.minus("b")).isSameAs(map);
+    assertThat(map.minus("a")).isSameAs(PersistentHashMap.empty());
+  }
+
+  @Test
+  public void testCollidingKeys() {
+    // "Aa" and "BB" have the same hash code.
+    final PersistentHashMap<String, Integer> map =
+        PersistentHashMap.<String, Integer>empty().plus("Aa", 1).plus("BB", 2).plus("C", 3);
+
+    assertThat(map).hasSize(3);
+    assertThat(map.get("Aa")).isEqualTo(1);
+    assertThat(map.get("BB")).isEqualTo(2);
+    assertThat(map.get("C")).isEqualTo(3);
+
+    final PersistentHashMap<String, Integer> removed = map.minus("Aa");
+    assertThat(removed).hasSize(2);
+    assertThat(removed.get("Aa")).isNull();
+    assertThat(removed.get("BB")).isEqualTo(2);
+  }
+
+  @Test
+  public void testMatchesHashMapUnderRandomOperations() {
+    PersistentHashMap<Long, Long> map = PersistentHashMap.empty();
+    final Map<Long, Long> expected = new HashMap<>();
+    final Random random = new Random(42);
+
+    for (int i = 0; i < 20000; i++) {
+      // k and k << 32 have the same hash code, so some of the keys collide.
+      final long key = (long) random.nextInt(4096) << (random.nextBoolean() ? 32 : 0);
+      if (random.nextInt(3) > 0) {
+        map = map.plus(key, (long) i);
+        expected.put(key, (long) i);
+      } else {
+        map = map.minus(key);
+        expected.remove(key);
+      }
+      assertThat(map.size()).isEqualTo(expected.size());
+    }
+
+    for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+      assertThat(map.get(entry.getKey())).isEqualTo(entry.getValue());
+    }
+    assertThat(map).isEqualTo(expected);
+    assertThat(map.entrySet()).hasSize(expected.size());
+  }
+}
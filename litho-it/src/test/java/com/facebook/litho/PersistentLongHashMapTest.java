@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class PersistentLongHashMapTest {
+
+  @Test
+  public void testPlusMinusLeaveTheOriginalMapUnchanged() {
+    final PersistentLongHashMap<String> empty = PersistentLongHashMap.empty();
+    final PersistentLongHashMap<String> one = empty.plus(1, "1");
+    final PersistentLongHashMap<String> two = one.plus(2, "2");
+    final PersistentLongHashMap<String> replaced = two.plus(1, "3");
+    final PersistentLongHashMap<String> removed = replaced.minus(2);
+
+    assertThat(empty.isEmpty()).isTrue();
+    assertThat(one.size()).isEqualTo(1);
+    assertThat(one.get(1)).isEqualTo("1");
+    assertThat(two.size()).isEqualTo(2);
+    assertThat(two.get(1)).isEqualTo("1");
+    assertThat(two.get(2)).isEqualTo("2");
+    assertThat(replaced.get(1)).isEqualTo("3");
+    assertThat(removed.size()).isEqualTo(1);
+    assertThat(removed.get(1)).isEqualTo("3");
+    assertThat(removed.containsKey(2)).isFalse();
+  }
+
+  @Test
+  public void testUnchangedMapIsReturnedForNoOps() {
+    final String value = "1";
+    final PersistentLongHashMap<String> map = PersistentLongHashMap.<String>empty().plus(1, value);
+
+    assertThat(map.plus(1, value)).isSameAs(map);
+    assertThat(map.minus(2)).isSameAs(map);
+    assertThat(map.minus(1)).isSameAs(PersistentLongHashMap.empty());
+  }
+
+  @Test
+  public void testKeysThatOnlyDifferInTheirHighestBits() {
+    final PersistentLongHashMap<String> map =
+        PersistentLongHashMap.<String>empty()
+            .plus(1, "a")
+            .plus(1 | Long.MIN_VALUE, "b")
+            .plus(1 | (1L << 62), "c");
+
+    assertThat(map.size()).isEqualTo(3);
+    assertThat(map.get(1)).isEqualTo("a");
+    assertThat(map.get(1 | Long.MIN_VALUE)).isEqualTo("b");
+    assertThat(map.get(1 | (1L << 62))).isEqualTo("c");
+
+    final PersistentLongHashMap<String> removed = map.minus(1 | Long.MIN_VALUE);
+    assertThat(removed.size()).isEqualTo(2);
+    assertThat(removed.get(1 | Long.MIN_VALUE)).isNull();
+    assertThat(removed.get(1 | (1L << 62))).isEqualTo("c");
+  }
+
+  @Test
+  public void testMatchesHashMapUnderRandomOperations() {
+    PersistentLongHashMap<Long> map = PersistentLongHashMap.empty();
+    final Map<Long, Long> expected = new HashMap<>();
+    final Random random = new Random(42);
+
+    for (int i = 0; i < 20000; i++) {
+      // Keys that share their low bits end up deep in the trie.
+      final long key = (long) random.nextInt(4096) << random.nextInt(56);
+      if (random.nextInt(3) > 0) {
+        map = map.plus(key, (long) i);
+        expected.put(key, (long) i);
+      } else {
+        map = map.minus(key);
+        expected.remove(key);
+      }
+      assertThat(map.size()).isEqualTo(expected.size());
+    }
+
+    for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+      assertThat(map.get(entry.getKey())).isEqualTo(entry.getValue());
+    }
+
+    final Map<Long, Long> visited = new HashMap<>();
+    final PersistentLongHashMap.Cursor<Long> cursor = map.cursor();
+    while (cursor.moveToNext()) {
+      visited.put(cursor.key(), cursor.value());
+    }
+    assertThat(visited).isEqualTo(expected);
+  }
+}
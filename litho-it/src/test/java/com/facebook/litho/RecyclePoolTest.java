@@ -17,7 +17,10 @@
 package com.facebook.litho;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
+import com.facebook.litho.stats.PoolStats;
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -40,4 +43,40 @@ public class RecyclePoolTest {
 
     assertEquals(0, pool.getCurrentSize());
   }
+
+  @Test
+  public void testClearIsNotRecordedInStats() {
+    final RecyclePool<Object> pool = new RecyclePool<>("test", 10, true);
+    pool.release(new Object());
+    pool.release(new Object());
+
+    pool.clear();
+
+    assertEquals(0, pool.getCurrentSize());
+    assertEquals(0, pool.getStats().getAcquireHits());
+    assertEquals(0, pool.getStats().getAcquireMisses());
+  }
+
+  @Test
+  public void testStats() {
+    final RecyclePool<Object> pool = new RecyclePool<>("test", 2, false);
+
+    assertNull(pool.acquire());
+    pool.release(new Object());
+    pool.release(new Object());
+    pool.release(new Object());
+    assertNotNull(pool.acquire());
+
+    final PoolStats.Snapshot stats = pool.getStats().snapshot();
+    assertEquals("test", stats.name);
+    assertEquals(1, stats.acquireHits);
+    assertEquals(1, stats.acquireMisses);
+    assertEquals(1, stats.droppedReleases);
+    assertEquals(2, stats.peakSize);
+
+    pool.getStats().reset();
+
+    assertEquals(0, pool.getStats().getAcquireHits());
+    assertEquals(0, pool.getStats().getPeakSize());
+  }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.UNSPECIFIED;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import android.content.ContextWrapper;
+import android.graphics.Color;
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(ComponentsTestRunner.class)
+public class SharedMeasureCacheTest {
+
+  private static final int WIDTH_SPEC = SizeSpec.makeSizeSpec(100, EXACTLY);
+  private static final int HEIGHT_SPEC = SizeSpec.makeSizeSpec(0, UNSPECIFIED);
+
+  private ComponentContext mContext;
+  private SharedMeasureCache mCache;
+
+  @Before
+  public void setup() {
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    mCache = new SharedMeasureCache(2);
+  }
+
+  @Test
+  public void testEquivalentComponentFromAnotherTreeHits() {
+    mCache.put(createComponent(mContext, Color.RED), WIDTH_SPEC, HEIGHT_SPEC, 100, 20);
+
+    final Size size = new Size();
+    assertThat(mCache.get(createComponent(mContext, Color.RED), WIDTH_SPEC, HEIGHT_SPEC, size))
+        .isTrue();
+    assertThat(size.width).isEqualTo(100);
+    assertThat(size.height).isEqualTo(20);
+
+    assertThat(mCache.get(createComponent(mContext, Color.BLUE), WIDTH_SPEC, HEIGHT_SPEC, size))
+        .isFalse();
+    assertThat(mCache.get(createComponent(mContext, Color.RED), HEIGHT_SPEC, HEIGHT_SPEC, size))
+        .isFalse();
+    assertThat(mCache.getHits()).isEqualTo(1);
+    assertThat(mCache.getMisses()).isEqualTo(2);
+  }
+
+  @Test
+  public void testDifferentContextMisses() {
+    mCache.put(createComponent(mContext, Color.RED), WIDTH_SPEC, HEIGHT_SPEC, 100, 20);
+
+    final ComponentContext otherContext =
+        new ComponentContext(new ContextWrapper(RuntimeEnvironment.application));
+    final Component component = createComponent(otherContext, Color.RED);
+    assertThat(mCache.get(component, WIDTH_SPEC, HEIGHT_SPEC, new Size())).isFalse();
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() {
+    mCache.put(createComponent(mContext, Color.RED), WIDTH_SPEC, HEIGHT_SPEC, 1, 1);
+    mCache.put(createComponent(mContext, Color.GREEN), WIDTH_SPEC, HEIGHT_SPEC, 2, 2);
+    mCache.get(createComponent(mContext, Color.RED), WIDTH_SPEC, HEIGHT_SPEC, new Size());
+    mCache.put(createComponent(mContext, Color.BLUE), WIDTH_SPEC, HEIGHT_SPEC, 3, 3);
+
+    assertThat(mCache.size()).isEqualTo(2);
+    assertThat(isCached(Color.RED)).isTrue();
+    assertThat(isCached(Color.GREEN)).isFalse();
+    assertThat(isCached(Color.BLUE)).isTrue();
+  }
+
+  @Test
+  public void testCachedCopyDoesNotReferenceTheMeasuredTree() {
+    final HandlerComponent component = createHandlerComponent(1);
+    component.mTrigger = new EventTrigger("parent", 1, "child");
+    mCache.put(component, WIDTH_SPEC, HEIGHT_SPEC, 100, 20);
+
+    final HandlerComponent lookup = createHandlerComponent(1);
+    assertThat(mCache.get(lookup, WIDTH_SPEC, HEIGHT_SPEC, new Size())).isTrue();
+
+    final HandlerComponent cached = lookup.mComparedComponent;
+    assertThat(cached).isNotSameAs(component);
+    assertThat(cached.getScopedContext()).isNull();
+    assertThat(cached.mClickHandler.mHasEventDispatcher).isNull();
+    assertThat(cached.mClickHandler.params).containsExactly(null, "param");
+    assertThat(cached.mTrigger).isNull();
+    assertThat(cached.mStateContainer).isNotSameAs(component.mStateContainer);
+    assertThat(component.mClickHandler.mHasEventDispatcher).isSameAs(component);
+    assertThat(component.mClickHandler.params[0]).isSameAs(mContext);
+  }
+
+  @Test
+  public void testCachedCopyKeepsTheStateOfTheMeasuredComponent() {
+    mCache.put(createHandlerComponent(1), WIDTH_SPEC, HEIGHT_SPEC, 100, 20);
+
+    assertThat(mCache.get(createHandlerComponent(2), WIDTH_SPEC, HEIGHT_SPEC, new Size()))
+        .isFalse();
+    assertThat(mCache.get(createHandlerComponent(1), WIDTH_SPEC, HEIGHT_SPEC, new Size()))
+        .isTrue();
+  }
+
+  private HandlerComponent createHandlerComponent(int state) {
+    final HandlerComponent component = new HandlerComponent();
+    component.setScopedContext(mContext);
+    component.mClickHandler = new EventHandler(component, 1, new Object[] {mContext, "param"});
+    component.mStateContainer.mState = state;
+    return component;
+  }
+
+  private boolean isCached(int color) {
+    return mCache.get(createComponent(mContext, color), WIDTH_SPEC, HEIGHT_SPEC, new Size());
+  }
+
+  private static Component createComponent(ComponentContext c, int color) {
+    final Component component = TestDrawableComponent.create(c).color(color).build();
+    component.setScopedContext(c);
+    return component;
+  }
+
+  /** Resets its state in a shallow copy, like a generated component. */
+  private static class HandlerComponent extends Component {
+
+    private EventHandler mClickHandler;
+    private EventTrigger mTrigger;
+    private HandlerStateContainer mStateContainer = new HandlerStateContainer();
+    private HandlerComponent mComparedComponent;
+
+    HandlerComponent() {
+      super("HandlerComponent");
+    }
+
+    @Override
+    public boolean isEquivalentTo(Component other) {
+      mComparedComponent = (HandlerComponent) other;
+      return mClickHandler.isEquivalentTo(mComparedComponent.mClickHandler)
+          && mStateContainer.mState == mComparedComponent.mStateContainer.mState;
+    }
+
+    @Override
+    protected boolean hasState() {
+      return true;
+    }
+
+    @Override
+    protected StateContainer getStateContainer() {
+      return mStateContainer;
+    }
+
+    @Override
+    protected void transferState(
+        StateContainer prevStateContainer, StateContainer nextStateContainer) {
+      ((HandlerStateContainer) nextStateContainer).mState =
+          ((HandlerStateContainer) prevStateContainer).mState;
+    }
+
+    @Override
+    public HandlerComponent makeShallowCopy() {
+      final HandlerComponent component = (HandlerComponent) super.makeShallowCopy();
+      component.mStateContainer = new HandlerStateContainer();
+      return component;
+    }
+  }
+
+  private static class HandlerStateContainer implements StateContainer {
+    private int mState;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import android.support.annotation.Nullable;
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.dataflow.ChoreographerCompatImpl;
+import com.facebook.litho.dataflow.DataFlowGraph;
+import com.facebook.litho.dataflow.MockTimingSource;
+import com.facebook.litho.stats.LithoStats;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(ComponentsTestRunner.class)
+public class StateUpdateCoalescerTest {
+
+  private final List<String> mFlushes = new ArrayList<>();
+  private final StateUpdateCoalescer mCoalescer =
+      new StateUpdateCoalescer(
+          new StateUpdateCoalescer.Flusher() {
+            @Override
+            public void flush(@Nullable String attribution) {
+              mFlushes.add(attribution);
+            }
+          });
+
+  private MockTimingSource mTimingSource;
+  private long mDefaultMaxDelayMs;
+
+  @Before
+  public void setUp() {
+    mTimingSource = new MockTimingSource();
+    DataFlowGraph.create(mTimingSource);
+    mTimingSource.start();
+    ChoreographerCompatImpl.setInstance(mTimingSource);
+    mDefaultMaxDelayMs = ComponentsConfiguration.coalescedStateUpdatesMaxDelayMs;
+    ShadowLooper.pauseMainLooper();
+  }
+
+  @After
+  public void tearDown() {
+    ShadowLooper.unPauseMainLooper();
+    ChoreographerCompatImpl.setInstance(null);
+    ComponentsConfiguration.coalescedStateUpdatesMaxDelayMs = mDefaultMaxDelayMs;
+  }
+
+  @Test
+  public void testUpdatesInAFrameAreFlushedOnce() {
+    final long coalescedUpdates = LithoStats.getCoalescedStateUpdates();
+    final long passes = LithoStats.getCoalescedStateUpdatePasses();
+
+    mCoalescer.onStateUpdate("first");
+    mCoalescer.onStateUpdate("second");
+    mCoalescer.onStateUpdate("third");
+    assertThat(mFlushes).isEmpty();
+
+    mTimingSource.step(1);
+    assertThat(mFlushes).containsExactly("third");
+    assertThat(LithoStats.getCoalescedStateUpdates() - coalescedUpdates).isEqualTo(2);
+    assertThat(LithoStats.getCoalescedStateUpdatePasses() - passes).isEqualTo(1);
+
+    mTimingSource.step(1);
+    assertThat(mFlushes).hasSize(1);
+
+    mCoalescer.onStateUpdate("next frame");
+    mTimingSource.step(1);
+    assertThat(mFlushes).containsExactly("third", "next frame");
+  }
+
+  @Test
+  public void testLateUpdateIsFlushedImmediately() {
+    ComponentsConfiguration.coalescedStateUpdatesMaxDelayMs = 0;
+
+    mCoalescer.onStateUpdate("first");
+    assertThat(mFlushes).isEmpty();
+
+    mCoalescer.onStateUpdate("second");
+    assertThat(mFlushes).containsExactly("second");
+
+    // The frame callback that was already posted has nothing left to do.
+    mTimingSource.step(1);
+    assertThat(mFlushes).containsExactly("second");
+  }
+
+  @Test
+  public void testUpdateIsFlushedAfterMaxDelayWithoutFrames() {
+    ComponentsConfiguration.coalescedStateUpdatesMaxDelayMs = 50;
+
+    mCoalescer.onStateUpdate("first");
+    ShadowLooper.idleMainLooper(49);
+    assertThat(mFlushes).isEmpty();
+
+    ShadowLooper.idleMainLooper(1);
+    assertThat(mFlushes).containsExactly("first");
+
+    mTimingSource.step(1);
+    assertThat(mFlushes).containsExactly("first");
+  }
+
+  @Test
+  public void testFrameCallbackCancelsFallbackFlush() {
+    ComponentsConfiguration.coalescedStateUpdatesMaxDelayMs = 50;
+
+    mCoalescer.onStateUpdate("first");
+    mTimingSource.step(1);
+    assertThat(mFlushes).containsExactly("first");
+
+    ShadowLooper.idleMainLooper(50);
+    assertThat(mFlushes).containsExactly("first");
+  }
+
+  @Test
+  public void testReleaseDropsPendingUpdates() {
+    ComponentsConfiguration.coalescedStateUpdatesMaxDelayMs = 50;
+
+    mCoalescer.onStateUpdate("first");
+    mCoalescer.release();
+    mTimingSource.step(1);
+    ShadowLooper.idleMainLooper(50);
+    assertThat(mFlushes).isEmpty();
+
+    mCoalescer.onStateUpdate("second");
+    mTimingSource.step(1);
+    ShadowLooper.idleMainLooper(50);
+    assertThat(mFlushes).isEmpty();
+  }
+}
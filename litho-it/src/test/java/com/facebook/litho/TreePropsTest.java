@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class TreePropsTest {
+
+  private static final Class[] KEYS = {
+    Integer.class,
+    Long.class,
+    Short.class,
+    Byte.class,
+    Float.class,
+    Double.class,
+    Character.class,
+    Boolean.class,
+    String.class,
+    Object.class,
+    Number.class,
+  };
+
+  @Test
+  public void testPutAndGet() {
+    final TreeProps treeProps = new TreeProps();
+    treeProps.put(String.class, "a");
+    treeProps.put(Integer.class, 1);
+    treeProps.put(String.class, "b");
+
+    assertThat(treeProps.get(String.class)).isEqualTo("b");
+    assertThat(treeProps.get(Integer.class)).isEqualTo(1);
+    assertThat(treeProps.get(Long.class)).isNull();
+  }
+
+  @Test
+  public void testCopyIsNotAffectedByLaterPuts() {
+    final TreeProps parent = new TreeProps();
+    parent.put(String.class, "parent");
+
+    final TreeProps child = TreeProps.copy(parent);
+    child.put(String.class, "child");
+    child.put(Integer.class, 1);
+    parent.put(Long.class, 2L);
+
+    assertThat(parent.get(String.class)).isEqualTo("parent");
+    assertThat(parent.get(Integer.class)).isNull();
+    assertThat(child.get(String.class)).isEqualTo("child");
+    assertThat(child.get(Integer.class)).isEqualTo(1);
+    assertThat(child.get(Long.class)).isNull();
+  }
+
+  @Test
+  public void testManyProps() {
+    final TreeProps parent = new TreeProps();
+    for (int i = 0; i < KEYS.length - 1; i++) {
+      parent.put(KEYS[i], i);
+    }
+
+    final TreeProps child = TreeProps.acquire(parent);
+    child.put(KEYS[0], -1);
+    child.put(KEYS[KEYS.length - 1], KEYS.length - 1);
+
+    assertThat(parent.get(KEYS[0])).isEqualTo(0);
+    assertThat(parent.get(KEYS[KEYS.length - 1])).isNull();
+    assertThat(child.get(KEYS[0])).isEqualTo(-1);
+    for (int i = 1; i < KEYS.length; i++) {
+      assertThat(child.get(KEYS[i])).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void testReset() {
+    final TreeProps treeProps = new TreeProps();
+    for (Class key : KEYS) {
+      treeProps.put(key, key.getName());
+    }
+
+    treeProps.reset();
+
+    assertThat(treeProps.get(String.class)).isNull();
+  }
+}
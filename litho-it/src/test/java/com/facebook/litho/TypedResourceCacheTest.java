@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(ComponentsTestRunner.class)
+public class TypedResourceCacheTest {
+
+  private TypedResourceCache mCache;
+
+  @Before
+  public void setup() {
+    mCache =
+        new TypedResourceCache(RuntimeEnvironment.application.getResources().getConfiguration());
+  }
+
+  @Test
+  public void testPrimitivesAreKeyedByType() {
+    mCache.putPrimitive(1, ResourceCache.TYPE_DIMEN_SIZE, 10);
+    mCache.putPrimitive(1, ResourceCache.TYPE_FLOAT, Float.floatToRawIntBits(10.5f));
+
+    assertThat(mCache.getPrimitive(1, ResourceCache.TYPE_DIMEN_SIZE)).isEqualTo(10);
+    assertThat(Float.intBitsToFloat((int) mCache.getPrimitive(1, ResourceCache.TYPE_FLOAT)))
+        .isEqualTo(10.5f);
+    assertThat(mCache.getPrimitive(1, ResourceCache.TYPE_DIMEN_OFFSET))
+        .isEqualTo(ResourceCache.MISSING);
+    assertThat(mCache.getPrimitiveHits()).isEqualTo(2);
+    assertThat(mCache.getPrimitiveMisses()).isEqualTo(1);
+  }
+
+  @Test
+  public void testNegativeValuesAreNotMistakenForMissing() {
+    mCache.putPrimitive(1, ResourceCache.TYPE_COLOR, 0xFF000000);
+
+    assertThat(mCache.getPrimitive(1, ResourceCache.TYPE_COLOR)).isEqualTo(0xFF000000);
+  }
+
+  @Test
+  public void testLongStringsDoNotEvictPrimitives() {
+    mCache.putPrimitive(1, ResourceCache.TYPE_INT, 42);
+
+    final String longString = new String(new char[TypedResourceCache.STRINGS_BUDGET]);
+    for (int i = 0; i < 10; i++) {
+      mCache.put(100 + i, longString);
+    }
+
+    assertThat(mCache.getPrimitive(1, ResourceCache.TYPE_INT)).isEqualTo(42);
+    assertThat(mCache.getStringsCount()).isEqualTo(1);
+    assertThat((String) mCache.get(109)).isSameAs(longString);
+    assertThat((String) mCache.get(100)).isNull();
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedPrimitive() {
+    for (int i = 0; i < TypedResourceCache.PRIMITIVES_MAX_ENTRIES; i++) {
+      mCache.putPrimitive(i, ResourceCache.TYPE_INT, i);
+    }
+    // Touch the oldest entry so that the second oldest gets evicted instead.
+    assertThat(mCache.getPrimitive(0, ResourceCache.TYPE_INT)).isEqualTo(0);
+
+    mCache.putPrimitive(-1, ResourceCache.TYPE_INT, -1);
+
+    assertThat(mCache.getPrimitivesCount()).isEqualTo(TypedResourceCache.PRIMITIVES_MAX_ENTRIES);
+    assertThat(mCache.getPrimitive(0, ResourceCache.TYPE_INT)).isEqualTo(0);
+    assertThat(mCache.getPrimitive(1, ResourceCache.TYPE_INT)).isEqualTo(ResourceCache.MISSING);
+    assertThat(mCache.getPrimitive(-1, ResourceCache.TYPE_INT)).isEqualTo(-1);
+  }
+
+  @Test
+  public void testSurvivesManyEvictions() {
+    for (int i = 0; i < TypedResourceCache.PRIMITIVES_MAX_ENTRIES * 10; i++) {
+      mCache.putPrimitive(i, ResourceCache.TYPE_INT, i);
+    }
+
+    assertThat(mCache.getPrimitivesCount()).isEqualTo(TypedResourceCache.PRIMITIVES_MAX_ENTRIES);
+    for (int i = TypedResourceCache.PRIMITIVES_MAX_ENTRIES * 9;
+        i < TypedResourceCache.PRIMITIVES_MAX_ENTRIES * 10;
+        i++) {
+      assertThat(mCache.getPrimitive(i, ResourceCache.TYPE_INT)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void testObjectsMoveBetweenBudgets() {
+    final Object drawable = new Object();
+    mCache.put(1, "string");
+    mCache.put(1, drawable);
+
+    assertThat(mCache.getStringsCount()).isEqualTo(0);
+    assertThat(mCache.getObjectsCount()).isEqualTo(1);
+    assertThat((Object) mCache.get(1)).isSameAs(drawable);
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.sections;
+
+import static com.facebook.litho.sections.Change.DELETE;
+import static com.facebook.litho.sections.Change.DELETE_RANGE;
+import static com.facebook.litho.sections.Change.INSERT;
+import static com.facebook.litho.sections.Change.INSERT_RANGE;
+import static com.facebook.litho.sections.Change.MOVE;
+import static com.facebook.litho.sections.Change.UPDATE;
+import static com.facebook.litho.sections.Change.UPDATE_RANGE;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.widget.ComponentRenderInfo;
+import com.facebook.litho.widget.RenderInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests {@link ChangeSetCompactor} */
+@RunWith(ComponentsTestRunner.class)
+public class ChangeSetCompactorTest {
+
+  @Test
+  public void testScatteredUpdatesAreMergedIntoRange() {
+    final ChangeSet changeSet = ChangeSet.acquireChangeSet(10, null, false);
+    changeSet.addChange(Change.update(5, ComponentRenderInfo.createEmpty()));
+    changeSet.addChange(Change.update(3, ComponentRenderInfo.createEmpty()));
+    changeSet.addChange(Change.update(4, ComponentRenderInfo.createEmpty()));
+    changeSet.addChange(Change.update(4, ComponentRenderInfo.createEmpty()));
+
+    final ChangeSet compacted = compactAndVerify(changeSet, 10);
+
+    assertThat(compacted.getChangeCount()).isEqualTo(1);
+    assertChange(compacted.getChangeAt(0), UPDATE_RANGE, 3, 3);
+  }
+
+  @Test
+  public void testInsertThenDeleteIsDropped() {
+    final ChangeSet changeSet = ChangeSet.acquireChangeSet(4, null, false);
+    changeSet.addChange(Change.insertRange(1, 3, renderInfos(3)));
+    changeSet.addChange(Change.remove(2));
+    changeSet.addChange(Change.removeRange(1, 2));
+    changeSet.addChange(Change.insert(4, ComponentRenderInfo.createEmpty()));
+
+    final ChangeSet compacted = compactAndVerify(changeSet, 4);
+
+    assertThat(compacted.getChangeCount()).isEqualTo(1);
+    assertChange(compacted.getChangeAt(0), INSERT, 4, 1);
+  }
+
+  @Test
+  public void testReplacedItemsDoNotKeepTheirState() {
+    final ChangeSet changeSet = ChangeSet.acquireChangeSet(6, null, false);
+    changeSet.addChange(Change.removeRange(2, 3));
+    changeSet.addChange(Change.insert(2, ComponentRenderInfo.createEmpty()));
+    changeSet.addChange(Change.insert(3, ComponentRenderInfo.createEmpty()));
+
+    final ChangeSet compacted = compactAndVerify(changeSet, 6);
+
+    assertThat(compacted.getChangeCount()).isEqualTo(2);
+    assertChange(compacted.getChangeAt(0), DELETE_RANGE, 2, 3);
+    assertChange(compacted.getChangeAt(1), INSERT_RANGE, 2, 2);
+
+    final List<Holder> holders = apply(compacted, holders(6));
+    assertThat(holders.get(2).mStartPosition).isEqualTo(Holder.INSERTED);
+    assertThat(holders.get(3).mStartPosition).isEqualTo(Holder.INSERTED);
+    assertThat(holders.get(4).mStartPosition).isEqualTo(5);
+  }
+
+  @Test
+  public void testChangesAreNotMergedAcrossMoves() {
+    final ChangeSet changeSet = ChangeSet.acquireChangeSet(5, null, false);
+    changeSet.addChange(Change.update(0, ComponentRenderInfo.createEmpty()));
+    changeSet.addChange(Change.update(1, ComponentRenderInfo.createEmpty()));
+    changeSet.addChange(Change.move(1, 4));
+    changeSet.addChange(Change.update(1, ComponentRenderInfo.createEmpty()));
+    changeSet.addChange(Change.update(2, ComponentRenderInfo.createEmpty()));
+
+    final ChangeSet compacted = compactAndVerify(changeSet, 5);
+
+    assertThat(compacted.getChangeCount()).isEqualTo(3);
+    assertChange(compacted.getChangeAt(0), UPDATE_RANGE, 0, 2);
+    assertThat(compacted.getChangeAt(1).getType()).isEqualTo(MOVE);
+    assertChange(compacted.getChangeAt(2), UPDATE_RANGE, 1, 2);
+  }
+
+  @Test
+  public void testChangeSetIsKeptWhenNotSmaller() {
+    final ChangeSet changeSet = ChangeSet.acquireChangeSet(5, null, false);
+    changeSet.addChange(Change.update(0, ComponentRenderInfo.createEmpty()));
+    changeSet.addChange(Change.remove(3));
+
+    assertThat(ChangeSetCompactor.compact(changeSet)).isSameAs(changeSet);
+  }
+
+  @Test
+  public void testRandomChangeSets() {
+    final Random random = new Random(42);
+    for (int run = 0; run < 500; run++) {
+      final int startCount = random.nextInt(10);
+      final ChangeSet changeSet = ChangeSet.acquireChangeSet(startCount, null, false);
+      for (int i = 0, size = random.nextInt(12); i < size; i++) {
+        changeSet.addChange(randomChange(random, changeSet.getCount()));
+      }
+
+      compactAndVerify(changeSet, startCount);
+    }
+  }
+
+  /**
+   * Checks that both change sets turn the same list into the same list, where the same items are
+   * kept with their state.
+   */
+  private static ChangeSet compactAndVerify(ChangeSet changeSet, int startCount) {
+    final List<Holder> expectedHolders = apply(changeSet, holders(startCount));
+    final ChangeSet compacted = ChangeSetCompactor.compact(changeSet);
+
+    assertThat(compacted.getCount()).isEqualTo(changeSet.getCount());
+    assertThat(compacted.getChangeCount()).isLessThanOrEqualTo(changeSet.getChangeCount());
+    assertThat(apply(compacted, holders(startCount))).isEqualTo(expectedHolders);
+
+    return compacted;
+  }
+
+  /**
+   * Applies the changes to the holders like a RecyclerBinder would: an update keeps the holder of
+   * the item and its state, an insert creates a new holder.
+   */
+  private static List<Holder> apply(ChangeSet changeSet, List<Holder> items) {
+    for (int i = 0; i < changeSet.getChangeCount(); i++) {
+      final Change change = changeSet.getChangeAt(i);
+      final int index = change.getIndex();
+      switch (change.getType()) {
+        case INSERT:
+          items.add(index, new Holder(Holder.INSERTED, change.getRenderInfo()));
+          break;
+        case INSERT_RANGE:
+          for (int j = 0; j < change.getCount(); j++) {
+            items.add(index + j, new Holder(Holder.INSERTED, change.getRenderInfos().get(j)));
+          }
+          break;
+        case UPDATE:
+          items.set(index, items.get(index).update(change.getRenderInfo()));
+          break;
+        case UPDATE_RANGE:
+          for (int j = 0; j < change.getCount(); j++) {
+            items.set(index + j, items.get(index + j).update(change.getRenderInfos().get(j)));
+          }
+          break;
+        case DELETE:
+          items.remove(index);
+          break;
+        case DELETE_RANGE:
+          items.subList(index, index + change.getCount()).clear();
+          break;
+        case MOVE:
+          items.add(change.getToIndex(), items.remove(index));
+          break;
+      }
+    }
+
+    return items;
+  }
+
+  private static Change randomChange(Random random, int count) {
+    final int type = count == 0 ? 0 : random.nextInt(7);
+    switch (type) {
+      case 0:
+        return Change.insert(random.nextInt(count + 1), ComponentRenderInfo.createEmpty());
+      case 1:
+        final int insertCount = 1 + random.nextInt(3);
+        return Change.insertRange(random.nextInt(count + 1), insertCount, renderInfos(insertCount));
+      case 2:
+        return Change.update(random.nextInt(count), ComponentRenderInfo.createEmpty());
+      case 3:
+        final int updateIndex = random.nextInt(count);
+        final int updateCount = 1 + random.nextInt(count - updateIndex);
+        return Change.updateRange(updateIndex, updateCount, renderInfos(updateCount));
+      case 4:
+        return Change.remove(random.nextInt(count));
+      case 5:
+        final int removeIndex = random.nextInt(count);
+        return Change.removeRange(removeIndex, 1 + random.nextInt(count - removeIndex));
+      default:
+        return Change.move(random.nextInt(count), random.nextInt(count));
+    }
+  }
+
+  private static void assertChange(Change change, int type, int index, int count) {
+    assertThat(change.getType()).isEqualTo(type);
+    assertThat(change.getIndex()).isEqualTo(index);
+    assertThat(change.getCount()).isEqualTo(count);
+  }
+
+  private static List<Holder> holders(int count) {
+    final List<Holder> holders = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      holders.add(new Holder(i, null));
+    }
+    return holders;
+  }
+
+  private static List<RenderInfo> renderInfos(int count) {
+    final List<RenderInfo> renderInfos = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      renderInfos.add(ComponentRenderInfo.createEmpty());
+    }
+    return renderInfos;
+  }
+
+  /** An item of the target, with the position it had before the changes if it was kept. */
+  private static class Holder {
+
+    private static final int INSERTED = -1;
+
+    private final int mStartPosition;
+    private final RenderInfo mRenderInfo;
+
+    Holder(int startPosition, RenderInfo renderInfo) {
+      mStartPosition = startPosition;
+      mRenderInfo = renderInfo;
+    }
+
+    Holder update(RenderInfo renderInfo) {
+      return new Holder(mStartPosition, renderInfo);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Holder
+          && mStartPosition == ((Holder) o).mStartPosition
+          && mRenderInfo == ((Holder) o).mRenderInfo;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * mStartPosition + System.identityHashCode(mRenderInfo);
+    }
+
+    @Override
+    public String toString() {
+      return mStartPosition + ":" + mRenderInfo;
+    }
+  }
+}
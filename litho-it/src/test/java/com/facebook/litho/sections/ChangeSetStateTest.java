@@ -20,6 +20,7 @@ import static com.facebook.litho.sections.Change.MOVE;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
+import com.facebook.litho.sections.config.SectionsConfiguration;
 import com.facebook.litho.sections.logger.SectionsDebugLogger;
 import com.facebook.litho.testing.sections.TestSectionCreator;
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
@@ -750,6 +751,74 @@ public class ChangeSetStateTest {
     assertThat(leaf3).isEqualTo(secondChangeSetState.getRemovedComponents().get(0));
   }
 
+  @Test
+  public void testParallelChangeSetGeneration() {
+    final int changeSetThreadPoolSize = SectionsConfiguration.changeSetThreadPoolSize;
+    SectionsConfiguration.changeSetThreadPoolSize = 2;
+
+    try {
+      final Section leaf1 = createChangeSetComponent("leaf1", 3);
+      final Section leaf2 = createChangeSetComponent("leaf2", 2);
+      final Section leaf3 = createChangeSetComponent("leaf3", 2);
+      final Section leaf4 = createChangeSetComponent("leaf4", 2);
+      final Section node1 = TestSectionCreator.createSectionComponent("node1", leaf1, leaf2);
+      final Section node2 = TestSectionCreator.createSectionComponent("node2", leaf3);
+      final Section root = TestSectionCreator.createSectionComponent("root", node1, node2);
+      TestSectionCreator.createTree(root, mSectionContext);
+
+      final ChangeSet changeSet =
+          ChangeSetState.generateChangeSet(
+                  mSectionContext,
+                  null,
+                  root,
+                  mSectionsDebugLogger,
+                  mSectionTreeTag,
+                  mCurrentPrefix,
+                  mNextPrefix,
+                  false)
+              .getChangeSet();
+
+      assertThat(changeSet.getChangeCount()).isEqualTo(7);
+      assertThat(root.getCount()).isEqualTo(7);
+      for (int i = 0, size = changeSet.getChangeCount(); i < size; i++) {
+        assertThat(changeSet.getChangeAt(i).getIndex()).isEqualTo(i);
+      }
+
+      final Section newNode1 = TestSectionCreator.createSectionComponent("node1", true, leaf2);
+      final Section newNode2 =
+          TestSectionCreator.createSectionComponent("node2", true, leaf3, leaf4);
+      final Section newRoot =
+          TestSectionCreator.createSectionComponent("root", true, newNode1, newNode2);
+      TestSectionCreator.createTree(newRoot, mSectionContext);
+
+      final ChangeSetState secondChangeSetState =
+          ChangeSetState.generateChangeSet(
+              mSectionContext,
+              root,
+              newRoot,
+              mSectionsDebugLogger,
+              mSectionTreeTag,
+              mCurrentPrefix,
+              mNextPrefix,
+              false);
+      final ChangeSet secondChangeSet = secondChangeSetState.getChangeSet();
+
+      // The 3 items of leaf1 are removed from the top, and leaf4 is inserted after leaf3.
+      assertThat(secondChangeSet.getChangeCount()).isEqualTo(5);
+      assertThat(secondChangeSet.getCount()).isEqualTo(6);
+      for (int i = 0; i < 3; i++) {
+        assertThat(secondChangeSet.getChangeAt(i).getType()).isEqualTo(Change.DELETE);
+        assertThat(secondChangeSet.getChangeAt(i).getIndex()).isEqualTo(0);
+      }
+      assertThat(secondChangeSet.getChangeAt(3).getType()).isEqualTo(Change.INSERT);
+      assertThat(secondChangeSet.getChangeAt(3).getIndex()).isEqualTo(4);
+      assertThat(secondChangeSet.getChangeAt(4).getIndex()).isEqualTo(5);
+      assertThat(secondChangeSetState.getRemovedComponents()).containsExactly(leaf1);
+    } finally {
+      SectionsConfiguration.changeSetThreadPoolSize = changeSetThreadPoolSize;
+    }
+  }
+
   private static Section createChangeSetComponent(String key, int numChildren) {
     Change[] changes = new Change[numChildren];
     for (int i = 0; i < numChildren; i++) {
@@ -456,6 +456,21 @@ public class SectionTreeTest {
     assertChangeSetHandled(changeSetHandler);
   }
 
+  @Test
+  public void testSetRootAsyncWithNullChangeSetThreadHandler() {
+    final Section section = TestSectionCreator.createChangeSetComponent(
+        "leaf1",
+        Change.insert(0, makeComponentInfo()));
+    final TestTarget changeSetHandler = new TestTarget();
+    SectionTree tree = SectionTree.create(mSectionContext, changeSetHandler)
+        .changeSetThreadHandler(null)
+        .build();
+
+    tree.setRootAsync(section);
+    mChangeSetThreadShadowLooper.runOneTask();
+    assertChangeSetHandled(changeSetHandler);
+  }
+
   @Test
   public void testUpdateStateAsync() {
     final Section section = TestSectionCreator.createChangeSetComponent(
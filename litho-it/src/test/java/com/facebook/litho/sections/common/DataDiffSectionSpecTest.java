@@ -32,9 +32,11 @@ import com.facebook.litho.testing.sections.TestTarget;
 import com.facebook.litho.testing.sections.TestTarget.Operation;
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -503,6 +505,128 @@ public class DataDiffSectionSpecTest {
     assertRangeOperation(executedOperations.get(0), TestTarget.INSERT_RANGE, 100, 100);
   }
 
+  @Test
+  public void testKeyedDiffMovesItemsWithoutCheckingIsSameItem() {
+    final int[] isSameItemCount = new int[1];
+    final Comparator isSameItemComparator =
+        new Comparator() {
+          @Override
+          public int compare(Object lhs, Object rhs) {
+            isSameItemCount[0]++;
+            return lhs.equals(rhs) ? 0 : 1;
+          }
+        };
+    final List<String> previousData = generateData(10);
+    mSectionTree.setRoot(
+        TestGroupSection.create(mSectionContext)
+            .data(previousData)
+            .isSameItemComparator(isSameItemComparator)
+            .diffByKey(true)
+            .build());
+    mTestTarget.clear();
+
+    final List<String> nextData = generateData(10);
+    nextData.add(0, nextData.remove(7));
+    mSectionTree.setRoot(
+        TestGroupSection.create(mSectionContext)
+            .data(nextData)
+            .isSameItemComparator(isSameItemComparator)
+            .diffByKey(true)
+            .build());
+    final List<Operation> executedOperations = mTestTarget.getOperations();
+
+    assertThat(isSameItemCount[0]).isEqualTo(0);
+    assertThat(executedOperations.size()).isEqualTo(1);
+    assertThat(executedOperations.get(0).mOp).isEqualTo(MOVE);
+    assertThat(executedOperations.get(0).mIndex).isEqualTo(7);
+    assertThat(executedOperations.get(0).mToIndex).isEqualTo(0);
+  }
+
+  @Test
+  public void testKeyedDiffOfShuffledData() {
+    final List<String> previousData = generateData(20);
+    mSectionTree.setRoot(
+        TestGroupSection.create(mSectionContext).data(previousData).diffByKey(true).build());
+    mTestTarget.clear();
+
+    final List<String> nextData = generateData(20);
+    Collections.shuffle(nextData, new Random(42));
+    nextData.remove(3);
+    nextData.remove(11);
+    nextData.add(5, "new item 1");
+    nextData.add("new item 2");
+    mSectionTree.setRoot(
+        TestGroupSection.create(mSectionContext).data(nextData).diffByKey(true).build());
+
+    assertOperationsTransformData(mTestTarget.getOperations(), previousData, nextData);
+  }
+
+  @Test
+  public void testKeyedDiffWithTrimmedHeadAndTail() {
+    final List<String> previousData = generateData(20);
+    mSectionTree.setRoot(
+        TestGroupSection.create(mSectionContext)
+            .data(previousData)
+            .trimHeadAndTail(true)
+            .diffByKey(true)
+            .build());
+    mTestTarget.clear();
+
+    // Only the items from 8 to 11 differ, the 8 items before and after them are trimmed.
+    final List<String> nextData = generateData(20);
+    Collections.swap(nextData, 8, 11);
+    nextData.remove(10);
+    nextData.add(9, "new item");
+    mSectionTree.setRoot(
+        TestGroupSection.create(mSectionContext)
+            .data(nextData)
+            .trimHeadAndTail(true)
+            .diffByKey(true)
+            .build());
+    final List<Operation> executedOperations = mTestTarget.getOperations();
+
+    assertThat(executedOperations).isNotEmpty();
+    for (Operation operation : executedOperations) {
+      assertThat(operation.mIndex).isBetween(8, 11);
+      if (operation.mOp == MOVE) {
+        assertThat(operation.mToIndex).isBetween(8, 11);
+      }
+    }
+    assertOperationsTransformData(executedOperations, previousData, nextData);
+  }
+
+  @Test
+  public void testDuplicateKeysFallBackToItemByItemDiff() {
+    final int[] isSameItemCount = new int[1];
+    final Comparator isSameItemComparator =
+        new Comparator() {
+          @Override
+          public int compare(Object lhs, Object rhs) {
+            isSameItemCount[0]++;
+            return lhs.equals(rhs) ? 0 : 1;
+          }
+        };
+    final List<String> previousData = new ArrayList<>(Arrays.asList("a", "b", "a", "c"));
+    mSectionTree.setRoot(
+        TestGroupSection.create(mSectionContext)
+            .data(previousData)
+            .isSameItemComparator(isSameItemComparator)
+            .diffByKey(true)
+            .build());
+    mTestTarget.clear();
+
+    final List<String> nextData = new ArrayList<>(Arrays.asList("c", "a", "b", "a", "d"));
+    mSectionTree.setRoot(
+        TestGroupSection.create(mSectionContext)
+            .data(nextData)
+            .isSameItemComparator(isSameItemComparator)
+            .diffByKey(true)
+            .build());
+
+    assertThat(isSameItemCount[0]).isGreaterThan(0);
+    assertOperationsTransformData(mTestTarget.getOperations(), previousData, nextData);
+  }
+
   private void assertRangeOperation(
       Operation operation,
       int opType,
@@ -553,6 +677,41 @@ public class DataDiffSectionSpecTest {
     assertThat(totalRemoved).isEqualTo(expectedRemoved);
   }
 
+  /**
+   * Applies the operations to a copy of the previous data, with nulls for the inserted items, and
+   * checks that the items that were kept end up at their positions in the next data.
+   */
+  private static void assertOperationsTransformData(
+      List<Operation> operations, List<String> previousData, List<String> nextData) {
+    final List<String> data = new ArrayList<>(previousData);
+    for (Operation operation : operations) {
+      switch (operation.mOp) {
+        case TestTarget.INSERT:
+        case TestTarget.INSERT_RANGE:
+          for (int i = 0; i < operation.mRangeCount; i++) {
+            data.add(operation.mIndex, null);
+          }
+          break;
+        case TestTarget.DELETE:
+        case TestTarget.DELETE_RANGE:
+          for (int i = 0; i < operation.mRangeCount; i++) {
+            data.remove(operation.mIndex);
+          }
+          break;
+        case TestTarget.MOVE:
+          data.add(operation.mToIndex, data.remove(operation.mIndex));
+          break;
+      }
+    }
+
+    assertThat(data.size()).isEqualTo(nextData.size());
+    for (int i = 0; i < data.size(); i++) {
+      if (data.get(i) != null) {
+        assertThat(data.get(i)).isEqualTo(nextData.get(i));
+      }
+    }
+  }
+
   private static List<String> generateData(int length) {
     final List<String> data = new ArrayList<>(length);
     for (int i = 0; i < length; i++) {
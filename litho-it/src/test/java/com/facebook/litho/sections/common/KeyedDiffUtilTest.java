@@ -0,0 +1,245 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.sections.common;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import android.support.v7.util.ListUpdateCallback;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests {@link KeyedDiffUtil} */
+@RunWith(ComponentsTestRunner.class)
+public class KeyedDiffUtilTest {
+
+  @Test
+  public void testInsertionsRemovalsAndChanges() {
+    final List<Item> previous = items("a", "b", "c", "d");
+    final List<Item> next = items("a", "x", "c", "d", "y");
+    next.set(2, new Item("c", 1));
+
+    final RecordingCallback updates = diffAndApply(previous, next, true);
+
+    assertThat(updates.mOperations)
+        .containsExactly("remove 1 1", "insert 1 1", "insert 4 1", "change 2 1");
+  }
+
+  @Test
+  public void testOnlyItemsOutOfLongestIncreasingSubsequenceAreMoved() {
+    final RecordingCallback updates =
+        diffAndApply(items("a", "b", "c", "d"), items("b", "c", "d", "a"), true);
+
+    assertThat(updates.mOperations).containsExactly("move 0 3");
+  }
+
+  @Test
+  public void testMovesAreReplacedWhenNotDetected() {
+    final RecordingCallback updates =
+        diffAndApply(items("a", "b", "c"), items("c", "a", "b"), false);
+
+    assertThat(updates.mOperations).containsExactly("remove 2 1", "insert 0 1");
+  }
+
+  @Test
+  public void testRandomUpdates() {
+    final Random random = new Random(42);
+    for (int run = 0; run < 200; run++) {
+      final List<Item> previous = new ArrayList<>();
+      for (int i = 0, size = random.nextInt(30); i < size; i++) {
+        previous.add(new Item(String.valueOf(i), 0));
+      }
+
+      final List<Item> next = new ArrayList<>();
+      for (Item item : previous) {
+        if (random.nextInt(4) > 0) {
+          next.add(random.nextInt(4) > 0 ? item : new Item(item.mKey, 1));
+        }
+      }
+      for (int i = 0, count = random.nextInt(10); i < count; i++) {
+        next.add(random.nextInt(next.size() + 1), new Item("new" + i, 0));
+      }
+      for (int i = 0, count = random.nextInt(4); i < count && next.size() > 1; i++) {
+        next.add(random.nextInt(next.size()), next.remove(random.nextInt(next.size())));
+      }
+
+      diffAndApply(previous, next, random.nextBoolean());
+    }
+  }
+
+  @Test
+  public void testDuplicateKeys() {
+    assertThat(KeyedDiffUtil.calculateDiff(new ItemCallback(items("a"), items("b", "b")), true))
+        .isNull();
+    assertThat(KeyedDiffUtil.calculateDiff(new ItemCallback(items("b", "b"), items("b")), true))
+        .isNull();
+  }
+
+  private static RecordingCallback diffAndApply(
+      List<Item> previous, List<Item> next, boolean detectMoves) {
+    final KeyedDiffUtil.DiffResult result =
+        KeyedDiffUtil.calculateDiff(new ItemCallback(previous, next), detectMoves);
+    assertThat(result).isNotNull();
+
+    final RecordingCallback updates = new RecordingCallback(previous, next);
+    result.dispatchUpdatesTo(updates);
+
+    // Inserted items are added as nulls, and are new unless they replace moves.
+    final List<Item> items = updates.mItems;
+    for (int i = 0; i < items.size(); i++) {
+      if (items.get(i) == null) {
+        if (detectMoves) {
+          assertThat(ItemCallback.indexOfKey(previous, next.get(i).mKey)).isEqualTo(-1);
+        }
+        items.set(i, next.get(i));
+      }
+    }
+    assertThat(items).isEqualTo(next);
+
+    if (!detectMoves) {
+      for (String operation : updates.mOperations) {
+        assertThat(operation).doesNotStartWith("move");
+      }
+    }
+    return updates;
+  }
+
+  private static List<Item> items(String... keys) {
+    final List<Item> items = new ArrayList<>();
+    for (String key : keys) {
+      items.add(new Item(key, 0));
+    }
+    return items;
+  }
+
+  private static class Item {
+
+    private final String mKey;
+    private final int mContent;
+
+    Item(String key, int content) {
+      mKey = key;
+      mContent = content;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Item
+          && mKey.equals(((Item) o).mKey)
+          && mContent == ((Item) o).mContent;
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(new Object[] {mKey, mContent});
+    }
+
+    @Override
+    public String toString() {
+      return mKey + ":" + mContent;
+    }
+  }
+
+  private static class ItemCallback implements KeyedDiffUtil.Callback {
+
+    private final List<Item> mPrevious;
+    private final List<Item> mNext;
+
+    ItemCallback(List<Item> previous, List<Item> next) {
+      mPrevious = previous;
+      mNext = next;
+    }
+
+    @Override
+    public int getOldListSize() {
+      return mPrevious.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+      return mNext.size();
+    }
+
+    @Override
+    public Object getOldItemKey(int oldItemPosition) {
+      return mPrevious.get(oldItemPosition).mKey;
+    }
+
+    @Override
+    public Object getNewItemKey(int newItemPosition) {
+      return mNext.get(newItemPosition).mKey;
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+      return mPrevious.get(oldItemPosition).equals(mNext.get(newItemPosition));
+    }
+
+    static int indexOfKey(List<Item> items, String key) {
+      for (int i = 0; i < items.size(); i++) {
+        if (items.get(i).mKey.equals(key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /** Applies the updates to a copy of the old list, taking inserted and changed items as-is. */
+  private static class RecordingCallback implements ListUpdateCallback {
+
+    private final List<Item> mItems;
+    private final List<Item> mNext;
+    private final List<String> mOperations = new ArrayList<>();
+
+    RecordingCallback(List<Item> previous, List<Item> next) {
+      mItems = new ArrayList<>(previous);
+      mNext = next;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+      mOperations.add("insert " + position + " " + count);
+      mItems.addAll(position, Collections.nCopies(count, (Item) null));
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+      mOperations.add("remove " + position + " " + count);
+      mItems.subList(position, position + count).clear();
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+      mOperations.add("move " + fromPosition + " " + toPosition);
+      mItems.add(toPosition, mItems.remove(fromPosition));
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+      mOperations.add("change " + position + " " + count);
+      for (int i = position; i < position + count; i++) {
+        mItems.set(i, mNext.get(i));
+      }
+    }
+  }
+}
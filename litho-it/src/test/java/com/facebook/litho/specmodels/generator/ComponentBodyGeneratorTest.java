@@ -313,9 +313,18 @@ public class ComponentBodyGeneratorTest {
         .isEqualTo(
             "@java.lang.Override\n"
                 + "public boolean isEquivalentTo(com.facebook.litho.Component other) {\n"
-                + "  if (com.facebook.litho.config.ComponentsConfiguration.useNewIsEquivalentToInLayoutSpec) {\n"
-                + "    return super.isEquivalentTo(other);\n"
+                + "  if (com.facebook.litho.config.ComponentsConfiguration.verifyIsEquivalentTo) {\n"
+                + "    return com.facebook.litho.ComponentUtils.verifyIsEquivalentTo(this, other, isEquivalentToImpl(other));\n"
                 + "  }\n"
+                + "  return isEquivalentToImpl(other);\n"
+                + "}\n");
+  }
+
+  @Test
+  public void testGenerateIsEquivalentImplMethod() {
+    assertThat(ComponentBodyGenerator.generateIsEquivalentImplMethod(mSpecModelDI).toString())
+        .isEqualTo(
+            "private boolean isEquivalentToImpl(com.facebook.litho.Component other) {\n"
                 + "  if (this == other) {\n"
                 + "    return true;\n"
                 + "  }\n"
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.stats;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketsAreContiguousAndBounded() {
+    for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++) {
+      final long min = LatencyHistogram.getBucketMaxValue(i - 1) + 1;
+      final long max = LatencyHistogram.getBucketMaxValue(i);
+
+      assertThat(LatencyHistogram.getBucketIndex(min)).isEqualTo(i);
+      assertThat(LatencyHistogram.getBucketIndex(max)).isEqualTo(i);
+      // Small values are exact, the width of the other buckets is at most 1/16th of their values.
+      if (min < LatencyHistogram.SUB_BUCKET_COUNT) {
+        assertThat(max).isEqualTo(min);
+      } else {
+        assertThat((max - min + 1) * LatencyHistogram.SUB_BUCKET_COUNT).isLessThanOrEqualTo(min);
+      }
+    }
+
+    assertThat(LatencyHistogram.getBucketMaxValue(LatencyHistogram.BUCKET_COUNT - 1))
+        .isEqualTo(LatencyHistogram.MAX_VALUE);
+  }
+
+  @Test
+  public void testPercentiles() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+
+    final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertThat(snapshot.getCount()).isEqualTo(1000);
+    assertThat(snapshot.getMax()).isEqualTo(1000);
+    assertThat(snapshot.getMean()).isEqualTo(500.5);
+    assertThat(snapshot.getValueAtPercentile(50)).isBetween(500L, 531L);
+    assertThat(snapshot.getValueAtPercentile(90)).isBetween(900L, 956L);
+    assertThat(snapshot.getValueAtPercentile(99)).isBetween(990L, 1000L);
+    assertThat(snapshot.getValueAtPercentile(100)).isEqualTo(1000);
+  }
+
+  @Test
+  public void testOutOfRangeValuesAreClamped() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(Long.MAX_VALUE);
+
+    final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertThat(snapshot.getCount()).isEqualTo(2);
+    assertThat(snapshot.getValueAtPercentile(50)).isEqualTo(0);
+    assertThat(snapshot.getMax()).isEqualTo(LatencyHistogram.MAX_VALUE);
+  }
+
+  @Test
+  public void testSnapshotAndReset() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(42);
+
+    assertThat(histogram.snapshotAndReset().getCount()).isEqualTo(1);
+
+    final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertThat(snapshot.getCount()).isEqualTo(0);
+    assertThat(snapshot.getMax()).isEqualTo(0);
+    assertThat(snapshot.getValueAtPercentile(99)).isEqualTo(0);
+  }
+}
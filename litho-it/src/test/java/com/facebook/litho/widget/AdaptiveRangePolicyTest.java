@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.widget;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ComponentsTestRunner.class)
+public class AdaptiveRangePolicyTest {
+
+  private AdaptiveRangePolicy mPolicy;
+  private int[] mRange;
+
+  @Before
+  public void setup() {
+    mPolicy = new AdaptiveRangePolicy(1, 8);
+    mRange = new int[2];
+  }
+
+  @Test
+  public void testRangeIsSymmetricWhenNotScrolling() {
+    mPolicy.computeRange(10, 2, false, mRange);
+
+    assertThat(mRange).containsExactly(20, 20);
+  }
+
+  @Test
+  public void testRangeGrowsAheadOfScrollDirection() {
+    mPolicy.recordItemLayoutTime(10 * 1000000L);
+    scroll(0.05f);
+
+    // At 0.05 items/ms, 0.5 more items scroll into view while one item is laid out.
+    mPolicy.computeRange(10, 2, false, mRange);
+    assertThat(mRange).containsExactly(13, 30);
+
+    mPolicy.computeRange(10, 2, true, mRange);
+    assertThat(mRange).containsExactly(30, 13);
+  }
+
+  @Test
+  public void testRangeIsClampedToMinAndMaxRatios() {
+    mPolicy.recordItemLayoutTime(100 * 1000000L);
+    scroll(-1);
+
+    mPolicy.computeRange(10, 2, false, mRange);
+
+    assertThat(mRange).containsExactly(80, 10);
+  }
+
+  @Test
+  public void testVelocityIsResetWhenScrollStops() {
+    scroll(0.5f);
+    assertThat(mPolicy.getVelocity()).isGreaterThan(0);
+
+    mPolicy.onScrollStopped();
+    mPolicy.computeRange(10, 2, false, mRange);
+
+    assertThat(mPolicy.getVelocity()).isEqualTo(0);
+    assertThat(mRange).containsExactly(20, 20);
+  }
+
+  @Test
+  public void testLayoutTimeIsAveraged() {
+    mPolicy.recordItemLayoutTime(10 * 1000000L);
+    mPolicy.recordItemLayoutTime(20 * 1000000L);
+
+    assertThat(mPolicy.getItemLayoutTimeMs()).isBetween(12.9f, 13.1f);
+  }
+
+  @Test
+  public void testTraverserVisitsItemsAheadOfScrollDirectionFirst() {
+    assertThat(traverse()).containsExactly(4, 5, 6, 7, 8, 9, 3, 2, 1, 0);
+
+    scroll(-0.05f);
+    assertThat(traverse()).containsExactly(5, 4, 3, 2, 1, 0, 6, 7, 8, 9);
+  }
+
+  @Test
+  public void testTraverserFollowsLayoutDirectionWhenNotScrolling() {
+    assertThat(traverse(true)).containsExactly(5, 4, 3, 2, 1, 0, 6, 7, 8, 9);
+
+    scroll(0.05f);
+    assertThat(traverse(true)).containsExactly(4, 5, 6, 7, 8, 9, 3, 2, 1, 0);
+  }
+
+  private void scroll(float velocity) {
+    for (int i = 0; i < 10; i++) {
+      mPolicy.onScrolled(velocity * 16, i * 16);
+    }
+  }
+
+  private List<Integer> traverse() {
+    return traverse(false);
+  }
+
+  private List<Integer> traverse(boolean traverseBackwards) {
+    final List<Integer> indices = new ArrayList<>();
+    mPolicy
+        .getRangeTraverser(false, traverseBackwards)
+        .traverse(
+            0,
+            10,
+            4,
+            5,
+            new RecyclerRangeTraverser.Processor() {
+              @Override
+              public boolean process(int index) {
+                indices.add(index);
+                return true;
+              }
+            });
+    return indices;
+  }
+}
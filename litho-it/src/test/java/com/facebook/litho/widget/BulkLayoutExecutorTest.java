@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.widget;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.facebook.litho.ComponentContext;
+import com.facebook.litho.LayoutThreadPoolConfigurationImpl;
+import com.facebook.litho.Size;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(ComponentsTestRunner.class)
+public class BulkLayoutExecutorTest {
+
+  private static final int COUNT = 20;
+
+  private ComponentContext mContext;
+  private BulkLayoutExecutor mExecutor;
+  private List<ComponentTreeHolder> mHolders;
+  private int[] mWidthSpecs;
+  private int[] mHeightSpecs;
+
+  @Before
+  public void setup() {
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    mExecutor = new BulkLayoutExecutor(new LayoutThreadPoolConfigurationImpl(3, 3, 0));
+    mHolders = new ArrayList<>();
+    mWidthSpecs = new int[COUNT];
+    mHeightSpecs = new int[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      mHolders.add(createHolder());
+      mWidthSpecs[i] = i;
+      mHeightSpecs[i] = i * 2;
+    }
+  }
+
+  @Test
+  public void testComputeLayoutsSyncLaysOutAllItems() {
+    final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+    for (ComponentTreeHolder holder : mHolders) {
+      doAnswer(recordThread(threads))
+          .when(holder)
+          .computeLayoutSync(any(ComponentContext.class), anyInt(), anyInt(), any(Size.class));
+    }
+    final Size[] sizes = new Size[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      sizes[i] = new Size();
+    }
+
+    mExecutor.computeLayoutsSync(mContext, mHolders, mWidthSpecs, mHeightSpecs, sizes);
+
+    for (int i = 0; i < COUNT; i++) {
+      verify(mHolders.get(i)).computeLayoutSync(mContext, i, i * 2, sizes[i]);
+      assertThat(sizes[i].width).isEqualTo(i);
+      assertThat(sizes[i].height).isEqualTo(i * 2);
+    }
+    assertThat(threads).contains(Thread.currentThread());
+  }
+
+  @Test
+  public void testComputeLayoutsAsyncLaysOutAllItems() {
+    mExecutor.computeLayoutsAsync(mContext, mHolders, mWidthSpecs, mHeightSpecs);
+
+    for (int i = 0; i < COUNT; i++) {
+      verify(mHolders.get(i), timeout(5000)).computeLayoutSync(mContext, i, i * 2, null);
+    }
+  }
+
+  @Test
+  public void testLayoutErrorIsRethrownOnCallingThread() {
+    final IllegalStateException error = new IllegalStateException();
+    doThrow(error)
+        .when(mHolders.get(COUNT - 1))
+        .computeLayoutSync(any(ComponentContext.class), anyInt(), anyInt(), any(Size.class));
+
+    try {
+      mExecutor.computeLayoutsSync(mContext, mHolders, mWidthSpecs, mHeightSpecs, null);
+      fail("Expected the layout error to be rethrown");
+    } catch (RuntimeException e) {
+      assertThat(e == error || e.getCause() == error).isTrue();
+    }
+  }
+
+  @Test
+  public void testThreadCountIsTheSizeOfTheSharedPool() {
+    final BulkLayoutExecutor executor =
+        new BulkLayoutExecutor(new LayoutThreadPoolConfigurationImpl(8, 8, 0));
+
+    assertThat(executor.getThreadCount()).isEqualTo(mExecutor.getThreadCount());
+  }
+
+  private static ComponentTreeHolder createHolder() {
+    return mock(ComponentTreeHolder.class);
+  }
+
+  private static Answer<Void> recordThread(final Set<Thread> threads) {
+    return new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        threads.add(Thread.currentThread());
+        final Size size = (Size) invocation.getArguments()[3];
+        size.width = (Integer) invocation.getArguments()[1];
+        size.height = (Integer) invocation.getArguments()[2];
+        // Gives the other threads a chance to pick up items.
+        Thread.sleep(5);
+        return null;
+      }
+    };
+  }
+}
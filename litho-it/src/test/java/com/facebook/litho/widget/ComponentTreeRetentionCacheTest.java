@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.widget;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_COMPLETE;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+import com.facebook.litho.ComponentContext;
+import com.facebook.litho.Size;
+import com.facebook.litho.SizeSpec;
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(ComponentsTestRunner.class)
+public class ComponentTreeRetentionCacheTest {
+
+  private final int mWidthSpec = SizeSpec.makeSizeSpec(100, EXACTLY);
+  private final int mHeightSpec = SizeSpec.makeSizeSpec(100, EXACTLY);
+
+  private ComponentContext mContext;
+
+  @Before
+  public void setup() {
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+  }
+
+  @Test
+  public void testRetainedTreeKeepsItsLayout() {
+    final ComponentTreeRetentionCache cache = new ComponentTreeRetentionCache(1024 * 1024, 10);
+    final ComponentTreeHolder holder = createHolderWithLayout();
+
+    cache.retain(holder);
+
+    assertThat(cache.getCount()).isEqualTo(1);
+    assertThat(cache.getSizeBytes()).isGreaterThan(0);
+    assertThat(holder.isTreeValidForSizeSpecs(mWidthSpec, mHeightSpec)).isTrue();
+
+    assertThat(cache.remove(holder)).isTrue();
+    assertThat(cache.getCount()).isEqualTo(0);
+    assertThat(cache.getSizeBytes()).isEqualTo(0);
+    assertThat(holder.isTreeValidForSizeSpecs(mWidthSpec, mHeightSpec)).isTrue();
+  }
+
+  @Test
+  public void testLeastRecentlyRetainedTreeIsReleasedOverCountBudget() {
+    final ComponentTreeRetentionCache cache = new ComponentTreeRetentionCache(1024 * 1024, 2);
+    final ComponentTreeHolder first = createHolderWithLayout();
+    final ComponentTreeHolder second = createHolderWithLayout();
+    final ComponentTreeHolder third = createHolderWithLayout();
+
+    cache.retain(first);
+    cache.retain(second);
+    cache.retain(third);
+
+    assertThat(cache.getCount()).isEqualTo(2);
+    assertThat(first.getComponentTree()).isNull();
+    assertThat(second.getComponentTree()).isNotNull();
+    assertThat(third.getComponentTree()).isNotNull();
+  }
+
+  @Test
+  public void testTreesAreReleasedOverSizeBudget() {
+    final ComponentTreeHolder first = createHolderWithLayout();
+    final ComponentTreeHolder second = createHolderWithLayout();
+    final int size = first.getComponentTree().estimateRetainedSizeBytes();
+    final ComponentTreeRetentionCache cache = new ComponentTreeRetentionCache(size, 10);
+
+    cache.retain(first);
+    cache.retain(second);
+
+    assertThat(cache.getCount()).isEqualTo(1);
+    assertThat(cache.getSizeBytes()).isEqualTo(size);
+    assertThat(first.getComponentTree()).isNull();
+    assertThat(second.getComponentTree()).isNotNull();
+  }
+
+  @Test
+  public void testHoldersKnowWhetherTheyAreRetained() {
+    final ComponentTreeRetentionCache cache = new ComponentTreeRetentionCache(1024 * 1024, 1);
+    final ComponentTreeHolder first = createHolderWithLayout();
+    final ComponentTreeHolder second = createHolderWithLayout();
+
+    assertThat(first.isRetained()).isFalse();
+
+    cache.retain(first);
+    assertThat(first.isRetained()).isTrue();
+
+    cache.retain(second);
+    assertThat(first.isRetained()).isFalse();
+    assertThat(second.isRetained()).isTrue();
+
+    cache.remove(second);
+    assertThat(second.isRetained()).isFalse();
+  }
+
+  @Test
+  public void testTrimMemory() {
+    final ComponentTreeRetentionCache cache = new ComponentTreeRetentionCache(1024 * 1024, 4);
+    final List<ComponentTreeHolder> holders = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      holders.add(createHolderWithLayout());
+      cache.retain(holders.get(i));
+    }
+
+    cache.onTrimMemory(TRIM_MEMORY_RUNNING_LOW);
+    assertThat(cache.getCount()).isEqualTo(2);
+
+    cache.onTrimMemory(TRIM_MEMORY_COMPLETE);
+    assertThat(cache.getCount()).isEqualTo(0);
+    assertThat(cache.getSizeBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testUnreleasedHoldersCanBeGarbageCollected() throws InterruptedException {
+    final ComponentTreeRetentionCache cache = new ComponentTreeRetentionCache(1024 * 1024, 10);
+    final WeakReference<ComponentTreeHolder> holderReference = retainNewHolder(cache);
+
+    for (int i = 0; i < 100 && cache.getCount() > 0; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    assertThat(holderReference.get()).isNull();
+    assertThat(cache.getCount()).isEqualTo(0);
+    assertThat(cache.getSizeBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testReleasedHolderIsRemoved() {
+    final ComponentTreeRetentionCache cache = ComponentTreeRetentionCache.getInstance();
+    final ComponentTreeHolder holder = createHolderWithLayout();
+    final int count = cache.getCount();
+
+    cache.retain(holder);
+    assertThat(cache.getCount()).isEqualTo(count + 1);
+
+    holder.release();
+    assertThat(cache.getCount()).isEqualTo(count);
+  }
+
+  /** Retains a holder that isn't referenced by anything else once this returns. */
+  private WeakReference<ComponentTreeHolder> retainNewHolder(ComponentTreeRetentionCache cache) {
+    final ComponentTreeHolder holder = createHolderWithLayout();
+    cache.retain(holder);
+    assertThat(cache.getCount()).isEqualTo(1);
+    return new WeakReference<>(holder);
+  }
+
+  private ComponentTreeHolder createHolderWithLayout() {
+    final ComponentTreeHolder holder =
+        ComponentTreeHolder.create()
+            .renderInfo(
+                ComponentRenderInfo.create()
+                    .component(TestDrawableComponent.create(mContext).build())
+                    .build())
+            .build();
+    holder.computeLayoutSync(mContext, mWidthSpec, mHeightSpec, new Size());
+    return holder;
+  }
+}
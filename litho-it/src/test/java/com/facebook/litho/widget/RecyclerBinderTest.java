@@ -2445,6 +2445,97 @@ public class RecyclerBinderTest {
     }
   }
 
+  @Test
+  public void testBulkLayoutFillsViewportInOrder() {
+    final int viewportItemCount = 5;
+    final RecordingViewportFiller filler = new RecordingViewportFiller(viewportItemCount);
+    final LayoutInfo layoutInfo = mock(LayoutInfo.class);
+    setupBaseLayoutInfoMock(layoutInfo, OrientationHelper.VERTICAL);
+    when(layoutInfo.createViewportFiller(anyInt(), anyInt())).thenReturn(filler);
+
+    final RecyclerBinder recyclerBinder =
+        mRecyclerBinderBuilder
+            .layoutInfo(layoutInfo)
+            .bulkLayoutThreadPoolConfig(new LayoutThreadPoolConfigurationImpl(2, 2, 0))
+            .build(mComponentContext);
+
+    final List<ComponentRenderInfo> components = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      components.add(ComponentRenderInfo.create().component(mock(Component.class)).build());
+    }
+    recyclerBinder.insertRangeAt(0, new ArrayList<RenderInfo>(components));
+    recyclerBinder.notifyChangeSetComplete(true, NO_OP_CHANGE_SET_COMPLETE_CALLBACK);
+
+    final List<ComponentTreeHolder> holders = new ArrayList<>();
+    for (int i = 0; i < components.size(); i++) {
+      holders.add(recyclerBinder.getComponentTreeHolderAt(i));
+    }
+
+    final Size size = new Size();
+    final int numInserted;
+    synchronized (recyclerBinder) {
+      numInserted = recyclerBinder.computeLayoutsToFillListViewport(holders, 0, 1000, 1000, size);
+    }
+
+    assertThat(numInserted).isEqualTo(viewportItemCount);
+    assertThat(filler.mRenderInfos).hasSize(viewportItemCount);
+    for (int i = 0; i < viewportItemCount; i++) {
+      assertThat(filler.mRenderInfos.get(i)).isSameAs(components.get(i));
+      final TestComponentTreeHolder holder =
+          mHoldersForComponents.get(components.get(i).getComponent());
+      assertThat(holder.mLayoutSyncCalled).isTrue();
+      assertThat(holder.isTreeValid()).isTrue();
+    }
+    assertThat(size.height).isEqualTo(100 * viewportItemCount);
+  }
+
+  @Test
+  public void testInsertRangeAsyncWithBulkLayoutCommitsInOrder() {
+    final RecyclerBinder recyclerBinder =
+        new RecyclerBinder.Builder()
+            .rangeRatio(RANGE_RATIO)
+            .bulkLayoutThreadPoolConfig(new LayoutThreadPoolConfigurationImpl(2, 2, 0))
+            .build(mComponentContext);
+    final ArrayList<Component> components = new ArrayList<>();
+    final ArrayList<RenderInfo> firstRenderInfos = new ArrayList<>();
+    final ArrayList<RenderInfo> secondRenderInfos = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final Component component =
+          TestDrawableComponent.create(mComponentContext).widthPx(100).heightPx(100).build();
+      components.add(component);
+      (i < 5 ? firstRenderInfos : secondRenderInfos)
+          .add(ComponentRenderInfo.create().component(component).build());
+    }
+
+    recyclerBinder.measure(
+        new Size(), makeSizeSpec(1000, EXACTLY), makeSizeSpec(1000, EXACTLY), null);
+
+    runOnBackgroundThreadSync(
+        new Runnable() {
+          @Override
+          public void run() {
+            recyclerBinder.insertRangeAtAsync(0, firstRenderInfos);
+            recyclerBinder.notifyChangeSetCompleteAsync(true, NO_OP_CHANGE_SET_COMPLETE_CALLBACK);
+            recyclerBinder.insertRangeAtAsync(5, secondRenderInfos);
+            recyclerBinder.notifyChangeSetCompleteAsync(true, NO_OP_CHANGE_SET_COMPLETE_CALLBACK);
+          }
+        });
+
+    // The layouts run on the bulk layout threads, which post their results to the main thread.
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (recyclerBinder.getItemCount() < components.size()
+        && System.currentTimeMillis() < deadline) {
+      ShadowLooper.runUiThreadTasks();
+      assertThat(recyclerBinder.getItemCount()).isIn(0, 5, 10);
+    }
+
+    assertThat(recyclerBinder.getItemCount()).isEqualTo(components.size());
+    for (int i = 0; i < components.size(); i++) {
+      assertComponentAtEquals(recyclerBinder, i, components.get(i));
+      assertThat(recyclerBinder.getComponentTreeHolderAt(i).isTreeValid()).isTrue();
+    }
+  }
+
   @Test
   public void testInsertRangeAsyncBeforeInitialMeasure() {
     final int NUM_TO_INSERT = 5;
@@ -4649,6 +4740,34 @@ public class RecyclerBinderTest {
     }
   }
 
+  /** Wants a fixed number of items, and records the ones it's given. */
+  private static class RecordingViewportFiller implements LayoutInfo.ViewportFiller {
+
+    private final int mItemCount;
+    private final List<RenderInfo> mRenderInfos = new ArrayList<>();
+    private int mFill;
+
+    RecordingViewportFiller(int itemCount) {
+      mItemCount = itemCount;
+    }
+
+    @Override
+    public boolean wantsMore() {
+      return mRenderInfos.size() < mItemCount;
+    }
+
+    @Override
+    public void add(RenderInfo renderInfo, int width, int height) {
+      mRenderInfos.add(renderInfo);
+      mFill += height;
+    }
+
+    @Override
+    public int getFill() {
+      return mFill;
+    }
+  }
+
   private static class NoOpChangeSetCompleteCallback implements ChangeSetCompleteCallback {
 
     @Override
@@ -18,6 +18,7 @@ package com.facebook.litho.processor.integration.resources;
 
 import com.facebook.litho.Component;
 import com.facebook.litho.ComponentContext;
+import com.facebook.litho.ComponentUtils;
 import com.facebook.litho.config.ComponentsConfiguration;
 
 /** @see com.facebook.litho.processor.integration.resources.SimpleLayoutSpec */
@@ -28,9 +29,13 @@ public final class SimpleLayout extends Component {
 
   @Override
   public boolean isEquivalentTo(Component other) {
-    if (ComponentsConfiguration.useNewIsEquivalentToInLayoutSpec) {
-      return super.isEquivalentTo(other);
+    if (ComponentsConfiguration.verifyIsEquivalentTo) {
+      return ComponentUtils.verifyIsEquivalentTo(this, other, isEquivalentToImpl(other));
     }
+    return isEquivalentToImpl(other);
+  }
+
+  private boolean isEquivalentToImpl(Component other) {
     if (this == other) {
       return true;
     }
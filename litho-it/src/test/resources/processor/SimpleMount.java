@@ -20,6 +20,7 @@ import com.facebook.litho.Component;
 import com.facebook.litho.ComponentContext;
 import com.facebook.litho.ComponentLayout;
 import com.facebook.litho.ComponentLifecycle;
+import com.facebook.litho.ComponentUtils;
 import com.facebook.litho.LithoView;
 import com.facebook.litho.Size;
 import com.facebook.litho.annotations.Comparable;
@@ -48,9 +49,13 @@ public final class SimpleMount extends Component {
 
   @Override
   public boolean isEquivalentTo(Component other) {
-    if (ComponentsConfiguration.useNewIsEquivalentToInMountSpec) {
-      return super.isEquivalentTo(other);
+    if (ComponentsConfiguration.verifyIsEquivalentTo) {
+      return ComponentUtils.verifyIsEquivalentTo(this, other, isEquivalentToImpl(other));
     }
+    return isEquivalentToImpl(other);
+  }
+
+  private boolean isEquivalentToImpl(Component other) {
     if (this == other) {
       return true;
     }
@@ -26,6 +26,7 @@ import com.facebook.litho.ClickEvent;
 import com.facebook.litho.Component;
 import com.facebook.litho.ComponentContext;
 import com.facebook.litho.ComponentLifecycle;
+import com.facebook.litho.ComponentUtils;
 import com.facebook.litho.Diff;
 import com.facebook.litho.ErrorEvent;
 import com.facebook.litho.EventDispatcher;
@@ -138,9 +139,13 @@ public final class TestLayout<S extends View> extends Component implements TestT
 
   @Override
   public boolean isEquivalentTo(Component other) {
-    if (ComponentsConfiguration.useNewIsEquivalentToInLayoutSpec) {
-      return super.isEquivalentTo(other);
+    if (ComponentsConfiguration.verifyIsEquivalentTo) {
+      return ComponentUtils.verifyIsEquivalentTo(this, other, isEquivalentToImpl(other));
     }
+    return isEquivalentToImpl(other);
+  }
+
+  private boolean isEquivalentToImpl(Component other) {
     if (this == other) {
       return true;
     }
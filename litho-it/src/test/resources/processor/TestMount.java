@@ -29,6 +29,7 @@ import com.facebook.litho.Component;
 import com.facebook.litho.ComponentContext;
 import com.facebook.litho.ComponentLayout;
 import com.facebook.litho.ComponentLifecycle;
+import com.facebook.litho.ComponentUtils;
 import com.facebook.litho.Diff;
 import com.facebook.litho.EventDispatcher;
 import com.facebook.litho.EventHandler;
@@ -127,9 +128,13 @@ public final class TestMount<S extends View> extends Component implements TestTa
 
   @Override
   public boolean isEquivalentTo(Component other) {
-    if (ComponentsConfiguration.useNewIsEquivalentToInMountSpec) {
-      return super.isEquivalentTo(other);
+    if (ComponentsConfiguration.verifyIsEquivalentTo) {
+      return ComponentUtils.verifyIsEquivalentTo(this, other, isEquivalentToImpl(other));
     }
+    return isEquivalentToImpl(other);
+  }
+
+  private boolean isEquivalentToImpl(Component other) {
     if (this == other) {
       return true;
     }
@@ -22,6 +22,7 @@ import android.support.v4.util.Pools;
 import android.widget.TextView;
 import com.facebook.litho.ClickEvent;
 import com.facebook.litho.Component;
+import com.facebook.litho.ComponentUtils;
 import com.facebook.litho.Diff;
 import com.facebook.litho.EventDispatcher;
 import com.facebook.litho.EventHandler;
@@ -101,9 +102,13 @@ final class FullGroupSection<T> extends Section implements TestTag {
 
   @Override
   public boolean isEquivalentTo(Section other) {
-    if (ComponentsConfiguration.useNewIsEquivalentToInSectionSpec) {
-      return super.isEquivalentTo(other);
+    if (ComponentsConfiguration.verifyIsEquivalentTo) {
+      return ComponentUtils.verifyIsEquivalentTo(this, other, isEquivalentToImpl(other));
     }
+    return isEquivalentToImpl(other);
+  }
+
+  private boolean isEquivalentToImpl(Section other) {
     if (this == other) {
       return true;
     }
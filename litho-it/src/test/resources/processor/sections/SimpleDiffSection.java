@@ -16,6 +16,7 @@
 
 package com.facebook.litho.sections.processor.integration.resources;
 
+import com.facebook.litho.ComponentUtils;
 import com.facebook.litho.EventHandler;
 import com.facebook.litho.config.ComponentsConfiguration;
 import com.facebook.litho.sections.ChangeSet;
@@ -31,9 +32,13 @@ public final class SimpleDiffSection extends Section {
 
   @Override
   public boolean isEquivalentTo(Section other) {
-    if (ComponentsConfiguration.useNewIsEquivalentToInSectionSpec) {
-      return super.isEquivalentTo(other);
+    if (ComponentsConfiguration.verifyIsEquivalentTo) {
+      return ComponentUtils.verifyIsEquivalentTo(this, other, isEquivalentToImpl(other));
     }
+    return isEquivalentToImpl(other);
+  }
+
+  private boolean isEquivalentToImpl(Section other) {
     if (this == other) {
       return true;
     }
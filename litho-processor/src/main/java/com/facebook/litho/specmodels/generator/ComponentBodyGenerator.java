@@ -105,6 +105,7 @@ public class ComponentBodyGenerator {
         .addTypeSpecDataHolder(generateEventTriggers(specModel));
 
     builder.addMethod(generateIsEquivalentMethod(specModel));
+    builder.addMethod(generateIsEquivalentImplMethod(specModel));
 
     builder.addTypeSpecDataHolder(generateCopyInterStageImpl(specModel));
     builder.addTypeSpecDataHolder(generateOnUpdateStateMethods(specModel));
@@ -448,21 +449,34 @@ public class ComponentBodyGenerator {
         + "Trigger";
   }
 
+  /**
+   * Generates isEquivalentTo, which compares the fields field by field. When {@link
+   * com.facebook.litho.config.ComponentsConfiguration#verifyIsEquivalentTo} is enabled, the result
+   * is also checked against the reflection based comparison of the fields.
+   */
   static MethodSpec generateIsEquivalentMethod(SpecModel specModel) {
+    return MethodSpec.methodBuilder("isEquivalentTo")
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(TypeName.BOOLEAN)
+        .addParameter(specModel.getComponentClass(), "other")
+        .beginControlFlow("if ($T.verifyIsEquivalentTo)", ClassNames.COMPONENTS_CONFIGURATION)
+        .addStatement(
+            "return $T.verifyIsEquivalentTo(this, other, isEquivalentToImpl(other))",
+            ClassNames.COMPONENT_UTILS)
+        .endControlFlow()
+        .addStatement("return isEquivalentToImpl(other)")
+        .build();
+  }
+
+  static MethodSpec generateIsEquivalentImplMethod(SpecModel specModel) {
     final String className = specModel.getComponentName();
     final String instanceRefName = getInstanceRefName(specModel);
 
     MethodSpec.Builder isEquivalentBuilder =
-        MethodSpec.methodBuilder("isEquivalentTo")
-            .addAnnotation(Override.class)
-            .addModifiers(Modifier.PUBLIC)
+        MethodSpec.methodBuilder("isEquivalentToImpl")
+            .addModifiers(Modifier.PRIVATE)
             .returns(TypeName.BOOLEAN)
-            .beginControlFlow(
-                "if ($T.$N)",
-                ClassNames.COMPONENTS_CONFIGURATION,
-                specModel.getIsEquivalentToExperimentFlagName())
-            .addStatement("return super.isEquivalentTo(other)")
-            .endControlFlow()
             .addParameter(specModel.getComponentClass(), "other")
             .beginControlFlow("if (this == other)")
             .addStatement("return true")
@@ -137,4 +137,5 @@ public interface ClassNames {
   ClassName WORKING_RANGE = ClassName.bestGuess("com.facebook.litho.WorkingRange");
   ClassName COMPONENTS_CONFIGURATION =
       ClassName.bestGuess("com.facebook.litho.config.ComponentsConfiguration");
+  ClassName COMPONENT_UTILS = ClassName.bestGuess("com.facebook.litho.ComponentUtils");
 }
@@ -331,11 +331,6 @@ public class LayoutSpecModel implements SpecModel, HasPureRender {
     return mIsPureRender;
   }
 
-  @Override
-  public String getIsEquivalentToExperimentFlagName() {
-    return "useNewIsEquivalentToInLayoutSpec";
-  }
-
   @Override
   public String toString() {
     return "LayoutSpecModel{"
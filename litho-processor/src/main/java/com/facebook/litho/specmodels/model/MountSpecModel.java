@@ -367,11 +367,6 @@ public class MountSpecModel implements SpecModel, HasPureRender {
     return mMountType;
   }
 
-  @Override
-  public String getIsEquivalentToExperimentFlagName() {
-    return "useNewIsEquivalentToInMountSpec";
-  }
-
   @Override
   public String toString() {
     return "MountSpecModel{"
@@ -410,11 +410,6 @@ public final class SpecModelImpl implements SpecModel {
     throw new RuntimeException("Don't delegate to this method!");
   }
 
-  @Override
-  public String getIsEquivalentToExperimentFlagName() {
-    throw new RuntimeException("Don't delegate to this method!");
-  }
-
   @Override
   public TypeSpec generate() {
     throw new RuntimeException("Don't delegate to this method!");
@@ -339,9 +339,4 @@ public class TestSpecModel implements SpecModel, HasEnclosedSpecModel {
   public SpecModel getEnclosedSpecModel() {
     return mEnclosedSpecModel;
   }
-
-  @Override
-  public String getIsEquivalentToExperimentFlagName() {
-    return "useNewIsEquivalentTo";
-  }
 }
@@ -161,6 +161,11 @@ public final class ChangeSet {
     return mFinalCount;
   }
 
+  @Nullable
+  Section getSection() {
+    return mSection;
+  }
+
   @Nullable
   public ChangeSetStats getChangeSetStats() {
     return mChangeSetStats;
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.sections;
+
+import static com.facebook.litho.sections.Change.DELETE;
+import static com.facebook.litho.sections.Change.DELETE_RANGE;
+import static com.facebook.litho.sections.Change.INSERT;
+import static com.facebook.litho.sections.Change.INSERT_RANGE;
+import static com.facebook.litho.sections.Change.MOVE;
+import static com.facebook.litho.sections.Change.UPDATE;
+import static com.facebook.litho.sections.Change.UPDATE_RANGE;
+
+import android.support.annotation.Nullable;
+import com.facebook.litho.widget.RenderInfo;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rewrites a {@link ChangeSet} into an equivalent one made of fewer and larger {@link Change}s, so
+ * that the {@link SectionTree.Target} applying it does less work.
+ *
+ * <p>The changes between two moves, which are kept as they are, are replayed on a model of the
+ * list: an item inserted then deleted is dropped, an item inserted then updated is inserted with
+ * its last {@link RenderInfo}, and the updates of an item collapse into one. The model is then
+ * turned back into changes from its first position to its last, merging the changes of a same
+ * type that apply to adjacent items. Items deleted and others inserted at the same position are
+ * still deleted and inserted, so that no state is carried over from one item to another.
+ */
+final class ChangeSetCompactor {
+
+  private static final int NO_POSITION = -1;
+
+  // The items of the list, between the changes of the segment being replayed.
+  private final List<Item> mItems = new ArrayList<>();
+  private final ChangeSet mResult;
+
+  // Caches the last looked up item and its position, as changes often touch nearby positions.
+  private int mCursorIndex;
+  private int mCursorPosition;
+
+  // The number of items before the segment being replayed, and after its changes so far.
+  private int mSegmentStartCount;
+  private int mItemCount;
+
+  // The change being built out of adjacent items, MOVE when there is none.
+  private @Change.Type int mPendingType = MOVE;
+  private int mPendingIndex;
+  private int mPendingCount;
+  private final List<RenderInfo> mPendingRenderInfos = new ArrayList<>();
+
+  private ChangeSetCompactor(ChangeSet result) {
+    mResult = result;
+  }
+
+  /**
+   * @return an equivalent ChangeSet with fewer changes, or the given ChangeSet if it can't be made
+   *     smaller.
+   */
+  static ChangeSet compact(ChangeSet changeSet) {
+    final int changeCount = changeSet.getChangeCount();
+    if (changeCount < 2) {
+      return changeSet;
+    }
+
+    int startCount = changeSet.getCount();
+    for (int i = 0; i < changeCount; i++) {
+      final Change change = changeSet.getChangeAt(i);
+      switch (change.getType()) {
+        case INSERT:
+          startCount--;
+          break;
+        case INSERT_RANGE:
+          startCount -= change.getCount();
+          break;
+        case DELETE:
+          startCount++;
+          break;
+        case DELETE_RANGE:
+          startCount += change.getCount();
+          break;
+      }
+    }
+
+    final ChangeSet result =
+        ChangeSet.acquireChangeSet(
+            startCount, changeSet.getSection(), changeSet.getChangeSetStats() != null);
+    final ChangeSetCompactor compactor = new ChangeSetCompactor(result);
+
+    if (!compactor.replay(changeSet, startCount)
+        || result.getChangeCount() >= changeCount
+        || result.getCount() != changeSet.getCount()) {
+      // The changes don't match the number of items, leave them to the target as they are.
+      result.release();
+      return changeSet;
+    }
+
+    return result;
+  }
+
+  private boolean replay(ChangeSet changeSet, int startCount) {
+    startSegment(startCount);
+
+    for (int i = 0, size = changeSet.getChangeCount(); i < size; i++) {
+      final Change change = changeSet.getChangeAt(i);
+      final int index = change.getIndex();
+      final int count = mItemCount;
+
+      switch (change.getType()) {
+        case INSERT:
+          if (index < 0 || index > count) {
+            return false;
+          }
+          insert(index, Collections.singletonList(change.getRenderInfo()));
+          break;
+        case INSERT_RANGE:
+          if (index < 0 || index > count || change.getRenderInfos().size() != change.getCount()) {
+            return false;
+          }
+          insert(index, change.getRenderInfos());
+          break;
+        case UPDATE:
+          if (index < 0 || index >= count) {
+            return false;
+          }
+          update(index, Collections.singletonList(change.getRenderInfo()));
+          break;
+        case UPDATE_RANGE:
+          if (index < 0
+              || index + change.getCount() > count
+              || change.getRenderInfos().size() != change.getCount()) {
+            return false;
+          }
+          update(index, change.getRenderInfos());
+          break;
+        case DELETE:
+          if (index < 0 || index >= count) {
+            return false;
+          }
+          delete(index, 1);
+          break;
+        case DELETE_RANGE:
+          if (index < 0 || change.getCount() < 0 || index + change.getCount() > count) {
+            return false;
+          }
+          delete(index, change.getCount());
+          break;
+        case MOVE:
+          final int toIndex = change.getToIndex();
+          if (index < 0 || index >= count || toIndex < 0 || toIndex >= count) {
+            return false;
+          }
+          endSegment();
+          mResult.addChange(Change.copy(change));
+          startSegment(count);
+          break;
+        default:
+          return false;
+      }
+    }
+
+    endSegment();
+    return true;
+  }
+
+  private void startSegment(int count) {
+    mItems.clear();
+    if (count > 0) {
+      mItems.add(Item.unchanged(0, count));
+    }
+    mSegmentStartCount = count;
+    mItemCount = count;
+    moveCursor(0, 0);
+  }
+
+  /** Emits the changes turning the list before the segment into the modeled list. */
+  private void endSegment() {
+    final List<RenderInfo> insertedRenderInfos = new ArrayList<>();
+    int position = 0;
+    int nextPreviousPosition = 0;
+
+    for (int i = 0, size = mItems.size(); i < size; i++) {
+      final Item item = mItems.get(i);
+      if (item.mPreviousPosition == NO_POSITION) {
+        insertedRenderInfos.add(item.mRenderInfo);
+        continue;
+      }
+
+      // The items that were between this one and the previous one aren't in the list anymore.
+      emitReplacement(
+          position, item.mPreviousPosition - nextPreviousPosition, insertedRenderInfos);
+      position += insertedRenderInfos.size();
+      insertedRenderInfos.clear();
+
+      if (item.mRenderInfo != null) {
+        emitUpdate(position, item.mRenderInfo);
+      }
+      position += item.mCount;
+      nextPreviousPosition = item.mPreviousPosition + item.mCount;
+    }
+
+    emitReplacement(position, mSegmentStartCount - nextPreviousPosition, insertedRenderInfos);
+    flushPendingChange();
+  }
+
+  private void insert(int position, List<RenderInfo> renderInfos) {
+    final int index = splitAt(position);
+    final List<Item> items = new ArrayList<>(renderInfos.size());
+    for (int i = 0, size = renderInfos.size(); i < size; i++) {
+      items.add(Item.inserted(renderInfos.get(i)));
+    }
+    mItems.addAll(index, items);
+    mItemCount += items.size();
+  }
+
+  private void update(int position, List<RenderInfo> renderInfos) {
+    final int startIndex = splitAt(position);
+    final int endIndex = splitAt(position + renderInfos.size());
+
+    final List<Item> items = new ArrayList<>(renderInfos.size());
+    int offset = 0;
+    for (int i = startIndex; i < endIndex; i++) {
+      final Item item = mItems.get(i);
+      for (int j = 0; j < item.mCount; j++) {
+        final int previousPosition =
+            item.mPreviousPosition == NO_POSITION ? NO_POSITION : item.mPreviousPosition + j;
+        items.add(Item.updated(previousPosition, renderInfos.get(offset++)));
+      }
+    }
+
+    replaceItems(startIndex, endIndex, items);
+    moveCursor(startIndex, position);
+  }
+
+  private void delete(int position, int count) {
+    final int startIndex = splitAt(position);
+    final int endIndex = splitAt(position + count);
+    replaceItems(startIndex, endIndex, Collections.<Item>emptyList());
+    moveCursor(startIndex, position);
+    mItemCount -= count;
+  }
+
+  private void replaceItems(int startIndex, int endIndex, List<Item> items) {
+    final List<Item> replacedItems = mItems.subList(startIndex, endIndex);
+    replacedItems.clear();
+    replacedItems.addAll(items);
+  }
+
+  private void moveCursor(int index, int position) {
+    mCursorIndex = index;
+    mCursorPosition = position;
+  }
+
+  /**
+   * Splits the item at a position, if needed, so that an item starts there.
+   *
+   * @return the index of the item starting at the position, or the number of items if the position
+   *     is the end of the list.
+   */
+  private int splitAt(int position) {
+    final int index = findItemIndex(position);
+    if (index == mItems.size() || mCursorPosition == position) {
+      return index;
+    }
+
+    final Item item = mItems.get(index);
+    final int headCount = position - mCursorPosition;
+    mItems.set(index, Item.unchanged(item.mPreviousPosition, headCount));
+    mItems.add(
+        index + 1, Item.unchanged(item.mPreviousPosition + headCount, item.mCount - headCount));
+
+    moveCursor(index + 1, position);
+    return index + 1;
+  }
+
+  /** Moves the cursor to the item containing a position. */
+  private int findItemIndex(int position) {
+    while (mCursorIndex > 0 && position < mCursorPosition) {
+      mCursorIndex--;
+      mCursorPosition -= mItems.get(mCursorIndex).mCount;
+    }
+
+    while (mCursorIndex < mItems.size()
+        && position >= mCursorPosition + mItems.get(mCursorIndex).mCount) {
+      mCursorPosition += mItems.get(mCursorIndex).mCount;
+      mCursorIndex++;
+    }
+
+    return mCursorIndex;
+  }
+
+  /**
+   * Emits the deletion of items at a position, and the insertion of others in their place. They
+   * are never turned into updates: a deleted item can't be shown to be the inserted one, and an
+   * update would keep its state and mount content for the new item.
+   */
+  private void emitReplacement(int position, int deletedCount, List<RenderInfo> renderInfos) {
+    if (deletedCount > 0) {
+      emitDelete(position, deletedCount);
+    }
+
+    for (int i = 0, size = renderInfos.size(); i < size; i++) {
+      emitInsert(position + i, renderInfos.get(i));
+    }
+  }
+
+  private void emitInsert(int position, RenderInfo renderInfo) {
+    if (mPendingType != INSERT || mPendingIndex + mPendingCount != position) {
+      flushPendingChange();
+      mPendingType = INSERT;
+      mPendingIndex = position;
+    }
+    mPendingCount++;
+    mPendingRenderInfos.add(renderInfo);
+  }
+
+  private void emitUpdate(int position, RenderInfo renderInfo) {
+    if (mPendingType != UPDATE || mPendingIndex + mPendingCount != position) {
+      flushPendingChange();
+      mPendingType = UPDATE;
+      mPendingIndex = position;
+    }
+    mPendingCount++;
+    mPendingRenderInfos.add(renderInfo);
+  }
+
+  private void emitDelete(int position, int count) {
+    if (mPendingType != DELETE || mPendingIndex != position) {
+      flushPendingChange();
+      mPendingType = DELETE;
+      mPendingIndex = position;
+    }
+    mPendingCount += count;
+  }
+
+  private void flushPendingChange() {
+    switch (mPendingType) {
+      case INSERT:
+        mResult.addChange(
+            mPendingCount == 1
+                ? Change.insert(mPendingIndex, mPendingRenderInfos.get(0))
+                : Change.insertRange(
+                    mPendingIndex, mPendingCount, new ArrayList<>(mPendingRenderInfos)));
+        break;
+      case UPDATE:
+        mResult.addChange(
+            mPendingCount == 1
+                ? Change.update(mPendingIndex, mPendingRenderInfos.get(0))
+                : Change.updateRange(
+                    mPendingIndex, mPendingCount, new ArrayList<>(mPendingRenderInfos)));
+        break;
+      case DELETE:
+        mResult.addChange(
+            mPendingCount == 1
+                ? Change.remove(mPendingIndex)
+                : Change.removeRange(mPendingIndex, mPendingCount));
+        break;
+      default:
+        break;
+    }
+
+    mPendingType = MOVE;
+    mPendingCount = 0;
+    mPendingRenderInfos.clear();
+  }
+
+  /**
+   * A run of items of the list. Either unchanged items from the list before the segment, a single
+   * updated item from it, or a single inserted item.
+   */
+  private static final class Item {
+
+    // The position of the first item in the list before the segment, NO_POSITION if inserted.
+    private final int mPreviousPosition;
+    private final int mCount;
+    private final @Nullable RenderInfo mRenderInfo;
+
+    private Item(int previousPosition, int count, @Nullable RenderInfo renderInfo) {
+      mPreviousPosition = previousPosition;
+      mCount = count;
+      mRenderInfo = renderInfo;
+    }
+
+    static Item unchanged(int previousPosition, int count) {
+      return new Item(previousPosition, count, null);
+    }
+
+    static Item updated(int previousPosition, RenderInfo renderInfo) {
+      return new Item(previousPosition, 1, renderInfo);
+    }
+
+    static Item inserted(RenderInfo renderInfo) {
+      return new Item(NO_POSITION, 1, renderInfo);
+    }
+  }
+}
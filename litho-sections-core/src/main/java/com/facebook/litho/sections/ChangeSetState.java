@@ -17,6 +17,7 @@
 package com.facebook.litho.sections;
 
 import static com.facebook.litho.FrameworkLogEvents.EVENT_SECTIONS_GENERATE_CHANGESET;
+import static com.facebook.litho.FrameworkLogEvents.EVENT_SECTIONS_GENERATE_CHILD_CHANGESET;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_CHANGESET_CHANGE_COUNT;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_CHANGESET_DELETE_RANGE_COUNT;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_CHANGESET_DELETE_SINGLE_COUNT;
@@ -36,11 +37,18 @@ import android.support.v4.util.Pair;
 import android.util.SparseArray;
 import com.facebook.litho.ComponentsLogger;
 import com.facebook.litho.ComponentsSystrace;
+import com.facebook.litho.LayoutThreadPoolExecutor;
 import com.facebook.litho.PerfEvent;
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.sections.config.SectionsConfiguration;
 import com.facebook.litho.sections.logger.SectionsDebugLogger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * ChangeSetState is responsible to generate a global ChangeSet between two {@link Section}s trees.
@@ -49,6 +57,9 @@ public class ChangeSetState {
 
   private static final List<Section> sEmptyList = new ArrayList<>();
 
+  // Created the first time change sets are generated in parallel.
+  private static volatile ThreadPoolExecutor sChildrenChangeSetExecutor;
+
   private Section mCurrentRoot;
   private Section mNewRoot;
   private ChangeSet mChangeSet;
@@ -126,6 +137,16 @@ public class ChangeSetState {
               enableStats);
     }
 
+    if (SectionsConfiguration.compactChangeSets) {
+      ComponentsSystrace.beginSection("compactChangeSet");
+      final ChangeSet changeSet = changeSetState.mChangeSet;
+      changeSetState.mChangeSet = ChangeSetCompactor.compact(changeSet);
+      if (changeSetState.mChangeSet != changeSet) {
+        changeSet.release();
+      }
+      ComponentsSystrace.endSection();
+    }
+
     if (logger != null && logEvent != null) {
       logEvent.markerAnnotate(
           PARAM_CURRENT_ROOT_COUNT, currentRoot == null ? -1 : currentRoot.getCount());
@@ -338,6 +359,9 @@ public class ChangeSetState {
    * still guarantees a correct ordering while preserving the validity of indexes in the children of
    * currentRoot. Re-ordering a child is not supported and will trigger an {@link
    * IllegalStateException}.
+   *
+   * <p>If {@link SectionsConfiguration#changeSetThreadPoolSize} is set, the {@link ChangeSet}s of
+   * the children are generated in parallel, and merged in the same order.
    */
   private static SparseArray<ChangeSet> generateChildrenChangeSets(
       SectionContext sectionContext,
@@ -354,25 +378,20 @@ public class ChangeSetState {
       boolean enableStats) {
     final SparseArray<ChangeSet> changeSets = acquireChangeSetSparseArray();
 
+    // The pairs of children to diff, and the index of the ChangeSet each result is merged with.
+    final List<Section> currentChildrenToDiff = new ArrayList<>();
+    final List<Section> newChildrenToDiff = new ArrayList<>();
+    final List<Integer> changeSetIndexes = new ArrayList<>();
+
     // Find removed current children.
     for (int i = 0; i < currentChildrenList.size(); i++) {
       final String key = currentChildrenList.get(i).getGlobalKey();
       final Section currentChild = currentChildrenList.get(i);
 
       if (newChildren.get(key) == null) {
-        changeSets.put(
-            i,
-            generateChangeSetRecursive(
-                sectionContext,
-                currentChild,
-                null,
-                removedComponents,
-                sectionsDebugLogger,
-                sectionTreeTag,
-                currentPrefix,
-                newPrefix,
-                thread,
-                enableStats));
+        currentChildrenToDiff.add(currentChild);
+        newChildrenToDiff.add(null);
+        changeSetIndexes.add(i);
       }
     }
 
@@ -384,52 +403,66 @@ public class ChangeSetState {
 
       // New child was added.
       if (currentChildIndex < 0) {
-        final ChangeSet currentChangeSet = changeSets.get(activeChildIndex);
-        final ChangeSet changeSet =
-            generateChangeSetRecursive(
-                sectionContext,
-                null,
-                newChild,
-                removedComponents,
-                sectionsDebugLogger,
-                sectionTreeTag,
-                currentPrefix,
-                newPrefix,
-                thread,
-                enableStats);
-
-        changeSets.put(activeChildIndex, ChangeSet.merge(currentChangeSet, changeSet));
-
-        if (currentChangeSet != null) {
-          currentChangeSet.release();
-        }
-
-        changeSet.release();
+        currentChildrenToDiff.add(null);
       } else {
         activeChildIndex = currentChildIndex;
+        currentChildrenToDiff.add(currentChildrenList.get(currentChildIndex));
+      }
+      newChildrenToDiff.add(newChild);
+      changeSetIndexes.add(activeChildIndex);
+    }
 
-        final ChangeSet currentChangeSet = changeSets.get(activeChildIndex);
-        final ChangeSet changeSet =
+    final List<ChangeSet> childrenChangeSets;
+    final ThreadPoolExecutor executor = getChildrenChangeSetExecutor();
+    if (executor != null && changeSetIndexes.size() > 1) {
+      childrenChangeSets =
+          generateChildrenChangeSetsInParallel(
+              executor,
+              sectionContext,
+              currentChildrenToDiff,
+              newChildrenToDiff,
+              removedComponents,
+              sectionsDebugLogger,
+              sectionTreeTag,
+              currentPrefix,
+              newPrefix,
+              enableStats);
+    } else {
+      childrenChangeSets = new ArrayList<>(changeSetIndexes.size());
+      for (int i = 0, size = changeSetIndexes.size(); i < size; i++) {
+        childrenChangeSets.add(
             generateChangeSetRecursive(
                 sectionContext,
-                currentChildrenList.get(currentChildIndex),
-                newChild,
+                currentChildrenToDiff.get(i),
+                newChildrenToDiff.get(i),
                 removedComponents,
                 sectionsDebugLogger,
                 sectionTreeTag,
                 currentPrefix,
                 newPrefix,
                 thread,
-                enableStats);
+                enableStats));
+      }
+    }
 
-        changeSets.put(activeChildIndex, ChangeSet.merge(currentChangeSet, changeSet));
+    for (int i = 0, size = changeSetIndexes.size(); i < size; i++) {
+      final int index = changeSetIndexes.get(i);
+      final ChangeSet changeSet = childrenChangeSets.get(i);
 
-        if (currentChangeSet != null) {
-          currentChangeSet.release();
-        }
+      // Removed children come first, each with its own index.
+      if (newChildrenToDiff.get(i) == null) {
+        changeSets.put(index, changeSet);
+        continue;
+      }
 
-        changeSet.release();
+      final ChangeSet currentChangeSet = changeSets.get(index);
+      changeSets.put(index, ChangeSet.merge(currentChangeSet, changeSet));
+
+      if (currentChangeSet != null) {
+        currentChangeSet.release();
       }
+
+      changeSet.release();
     }
 
     releaseChildrenMap(currentChildren);
@@ -438,6 +471,150 @@ public class ChangeSetState {
     return changeSets;
   }
 
+  /**
+   * Generates the {@link ChangeSet}s of pairs of children on the pool and on the calling thread,
+   * which runs the ones no worker started yet. Nested calls can then never wait for tasks stuck
+   * in the queue behind them. The sections removed while diffing are added to removedComponents
+   * in the same order as if the children had been diffed one after the other.
+   */
+  private static List<ChangeSet> generateChildrenChangeSetsInParallel(
+      ThreadPoolExecutor executor,
+      final SectionContext sectionContext,
+      List<Section> currentChildren,
+      List<Section> newChildren,
+      List<Section> removedComponents,
+      final SectionsDebugLogger sectionsDebugLogger,
+      final String sectionTreeTag,
+      final String currentPrefix,
+      final String newPrefix,
+      final boolean enableStats) {
+    final int count = currentChildren.size();
+    final List<FutureTask<ChangeSet>> tasks = new ArrayList<>(count);
+    final List<List<Section>> childrenRemovedComponents = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i++) {
+      final Section currentChild = currentChildren.get(i);
+      final Section newChild = newChildren.get(i);
+      final List<Section> childRemovedComponents = new ArrayList<>();
+      childrenRemovedComponents.add(childRemovedComponents);
+
+      final FutureTask<ChangeSet> task =
+          new FutureTask<>(
+              new Callable<ChangeSet>() {
+                @Override
+                public ChangeSet call() {
+                  return generateChildChangeSet(
+                      sectionContext,
+                      currentChild,
+                      newChild,
+                      childRemovedComponents,
+                      sectionsDebugLogger,
+                      sectionTreeTag,
+                      currentPrefix,
+                      newPrefix,
+                      enableStats);
+                }
+              });
+      tasks.add(task);
+      executor.execute(task);
+    }
+
+    // A no-op for the tasks that a worker already started.
+    for (int i = 0; i < count; i++) {
+      tasks.get(i).run();
+    }
+
+    final List<ChangeSet> changeSets = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      changeSets.add(getChangeSet(tasks.get(i)));
+      removedComponents.addAll(childrenRemovedComponents.get(i));
+    }
+
+    return changeSets;
+  }
+
+  private static ChangeSet generateChildChangeSet(
+      SectionContext sectionContext,
+      @Nullable Section currentChild,
+      @Nullable Section newChild,
+      List<Section> removedComponents,
+      SectionsDebugLogger sectionsDebugLogger,
+      String sectionTreeTag,
+      String currentPrefix,
+      String newPrefix,
+      boolean enableStats) {
+    final ComponentsLogger logger = sectionContext.getLogger();
+    final PerfEvent logEvent =
+        SectionsLogEventUtils.getSectionsPerformanceEvent(
+            sectionContext, EVENT_SECTIONS_GENERATE_CHILD_CHANGESET, currentChild, newChild);
+
+    final ChangeSet changeSet =
+        generateChangeSetRecursive(
+            sectionContext,
+            currentChild,
+            newChild,
+            removedComponents,
+            sectionsDebugLogger,
+            sectionTreeTag,
+            currentPrefix,
+            newPrefix,
+            Thread.currentThread().getName(),
+            enableStats);
+
+    if (logger != null && logEvent != null) {
+      logEvent.markerAnnotate(PARAM_CHANGESET_CHANGE_COUNT, changeSet.getChangeCount());
+      logger.logPerfEvent(logEvent);
+    }
+
+    return changeSet;
+  }
+
+  private static ChangeSet getChangeSet(FutureTask<ChangeSet> task) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return task.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Nullable
+  private static ThreadPoolExecutor getChildrenChangeSetExecutor() {
+    final int poolSize = SectionsConfiguration.changeSetThreadPoolSize;
+    if (poolSize <= 0) {
+      return null;
+    }
+
+    if (sChildrenChangeSetExecutor == null) {
+      synchronized (ChangeSetState.class) {
+        if (sChildrenChangeSetExecutor == null) {
+          sChildrenChangeSetExecutor =
+              new LayoutThreadPoolExecutor(
+                  poolSize, poolSize, ComponentsConfiguration.defaultChangeSetThreadPriority);
+        }
+      }
+    }
+
+    return sChildrenChangeSetExecutor;
+  }
+
   private static SparseArray<ChangeSet> acquireChangeSetSparseArray() {
     // TODO use pools instead t11953296
     return new SparseArray<>();
@@ -44,7 +44,10 @@ import com.facebook.litho.EventHandler;
 import com.facebook.litho.EventHandlersController;
 import com.facebook.litho.EventTrigger;
 import com.facebook.litho.EventTriggersContainer;
+import com.facebook.litho.LayoutHandler;
+import com.facebook.litho.LayoutScheduler;
 import com.facebook.litho.PerfEvent;
+import com.facebook.litho.StateUpdateCoalescer;
 import com.facebook.litho.ThreadTracingRunnable;
 import com.facebook.litho.ThreadUtils;
 import com.facebook.litho.TreeProps;
@@ -164,10 +167,11 @@ public class SectionTree {
 
   private final CalculateChangeSetRunnable mCalculateChangeSetOnMainThreadRunnable;
   private final CalculateChangeSetRunnable mCalculateChangeSetRunnable;
+  private final @Nullable StateUpdateCoalescer mStateUpdateCoalescer;
 
   private class CalculateChangeSetRunnable extends ThreadTracingRunnable {
 
-    private final Handler mHandler;
+    private final LayoutHandler mHandler;
 
     @GuardedBy("this")
     private boolean mIsPosted;
@@ -178,7 +182,7 @@ public class SectionTree {
     @GuardedBy("this")
     private @Nullable String mAttribution;
 
-    public CalculateChangeSetRunnable(Handler handler) {
+    public CalculateChangeSetRunnable(LayoutHandler handler) {
       mHandler = handler;
     }
 
@@ -292,11 +296,28 @@ public class SectionTree {
     mContext = SectionContext.withSectionTree(builder.mContext, this);
     mPendingChangeSets = new ArrayList<>();
     mPendingStateUpdates = SectionsPools.acquireStateUpdatesHolder();
-    Handler changeSetThreadHandler = builder.mChangeSetThreadHandler != null ?
-        builder.mChangeSetThreadHandler :
-        new Handler(getDefaultChangeSetThreadLooper());
+    final LayoutHandler changeSetThreadHandler;
+    if (builder.mChangeSetThreadHandler != null) {
+      changeSetThreadHandler = builder.mChangeSetThreadHandler;
+    } else if (ComponentsConfiguration.useLayoutScheduler) {
+      changeSetThreadHandler =
+          LayoutScheduler.getDefault().createLayoutHandler(LayoutScheduler.NEXT_FRAME);
+    } else {
+      changeSetThreadHandler = new HandlerWrapper(new Handler(getDefaultChangeSetThreadLooper()));
+    }
     mCalculateChangeSetRunnable = new CalculateChangeSetRunnable(changeSetThreadHandler);
-    mCalculateChangeSetOnMainThreadRunnable = new CalculateChangeSetRunnable(sMainThreadHandler);
+    mCalculateChangeSetOnMainThreadRunnable =
+        new CalculateChangeSetRunnable(new HandlerWrapper(sMainThreadHandler));
+    mStateUpdateCoalescer =
+        ComponentsConfiguration.coalesceAsyncStateUpdates
+            ? new StateUpdateCoalescer(
+                new StateUpdateCoalescer.Flusher() {
+                  @Override
+                  public void flush(@Nullable String attribution) {
+                    calculateChangeSetForCoalescedStateUpdates(attribution);
+                  }
+                })
+            : null;
   }
 
   /**
@@ -775,6 +796,10 @@ public class SectionTree {
       mEventHandlers = null;
     }
 
+    if (mStateUpdateCoalescer != null) {
+      mStateUpdateCoalescer.release();
+    }
+
     for (Range range : mLastRanges.values()) {
       releaseRange(range);
     }
@@ -820,6 +845,9 @@ public class SectionTree {
   synchronized void updateStateAsync(String key, StateUpdate stateUpdate, String attribution) {
     if (mForceSyncStateUpdates) {
       updateState(key, stateUpdate, attribution);
+    } else if (mStateUpdateCoalescer != null) {
+      addStateUpdateInternal(key, stateUpdate, false);
+      mStateUpdateCoalescer.onStateUpdate(attribution);
     } else {
       mCalculateChangeSetRunnable.cancel();
       addStateUpdateInternal(key, stateUpdate, false);
@@ -827,6 +855,16 @@ public class SectionTree {
     }
   }
 
+  private synchronized void calculateChangeSetForCoalescedStateUpdates(
+      @Nullable String attribution) {
+    if (mReleased) {
+      return;
+    }
+
+    mCalculateChangeSetRunnable.cancel();
+    mCalculateChangeSetRunnable.ensurePosted(ApplyNewChangeSet.UPDATE_STATE_ASYNC, attribution);
+  }
+
   synchronized void updateStateLazy(String key, StateUpdate stateUpdate) {
     addStateUpdateInternal(key, stateUpdate, true);
   }
@@ -1517,6 +1555,30 @@ public class SectionTree {
     //TODO use pools t11953296
   }
 
+  /** Posts to a {@link Handler}, so that change sets can be calculated by any LayoutHandler. */
+  private static class HandlerWrapper implements LayoutHandler {
+    private final Handler mHandler;
+
+    HandlerWrapper(Handler handler) {
+      mHandler = handler;
+    }
+
+    @Override
+    public boolean post(Runnable runnable) {
+      return mHandler.post(runnable);
+    }
+
+    @Override
+    public void removeCallbacks(Runnable runnable) {
+      mHandler.removeCallbacks(runnable);
+    }
+
+    @Override
+    public void removeCallbacksAndMessages(Object token) {
+      mHandler.removeCallbacksAndMessages(token);
+    }
+  }
+
   private static class SectionsMainThreadHandler extends Handler {
 
     private SectionsMainThreadHandler() {
@@ -1586,7 +1648,7 @@ public class SectionTree {
     private boolean mAsyncStateUpdates;
     private boolean mAsyncPropUpdates;
     private String mTag;
-    private Handler mChangeSetThreadHandler;
+    private @Nullable LayoutHandler mChangeSetThreadHandler;
     private boolean mForceSyncStateUpdates;
 
     private Builder(SectionContext componentContext, Target target) {
@@ -1597,11 +1659,22 @@ public class SectionTree {
     }
 
     /**
-     * An optional Handler where {@link ChangeSet} calculation should happen. If not provided the
+     * An optional Handler where {@link ChangeSet} calculation should happen. If not provided, or
+     * null, the framework will use its default background thread.
+     */
+    public Builder changeSetThreadHandler(@Nullable Handler changeSetThreadHandler) {
+      mChangeSetThreadHandler =
+          changeSetThreadHandler == null ? null : new HandlerWrapper(changeSetThreadHandler);
+      return this;
+    }
+
+    /**
+     * Same as {@link #changeSetThreadHandler(Handler)} for a {@link LayoutHandler}, e.g. to
+     * calculate change sets with a {@link LayoutScheduler}. If not provided, or null, the
      * framework will use its default background thread.
      */
-    public Builder changeSetThreadHandler(Handler changeSetThreadHandler) {
-      mChangeSetThreadHandler = changeSetThreadHandler;
+    public Builder changeSetLayoutHandler(@Nullable LayoutHandler changeSetLayoutHandler) {
+      mChangeSetThreadHandler = changeSetLayoutHandler;
       return this;
     }
 
@@ -62,6 +62,12 @@ import java.util.List;
  * <p>
  * {@link OnCheckIsSameContentEvent} whenever during a diffing it wants to check whether two items
  * that represent the same piece of data have exactly the same content.
+ * <p>
+ * {@link GetUniqueIdentifierEvent} whenever during a diffing it needs the key of an item. If a
+ * handler is provided for this event, items are matched by key with {@link KeyedDiffUtil}, which
+ * takes O((N + M) log(N + M)) time instead of the O((N + M) D) of {@link DiffUtil}, and
+ * {@link OnCheckIsSameItemEvent} isn't needed. The key of an item needs to be unique in its
+ * list, otherwise the data is diffed with {@link DiffUtil}.
  *
  * <p> For example:
  * <pre>
@@ -97,7 +103,12 @@ import java.util.List;
  * </pre>
  */
 @DiffSectionSpec(
-  events = {OnCheckIsSameContentEvent.class, OnCheckIsSameItemEvent.class, RenderEvent.class}
+  events = {
+    OnCheckIsSameContentEvent.class,
+    OnCheckIsSameItemEvent.class,
+    RenderEvent.class,
+    GetUniqueIdentifierEvent.class
+  }
 )
 public class DataDiffSectionSpec<T> {
 
@@ -144,13 +155,27 @@ public class DataDiffSectionSpec<T> {
             : LogTreePopulator.populatePerfEventFromLogger(
                 c, logger, logger.newPerformanceEvent(EVENT_SECTIONS_DATA_DIFF_CALCULATE_DIFF));
 
-    if (isTracing) {
-      ComponentsSystrace.beginSection("DiffUtil.calculateDiff");
+    final boolean shouldDetectMoves = isDetectMovesEnabled(detectMoves);
+    KeyedDiffUtil.DiffResult keyedResult = null;
+    if (callback.hasItemKeys()) {
+      if (isTracing) {
+        ComponentsSystrace.beginSection("KeyedDiffUtil.calculateDiff");
+      }
+      keyedResult = KeyedDiffUtil.calculateDiff(callback, shouldDetectMoves);
+      if (isTracing) {
+        ComponentsSystrace.endSection();
+      }
     }
-    final DiffUtil.DiffResult result =
-        DiffUtil.calculateDiff(callback, isDetectMovesEnabled(detectMoves));
-    if (isTracing) {
-      ComponentsSystrace.endSection();
+
+    DiffUtil.DiffResult result = null;
+    if (keyedResult == null) {
+      if (isTracing) {
+        ComponentsSystrace.beginSection("DiffUtil.calculateDiff");
+      }
+      result = DiffUtil.calculateDiff(callback, shouldDetectMoves);
+      if (isTracing) {
+        ComponentsSystrace.endSection();
+      }
     }
 
     if (logEvent != null) {
@@ -164,7 +189,11 @@ public class DataDiffSectionSpec<T> {
             componentRenderer,
             operationExecutor,
             callback.getTrimmedHeadItemsCount());
-    result.dispatchUpdatesTo(updatesCallback);
+    if (keyedResult != null) {
+      keyedResult.dispatchUpdatesTo(updatesCallback);
+    } else {
+      result.dispatchUpdatesTo(updatesCallback);
+    }
 
     Callback.release(callback);
 
@@ -262,7 +291,7 @@ public class DataDiffSectionSpec<T> {
   }
 
   @VisibleForTesting
-  static class Callback<T> extends DiffUtil.Callback {
+  static class Callback<T> extends DiffUtil.Callback implements KeyedDiffUtil.Callback {
     private static final Pool<Callback> sCallbackPool = new SynchronizedPool<>(2);
 
     private List<T> mPreviousData;
@@ -270,6 +299,7 @@ public class DataDiffSectionSpec<T> {
     private SectionContext mSectionContext;
     private EventHandler<OnCheckIsSameItemEvent> mIsSameItemEventHandler;
     private EventHandler<OnCheckIsSameContentEvent> mIsSameContentEventHandler;
+    private EventHandler<GetUniqueIdentifierEvent> mGetUniqueIdentifierEventHandler;
     private int mTrimmedHeadItemsCount;
 
     void init(
@@ -283,6 +313,8 @@ public class DataDiffSectionSpec<T> {
           DataDiffSection.getOnCheckIsSameItemEventHandler(mSectionContext);
       mIsSameContentEventHandler =
           DataDiffSection.getOnCheckIsSameContentEventHandler(mSectionContext);
+      mGetUniqueIdentifierEventHandler =
+          DataDiffSection.getGetUniqueIdentifierEventHandler(mSectionContext);
 
       if (trimHeadAndTail && previousData != null) {
         Diff<List<T>> trimmedData =
@@ -328,6 +360,22 @@ public class DataDiffSectionSpec<T> {
       return previous.equals(next);
     }
 
+    boolean hasItemKeys() {
+      return mGetUniqueIdentifierEventHandler != null;
+    }
+
+    @Override
+    public Object getOldItemKey(int oldItemPosition) {
+      return DataDiffSection.dispatchGetUniqueIdentifierEvent(
+          mGetUniqueIdentifierEventHandler, mPreviousData.get(oldItemPosition));
+    }
+
+    @Override
+    public Object getNewItemKey(int newItemPosition) {
+      return DataDiffSection.dispatchGetUniqueIdentifierEvent(
+          mGetUniqueIdentifierEventHandler, mNextData.get(newItemPosition));
+    }
+
     @Override
     public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
       final T previous = mPreviousData.get(oldItemPosition);
@@ -373,6 +421,7 @@ public class DataDiffSectionSpec<T> {
       callback.mSectionContext = null;
       callback.mIsSameItemEventHandler = null;
       callback.mIsSameContentEventHandler = null;
+      callback.mGetUniqueIdentifierEventHandler = null;
       callback.mTrimmedHeadItemsCount = 0;
       sCallbackPool.release(callback);
     }
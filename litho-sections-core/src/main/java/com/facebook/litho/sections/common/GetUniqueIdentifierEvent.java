@@ -20,6 +20,11 @@ import com.facebook.litho.annotations.Event;
 /**
  * This event is triggered by {@link HideableDataDiffSectionSpec} when it needs to
  * get a unique identifier for the edge model provided.
+ *
+ * <p>It's also triggered by {@link DataDiffSectionSpec} if a handler is provided for it: the data
+ * is then diffed by key, matching the items of the previous and next lists that have equal
+ * identifiers, and {@link OnCheckIsSameItemEvent} isn't triggered. The identifier of an item must
+ * be unique within its list, otherwise the data is diffed item by item as if no handler was set.
  */
 @Event(returnType = Object.class)
 public class GetUniqueIdentifierEvent {
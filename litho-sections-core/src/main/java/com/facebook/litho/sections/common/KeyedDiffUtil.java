@@ -0,0 +1,367 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.sections.common;
+
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Diffs two lists whose items have unique keys, as an alternative to {@link DiffUtil} that runs in
+ * O((N + M) log(N + M)) no matter how many items changed.
+ *
+ * <p>The items of both lists are matched by key. The kept items whose new positions form the
+ * longest increasing subsequence in the old list stay in place, and the other kept items are moved,
+ * so the number of moves is the smallest possible. The contents of each pair of matched items are
+ * compared once.
+ */
+final class KeyedDiffUtil {
+
+  private static final int NO_POSITION = -1;
+
+  interface Callback {
+
+    int getOldListSize();
+
+    int getNewListSize();
+
+    @Nullable
+    Object getOldItemKey(int oldItemPosition);
+
+    @Nullable
+    Object getNewItemKey(int newItemPosition);
+
+    boolean areContentsTheSame(int oldItemPosition, int newItemPosition);
+  }
+
+  private KeyedDiffUtil() {}
+
+  /**
+   * @param detectMoves if false, the kept items that would be moved are removed and inserted again
+   *     instead, like {@link DiffUtil#calculateDiff(DiffUtil.Callback, boolean)} does.
+   * @return the updates turning the old list into the new one, or null if a key is null or is
+   *     shared by two items of a list, in which case the lists need to be diffed by {@link
+   *     DiffUtil}.
+   */
+  @Nullable
+  static DiffResult calculateDiff(Callback callback, boolean detectMoves) {
+    final int oldSize = callback.getOldListSize();
+    final int newSize = callback.getNewListSize();
+
+    final Map<Object, Integer> newPositionsByKey = new HashMap<>(newSize * 4 / 3 + 1);
+    for (int i = 0; i < newSize; i++) {
+      final Object key = callback.getNewItemKey(i);
+      if (key == null || newPositionsByKey.put(key, i) != null) {
+        return null;
+      }
+    }
+
+    final int[] newPositions = new int[oldSize];
+    final int[] oldPositions = new int[newSize];
+    Arrays.fill(oldPositions, NO_POSITION);
+    for (int i = 0; i < oldSize; i++) {
+      final Object key = callback.getOldItemKey(i);
+      if (key == null) {
+        return null;
+      }
+
+      final Integer newPosition = newPositionsByKey.get(key);
+      if (newPosition == null) {
+        newPositions[i] = NO_POSITION;
+      } else if (oldPositions[newPosition] != NO_POSITION) {
+        return null;
+      } else {
+        newPositions[i] = newPosition;
+        oldPositions[newPosition] = i;
+      }
+    }
+
+    final boolean[] isAnchor = findLongestIncreasingSubsequence(newPositions);
+
+    if (!detectMoves) {
+      for (int i = 0; i < oldSize; i++) {
+        if (newPositions[i] != NO_POSITION && !isAnchor[i]) {
+          oldPositions[newPositions[i]] = NO_POSITION;
+          newPositions[i] = NO_POSITION;
+        }
+      }
+    }
+
+    final boolean[] isChanged = new boolean[newSize];
+    for (int i = 0; i < newSize; i++) {
+      isChanged[i] =
+          oldPositions[i] != NO_POSITION && !callback.areContentsTheSame(oldPositions[i], i);
+    }
+
+    return new DiffResult(newPositions, oldPositions, isAnchor, isChanged);
+  }
+
+  /**
+   * @return for each old item, whether it's part of the longest subsequence of kept items whose new
+   *     positions are increasing.
+   */
+  private static boolean[] findLongestIncreasingSubsequence(int[] newPositions) {
+    final int size = newPositions.length;
+    // The old position of the last item of the smallest-ending increasing subsequence of each
+    // length, and the old position of the item before each item in its subsequence.
+    final int[] tails = new int[size];
+    final int[] predecessors = new int[size];
+    int length = 0;
+
+    for (int i = 0; i < size; i++) {
+      final int newPosition = newPositions[i];
+      if (newPosition == NO_POSITION) {
+        continue;
+      }
+
+      int low = 0;
+      int high = length;
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (newPositions[tails[middle]] < newPosition) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+
+      predecessors[i] = low > 0 ? tails[low - 1] : NO_POSITION;
+      tails[low] = i;
+      if (low == length) {
+        length++;
+      }
+    }
+
+    final boolean[] isAnchor = new boolean[size];
+    for (int i = length > 0 ? tails[length - 1] : NO_POSITION;
+        i != NO_POSITION;
+        i = predecessors[i]) {
+      isAnchor[i] = true;
+    }
+
+    return isAnchor;
+  }
+
+  /** The updates turning an old list into a new one, see {@link #calculateDiff}. */
+  static final class DiffResult {
+
+    private final int[] mNewPositions;
+    private final int[] mOldPositions;
+    private final boolean[] mIsAnchor;
+    private final boolean[] mIsChanged;
+
+    private DiffResult(
+        int[] newPositions, int[] oldPositions, boolean[] isAnchor, boolean[] isChanged) {
+      mNewPositions = newPositions;
+      mOldPositions = oldPositions;
+      mIsAnchor = isAnchor;
+      mIsChanged = isChanged;
+    }
+
+    /**
+     * Dispatches the removals, then the insertions and moves in new position order, then the
+     * changes at their new positions.
+     */
+    void dispatchUpdatesTo(ListUpdateCallback updateCallback) {
+      dispatchRemovals(updateCallback);
+      dispatchInsertionsAndMoves(updateCallback);
+      dispatchChanges(updateCallback);
+    }
+
+    private void dispatchRemovals(ListUpdateCallback updateCallback) {
+      // From the end, so that the positions of the items before a removed range don't change.
+      int i = mNewPositions.length - 1;
+      while (i >= 0) {
+        if (mNewPositions[i] != NO_POSITION) {
+          i--;
+          continue;
+        }
+
+        final int end = i;
+        while (i >= 0 && mNewPositions[i] == NO_POSITION) {
+          i--;
+        }
+        updateCallback.onRemoved(i + 1, end - i);
+      }
+    }
+
+    /**
+     * The anchors never move, and the other items are inserted or moved right after the item
+     * before them in the new list, in new position order. In between anchors, the list is then
+     * always made of the items already placed in new order followed by the items not moved yet in
+     * old order. The current position of an item is found by giving it a slot in that static order
+     * and counting the occupied slots before it.
+     */
+    private void dispatchInsertionsAndMoves(ListUpdateCallback updateCallback) {
+      final int oldSize = mNewPositions.length;
+      final int newSize = mOldPositions.length;
+
+      // The gaps are the runs of items before, between and after the anchors.
+      int anchorCount = 0;
+      for (int i = 0; i < oldSize; i++) {
+        if (mIsAnchor[i]) {
+          anchorCount++;
+        }
+      }
+
+      final int[] newCounts = new int[anchorCount + 1];
+      final int[] oldCounts = new int[anchorCount + 1];
+      int gap = 0;
+      for (int i = 0; i < newSize; i++) {
+        if (isAnchorAtNewPosition(i)) {
+          gap++;
+        } else {
+          newCounts[gap]++;
+        }
+      }
+      gap = 0;
+      for (int i = 0; i < oldSize; i++) {
+        if (mIsAnchor[i]) {
+          gap++;
+        } else if (mNewPositions[i] != NO_POSITION) {
+          oldCounts[gap]++;
+        }
+      }
+
+      // Each gap starts right after its anchor, with the slots of its items in new order.
+      final int[] gapStarts = new int[anchorCount + 1];
+      int slotCount = 0;
+      for (int i = 0; i <= anchorCount; i++) {
+        if (i > 0) {
+          slotCount++;
+        }
+        gapStarts[i] = slotCount;
+        slotCount += newCounts[i] + oldCounts[i];
+      }
+
+      final SlotTree slots = new SlotTree(slotCount);
+      final int[] newSlots = new int[newSize];
+      gap = 0;
+      int nextSlot = gapStarts[0];
+      for (int i = 0; i < newSize; i++) {
+        if (isAnchorAtNewPosition(i)) {
+          gap++;
+          newSlots[i] = gapStarts[gap] - 1;
+          nextSlot = gapStarts[gap];
+          slots.add(newSlots[i], 1);
+        } else {
+          newSlots[i] = nextSlot++;
+        }
+      }
+
+      final int[] oldSlots = new int[oldSize];
+      gap = 0;
+      nextSlot = gapStarts[0] + newCounts[0];
+      for (int i = 0; i < oldSize; i++) {
+        if (mIsAnchor[i]) {
+          gap++;
+          nextSlot = gapStarts[gap] + newCounts[gap];
+        } else if (mNewPositions[i] != NO_POSITION) {
+          oldSlots[i] = nextSlot++;
+          slots.add(oldSlots[i], 1);
+        }
+      }
+
+      int insertPosition = NO_POSITION;
+      int insertCount = 0;
+      for (int i = 0; i < newSize; i++) {
+        final int oldPosition = mOldPositions[i];
+        if (oldPosition == NO_POSITION) {
+          final int position = slots.countBefore(newSlots[i]);
+          slots.add(newSlots[i], 1);
+          if (insertCount > 0 && insertPosition + insertCount == position) {
+            insertCount++;
+          } else {
+            if (insertCount > 0) {
+              updateCallback.onInserted(insertPosition, insertCount);
+            }
+            insertPosition = position;
+            insertCount = 1;
+          }
+          continue;
+        }
+
+        if (insertCount > 0) {
+          updateCallback.onInserted(insertPosition, insertCount);
+          insertCount = 0;
+        }
+
+        if (!mIsAnchor[oldPosition]) {
+          final int fromPosition = slots.countBefore(oldSlots[oldPosition]);
+          slots.add(oldSlots[oldPosition], -1);
+          final int toPosition = slots.countBefore(newSlots[i]);
+          slots.add(newSlots[i], 1);
+          if (fromPosition != toPosition) {
+            updateCallback.onMoved(fromPosition, toPosition);
+          }
+        }
+      }
+
+      if (insertCount > 0) {
+        updateCallback.onInserted(insertPosition, insertCount);
+      }
+    }
+
+    private void dispatchChanges(ListUpdateCallback updateCallback) {
+      int i = 0;
+      while (i < mIsChanged.length) {
+        if (!mIsChanged[i]) {
+          i++;
+          continue;
+        }
+
+        final int start = i;
+        while (i < mIsChanged.length && mIsChanged[i]) {
+          i++;
+        }
+        updateCallback.onChanged(start, i - start, null);
+      }
+    }
+
+    private boolean isAnchorAtNewPosition(int newPosition) {
+      final int oldPosition = mOldPositions[newPosition];
+      return oldPosition != NO_POSITION && mIsAnchor[oldPosition];
+    }
+  }
+
+  /** A Fenwick tree counting the occupied slots before a given slot. */
+  private static final class SlotTree {
+
+    private final int[] mTree;
+
+    SlotTree(int size) {
+      mTree = new int[size + 1];
+    }
+
+    void add(int slot, int delta) {
+      for (int i = slot + 1; i < mTree.length; i += i & -i) {
+        mTree[i] += delta;
+      }
+    }
+
+    int countBefore(int slot) {
+      int count = 0;
+      for (int i = slot; i > 0; i -= i & -i) {
+        count += mTree[i];
+      }
+      return count;
+    }
+  }
+}
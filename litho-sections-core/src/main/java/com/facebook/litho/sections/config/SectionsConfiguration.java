@@ -45,4 +45,17 @@ public class SectionsConfiguration {
 
   /** Whether changesets can be applied from a background thread. */
   public static boolean useBackgroundChangeSets = false;
+
+  /**
+   * If greater than 0, the change sets of sibling sections are generated in parallel on a pool of
+   * this many threads, in addition to the thread generating the change set of the tree. The
+   * OnDiff methods of the sections and the {@link #LOGGERS} are then called from several threads.
+   */
+  public static int changeSetThreadPoolSize = 0;
+
+  /**
+   * If true, the change set of a tree is rewritten with fewer changes before being applied: the
+   * changes of adjacent items are merged into ranges and items inserted then deleted are dropped.
+   */
+  public static boolean compactChangeSets = false;
 }
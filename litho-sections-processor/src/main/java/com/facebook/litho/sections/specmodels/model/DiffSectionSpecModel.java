@@ -351,11 +351,6 @@ public class DiffSectionSpecModel implements SpecModel, HasService {
     return mServiceParam;
   }
 
-  @Override
-  public String getIsEquivalentToExperimentFlagName() {
-    return "useNewIsEquivalentToInSectionSpec";
-  }
-
   @Override
   public String toString() {
     return "DiffSectionSpecModel{"
@@ -351,11 +351,6 @@ public class GroupSectionSpecModel implements SpecModel, HasService {
     return mServiceParam;
   }
 
-  @Override
-  public String getIsEquivalentToExperimentFlagName() {
-    return "useNewIsEquivalentToInSectionSpec";
-  }
-
   @Override
   public String toString() {
     return "GroupSectionSpecModel{"
@@ -27,6 +27,7 @@ import com.facebook.litho.sections.SectionContext;
 import com.facebook.litho.sections.annotations.GroupSectionSpec;
 import com.facebook.litho.sections.annotations.OnCreateChildren;
 import com.facebook.litho.sections.common.DataDiffSection;
+import com.facebook.litho.sections.common.GetUniqueIdentifierEvent;
 import com.facebook.litho.sections.common.OnCheckIsSameContentEvent;
 import com.facebook.litho.sections.common.OnCheckIsSameItemEvent;
 import com.facebook.litho.sections.common.RenderEvent;
@@ -49,7 +50,8 @@ public class TestGroupSectionSpec {
       @Prop(optional = true) Comparator isSameItemComparator,
       @Prop(optional = true) Comparator isSameContentComparator,
       @Prop(optional = true) boolean trimHeadAndTail,
-      @Prop(optional = true) boolean trimSameInstancesOnly) {
+      @Prop(optional = true) boolean trimSameInstancesOnly,
+      @Prop(optional = true) boolean diffByKey) {
 
     DataDiffSection.Builder builder =
         DataDiffSection.create(c)
@@ -66,6 +68,10 @@ public class TestGroupSectionSpec {
       builder.onCheckIsSameContentEventHandler(TestGroupSection.onCheckIsSameContent(c));
     }
 
+    if (diffByKey) {
+      builder.getUniqueIdentifierEventHandler(TestGroupSection.getUniqueIdentifier(c));
+    }
+
     return Children.create().child(builder.build()).build();
   }
 
@@ -96,4 +102,9 @@ public class TestGroupSectionSpec {
       @Prop(optional = true) Comparator isSameContentComparator) {
     return isSameContentComparator.compare(previousItem, nextItem) == 0;
   }
+
+  @OnEvent(GetUniqueIdentifierEvent.class)
+  protected static Object getUniqueIdentifier(SectionContext c, @FromEvent Object model) {
+    return model;
+  }
 }
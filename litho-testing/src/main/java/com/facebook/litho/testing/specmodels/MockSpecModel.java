@@ -449,11 +449,6 @@ public class MockSpecModel implements SpecModel, HasPureRender, HasEnclosedSpecM
     return mIsPureRender;
   }
 
-  @Override
-  public String getIsEquivalentToExperimentFlagName() {
-    return "useNewIsEquivalentToInOtherSpec";
-  }
-
   public static class Builder {
     private String mSpecName;
     private TypeName mSpecTypeName;
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.widget;
+
+import android.support.annotation.UiThread;
+import android.support.annotation.VisibleForTesting;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Sizes the layout range of a {@link RecyclerBinder} from how fast it's scrolled and how long its
+ * items take to lay out, instead of using the same range ratio on both sides of the viewport.
+ *
+ * <p>The items that scroll into view while the layout thread computes the range ahead of the
+ * viewport are added to that range: with a velocity of v items per ms and items taking t ms to lay
+ * out, the range ahead is multiplied by (1 + v * t), up to {@link #getMaxRangeRatio()} viewports.
+ * The range behind the viewport is divided by the same factor, down to {@link
+ * #getMinRangeRatio()} viewports. When the list isn't scrolled, both sides use the range ratio of
+ * the RecyclerBinder.
+ *
+ * <p>The velocity is tracked by the ViewportManager of the binder. Layout times are recorded for
+ * the layouts the binder computes synchronously, and can be recorded from elsewhere, e.g. from the
+ * perf events of a ComponentsLogger, with {@link #recordItemLayoutTime(long)}.
+ *
+ * @see RecyclerBinder.Builder#adaptiveRangePolicy(AdaptiveRangePolicy)
+ */
+@ThreadSafe
+public class AdaptiveRangePolicy {
+
+  public static final float DEFAULT_MIN_RANGE_RATIO = 1f;
+  public static final float DEFAULT_MAX_RANGE_RATIO = 16f;
+
+  /** Used until a layout time was recorded. */
+  private static final float DEFAULT_ITEM_LAYOUT_TIME_MS = 8f;
+
+  /** Weight of a new sample in the moving averages of the velocity and layout time. */
+  private static final float SMOOTHING = 0.3f;
+
+  /** A longer pause between two scroll events starts a new scroll. */
+  private static final long MAX_SCROLL_EVENT_INTERVAL_MS = 100;
+
+  private final float mMinRangeRatio;
+  private final float mMaxRangeRatio;
+
+  // Items per ms, positive when scrolling towards the end of the layout.
+  private volatile float mVelocity;
+  private long mLastScrollTimeMs = -1;
+  private boolean mHasVelocity;
+
+  private volatile float mItemLayoutTimeMs = -1;
+
+  public AdaptiveRangePolicy() {
+    this(DEFAULT_MIN_RANGE_RATIO, DEFAULT_MAX_RANGE_RATIO);
+  }
+
+  /**
+   * @param minRangeRatio the smallest range behind the viewport, in viewports.
+   * @param maxRangeRatio the largest range ahead of the viewport, in viewports.
+   */
+  public AdaptiveRangePolicy(float minRangeRatio, float maxRangeRatio) {
+    if (minRangeRatio < 0 || maxRangeRatio < minRangeRatio) {
+      throw new IllegalArgumentException(
+          "Invalid range ratios: min=" + minRangeRatio + ", max=" + maxRangeRatio);
+    }
+
+    mMinRangeRatio = minRangeRatio;
+    mMaxRangeRatio = maxRangeRatio;
+  }
+
+  public float getMinRangeRatio() {
+    return mMinRangeRatio;
+  }
+
+  public float getMaxRangeRatio() {
+    return mMaxRangeRatio;
+  }
+
+  /** Records how long the layout of one item took. */
+  public synchronized void recordItemLayoutTime(long layoutTimeNanos) {
+    final float layoutTimeMs = layoutTimeNanos / 1e6f;
+    mItemLayoutTimeMs =
+        mItemLayoutTimeMs < 0
+            ? layoutTimeMs
+            : mItemLayoutTimeMs + SMOOTHING * (layoutTimeMs - mItemLayoutTimeMs);
+  }
+
+  /**
+   * @param positionDelta the number of items scrolled by since the last call, positive when
+   *     scrolling towards the end of the layout.
+   */
+  @UiThread
+  void onScrolled(float positionDelta, long uptimeMillis) {
+    final long interval = uptimeMillis - mLastScrollTimeMs;
+    if (mLastScrollTimeMs < 0 || interval > MAX_SCROLL_EVENT_INTERVAL_MS) {
+      // There's no interval to measure the first event of a scroll against.
+      mVelocity = 0;
+      mHasVelocity = false;
+    } else {
+      final float velocity = positionDelta / Math.max(1, interval);
+      mVelocity = mHasVelocity ? mVelocity + SMOOTHING * (velocity - mVelocity) : velocity;
+      mHasVelocity = true;
+    }
+    mLastScrollTimeMs = uptimeMillis;
+  }
+
+  @UiThread
+  void onScrollStopped() {
+    mVelocity = 0;
+    mHasVelocity = false;
+    mLastScrollTimeMs = -1;
+  }
+
+  /** @return the scroll velocity in items per ms, positive towards the end of the layout. */
+  @VisibleForTesting
+  float getVelocity() {
+    return mVelocity;
+  }
+
+  @VisibleForTesting
+  float getItemLayoutTimeMs() {
+    return mItemLayoutTimeMs < 0 ? DEFAULT_ITEM_LAYOUT_TIME_MS : mItemLayoutTimeMs;
+  }
+
+  /**
+   * @return whether the list is scrolled towards higher adapter positions, or towards lower ones,
+   *     null if it isn't scrolled.
+   */
+  Boolean getScrollsTowardsEnd(boolean reverseLayout) {
+    final float velocity = mVelocity;
+    if (velocity == 0) {
+      return null;
+    }
+
+    return (velocity > 0) != reverseLayout;
+  }
+
+  /**
+   * Computes how many items to lay out before the first visible item and after the last one.
+   *
+   * @param viewportCount the number of items in the viewport.
+   * @param rangeRatio the range ratio of the RecyclerBinder.
+   * @param reverseLayout whether the end of the layout has the lowest adapter positions.
+   * @param outRange receives the number of items before and after the viewport.
+   */
+  void computeRange(int viewportCount, float rangeRatio, boolean reverseLayout, int[] outRange) {
+    final int baseRange = (int) (viewportCount * rangeRatio);
+    final Boolean scrollsTowardsEnd = getScrollsTowardsEnd(reverseLayout);
+    if (scrollsTowardsEnd == null) {
+      outRange[0] = baseRange;
+      outRange[1] = baseRange;
+      return;
+    }
+
+    final float factor = 1 + Math.abs(mVelocity) * getItemLayoutTimeMs();
+    final int rangeAhead =
+        (int) Math.min(baseRange * factor, Math.max(baseRange, viewportCount * mMaxRangeRatio));
+    final int rangeBehind =
+        (int) Math.max(baseRange / factor, Math.min(baseRange, viewportCount * mMinRangeRatio));
+
+    outRange[0] = scrollsTowardsEnd ? rangeBehind : rangeAhead;
+    outRange[1] = scrollsTowardsEnd ? rangeAhead : rangeBehind;
+  }
+
+  /**
+   * @param reverseLayout whether the end of the layout has the lowest adapter positions.
+   * @param traverseBackwards whether to lay out the lowest adapter positions last when the list
+   *     isn't scrolled, as the binder does without a range policy when the layout is stacked from
+   *     its end.
+   * @return a traverser that lays out the visible items first, then the ones ahead of the scroll
+   *     direction, then the ones behind it.
+   */
+  RecyclerRangeTraverser getRangeTraverser(
+      final boolean reverseLayout, final boolean traverseBackwards) {
+    return new RecyclerRangeTraverser() {
+      @Override
+      public void traverse(
+          int rangeStart, int rangeEnd, int firstVisible, int lastVisible, Processor processor) {
+        if (rangeEnd <= rangeStart) {
+          return;
+        }
+
+        final int first = Math.max(rangeStart, Math.min(firstVisible, rangeEnd - 1));
+        final int last = Math.max(first, Math.min(lastVisible, rangeEnd - 1));
+        final Boolean scrollsTowardsEnd = getScrollsTowardsEnd(reverseLayout);
+
+        if (scrollsTowardsEnd == null ? !traverseBackwards : scrollsTowardsEnd) {
+          for (int i = first; i <= last; i++) {
+            if (!processor.process(i)) {
+              return;
+            }
+          }
+          for (int i = last + 1; i < rangeEnd; i++) {
+            if (!processor.process(i)) {
+              return;
+            }
+          }
+          for (int i = first - 1; i >= rangeStart; i--) {
+            if (!processor.process(i)) {
+              return;
+            }
+          }
+        } else {
+          for (int i = last; i >= first; i--) {
+            if (!processor.process(i)) {
+              return;
+            }
+          }
+          for (int i = first - 1; i >= rangeStart; i--) {
+            if (!processor.process(i)) {
+              return;
+            }
+          }
+          for (int i = last + 1; i < rangeEnd; i++) {
+            if (!processor.process(i)) {
+              return;
+            }
+          }
+        }
+      }
+    };
+  }
+}
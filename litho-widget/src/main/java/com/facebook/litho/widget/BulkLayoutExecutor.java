@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.widget;
+
+import static com.facebook.litho.FrameworkLogEvents.EVENT_BULK_LAYOUT;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_BULK_LAYOUT_ITEMS_TIME;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_BULK_LAYOUT_ITEM_COUNT;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_BULK_LAYOUT_THREAD_COUNT;
+
+import com.facebook.litho.ComponentContext;
+import com.facebook.litho.ComponentsLogger;
+import com.facebook.litho.LayoutThreadPoolExecutor;
+import com.facebook.litho.LogTreePopulator;
+import com.facebook.litho.PerfEvent;
+import com.facebook.litho.Size;
+import com.facebook.litho.config.LayoutThreadPoolConfiguration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Computes the layouts of a batch of {@link ComponentTreeHolder}s on a pool of layout threads,
+ * configured by a {@link LayoutThreadPoolConfiguration}. The items of a batch are picked up in
+ * position order, so the first ones are ready first.
+ *
+ * <p>The pool is shared by all the executors and created from the configuration of the first one,
+ * so a batch is spread over as many threads as that pool has, whatever the configuration of the
+ * executor it is computed by.
+ *
+ * <p>Each batch is logged as a {@link com.facebook.litho.FrameworkLogEvents#EVENT_BULK_LAYOUT}
+ * event, which lasts from the start of the batch to the end of its last layout, annotated with the
+ * number of items and threads and the sum of the layout times of the items.
+ */
+@ThreadSafe
+final class BulkLayoutExecutor {
+
+  private static ThreadPoolExecutor sBulkLayoutExecutor;
+
+  private final ThreadPoolExecutor mExecutor;
+  private final int mThreadCount;
+
+  BulkLayoutExecutor(LayoutThreadPoolConfiguration configuration) {
+    synchronized (BulkLayoutExecutor.class) {
+      if (sBulkLayoutExecutor == null) {
+        sBulkLayoutExecutor =
+            new LayoutThreadPoolExecutor(
+                configuration.getCorePoolSize(),
+                configuration.getMaxPoolSize(),
+                configuration.getThreadPriority());
+      }
+      mExecutor = sBulkLayoutExecutor;
+    }
+
+    mThreadCount = Math.max(1, mExecutor.getCorePoolSize());
+  }
+
+  /** @return the number of threads of the pool a batch is spread over. */
+  int getThreadCount() {
+    return mThreadCount;
+  }
+
+  /**
+   * Computes the layouts of the holders on the pool and on the calling thread, and returns once
+   * they are all computed.
+   *
+   * @param outSizes if not null, receives the size of each holder.
+   */
+  void computeLayoutsSync(
+      ComponentContext context,
+      List<ComponentTreeHolder> holders,
+      int[] widthSpecs,
+      int[] heightSpecs,
+      @Nullable Size[] outSizes) {
+    if (holders.isEmpty()) {
+      return;
+    }
+
+    final Batch batch = new Batch(context, holders, widthSpecs, heightSpecs, outSizes);
+    // The calling thread lays out items too, so one less thread is needed from the pool.
+    batch.start(mExecutor, Math.min(mThreadCount, holders.size() - 1));
+    batch.run();
+    batch.await();
+  }
+
+  /** Starts computing the layouts of the holders on the pool, and returns right away. */
+  void computeLayoutsAsync(
+      ComponentContext context,
+      List<ComponentTreeHolder> holders,
+      int[] widthSpecs,
+      int[] heightSpecs) {
+    if (holders.isEmpty()) {
+      return;
+    }
+
+    final Batch batch =
+        new Batch(context, new ArrayList<>(holders), widthSpecs.clone(), heightSpecs.clone(), null);
+    batch.start(mExecutor, Math.min(mThreadCount, holders.size()));
+  }
+
+  private static final class Batch implements Runnable {
+
+    private final ComponentContext mContext;
+    private final List<ComponentTreeHolder> mHolders;
+    private final int[] mWidthSpecs;
+    private final int[] mHeightSpecs;
+    private final @Nullable Size[] mOutSizes;
+
+    private final AtomicInteger mNextIndex = new AtomicInteger();
+    private final AtomicInteger mRemainingCount;
+    private final AtomicLong mItemsTimeNanos = new AtomicLong();
+    private final AtomicReference<Throwable> mError = new AtomicReference<>();
+    private final CountDownLatch mDoneLatch = new CountDownLatch(1);
+
+    private @Nullable ComponentsLogger mLogger;
+    private @Nullable PerfEvent mLogEvent;
+    private int mThreadCount;
+
+    Batch(
+        ComponentContext context,
+        List<ComponentTreeHolder> holders,
+        int[] widthSpecs,
+        int[] heightSpecs,
+        @Nullable Size[] outSizes) {
+      mContext = context;
+      mHolders = holders;
+      mWidthSpecs = widthSpecs;
+      mHeightSpecs = heightSpecs;
+      mOutSizes = outSizes;
+      mRemainingCount = new AtomicInteger(holders.size());
+    }
+
+    void start(ThreadPoolExecutor executor, int threadCount) {
+      mThreadCount = threadCount;
+      mLogger = mContext.getLogger();
+      mLogEvent =
+          mLogger == null
+              ? null
+              : LogTreePopulator.populatePerfEventFromLogger(
+                  mContext, mLogger, mLogger.newPerformanceEvent(EVENT_BULK_LAYOUT));
+
+      for (int i = 0; i < threadCount; i++) {
+        executor.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      int index;
+      while ((index = mNextIndex.getAndIncrement()) < mHolders.size()) {
+        final long startTime = System.nanoTime();
+        try {
+          mHolders
+              .get(index)
+              .computeLayoutSync(
+                  mContext,
+                  mWidthSpecs[index],
+                  mHeightSpecs[index],
+                  mOutSizes == null ? null : mOutSizes[index]);
+        } catch (Throwable t) {
+          // Surfaced to the thread waiting for the batch, if any. Releases it either way.
+          mError.compareAndSet(null, t);
+          onItemDone(startTime);
+          throw t;
+        }
+        onItemDone(startTime);
+      }
+    }
+
+    private void onItemDone(long startTime) {
+      mItemsTimeNanos.addAndGet(System.nanoTime() - startTime);
+      if (mRemainingCount.decrementAndGet() == 0) {
+        onBatchDone();
+      }
+    }
+
+    private void onBatchDone() {
+      if (mLogEvent != null) {
+        mLogEvent.markerAnnotate(PARAM_BULK_LAYOUT_ITEM_COUNT, mHolders.size());
+        mLogEvent.markerAnnotate(PARAM_BULK_LAYOUT_THREAD_COUNT, mThreadCount);
+        mLogEvent.markerAnnotate(PARAM_BULK_LAYOUT_ITEMS_TIME, mItemsTimeNanos.get() / 1e6);
+        mLogger.logPerfEvent(mLogEvent);
+      }
+
+      mDoneLatch.countDown();
+    }
+
+    void await() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          mDoneLatch.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+
+      final Throwable error = mError.get();
+      if (error != null) {
+        throw new RuntimeException("Bulk layout failed", error);
+      }
+    }
+  }
+}
@@ -70,6 +70,12 @@ public class ComponentTreeHolder {
 
   private final AtomicBoolean mIsReleased = new AtomicBoolean(false);
 
+  // Whether the tree is kept by the ComponentTreeRetentionCache, which is the only one setting it.
+  private final AtomicBoolean mIsRetained = new AtomicBoolean(false);
+
+  // Whether a range computed in the background posted a retain of the tree that hasn't run yet.
+  private final AtomicBoolean mIsRetainPending = new AtomicBoolean(false);
+
   @IntDef({RENDER_UNINITIALIZED, RENDER_ADDED, RENDER_DRAWN})
   public @interface RenderState {}
 
@@ -383,6 +389,22 @@ public class ComponentTreeHolder {
     return mIsReleased.get();
   }
 
+  boolean isRetained() {
+    return mIsRetained.get();
+  }
+
+  void setRetained(boolean retained) {
+    mIsRetained.set(retained);
+  }
+
+  boolean isRetainPending() {
+    return mIsRetainPending.get();
+  }
+
+  void setRetainPending(boolean retainPending) {
+    mIsRetainPending.set(retainPending);
+  }
+
   public synchronized void updateMeasureListener(@Nullable MeasureListener measureListener) {
     if (mComponentTree != null) {
       mComponentTree.updateMeasureListener(measureListener);
@@ -390,6 +412,7 @@ public class ComponentTreeHolder {
   }
 
   public synchronized void release() {
+    ComponentTreeRetentionCache.onHolderReleased(this);
     releaseTree();
     clearStateHandler();
     mRenderInfo = null;
@@ -404,6 +427,7 @@ public class ComponentTreeHolder {
     mIsInserted = true;
     mHasMounted = false;
     mRenderState.set(RENDER_UNINITIALIZED);
+    mIsRetainPending.set(false);
     if (mIsReleased.getAndSet(true)) {
       throw new RuntimeException("Releasing already released ComponentTreeHolder!");
     }
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2018-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.facebook.litho.widget;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.support.annotation.UiThread;
+import android.support.annotation.VisibleForTesting;
+import com.facebook.litho.ComponentTree;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Keeps the {@link ComponentTree}s of items that left the range of their {@link RecyclerBinder},
+ * so that scrolling back to them doesn't compute their layouts again. The least recently retained
+ * trees are released once the estimated size of the retained layouts exceeds the size budget or
+ * the item count exceeds the count budget, and when the system asks the app to trim its memory.
+ *
+ * <p>A single instance is shared by all the RecyclerBinders of the process, see {@link
+ * RecyclerBinder.Builder#retainComponentTreesOutOfRange(boolean)}. Holders are only referenced
+ * weakly, so that the holders of a binder that's dropped without releasing them can still be
+ * garbage collected along with their trees.
+ */
+@ThreadSafe
+public final class ComponentTreeRetentionCache implements ComponentCallbacks2 {
+
+  public static final int DEFAULT_MAX_SIZE_BYTES = 4 * 1024 * 1024;
+  public static final int DEFAULT_MAX_COUNT = 64;
+
+  private static volatile ComponentTreeRetentionCache sInstance;
+
+  // Ordered from the least recently retained, mapped to their estimated sizes.
+  @GuardedBy("this")
+  private final LinkedHashMap<HolderReference, Integer> mRetainedHolders = new LinkedHashMap<>();
+
+  // The references to the retained holders that were garbage collected.
+  private final ReferenceQueue<ComponentTreeHolder> mCollectedHolders = new ReferenceQueue<>();
+
+  @GuardedBy("this")
+  private int mMaxSizeBytes;
+
+  @GuardedBy("this")
+  private int mMaxCount;
+
+  @GuardedBy("this")
+  private int mSizeBytes;
+
+  @GuardedBy("this")
+  private boolean mIsRegistered;
+
+  public static ComponentTreeRetentionCache getInstance() {
+    if (sInstance == null) {
+      synchronized (ComponentTreeRetentionCache.class) {
+        if (sInstance == null) {
+          sInstance = new ComponentTreeRetentionCache(DEFAULT_MAX_SIZE_BYTES, DEFAULT_MAX_COUNT);
+        }
+      }
+    }
+
+    return sInstance;
+  }
+
+  @VisibleForTesting
+  ComponentTreeRetentionCache(int maxSizeBytes, int maxCount) {
+    mMaxSizeBytes = maxSizeBytes;
+    mMaxCount = maxCount;
+  }
+
+  /**
+   * Sets the budgets of the cache, releasing the trees that don't fit in them anymore.
+   *
+   * @param maxSizeBytes the largest estimated size of the retained layouts.
+   * @param maxCount the largest number of retained trees.
+   */
+  @UiThread
+  public void setBudget(int maxSizeBytes, int maxCount) {
+    synchronized (this) {
+      mMaxSizeBytes = maxSizeBytes;
+      mMaxCount = maxCount;
+    }
+
+    trimToSize(maxSizeBytes, maxCount);
+  }
+
+  /** Registers this cache to be trimmed when the system is low on memory. */
+  void registerComponentCallbacks(Context context) {
+    synchronized (this) {
+      if (mIsRegistered) {
+        return;
+      }
+      mIsRegistered = true;
+    }
+
+    context.getApplicationContext().registerComponentCallbacks(this);
+  }
+
+  /**
+   * Retains the tree of a holder that left the range instead of releasing it, unless it's larger
+   * than the whole size budget. This may release the trees retained the longest ago.
+   */
+  @UiThread
+  void retain(ComponentTreeHolder holder) {
+    final ComponentTree componentTree = holder.getComponentTree();
+    final int size = componentTree == null ? 0 : componentTree.estimateRetainedSizeBytes();
+
+    final boolean isRetained;
+    final int maxSizeBytes;
+    final int maxCount;
+    synchronized (this) {
+      maxSizeBytes = mMaxSizeBytes;
+      maxCount = mMaxCount;
+      isRetained = size <= maxSizeBytes && maxCount > 0;
+      if (isRetained) {
+        removeCollectedHolders();
+        final Integer previousSize =
+            mRetainedHolders.put(new HolderReference(holder, mCollectedHolders), size);
+        mSizeBytes += size - (previousSize == null ? 0 : previousSize);
+        holder.setRetained(true);
+      }
+    }
+
+    if (isRetained) {
+      trimToSize(maxSizeBytes, maxCount);
+    } else {
+      release(holder);
+    }
+  }
+
+  /**
+   * Stops retaining the tree of a holder that's back in range, or that's being released.
+   *
+   * @return whether the tree of the holder was retained.
+   */
+  synchronized boolean remove(ComponentTreeHolder holder) {
+    removeCollectedHolders();
+    final Integer size = mRetainedHolders.remove(new HolderReference(holder, null));
+    if (size == null) {
+      return false;
+    }
+
+    mSizeBytes -= size;
+    holder.setRetained(false);
+    return true;
+  }
+
+  /** Stops retaining the tree of a holder that's being released, if the cache was created. */
+  static void onHolderReleased(ComponentTreeHolder holder) {
+    final ComponentTreeRetentionCache instance = sInstance;
+    if (instance != null) {
+      instance.remove(holder);
+    }
+  }
+
+  /** Releases all the retained trees. */
+  @UiThread
+  public void evictAll() {
+    trimToSize(0, 0);
+  }
+
+  @VisibleForTesting
+  synchronized int getSizeBytes() {
+    removeCollectedHolders();
+    return mSizeBytes;
+  }
+
+  @VisibleForTesting
+  synchronized int getCount() {
+    removeCollectedHolders();
+    return mRetainedHolders.size();
+  }
+
+  /** Stops accounting for the trees of the holders that were garbage collected. */
+  @GuardedBy("this")
+  private void removeCollectedHolders() {
+    Reference<? extends ComponentTreeHolder> reference;
+    while ((reference = mCollectedHolders.poll()) != null) {
+      final Integer size = mRetainedHolders.remove(reference);
+      if (size != null) {
+        mSizeBytes -= size;
+      }
+    }
+  }
+
+  @UiThread
+  @VisibleForTesting
+  void trimToSize(int maxSizeBytes, int maxCount) {
+    @Nullable List<ComponentTreeHolder> evictedHolders = null;
+
+    synchronized (this) {
+      removeCollectedHolders();
+      final Iterator<Map.Entry<HolderReference, Integer>> iterator =
+          mRetainedHolders.entrySet().iterator();
+      while ((mSizeBytes > maxSizeBytes || mRetainedHolders.size() > maxCount)
+          && iterator.hasNext()) {
+        final Map.Entry<HolderReference, Integer> entry = iterator.next();
+        iterator.remove();
+        mSizeBytes -= entry.getValue();
+
+        final ComponentTreeHolder holder = entry.getKey().get();
+        if (holder == null) {
+          continue;
+        }
+        holder.setRetained(false);
+        if (evictedHolders == null) {
+          evictedHolders = new ArrayList<>();
+        }
+        evictedHolders.add(holder);
+      }
+    }
+
+    if (evictedHolders == null) {
+      return;
+    }
+
+    for (int i = 0, size = evictedHolders.size(); i < size; i++) {
+      release(evictedHolders.get(i));
+    }
+  }
+
+  /** Releases the tree of an evicted holder, unless it was mounted again in the meantime. */
+  @UiThread
+  private static void release(ComponentTreeHolder holder) {
+    if (holder.isReleased()) {
+      return;
+    }
+
+    final ComponentTree componentTree = holder.getComponentTree();
+    if (componentTree != null
+        && componentTree.getLithoView() == null
+        && !holder.getRenderInfo().isSticky()) {
+      holder.acquireStateAndReleaseTree();
+    }
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+      evictAll();
+    } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+      final int maxSizeBytes;
+      final int maxCount;
+      synchronized (this) {
+        maxSizeBytes = mMaxSizeBytes / 2;
+        maxCount = mMaxCount / 2;
+      }
+      trimToSize(maxSizeBytes, maxCount);
+    }
+  }
+
+  @Override
+  public void onLowMemory() {
+    evictAll();
+  }
+
+  @Override
+  public void onConfigurationChanged(Configuration newConfig) {}
+
+  /**
+   * A weak reference to a holder that's equal to the other references to the same holder, so that
+   * it can be looked up with a new reference. A collected reference is only equal to itself.
+   */
+  private static final class HolderReference extends WeakReference<ComponentTreeHolder> {
+
+    private final int mHashCode;
+
+    HolderReference(
+        ComponentTreeHolder holder, @Nullable ReferenceQueue<ComponentTreeHolder> queue) {
+      super(holder, queue);
+      mHashCode = System.identityHashCode(holder);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof HolderReference)) {
+        return false;
+      }
+
+      final ComponentTreeHolder holder = get();
+      return holder != null && holder == ((HolderReference) o).get();
+    }
+
+    @Override
+    public int hashCode() {
+      return mHashCode;
+    }
+  }
+}
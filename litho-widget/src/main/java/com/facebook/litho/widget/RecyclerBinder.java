@@ -114,6 +114,8 @@ public class RecyclerBinder
   private final boolean mEnableStableIds;
   private @Nullable List<ComponentLogParams> mInvalidStateLogParamsList;
   private final RecyclerRangeTraverser mRangeTraverser;
+  private final @Nullable AdaptiveRangePolicy mRangePolicy;
+  private final @Nullable ComponentTreeRetentionCache mRetentionCache;
   private final boolean mHScrollAsyncMode;
   private boolean mAsyncInitRange;
 
@@ -247,6 +249,7 @@ public class RecyclerBinder
   private final boolean mUseSharedLayoutStateFuture;
   private final LayoutHandler mThreadPoolHandler;
   private final LayoutThreadPoolConfiguration mThreadPoolConfig;
+  private final @Nullable BulkLayoutExecutor mBulkLayoutExecutor;
   private EventHandler<ReMeasureEvent> mReMeasureEventEventHandler;
   private volatile boolean mHasAsyncOperations = false;
   private boolean mIsInitMounted = false; // Set to true when the first mount() is called.
@@ -389,9 +392,13 @@ public class RecyclerBinder
     private boolean useSharedLayoutStateFuture = ComponentsConfiguration.useSharedLayoutStateFuture;
     private @Nullable List<ComponentLogParams> invalidStateLogParamsList;
     private RecyclerRangeTraverser recyclerRangeTraverser;
+    private @Nullable AdaptiveRangePolicy adaptiveRangePolicy;
+    private @Nullable LayoutThreadPoolConfiguration bulkLayoutThreadPoolConfig;
     private LayoutThreadPoolConfiguration threadPoolConfig =
         ComponentsConfiguration.threadPoolConfiguration;
     private boolean asyncInitRange = ComponentsConfiguration.asyncInitRange;
+    private boolean retainComponentTreesOutOfRange =
+        ComponentsConfiguration.retainComponentTreesOutOfRange;
     private boolean canMeasure;
     private boolean hscrollAsyncMode = false;
 
@@ -544,12 +551,46 @@ public class RecyclerBinder
       return this;
     }
 
+    /**
+     * @param config if set, the layouts computed to fill the viewport and the layouts of the items
+     *     inserted with {@link RecyclerBinder#insertRangeAtAsync(int, List)} are spread over a pool
+     *     of threads, instead of being computed one at a time. The pool is shared by all the
+     *     RecyclerBinders and created with the first {@link LayoutThreadPoolConfiguration} set.
+     *     This has no effect with {@link #hasDynamicItemHeight(boolean)}.
+     */
+    public Builder bulkLayoutThreadPoolConfig(@Nullable LayoutThreadPoolConfiguration config) {
+      this.bulkLayoutThreadPoolConfig = config;
+      return this;
+    }
+
     /** Set a custom range traverser */
     public Builder recyclerRangeTraverser(RecyclerRangeTraverser traverser) {
       this.recyclerRangeTraverser = traverser;
       return this;
     }
 
+    /**
+     * @param policy if set, the range of items laid out around the viewport grows ahead of the
+     *     scroll direction and shrinks behind it, depending on the scroll velocity and on how long
+     *     the items take to lay out. The range ratio is used when the list isn't scrolled. Unless a
+     *     {@link #recyclerRangeTraverser(RecyclerRangeTraverser)} is set, the items ahead of the
+     *     scroll direction are also laid out first.
+     */
+    public Builder adaptiveRangePolicy(AdaptiveRangePolicy policy) {
+      this.adaptiveRangePolicy = policy;
+      return this;
+    }
+
+    /**
+     * @param retainComponentTreesOutOfRange if true, the ComponentTrees of items that leave the
+     *     range are kept in the {@link ComponentTreeRetentionCache} shared by the process, so that
+     *     their layouts aren't computed again if they come back in range before being evicted.
+     */
+    public Builder retainComponentTreesOutOfRange(boolean retainComponentTreesOutOfRange) {
+      this.retainComponentTreesOutOfRange = retainComponentTreesOutOfRange;
+      return this;
+    }
+
     /**
      * Method for tests to allow mocking of the InternalAdapter to verify interaction with the
      * RecyclerView.
@@ -698,8 +739,27 @@ public class RecyclerBinder
     mCanMeasure = builder.canMeasure;
     mTraverseLayoutBackwards = getStackFromEnd() ^ getReverseLayout();
 
+    // The measure listeners of items with a dynamic height lock the binder, which is held while
+    // waiting for a bulk layout to fill the viewport.
+    mBulkLayoutExecutor =
+        builder.bulkLayoutThreadPoolConfig != null && !mHasDynamicItemHeight
+            ? new BulkLayoutExecutor(builder.bulkLayoutThreadPoolConfig)
+            : null;
+
+    mRangePolicy = builder.adaptiveRangePolicy;
+
+    if (builder.retainComponentTreesOutOfRange) {
+      mRetentionCache = ComponentTreeRetentionCache.getInstance();
+      mRetentionCache.registerComponentCallbacks(mComponentContext.getAndroidContext());
+    } else {
+      mRetentionCache = null;
+    }
+
     if (builder.recyclerRangeTraverser != null) {
       mRangeTraverser = builder.recyclerRangeTraverser;
+    } else if (mRangePolicy != null) {
+      mRangeTraverser =
+          mRangePolicy.getRangeTraverser(getReverseLayout(), mTraverseLayoutBackwards);
     } else if (mTraverseLayoutBackwards) { // layout from end
       mRangeTraverser = RecyclerRangeTraverser.BACKWARD_TRAVERSER;
     } else {
@@ -708,7 +768,10 @@ public class RecyclerBinder
 
     mViewportManager =
         new ViewportManager(
-            mCurrentFirstVisiblePosition, mCurrentLastVisiblePosition, builder.layoutInfo);
+            mCurrentFirstVisiblePosition,
+            mCurrentLastVisiblePosition,
+            builder.layoutInfo,
+            mRangePolicy);
 
     mSplitLayoutTag = builder.splitLayoutTag;
 
@@ -791,6 +854,7 @@ public class RecyclerBinder
     synchronized (this) {
       mHasAsyncOperations = true;
 
+      final List<ComponentTreeHolder> insertedHolders = new ArrayList<>(renderInfos.size());
       for (int i = 0, size = renderInfos.size(); i < size; i++) {
         final RenderInfo renderInfo = renderInfos.get(i);
         assertNotNullRenderInfo(renderInfo);
@@ -798,7 +862,13 @@ public class RecyclerBinder
 
         mAsyncComponentTreeHolders.add(position + i, operation.mHolder);
 
-        registerAsyncInsert(operation);
+        addAsyncInsertToCurrentBatch(operation);
+        insertedHolders.add(operation.mHolder);
+      }
+
+      // Otherwise, we'll kick off the layouts at the end of measure
+      if (mIsMeasured.get()) {
+        computeLayoutsAsync(insertedHolders);
       }
     }
   }
@@ -905,17 +975,20 @@ public class RecyclerBinder
 
   @GuardedBy("this")
   private void registerAsyncInsert(AsyncInsertOperation operation) {
-    addToCurrentBatch(operation);
-
-    final ComponentTreeHolder holder = operation.mHolder;
-    holder.setNewLayoutReadyListener(mAsyncLayoutReadyListener);
+    addAsyncInsertToCurrentBatch(operation);
 
     // Otherwise, we'll kick off the layout at the end of measure
     if (mIsMeasured.get()) {
-      computeLayoutAsync(holder);
+      computeLayoutAsync(operation.mHolder);
     }
   }
 
+  @GuardedBy("this")
+  private void addAsyncInsertToCurrentBatch(AsyncInsertOperation operation) {
+    addToCurrentBatch(operation);
+    operation.mHolder.setNewLayoutReadyListener(mAsyncLayoutReadyListener);
+  }
+
   /**
    * Moves an item from fromPosition to toPostion. If there are other pending operations on this
    * binder this will only be executed when all the operations have been completed (to ensure index
@@ -1571,7 +1644,7 @@ public class RecyclerBinder
     // This could happen when RecyclerView is populated with new data, and first position is not 0.
     // It is possible that sticky header is above the first visible position and also it is outside
     // calculated range and its layout has not been calculated yet.
-    holder.computeLayoutSync(mComponentContext, childrenWidthSpec, childrenHeightSpec, null);
+    computeLayoutSync(holder, childrenWidthSpec, childrenHeightSpec, null);
 
     return holder.getComponentTree();
   }
@@ -1815,6 +1888,15 @@ public class RecyclerBinder
     final int heightSpec = SizeSpec.makeSizeSpec(maxHeight, SizeSpec.EXACTLY);
     final Size outSize = new Size();
 
+    if (mBulkLayoutExecutor != null) {
+      final int numInserted =
+          computeBulkLayoutsToFillListViewport(holders, offset, widthSpec, heightSpec, filler);
+      setFillListViewportOutputSize(filler, maxWidth, maxHeight, outputSize);
+      ComponentsSystrace.endSection();
+      logFillViewportInserted(numInserted, holders.size());
+      return numInserted;
+    }
+
     int numInserted = 0;
     int index = offset;
     while (filler.wantsMore() && index < holders.size()) {
@@ -1827,8 +1909,8 @@ public class RecyclerBinder
         break;
       }
 
-      holder.computeLayoutSync(
-          mComponentContext,
+      computeLayoutSync(
+          holder,
           mLayoutInfo.getChildWidthSpec(widthSpec, renderInfo),
           mLayoutInfo.getChildHeightSpec(heightSpec, renderInfo),
           outSize);
@@ -1839,6 +1921,69 @@ public class RecyclerBinder
       numInserted++;
     }
 
+    setFillListViewportOutputSize(filler, maxWidth, maxHeight, outputSize);
+
+    ComponentsSystrace.endSection();
+    logFillViewportInserted(numInserted, holders.size());
+
+    return numInserted;
+  }
+
+  /**
+   * Lays out the items from offset on, as many at a time as the bulk layout pool has threads plus
+   * the calling one, and adds them to the filler in position order until it's full.
+   */
+  @GuardedBy("this")
+  private int computeBulkLayoutsToFillListViewport(
+      List<ComponentTreeHolder> holders,
+      int offset,
+      int widthSpec,
+      int heightSpec,
+      LayoutInfo.ViewportFiller filler) {
+    final int batchSize = mBulkLayoutExecutor.getThreadCount() + 1;
+    final List<ComponentTreeHolder> batch = new ArrayList<>(batchSize);
+    final int[] widthSpecs = new int[batchSize];
+    final int[] heightSpecs = new int[batchSize];
+    final Size[] sizes = new Size[batchSize];
+    for (int i = 0; i < batchSize; i++) {
+      sizes[i] = new Size();
+    }
+
+    int numInserted = 0;
+    int index = offset;
+    boolean reachedView = false;
+    while (filler.wantsMore() && index < holders.size() && !reachedView) {
+      batch.clear();
+      while (batch.size() < batchSize && index + batch.size() < holders.size()) {
+        final ComponentTreeHolder holder = holders.get(index + batch.size());
+        final RenderInfo renderInfo = holder.getRenderInfo();
+
+        // Bail as soon as we see a View, like the sequential fill does.
+        if (renderInfo.rendersView()) {
+          reachedView = true;
+          break;
+        }
+
+        widthSpecs[batch.size()] = mLayoutInfo.getChildWidthSpec(widthSpec, renderInfo);
+        heightSpecs[batch.size()] = mLayoutInfo.getChildHeightSpec(heightSpec, renderInfo);
+        batch.add(holder);
+      }
+
+      mBulkLayoutExecutor.computeLayoutsSync(
+          mComponentContext, batch, widthSpecs, heightSpecs, sizes);
+
+      for (int i = 0, size = batch.size(); i < size && filler.wantsMore(); i++) {
+        filler.add(batch.get(i).getRenderInfo(), sizes[i].width, sizes[i].height);
+        numInserted++;
+      }
+      index += batch.size();
+    }
+
+    return numInserted;
+  }
+
+  private void setFillListViewportOutputSize(
+      LayoutInfo.ViewportFiller filler, int maxWidth, int maxHeight, @Nullable Size outputSize) {
     if (outputSize != null) {
       final int fill = filler.getFill();
       if (mLayoutInfo.getScrollDirection() == VERTICAL) {
@@ -1849,11 +1994,6 @@ public class RecyclerBinder
         outputSize.height = maxHeight;
       }
     }
-
-    ComponentsSystrace.endSection();
-    logFillViewportInserted(numInserted, holders.size());
-
-    return numInserted;
   }
 
   private void logFillViewportInserted(int numInserted, int totalSize) {
@@ -1882,14 +2022,48 @@ public class RecyclerBinder
 
   @GuardedBy("this")
   private void updateBatch(AsyncBatch batch) {
+    final List<ComponentTreeHolder> insertedHolders = new ArrayList<>(batch.mOperations.size());
     for (AsyncOperation operation : batch.mOperations) {
       if (!(operation instanceof AsyncInsertOperation)) {
         continue;
       }
 
-      final ComponentTreeHolder holder = ((AsyncInsertOperation) operation).mHolder;
-      computeLayoutAsync(holder);
+      insertedHolders.add(((AsyncInsertOperation) operation).mHolder);
+    }
+    computeLayoutsAsync(insertedHolders);
+  }
+
+  @GuardedBy("this")
+  private void computeLayoutsAsync(List<ComponentTreeHolder> holders) {
+    if (mBulkLayoutExecutor == null) {
+      for (int i = 0, size = holders.size(); i < size; i++) {
+        computeLayoutAsync(holders.get(i));
+      }
+      return;
+    }
+
+    final List<ComponentTreeHolder> holdersToLayout = new ArrayList<>(holders.size());
+    final int[] widthSpecs = new int[holders.size()];
+    final int[] heightSpecs = new int[holders.size()];
+    for (int i = 0, size = holders.size(); i < size; i++) {
+      final ComponentTreeHolder holder = holders.get(i);
+      if (holder.getRenderInfo().rendersView()) {
+        continue;
+      }
+
+      final int widthSpec = getActualChildrenWidthSpec(holder);
+      final int heightSpec = getActualChildrenHeightSpec(holder);
+      if (holder.isTreeValidForSizeSpecs(widthSpec, heightSpec)) {
+        continue;
+      }
+
+      widthSpecs[holdersToLayout.size()] = widthSpec;
+      heightSpecs[holdersToLayout.size()] = heightSpec;
+      holdersToLayout.add(holder);
     }
+
+    mBulkLayoutExecutor.computeLayoutsAsync(
+        mComponentContext, holdersToLayout, widthSpecs, heightSpecs);
   }
 
   @GuardedBy("this")
@@ -2018,7 +2192,7 @@ public class RecyclerBinder
     ComponentsSystrace.beginSection("initRange");
     try {
       final Size size = new Size();
-      holder.computeLayoutSync(mComponentContext, childrenWidthSpec, childrenHeightSpec, size);
+      computeLayoutSync(holder, childrenWidthSpec, childrenHeightSpec, size);
 
       final int rangeSize =
           Math.max(mLayoutInfo.approximateRangeSize(size.width, size.height, width, height), 1);
@@ -2425,6 +2599,11 @@ public class RecyclerBinder
       if (mIsCircular) {
         rangeStart = 0;
         rangeEnd = treeHoldersSize;
+      } else if (mRangePolicy != null) {
+        final int[] beforeAndAfter = new int[2];
+        mRangePolicy.computeRange(rangeSize, mRangeRatio, getReverseLayout(), beforeAndAfter);
+        rangeStart = firstVisible - beforeAndAfter[0];
+        rangeEnd = firstVisible + rangeSize + beforeAndAfter[1];
       } else {
         rangeStart = firstVisible - (int) (rangeSize * mRangeRatio);
         rangeEnd = firstVisible + rangeSize + (int) (rangeSize * mRangeRatio);
@@ -2444,6 +2623,18 @@ public class RecyclerBinder
         });
   }
 
+  private void computeLayoutSync(
+      ComponentTreeHolder holder, int widthSpec, int heightSpec, @Nullable Size outSize) {
+    if (mRangePolicy == null) {
+      holder.computeLayoutSync(mComponentContext, widthSpec, heightSpec, outSize);
+      return;
+    }
+
+    final long startTime = System.nanoTime();
+    holder.computeLayoutSync(mComponentContext, widthSpec, heightSpec, outSize);
+    mRangePolicy.recordItemLayoutTime(System.nanoTime() - startTime);
+  }
+
   /** @return Whether or not to continue layout computation for current range */
   private boolean computeRangeLayoutAt(
       int index, int rangeStart, int rangeEnd, int treeHoldersSize) {
@@ -2469,13 +2660,26 @@ public class RecyclerBinder
     }
 
     if (index >= rangeStart && index <= rangeEnd) {
+      if (mRetentionCache != null && (holder.isRetained() || holder.isRetainPending())) {
+        // Ordered after any retain() posted while the item was out of range, which would
+        // otherwise retain it, and eventually release it, while it's back in range.
+        if (ThreadUtils.isMainThread()) {
+          mRetentionCache.remove(holder);
+        } else {
+          mMainThreadHandler.post(getRemoveFromRetentionCacheRunnable(holder));
+        }
+      }
+
       if (!holder.isTreeValidForSizeSpecs(childrenWidthSpec, childrenHeightSpec)) {
         holder.computeLayoutAsync(mComponentContext, childrenWidthSpec, childrenHeightSpec);
       }
-    } else {
+    } else if (mRetentionCache == null || !holder.isRetained()) {
       if (ThreadUtils.isMainThread()) {
         maybeAcquireStateAndReleaseTree(holder);
       } else {
+        if (mRetentionCache != null) {
+          holder.setRetainPending(true);
+        }
         mMainThreadHandler.post(getMaybeAcquireStateAndReleaseTreeRunnable(holder));
       }
     }
@@ -2492,13 +2696,34 @@ public class RecyclerBinder
     };
   }
 
-  private static void maybeAcquireStateAndReleaseTree(ComponentTreeHolder holder) {
+  private Runnable getRemoveFromRetentionCacheRunnable(final ComponentTreeHolder holder) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        mRetentionCache.remove(holder);
+      }
+    };
+  }
+
+  /**
+   * Only called on the main thread: ranges computed in the background post it, like the removals
+   * from the retention cache, so that both are applied in the order the ranges were computed.
+   */
+  @UiThread
+  private void maybeAcquireStateAndReleaseTree(ComponentTreeHolder holder) {
     if (holder.isTreeValid()
         && !holder.getRenderInfo().isSticky()
         && (holder.getComponentTree() != null
             && holder.getComponentTree().getLithoView() == null)) {
-      holder.acquireStateAndReleaseTree();
+      if (mRetentionCache == null) {
+        holder.acquireStateAndReleaseTree();
+      } else if (!holder.isRetained()) {
+        mRetentionCache.retain(holder);
+      }
     }
+
+    // Cleared once the holder is retained, so that ranges computed meanwhile still remove it.
+    holder.setRetainPending(false);
   }
 
   private boolean getReverseLayout() {
@@ -2742,8 +2967,7 @@ public class RecyclerBinder
         final int childrenHeightSpec = getActualChildrenHeightSpec(componentTreeHolder);
         if (!componentTreeHolder.isTreeValidForSizeSpecs(childrenWidthSpec, childrenHeightSpec)) {
           final Size size = new Size();
-          componentTreeHolder.computeLayoutSync(
-              mComponentContext, childrenWidthSpec, childrenHeightSpec, size);
+          computeLayoutSync(componentTreeHolder, childrenWidthSpec, childrenHeightSpec, size);
         }
         final boolean isOrientationVertical =
             mLayoutInfo.getScrollDirection() == OrientationHelper.VERTICAL;
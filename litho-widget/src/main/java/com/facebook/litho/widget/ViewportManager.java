@@ -16,8 +16,10 @@
 
 package com.facebook.litho.widget;
 
+import android.os.SystemClock;
 import android.support.annotation.Nullable;
 import android.support.annotation.UiThread;
+import android.support.v7.widget.OrientationHelper;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.OnScrollListener;
 import android.support.v7.widget.RecyclerView.ViewHolder;
@@ -48,15 +50,29 @@ final class ViewportManager {
 
   private final LayoutInfo mLayoutInfo;
   private final ViewportScrollListener mViewportScrollListener = new ViewportScrollListener();
+  @Nullable private final AdaptiveRangePolicy mRangePolicy;
 
   ViewportManager(
       int currentFirstVisiblePosition, int currentLastVisiblePosition, LayoutInfo layoutInfo) {
+    this(currentFirstVisiblePosition, currentLastVisiblePosition, layoutInfo, null);
+  }
+
+  /**
+   * @param rangePolicy if not null, receives the scroll velocity of the {@link RecyclerView}, in
+   *     items per ms.
+   */
+  ViewportManager(
+      int currentFirstVisiblePosition,
+      int currentLastVisiblePosition,
+      LayoutInfo layoutInfo,
+      @Nullable AdaptiveRangePolicy rangePolicy) {
     mCurrentFirstVisiblePosition = currentFirstVisiblePosition;
     mCurrentLastVisiblePosition = currentLastVisiblePosition;
     mCurrentFirstFullyVisiblePosition = layoutInfo.findFirstFullyVisibleItemPosition();
     mCurrentLastFullyVisiblePosition = layoutInfo.findLastFullyVisibleItemPosition();
     mTotalItemCount = layoutInfo.getItemCount();
     mLayoutInfo = layoutInfo;
+    mRangePolicy = rangePolicy;
   }
 
   /**
@@ -209,7 +225,34 @@ final class ViewportManager {
 
     @Override
     public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+      if (mRangePolicy != null) {
+        onScrolledForRangePolicy(recyclerView, dx, dy);
+      }
+
       onViewportChanged(ViewportInfo.State.SCROLLING);
     }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+      if (mRangePolicy != null && newState == RecyclerView.SCROLL_STATE_IDLE) {
+        mRangePolicy.onScrollStopped();
+      }
+    }
+
+    private void onScrolledForRangePolicy(RecyclerView recyclerView, int dx, int dy) {
+      final boolean isVertical = mLayoutInfo.getScrollDirection() == OrientationHelper.VERTICAL;
+      final int delta = isVertical ? dy : dx;
+      final int viewportSize = isVertical ? recyclerView.getHeight() : recyclerView.getWidth();
+      final int firstVisiblePosition = mLayoutInfo.findFirstVisibleItemPosition();
+      final int lastVisiblePosition = mLayoutInfo.findLastVisibleItemPosition();
+      if (delta == 0 || viewportSize <= 0 || firstVisiblePosition < 0 || lastVisiblePosition < 0) {
+        return;
+      }
+
+      // Converts the scrolled pixels into items, assuming the visible items are representative.
+      final int visibleCount = lastVisiblePosition - firstVisiblePosition + 1;
+      mRangePolicy.onScrolled(
+          (float) delta * visibleCount / viewportSize, SystemClock.uptimeMillis());
+    }
   }
 }
@@ -136,6 +136,10 @@ LITHO_SCREENSHOT_TARGET = make_dep_path("lib/screenshot:screenshot")
 
 LITHO_JAVAC_TOOLS_TARGET = make_dep_path("lib/javac-tools:javac-tools")
 
+LITHO_JMH_TARGET = make_dep_path("lib/jmh:jmh")
+
+LITHO_JMH_PROCESSOR_TARGET = make_dep_path("lib/jmh:processor")
+
 # Fresco
 LITHO_FRESCO_TARGET = make_dep_path("lib/fresco:fresco")
 